@@ -1,31 +1,117 @@
+import api.ApiServer;
+import controller.AssignmentController;
 import controller.ClassDirectorController;
 import controller.AdminController;
 import controller.TeacherController;
 import dao.TeacherDAO;
 import dao.TeachingRequirementDAO;
+import dao.TrainingSessionDAO;
 import dao.impl.FileTeachingRequirementDAO;
+import dao.impl.ColumnarTeacherDAO;
+import dao.impl.ConcurrentTeacherDAO;
+import dao.impl.ConcurrentTeachingRequirementDAO;
+import dao.impl.DeferredDAO;
 import dao.impl.FileTeacherDAO;
+import dao.impl.FileTrainingSessionDAO;
+import dao.impl.MappedTeachingRequirementDAO;
+import dao.impl.PagedTeacherDAO;
+import util.QualificationVectorCache;
 import view.ClassDirectorMenu;
 import view.AdminMenu;
 import view.TeacherMenu;
 
+import java.io.IOException;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 public class Main {
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
 
-        // Initialising data access objects
-        TeachingRequirementDAO requirementDAO = new FileTeachingRequirementDAO();
-        TeacherDAO teacherDAO = new FileTeacherDAO();
+        // Initialising data access objects (-Drequirement.store=mapped selects the memory-mapped record store,
+        // -Dteacher.store=lazy the paged teacher store and -Dteacher.store=columnar the off-heap columnar one,
+        // -D<teacher|requirement>.store=concurrent the thread-safe stores with striped per-record locking,
+        // -Dwrite.behind.ms=<window> enables group-commit write-behind for the file stores,
+        // -Dstartup.parallel=true loads the stores concurrently and opens the menu once the first is ready,
+        // -Dhttp.port=<port> also serves the controllers as a JSON API on that port, on the loopback interface
+        // only unless -Dhttp.host=<address> names another one, e.g. 0.0.0.0; the API has no authentication)
+        long flushWindow = Long.getLong("write.behind.ms", 0);
+        int flushBatch = Integer.getInteger("write.behind.batch", 256);
+        String requirementStore = System.getProperty("requirement.store", "file");
+        String teacherStore = System.getProperty("teacher.store", "file");
+        boolean parallelStartup = Boolean.getBoolean("startup.parallel");
+
+        ExecutorService loaders = parallelStartup
+                ? Executors.newCachedThreadPool(r -> {
+                    Thread thread = new Thread(r, "store-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+        CompletableFuture<TeachingRequirementDAO> requirementsLoading = load("Requirement", loaders,
+                () -> "mapped".equals(requirementStore)
+                        ? new MappedTeachingRequirementDAO()
+                        : "concurrent".equals(requirementStore)
+                        ? new ConcurrentTeachingRequirementDAO(flushWindow, flushBatch)
+                        : new FileTeachingRequirementDAO(flushWindow, flushBatch));
+        CompletableFuture<TeacherDAO> teachersLoading = load("Teacher", loaders,
+                () -> "lazy".equals(teacherStore)
+                        ? new PagedTeacherDAO(Integer.getInteger("teacher.cache.size", 1024))
+                        : "columnar".equals(teacherStore)
+                        ? new ColumnarTeacherDAO()
+                        : "concurrent".equals(teacherStore)
+                        ? new ConcurrentTeacherDAO(flushWindow, flushBatch)
+                        : new FileTeacherDAO(flushWindow, flushBatch));
+        CompletableFuture<TrainingSessionDAO> trainingLoading = load("Training session", loaders,
+                FileTrainingSessionDAO::new);
+
+        TeachingRequirementDAO requirementDAO;
+        TeacherDAO teacherDAO;
+        TrainingSessionDAO trainingSessionDAO;
+        if (parallelStartup) {
+            // Stores still loading block only the calls made on them
+            requirementDAO = DeferredDAO.of(TeachingRequirementDAO.class, requirementsLoading);
+            teacherDAO = DeferredDAO.of(TeacherDAO.class, teachersLoading);
+            trainingSessionDAO = DeferredDAO.of(TrainingSessionDAO.class, trainingLoading);
+            CompletableFuture.anyOf(requirementsLoading, teachersLoading, trainingLoading)
+                    .exceptionally(e -> null).join();
+            CompletableFuture.allOf(requirementsLoading, teachersLoading, trainingLoading)
+                    .whenComplete((ignored, e) -> loaders.shutdown());
+        } else {
+            requirementDAO = requirementsLoading.join();
+            teacherDAO = teachersLoading.join();
+            trainingSessionDAO = trainingLoading.join();
+        }
 
         // Initialising the controller
         ClassDirectorController classDirectorController = new ClassDirectorController(requirementDAO);
-        AdminController adminController = new AdminController(teacherDAO);
-        TeacherController teacherController = new TeacherController(teacherDAO);
+        QualificationVectorCache qualificationVectors = new QualificationVectorCache();
+        AdminController adminController = new AdminController(teacherDAO, qualificationVectors);
+        TeacherController teacherController = new TeacherController(teacherDAO, trainingSessionDAO);
+        AssignmentController assignmentController = new AssignmentController(requirementDAO, teacherDAO,
+                AssignmentController.DEFAULT_CANDIDATES_PER_REQUIREMENT, qualificationVectors);
+
+        // Serving the HTTP API next to the console, if asked for
+        ApiServer apiServer = null;
+        Integer httpPort = Integer.getInteger("http.port");
+        if (httpPort != null) {
+            try {
+                apiServer = new ApiServer(System.getProperty("http.host"), httpPort, adminController,
+                        classDirectorController, teacherController, assignmentController);
+                apiServer.start();
+                System.out.println("HTTP API listening on " + apiServer.getAddress().getAddress().getHostAddress()
+                        + ":" + apiServer.getPort());
+            } catch (IOException e) {
+                System.err.println("Error: The HTTP API could not be started: " + e.getMessage());
+            }
+        }
 
         // Initialising the view
-        ClassDirectorMenu classDirectorMenu = new ClassDirectorMenu(classDirectorController, scanner);
+        ClassDirectorMenu classDirectorMenu = new ClassDirectorMenu(classDirectorController, assignmentController, scanner);
         AdminMenu adminMenu = new AdminMenu(adminController, scanner);
         TeacherMenu teacherMenu = new TeacherMenu(teacherController);
 
@@ -63,8 +149,12 @@ public class Main {
                     break;
 
                 case 0:
+                    if (apiServer != null) {
+                        apiServer.stop(2);
+                    }
                     System.out.println("Saving data...");
-                    requirementDAO.saveAll();
+                    teacherDAO.close().join();
+                    requirementDAO.close().join();
                     System.out.println("Thank you for using! Goodbye.");
                     scanner.close();
                     return;
@@ -74,4 +164,22 @@ public class Main {
             }
         }
     }
+
+    // Load one store, on the given executor or on the calling thread, and report how long it took
+    private static <T> CompletableFuture<T> load(String name, Executor executor, Supplier<T> factory) {
+        Supplier<T> timed = () -> {
+            long start = System.nanoTime();
+            T store = factory.get();
+            System.out.println(name + " store loaded in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return store;
+        };
+        CompletableFuture<T> loading = executor != null
+                ? CompletableFuture.supplyAsync(timed, executor)
+                : CompletableFuture.completedFuture(timed.get());
+        return loading.whenComplete((store, e) -> {
+            if (e != null) {
+                System.err.println("Error: " + name + " store failed to load: " + e.getMessage());
+            }
+        });
+    }
 }
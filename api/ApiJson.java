@@ -0,0 +1,210 @@
+package api;
+
+import controller.AssignmentController;
+import model.RoomUtilization;
+import model.ScheduleConflict;
+import model.Teacher;
+import model.TeachingRequirement;
+import model.TrainingSession;
+import model.WeekOccupancy;
+import util.JsonReader;
+import util.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JSON form of the objects the API exchanges
+ * Field names follow the data files, so that a teacher or requirement looks the same on disk
+ * and on the wire. Request bodies are read into field holders whose absent fields are null,
+ * which lets the same holder serve creation and partial updates. Teachers and requirements are
+ * written with their version; a body that gives one back makes an update conditional on it.
+ */
+final class ApiJson {
+
+    private ApiJson() {
+    }
+
+    /**
+     * Teacher fields of a request body
+     */
+    static final class TeacherFields {
+        Integer id;
+        String name;
+        String contact;
+        Boolean available;
+        String qualifications;
+        Long version;
+    }
+
+    /**
+     * Teaching requirement fields of a request body
+     */
+    static final class RequirementFields {
+        String courseName;
+        String courseCode;
+        String schedule;
+        String location;
+        List<String> requiredQualifications;
+        String notes;
+        Long version;
+    }
+
+    static TeacherFields readTeacher(JsonReader in) throws IOException {
+        TeacherFields fields = new TeacherFields();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peekNull()) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "id": fields.id = in.nextInt(); break;
+                case "name": fields.name = in.nextString(); break;
+                case "contact": fields.contact = in.nextString(); break;
+                case "isAvailable":
+                case "available":
+                    fields.available = in.nextBoolean();
+                    break;
+                case "qualifications": fields.qualifications = in.nextString(); break;
+                case "version": fields.version = in.nextLong(); break;
+                default: in.skipValue();
+            }
+        }
+        in.endObject();
+        return fields;
+    }
+
+    static RequirementFields readRequirement(JsonReader in) throws IOException {
+        RequirementFields fields = new RequirementFields();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peekNull()) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "courseName": fields.courseName = in.nextString(); break;
+                case "courseCode": fields.courseCode = in.nextString(); break;
+                case "schedule": fields.schedule = in.nextString(); break;
+                case "location": fields.location = in.nextString(); break;
+                case "requiredQualifications": fields.requiredQualifications = readStringList(in); break;
+                case "notes": fields.notes = in.nextString(); break;
+                case "version": fields.version = in.nextLong(); break;
+                default: in.skipValue();
+            }
+        }
+        in.endObject();
+        return fields;
+    }
+
+    static void writeTeacher(JsonWriter out, Teacher teacher) throws IOException {
+        out.beginObject();
+        out.name("id").value(teacher.getId());
+        out.name("name").value(teacher.getName());
+        out.name("contact").value(teacher.getContact());
+        out.name("isAvailable").value(teacher.isAvailable());
+        out.name("qualifications").value(teacher.getQualifications());
+        out.name("version").value(teacher.getVersion());
+        out.endObject();
+    }
+
+    static void writeTeachers(JsonWriter out, Collection<Teacher> teachers) throws IOException {
+        out.beginArray();
+        for (Teacher teacher : teachers) {
+            writeTeacher(out, teacher);
+        }
+        out.endArray();
+    }
+
+    static void writeRequirement(JsonWriter out, TeachingRequirement requirement) throws IOException {
+        out.beginObject();
+        out.name("id").value(requirement.getId());
+        out.name("courseName").value(requirement.getCourseName());
+        out.name("courseCode").value(requirement.getCourseCode());
+        out.name("schedule").value(requirement.getSchedule());
+        out.name("location").value(requirement.getLocation());
+        out.name("requiredQualifications");
+        writeStringList(out, requirement.getRequiredQualifications());
+        out.name("status").value(requirement.getStatus().name());
+        out.name("assignedTeacherIds");
+        writeStringList(out, requirement.getAssignedTeacherIds());
+        out.name("notes").value(requirement.getNotes());
+        out.name("createdTimestamp").value(requirement.getCreatedTimestamp());
+        out.name("lastModifiedTimestamp").value(requirement.getLastModifiedTimestamp());
+        out.name("version").value(requirement.getVersion());
+        out.endObject();
+    }
+
+    static void writeRequirements(JsonWriter out, Collection<TeachingRequirement> requirements) throws IOException {
+        out.beginArray();
+        for (TeachingRequirement requirement : requirements) {
+            writeRequirement(out, requirement);
+        }
+        out.endArray();
+    }
+
+    static void writeTrainingSession(JsonWriter out, TrainingSession session) throws IOException {
+        out.beginObject();
+        out.name("id").value(session.getId());
+        out.name("name").value(session.getName());
+        out.name("date").value(session.getDate());
+        out.name("location").value(session.getLocation());
+        out.name("content").value(session.getContent());
+        out.name("participatingTeacherIds");
+        writeStringList(out, session.getParticipatingTeacherIds());
+        out.endObject();
+    }
+
+    static void writeRecommendation(JsonWriter out, AssignmentController.Recommendation recommendation)
+            throws IOException {
+        out.beginObject();
+        out.name("teacher");
+        writeTeacher(out, recommendation.getTeacher());
+        out.name("score").value(recommendation.getScore());
+        out.name("fit").value(recommendation.getFit());
+        out.name("load").value(recommendation.getLoad());
+        out.endObject();
+    }
+
+    static void writeRoomUtilization(JsonWriter out, RoomUtilization room) throws IOException {
+        out.beginObject();
+        out.name("location").value(room.getLocation());
+        out.name("requirementCount").value(room.getRequirementCount());
+        out.name("bookedHours").value(room.getBookedHours());
+        out.name("utilization").value(room.getUtilization());
+        out.name("doubleBookedHours").value(room.getClashes().cardinality() * WeekOccupancy.SLOT_MINUTES / 60.0);
+        out.endObject();
+    }
+
+    static void writeConflict(JsonWriter out, ScheduleConflict conflict) throws IOException {
+        out.beginObject();
+        out.name("kind").value(conflict.getKind().name());
+        out.name("resource").value(conflict.getResource());
+        out.name("firstId").value(conflict.getFirst().getId());
+        out.name("secondId").value(conflict.getSecond().getId());
+        out.endObject();
+    }
+
+    static void writeStringList(JsonWriter out, Collection<String> values) throws IOException {
+        out.beginArray();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+
+    private static List<String> readStringList(JsonReader in) throws IOException {
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(in.nextString());
+        }
+        in.endArray();
+        return values;
+    }
+}
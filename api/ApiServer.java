@@ -0,0 +1,138 @@
+package api;
+
+import com.sun.net.httpserver.HttpServer;
+import controller.AdminController;
+import controller.AssignmentController;
+import controller.ClassDirectorController;
+import controller.TeacherController;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded HTTP/JSON API over the controllers
+ * Built on the JDK's own HTTP server, so it needs no libraries. Each request runs on its own
+ * virtual thread where the runtime has them (JDK 21 and later), so a request blocked on disk
+ * costs no platform thread; older runtimes fall back to a cached pool of daemon threads.
+ * Responses are streamed as they are written. The API has no authentication, so it listens
+ * on the loopback interface only unless another host address is given explicitly. Endpoints:
+ *
+ * /api/teachers      see {@link TeacherEndpoints}
+ * /api/requirements  see {@link RequirementEndpoints}
+ * /api/schedule      see {@link ScheduleEndpoints}
+ */
+public final class ApiServer {
+    // Connections waiting to be accepted before new ones are refused
+    private static final int BACKLOG = 1024;
+
+    static {
+        // Without TCP_NODELAY every response waits ~40 ms for the client's delayed acknowledgement
+        // of the headers; the server reads the setting once, when it is first used
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor for a server reachable from this machine only
+     *
+     * @param port Port to listen on, 0 for any free port
+     * @param adminController Teacher administration
+     * @param classDirectorController Teaching requirements
+     * @param teacherController Teacher self-service
+     * @param assignmentController Teacher recommendations, may be null
+     * @throws IOException if the port cannot be bound
+     */
+    public ApiServer(int port, AdminController adminController, ClassDirectorController classDirectorController,
+                     TeacherController teacherController, AssignmentController assignmentController)
+            throws IOException {
+        this(null, port, adminController, classDirectorController, teacherController, assignmentController);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param host Address to listen on, e.g. "0.0.0.0" for every interface; null for the loopback interface
+     * @param port Port to listen on, 0 for any free port
+     * @param adminController Teacher administration
+     * @param classDirectorController Teaching requirements
+     * @param teacherController Teacher self-service
+     * @param assignmentController Teacher recommendations, may be null
+     * @throws IOException if the host cannot be resolved or the port cannot be bound
+     */
+    public ApiServer(String host, int port, AdminController adminController,
+                     ClassDirectorController classDirectorController, TeacherController teacherController,
+                     AssignmentController assignmentController) throws IOException {
+        InetAddress address = host == null || host.trim().isEmpty()
+                ? InetAddress.getLoopbackAddress()
+                : InetAddress.getByName(host.trim());
+        server = HttpServer.create(new InetSocketAddress(address, port), BACKLOG);
+        server.createContext(TeacherEndpoints.PATH,
+                new TeacherEndpoints(adminController, teacherController, classDirectorController));
+        server.createContext(RequirementEndpoints.PATH,
+                new RequirementEndpoints(classDirectorController, assignmentController));
+        server.createContext(ScheduleEndpoints.PATH, new ScheduleEndpoints(classDirectorController));
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Start answering requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop answering requests, letting those in progress finish
+     *
+     * @param delaySeconds Longest time to wait for requests in progress
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the address the server listens on
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Get the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Create the executor that runs requests: a virtual thread per request when the runtime
+     * supports it, otherwise a cached pool of daemon threads
+     * Looked up reflectively so that the code still compiles and runs on JDK 17.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "api-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import util.JsonReader;
+import util.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Base of the JSON endpoints
+ * A subclass looks up what a request asks for and returns a {@link Response} whose body is
+ * streamed to the client afterwards; beyond the first few kilobytes it goes out in chunks as it
+ * is written, so that no large response is built in memory.
+ * Failures before the body starts become JSON errors: NoSuchElementException is 404,
+ * IllegalArgumentException 400, IllegalStateException 409, UnsupportedOperationException 405.
+ */
+abstract class JsonHandler implements HttpHandler {
+    // Responses up to this size are sent with a length, larger ones in chunks
+    private static final int WRITE_BUFFER_SIZE = 16 * 1024;
+    // Largest page a client may ask for
+    static final int MAX_PAGE_SIZE = 1000;
+    // Rows fetched at a time when a whole listing is streamed
+    static final int STREAM_CHUNK = 256;
+
+    /**
+     * Writes a response body
+     */
+    interface Body {
+        void write(JsonWriter out) throws IOException;
+    }
+
+    /**
+     * Status and body of a response
+     */
+    static final class Response {
+        private final int status;
+        private final Body body;
+
+        private Response(int status, Body body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(Body body) {
+            return new Response(200, body);
+        }
+
+        static Response created(Body body) {
+            return new Response(201, body);
+        }
+
+        static Response noContent() {
+            return new Response(204, null);
+        }
+    }
+
+    /**
+     * Method, path and query of a request, with its body
+     */
+    static final class Request {
+        private final HttpExchange exchange;
+        private final List<String> path;
+        private final Map<String, String> query;
+
+        Request(HttpExchange exchange, List<String> path, Map<String, String> query) {
+            this.exchange = exchange;
+            this.path = path;
+            this.query = query;
+        }
+
+        String method() {
+            return exchange.getRequestMethod();
+        }
+
+        /**
+         * Get the path segments after the endpoint's own path, decoded
+         */
+        List<String> path() {
+            return path;
+        }
+
+        /**
+         * Get a query parameter
+         *
+         * @param name Parameter name
+         * @return The decoded value, null if absent
+         */
+        String param(String name) {
+            return query.get(name);
+        }
+
+        /**
+         * Get an integer query parameter
+         *
+         * @param name Parameter name
+         * @param defaultValue Value if the parameter is absent
+         * @return The value
+         * @throws IllegalArgumentException if the parameter is not an integer
+         */
+        int intParam(String name, int defaultValue) {
+            String value = query.get(name);
+            if (value == null || value.isEmpty()) {
+                return defaultValue;
+            }
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Parameter " + name + " must be an integer");
+            }
+        }
+
+        /**
+         * Read the body as a JSON document
+         *
+         * @param reader Reads the document
+         * @return What the reader returned
+         * @throws IllegalArgumentException if the body is not valid JSON
+         */
+        <T> T body(BodyReader<T> reader) {
+            JsonReader in = new JsonReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+            try {
+                return reader.read(in);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads a request body
+     */
+    interface BodyReader<T> {
+        T read(JsonReader in) throws IOException;
+    }
+
+    private final String basePath;
+
+    /**
+     * Constructor
+     *
+     * @param basePath Path the handler is registered under, e.g. "/api/teachers"
+     */
+    JsonHandler(String basePath) {
+        this.basePath = basePath;
+    }
+
+    /**
+     * Answer a request
+     *
+     * @param request The request
+     * @return The response
+     */
+    abstract Response respond(Request request);
+
+    @Override
+    public final void handle(HttpExchange exchange) throws IOException {
+        try {
+            Response response;
+            try {
+                response = respond(new Request(exchange, segments(exchange), query(exchange)));
+            } catch (NoSuchElementException e) {
+                response = error(404, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                response = error(400, e.getMessage());
+            } catch (IllegalStateException e) {
+                response = error(409, e.getMessage());
+            } catch (UnsupportedOperationException e) {
+                response = error(405, e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("Error: " + exchange.getRequestMethod() + " " + exchange.getRequestURI()
+                        + " failed: " + e);
+                response = error(500, "Internal error");
+            }
+            send(exchange, response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        // Drain what the handler did not read, so the connection can be reused
+        exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+        if (response.body == null) {
+            exchange.sendResponseHeaders(response.status, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        Writer writer = new OutputStreamWriter(new ResponseStream(exchange, response.status), StandardCharsets.UTF_8);
+        try (JsonWriter out = new JsonWriter(writer, false)) {
+            response.body.write(out);
+        }
+    }
+
+    /**
+     * Response body that is sent with its length when it fits in the buffer, and in chunks as it
+     * is written otherwise
+     * Small responses thus go out in one write, instead of as a chunk followed by a separate
+     * terminating chunk that the client's delayed acknowledgement would hold up.
+     */
+    private static final class ResponseStream extends OutputStream {
+        private final HttpExchange exchange;
+        private final int status;
+        private byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+        private int count;
+        private OutputStream chunked;
+
+        ResponseStream(HttpExchange exchange, int status) {
+            this.exchange = exchange;
+            this.status = status;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (chunked == null && count + length > buffer.length) {
+                // Length 0 selects chunked encoding
+                exchange.sendResponseHeaders(status, 0);
+                chunked = exchange.getResponseBody();
+                chunked.write(buffer, 0, count);
+                buffer = null;
+            }
+            if (chunked != null) {
+                chunked.write(bytes, offset, length);
+            } else {
+                System.arraycopy(bytes, offset, buffer, count, length);
+                count += length;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (chunked == null) {
+                // Length -1 means no body at all, whereas 0 would select chunked encoding
+                exchange.sendResponseHeaders(status, count == 0 ? -1 : count);
+                chunked = exchange.getResponseBody();
+                chunked.write(buffer, 0, count);
+            }
+            chunked.close();
+        }
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, out -> out.beginObject()
+                .name("error").value(message != null ? message : "Request failed")
+                .endObject());
+    }
+
+    /**
+     * Refuse a request whose method the endpoint does not support
+     */
+    static UnsupportedOperationException methodNotAllowed(Request request) {
+        return new UnsupportedOperationException("Method " + request.method() + " is not allowed here");
+    }
+
+    /**
+     * Refuse a request unless it uses the given method
+     */
+    static void expect(Request request, String method) {
+        if (!request.method().equals(method)) {
+            throw methodNotAllowed(request);
+        }
+    }
+
+    /**
+     * Get the number of rows a request asks for with ?limit=
+     *
+     * @param defaultLimit Number of rows if the parameter is absent
+     * @throws IllegalArgumentException if the number is out of range
+     */
+    static int limit(Request request, int defaultLimit) {
+        int limit = request.intParam("limit", defaultLimit);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    /**
+     * Parse an ID taken from the path
+     *
+     * @throws IllegalArgumentException if it is not an integer
+     */
+    static int parseId(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid ID: " + text);
+        }
+    }
+
+    private List<String> segments(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getRawPath();
+        if (!path.startsWith(basePath)) {
+            return Collections.emptyList();
+        }
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.substring(basePath.length()).split("/")) {
+            if (!segment.isEmpty()) {
+                // A '+' in a path is a plus sign, not an encoded space
+                segments.add(URLDecoder.decode(segment.replace("+", "%2B"), StandardCharsets.UTF_8));
+            }
+        }
+        return segments;
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+}
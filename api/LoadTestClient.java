@@ -0,0 +1,169 @@
+package api;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Local load-test client for the HTTP API
+ * Runs a number of clients that each send GET requests back to back, cycling through the given
+ * paths, for a fixed time, then prints throughput and latency percentiles.
+ *
+ * Usage: java api.LoadTestClient [baseUrl] [clients] [seconds] [path...]
+ * e.g.   java api.LoadTestClient http://localhost:8080 32 10 /api/teachers?limit=20 /api/schedule/rooms
+ */
+public final class LoadTestClient {
+    private static final String DEFAULT_BASE_URL = "http://localhost:8080";
+    private static final String[] DEFAULT_PATHS = {"/api/teachers?limit=20", "/api/requirements?limit=20"};
+    // Latencies kept per client; later requests are counted but not sampled
+    private static final int MAX_SAMPLES = 1 << 16;
+
+    private LoadTestClient() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : DEFAULT_BASE_URL;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        String[] paths = args.length > 3 ? Arrays.copyOfRange(args, 3, args.length) : DEFAULT_PATHS;
+
+        Result result = run(baseUrl, clients, Duration.ofSeconds(seconds), paths);
+        System.out.println(result);
+    }
+
+    /**
+     * Outcome of a load test
+     */
+    public static final class Result {
+        private final int clients;
+        private final long requests;
+        private final long failures;
+        private final double seconds;
+        private final long[] sortedLatencyNanos;
+
+        Result(int clients, long requests, long failures, double seconds, long[] sortedLatencyNanos) {
+            this.clients = clients;
+            this.requests = requests;
+            this.failures = failures;
+            this.seconds = seconds;
+            this.sortedLatencyNanos = sortedLatencyNanos;
+        }
+
+        public double getRequestsPerSecond() {
+            return requests / seconds;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Get a latency percentile in milliseconds
+         *
+         * @param percentile From 0 to 100
+         */
+        public double getLatencyMillis(double percentile) {
+            if (sortedLatencyNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sortedLatencyNanos.length - 1,
+                    Math.round(percentile / 100 * (sortedLatencyNanos.length - 1)));
+            return sortedLatencyNanos[index] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d clients: %d requests in %.1f s, %.0f req/s, %d failed, "
+                            + "p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    clients, requests, seconds, getRequestsPerSecond(), failures,
+                    getLatencyMillis(50), getLatencyMillis(99), getLatencyMillis(100));
+        }
+    }
+
+    /**
+     * Run a load test
+     *
+     * @param baseUrl Server address, e.g. "http://localhost:8080"
+     * @param clients Number of concurrent clients
+     * @param duration How long to send requests for
+     * @param paths Paths to request in turn; a response other than 2xx counts as a failure
+     * @return The outcome
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    public static Result run(String baseUrl, int clients, Duration duration, String... paths)
+            throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest[] requests = new HttpRequest[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            requests[i] = HttpRequest.newBuilder(URI.create(baseUrl + paths[i])).GET().build();
+        }
+
+        AtomicBoolean stop = new AtomicBoolean();
+        long[][] latencies = new long[clients][];
+        int[] sampled = new int[clients];
+        long[] counts = new long[clients];
+        long[] failures = new long[clients];
+        Thread[] threads = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            latencies[client] = new long[1024];
+            threads[client] = new Thread(() -> {
+                int next = client % requests.length;
+                while (!stop.get()) {
+                    long start = System.nanoTime();
+                    boolean ok;
+                    try {
+                        int status = http.send(requests[next], HttpResponse.BodyHandlers.discarding()).statusCode();
+                        ok = status >= 200 && status < 300;
+                    } catch (Exception e) {
+                        ok = false;
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    counts[client]++;
+                    if (!ok) {
+                        failures[client]++;
+                    }
+                    if (sampled[client] < MAX_SAMPLES) {
+                        if (sampled[client] == latencies[client].length) {
+                            latencies[client] = Arrays.copyOf(latencies[client], sampled[client] * 2);
+                        }
+                        latencies[client][sampled[client]++] = elapsed;
+                    }
+                    next = (next + 1) % requests.length;
+                }
+            }, "load-client-" + client);
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(duration.toMillis());
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long total = 0;
+        long failed = 0;
+        int samples = 0;
+        for (int c = 0; c < clients; c++) {
+            total += counts[c];
+            failed += failures[c];
+            samples += sampled[c];
+        }
+        long[] all = new long[samples];
+        int offset = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies[c], 0, all, offset, sampled[c]);
+            offset += sampled[c];
+        }
+        Arrays.sort(all);
+        return new Result(clients, total, failed, seconds, all);
+    }
+}
@@ -0,0 +1,179 @@
+package api;
+
+import controller.AssignmentController;
+import controller.ClassDirectorController;
+import dao.Page;
+import model.TeachingRequirement;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Teaching requirement endpoints, under /api/requirements
+ *
+ * GET    /                           all requirements, streamed; ?status= filters by status,
+ *                                    ?course= searches course names, ?limit=&amp;after= returns one
+ *                                    page after the given ID
+ * POST   /                           create a requirement
+ * GET    /{id}                       one requirement
+ * PUT    /{id}                       change the fields given in the body; with a "version",
+ *                                    refused if the requirement has been changed since
+ * DELETE /{id}                       remove a requirement
+ * POST   /{id}/teachers/{teacherId}  assign a teacher, refused if the teacher is busy
+ * GET    /{id}/recommendations       best-fit teachers, ?limit= of them
+ */
+final class RequirementEndpoints extends JsonHandler {
+    static final String PATH = "/api/requirements";
+    private static final int DEFAULT_RECOMMENDATIONS = 5;
+
+    private final ClassDirectorController classDirectorController;
+    // May be null, in which case there are no recommendations
+    private final AssignmentController assignmentController;
+
+    RequirementEndpoints(ClassDirectorController classDirectorController, AssignmentController assignmentController) {
+        super(PATH);
+        this.classDirectorController = classDirectorController;
+        this.assignmentController = assignmentController;
+    }
+
+    @Override
+    Response respond(Request request) {
+        List<String> path = request.path();
+        if (path.isEmpty()) {
+            switch (request.method()) {
+                case "GET": return list(request);
+                case "POST": return create(request);
+                default: throw methodNotAllowed(request);
+            }
+        }
+        String id = path.get(0);
+        if (path.size() == 1) {
+            switch (request.method()) {
+                case "GET": return get(id);
+                case "PUT": return update(id, request);
+                case "DELETE": return delete(id);
+                default: throw methodNotAllowed(request);
+            }
+        }
+        if (path.size() == 3 && path.get(1).equals("teachers")) {
+            expect(request, "POST");
+            find(id);
+            if (!classDirectorController.assignTeacher(id, path.get(2))) {
+                throw new IllegalStateException("Teacher " + path.get(2) + " is busy at an overlapping time");
+            }
+            return get(id);
+        }
+        if (path.size() == 2 && path.get(1).equals("recommendations") && assignmentController != null) {
+            expect(request, "GET");
+            List<AssignmentController.Recommendation> recommendations =
+                    assignmentController.recommendTeachers(find(id), limit(request, DEFAULT_RECOMMENDATIONS));
+            return Response.ok(out -> {
+                out.beginArray();
+                for (AssignmentController.Recommendation recommendation : recommendations) {
+                    ApiJson.writeRecommendation(out, recommendation);
+                }
+                out.endArray();
+            });
+        }
+        throw new NoSuchElementException("No such endpoint");
+    }
+
+    private Response list(Request request) {
+        String status = request.param("status");
+        if (status != null && !status.isEmpty()) {
+            TeachingRequirement.RequirementStatus parsed;
+            try {
+                parsed = TeachingRequirement.RequirementStatus.valueOf(status.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown status: " + status);
+            }
+            List<TeachingRequirement> requirements = classDirectorController.getRequirementsByStatus(parsed);
+            return Response.ok(out -> ApiJson.writeRequirements(out, requirements));
+        }
+        String course = request.param("course");
+        if (course != null && !course.trim().isEmpty()) {
+            List<TeachingRequirement> requirements = classDirectorController.searchRequirementsByCourseName(course);
+            return Response.ok(out -> ApiJson.writeRequirements(out, requirements));
+        }
+        if (request.param("limit") != null) {
+            int limit = limit(request, STREAM_CHUNK);
+            String after = request.param("after");
+            // Pages in ID order only look at the ID of the last requirement
+            TeachingRequirement last = after == null || after.isEmpty()
+                    ? null
+                    : new TeachingRequirement(after, null, null, null, null, null, null, null, null, 0, 0);
+            Page<TeachingRequirement> page = classDirectorController.getRequirementsPage(last, limit);
+            return Response.ok(out -> {
+                out.beginObject();
+                out.name("items");
+                ApiJson.writeRequirements(out, page.getItems());
+                out.name("next").value(page.hasMore() ? page.getLast().getId() : null);
+                out.endObject();
+            });
+        }
+        // Everything, fetched a page at a time while it is written
+        return Response.ok(out -> {
+            out.beginArray();
+            Page<TeachingRequirement> page;
+            TeachingRequirement last = null;
+            do {
+                page = classDirectorController.getRequirementsPage(last, STREAM_CHUNK);
+                for (TeachingRequirement requirement : page.getItems()) {
+                    ApiJson.writeRequirement(out, requirement);
+                }
+                last = page.getLast();
+            } while (page.hasMore());
+            out.endArray();
+        });
+    }
+
+    private Response create(Request request) {
+        ApiJson.RequirementFields fields = request.body(ApiJson::readRequirement);
+        if (fields.courseName == null || fields.courseName.trim().isEmpty()
+                || fields.courseCode == null || fields.courseCode.trim().isEmpty()) {
+            throw new IllegalArgumentException("courseName and courseCode are required");
+        }
+        TeachingRequirement requirement = classDirectorController.createRequirement(fields.courseName,
+                fields.courseCode, fields.schedule, fields.location, fields.requiredQualifications, fields.notes);
+        if (requirement == null) {
+            throw new RuntimeException("Requirement could not be saved");
+        }
+        return Response.created(out -> ApiJson.writeRequirement(out, requirement));
+    }
+
+    private Response get(String id) {
+        TeachingRequirement requirement = find(id);
+        return Response.ok(out -> ApiJson.writeRequirement(out, requirement));
+    }
+
+    private Response update(String id, Request request) {
+        ApiJson.RequirementFields fields = request.body(ApiJson::readRequirement);
+        if (fields.version == null) {
+            if (!classDirectorController.updateRequirement(id, fields.courseName, fields.courseCode,
+                    fields.schedule, fields.location, fields.requiredQualifications, fields.notes)) {
+                throw new NoSuchElementException("Requirement not found: " + id);
+            }
+        } else if (!classDirectorController.updateRequirement(id, fields.version, fields.courseName,
+                fields.courseCode, fields.schedule, fields.location, fields.requiredQualifications, fields.notes)) {
+            find(id);
+            throw new IllegalStateException("Requirement " + id + " has been changed since version " + fields.version);
+        }
+        return get(id);
+    }
+
+    private Response delete(String id) {
+        if (!classDirectorController.deleteRequirement(id)) {
+            throw new NoSuchElementException("Requirement not found: " + id);
+        }
+        return Response.noContent();
+    }
+
+    private TeachingRequirement find(String id) {
+        TeachingRequirement requirement = classDirectorController.getRequirementById(id);
+        if (requirement == null) {
+            throw new NoSuchElementException("Requirement not found: " + id);
+        }
+        return requirement;
+    }
+}
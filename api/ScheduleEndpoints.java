@@ -0,0 +1,67 @@
+package api;
+
+import controller.ClassDirectorController;
+import model.RoomUtilization;
+import model.ScheduleConflict;
+import model.WeeklySchedule;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Room and timetable endpoints, under /api/schedule
+ *
+ * GET /rooms                   utilization of every room over the teaching week
+ * GET /rooms/free              rooms free during ?schedule=, blank for the teaching week
+ * GET /rooms/{location}/free   times a room is free within ?window=, blank for the teaching week
+ * GET /conflicts               every double-booked room and teacher
+ */
+final class ScheduleEndpoints extends JsonHandler {
+    static final String PATH = "/api/schedule";
+
+    private final ClassDirectorController classDirectorController;
+
+    ScheduleEndpoints(ClassDirectorController classDirectorController) {
+        super(PATH);
+        this.classDirectorController = classDirectorController;
+    }
+
+    @Override
+    Response respond(Request request) {
+        expect(request, "GET");
+        List<String> path = request.path();
+        if (path.size() == 1 && path.get(0).equals("rooms")) {
+            List<RoomUtilization> rooms = classDirectorController.getRoomUtilization();
+            return Response.ok(out -> {
+                out.beginArray();
+                for (RoomUtilization room : rooms) {
+                    ApiJson.writeRoomUtilization(out, room);
+                }
+                out.endArray();
+            });
+        }
+        if (path.size() == 2 && path.get(0).equals("rooms") && path.get(1).equals("free")) {
+            List<String> locations = classDirectorController.getFreeLocations(request.param("schedule"));
+            return Response.ok(out -> ApiJson.writeStringList(out, locations));
+        }
+        if (path.size() == 3 && path.get(0).equals("rooms") && path.get(2).equals("free")) {
+            String location = path.get(1);
+            WeeklySchedule free = classDirectorController.getFreeTimes(location, request.param("window"));
+            return Response.ok(out -> out.beginObject()
+                    .name("location").value(location)
+                    .name("freeTimes").value(free.toString())
+                    .endObject());
+        }
+        if (path.size() == 1 && path.get(0).equals("conflicts")) {
+            List<ScheduleConflict> conflicts = classDirectorController.findAllConflicts();
+            return Response.ok(out -> {
+                out.beginArray();
+                for (ScheduleConflict conflict : conflicts) {
+                    ApiJson.writeConflict(out, conflict);
+                }
+                out.endArray();
+            });
+        }
+        throw new NoSuchElementException("No such endpoint");
+    }
+}
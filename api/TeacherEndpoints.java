@@ -0,0 +1,192 @@
+package api;
+
+import controller.AdminController;
+import controller.ClassDirectorController;
+import controller.TeacherController;
+import dao.Page;
+import model.Teacher;
+import model.TeachingRequirement;
+import model.TrainingSession;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Teacher endpoints, under /api/teachers
+ *
+ * GET    /                            all teachers, streamed; ?q= searches qualifications,
+ *                                     ?available=true lists available teachers, ?limit=&amp;after=
+ *                                     returns one page after the given ID
+ * POST   /                            register a teacher
+ * GET    /{id}                        one teacher
+ * PUT    /{id}                        change the fields given in the body; with a "version",
+ *                                     refused if the teacher has been changed since
+ * DELETE /{id}                        remove a teacher
+ * GET    /{id}/requirements           requirements the teacher is assigned to
+ * GET    /{id}/trainings              training sessions the teacher attended
+ * POST   /{id}/trainings/{sessionId}  record attendance of a training session
+ */
+final class TeacherEndpoints extends JsonHandler {
+    static final String PATH = "/api/teachers";
+
+    private final AdminController adminController;
+    private final TeacherController teacherController;
+    private final ClassDirectorController classDirectorController;
+
+    TeacherEndpoints(AdminController adminController, TeacherController teacherController,
+                     ClassDirectorController classDirectorController) {
+        super(PATH);
+        this.adminController = adminController;
+        this.teacherController = teacherController;
+        this.classDirectorController = classDirectorController;
+    }
+
+    @Override
+    Response respond(Request request) {
+        List<String> path = request.path();
+        if (path.isEmpty()) {
+            switch (request.method()) {
+                case "GET": return list(request);
+                case "POST": return create(request);
+                default: throw methodNotAllowed(request);
+            }
+        }
+        int id = parseId(path.get(0));
+        if (path.size() == 1) {
+            switch (request.method()) {
+                case "GET": return get(id);
+                case "PUT": return update(id, request);
+                case "DELETE": return delete(id);
+                default: throw methodNotAllowed(request);
+            }
+        }
+        if (path.size() == 2 && path.get(1).equals("requirements")) {
+            expect(request, "GET");
+            List<TeachingRequirement> requirements =
+                    classDirectorController.getRequirementsByTeacher(String.valueOf(find(id).getId()));
+            return Response.ok(out -> ApiJson.writeRequirements(out, requirements));
+        }
+        if (path.size() == 2 && path.get(1).equals("trainings")) {
+            expect(request, "GET");
+            List<TrainingSession> sessions = teacherController.getCompletedTraining(find(id).getId());
+            return Response.ok(out -> {
+                out.beginArray();
+                for (TrainingSession session : sessions) {
+                    ApiJson.writeTrainingSession(out, session);
+                }
+                out.endArray();
+            });
+        }
+        if (path.size() == 3 && path.get(1).equals("trainings")) {
+            expect(request, "POST");
+            find(id);
+            if (!teacherController.recordTraining(id, path.get(2))) {
+                throw new NoSuchElementException("Training session not found: " + path.get(2));
+            }
+            return Response.noContent();
+        }
+        throw new NoSuchElementException("No such endpoint");
+    }
+
+    private Response list(Request request) {
+        String keyword = request.param("q");
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            List<Teacher> teachers = adminController.searchTeachersByQualification(keyword);
+            return Response.ok(out -> ApiJson.writeTeachers(out, teachers));
+        }
+        if ("true".equals(request.param("available"))) {
+            List<Teacher> teachers = adminController.listAvailableTeachers();
+            return Response.ok(out -> ApiJson.writeTeachers(out, teachers));
+        }
+        if (request.param("limit") != null) {
+            int limit = limit(request, STREAM_CHUNK);
+            String after = request.param("after");
+            // Pages in ID order only look at the ID of the last teacher
+            Teacher last = after == null || after.isEmpty()
+                    ? null
+                    : new Teacher(parseId(after), null, null, false, null);
+            Page<Teacher> page = adminController.listTeachersPage(last, limit);
+            return Response.ok(out -> {
+                out.beginObject();
+                out.name("items");
+                ApiJson.writeTeachers(out, page.getItems());
+                out.name("next");
+                if (page.hasMore()) {
+                    out.value(page.getLast().getId());
+                } else {
+                    out.nullValue();
+                }
+                out.endObject();
+            });
+        }
+        // Everything, fetched a page at a time while it is written
+        return Response.ok(out -> {
+            out.beginArray();
+            Page<Teacher> page;
+            Teacher last = null;
+            do {
+                page = adminController.listTeachersPage(last, STREAM_CHUNK);
+                for (Teacher teacher : page.getItems()) {
+                    ApiJson.writeTeacher(out, teacher);
+                }
+                last = page.getLast();
+            } while (page.hasMore());
+            out.endArray();
+        });
+    }
+
+    private Response create(Request request) {
+        ApiJson.TeacherFields fields = request.body(ApiJson::readTeacher);
+        if (fields.id == null || fields.name == null || fields.name.trim().isEmpty()) {
+            throw new IllegalArgumentException("id and name are required");
+        }
+        if (adminController.findTeacherById(fields.id) != null) {
+            throw new IllegalStateException("A teacher with ID " + fields.id + " already exists");
+        }
+        // New teachers are available unless the body says otherwise
+        Boolean available = fields.available != null ? fields.available : Boolean.TRUE;
+        if (!adminController.addTeacher(fields.id, fields.name, fields.contact, available, fields.qualifications)) {
+            throw new RuntimeException("The teacher could not be saved");
+        }
+        Teacher teacher = find(fields.id);
+        return Response.created(out -> ApiJson.writeTeacher(out, teacher));
+    }
+
+    private Response get(int id) {
+        Teacher teacher = find(id);
+        return Response.ok(out -> ApiJson.writeTeacher(out, teacher));
+    }
+
+    private Response update(int id, Request request) {
+        ApiJson.TeacherFields fields = request.body(ApiJson::readTeacher);
+        if (fields.id != null && fields.id != id) {
+            throw new IllegalArgumentException("The ID of a teacher cannot be changed");
+        }
+        if (fields.version == null) {
+            if (!adminController.updateTeacher(id, fields.name, fields.contact, fields.available,
+                    fields.qualifications)) {
+                throw new NoSuchElementException("Teacher not found: " + id);
+            }
+        } else if (!adminController.updateTeacher(id, fields.version, fields.name, fields.contact, fields.available,
+                fields.qualifications)) {
+            find(id);
+            throw new IllegalStateException("Teacher " + id + " has been changed since version " + fields.version);
+        }
+        return get(id);
+    }
+
+    private Response delete(int id) {
+        if (!adminController.deleteTeacher(id)) {
+            throw new NoSuchElementException("Teacher not found: " + id);
+        }
+        return Response.noContent();
+    }
+
+    private Teacher find(int id) {
+        Teacher teacher = adminController.findTeacherById(id);
+        if (teacher == null) {
+            throw new NoSuchElementException("Teacher not found: " + id);
+        }
+        return teacher;
+    }
+}
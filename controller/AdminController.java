@@ -1,10 +1,19 @@
 package controller;
 
+import dao.Page;
+import dao.Snapshot;
 import dao.TeacherDAO;
+import dao.query.Condition;
+import dao.query.QueryResult;
+import dao.query.TeacherConditions;
 import model.Teacher;
+import util.QualificationVectorCache;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Controller for managing Teacher-related operations for administrator.
@@ -13,13 +22,39 @@ import java.util.stream.Collectors;
  */
 public class AdminController {
     private final TeacherDAO teacherDAO;
+    // Qualification vectors used for recommendations, dropped whenever a teacher changes
+    private final QualificationVectorCache qualificationVectors;
+    // Runs the asynchronous operations
+    private final Executor asyncExecutor;
 
     /**
      * Constructor
      * @param teacherDAO data access object for teacher operations
      */
     public AdminController(TeacherDAO teacherDAO) {
+        this(teacherDAO, null);
+    }
+
+    /**
+     * Constructor
+     * @param teacherDAO data access object for teacher operations
+     * @param qualificationVectors cache to invalidate when a teacher changes, or null
+     */
+    public AdminController(TeacherDAO teacherDAO, QualificationVectorCache qualificationVectors) {
+        this(teacherDAO, qualificationVectors, AsyncOperations.defaultExecutor());
+    }
+
+    /**
+     * Constructor
+     * @param teacherDAO data access object for teacher operations
+     * @param qualificationVectors cache to invalidate when a teacher changes, or null
+     * @param asyncExecutor executor that runs the asynchronous operations
+     */
+    public AdminController(TeacherDAO teacherDAO, QualificationVectorCache qualificationVectors,
+                           Executor asyncExecutor) {
         this.teacherDAO = teacherDAO;
+        this.qualificationVectors = qualificationVectors;
+        this.asyncExecutor = Objects.requireNonNull(asyncExecutor, "asyncExecutor");
     }
 
     /**
@@ -34,31 +69,86 @@ public class AdminController {
      * Update information of a registered teacher
      */
     public boolean updateTeacher(int id, String name, String contact, Boolean isAvailable, String qualifications) {
-        Teacher teacher = teacherDAO.findById(id);
-        if (teacher == null) {
-            return false;
+        // Changed on a copy and stored only if no one else changed the teacher meanwhile, retrying otherwise,
+        // so concurrent updates to the same teacher are not lost
+        boolean updated = teacherDAO.modify(id, changes(name, contact, isAvailable, qualifications));
+        if (updated && qualificationVectors != null) {
+            qualificationVectors.invalidate(id);
         }
+        return updated;
+    }
 
-        if (name != null && !name.isEmpty()) teacher.setName(name);
-        if (contact != null && !contact.isEmpty()) teacher.setContact(contact);
-        if (isAvailable != null) teacher.setAvailable(isAvailable);
-        if (qualifications != null && !qualifications.isEmpty()) teacher.setQualifications(qualifications);
+    /**
+     * Update information of a registered teacher, only if it is still the version the caller read
+     * @param expectedVersion the version of the teacher the update is based on, see {@link Teacher#getVersion()}
+     * @return true if updated, false if there is no such teacher, it has been changed since, or it could not be saved
+     */
+    public boolean updateTeacher(int id, long expectedVersion, String name, String contact, Boolean isAvailable,
+                                 String qualifications) {
+        Teacher current = teacherDAO.findById(id);
+        if (current == null || current.getVersion() != expectedVersion) {
+            return false;
+        }
+        Teacher changed = new Teacher(current);
+        changes(name, contact, isAvailable, qualifications).accept(changed);
+        boolean updated = teacherDAO.update(changed, expectedVersion);
+        if (updated && qualificationVectors != null) {
+            qualificationVectors.invalidate(id);
+        }
+        return updated;
+    }
 
-        return teacherDAO.update(teacher);
+    // The fields of an update that are given; blank ones are left as they are
+    private static Consumer<Teacher> changes(String name, String contact, Boolean isAvailable, String qualifications) {
+        return teacher -> {
+            if (name != null && !name.isEmpty()) teacher.setName(name);
+            if (contact != null && !contact.isEmpty()) teacher.setContact(contact);
+            if (isAvailable != null) teacher.setAvailable(isAvailable);
+            if (qualifications != null && !qualifications.isEmpty()) teacher.setQualifications(qualifications);
+        };
     }
 
     /**
      * Delete teacher by ID
      */
     public boolean deleteTeacher(int id) {
+        if (qualificationVectors != null) {
+            qualificationVectors.invalidate(id);
+        }
         return teacherDAO.delete(id);
     }
 
     /**
-     * List all teachers
+     * List all teachers as they were at one moment, unaffected by concurrent changes
      */
     public List<Teacher> listAllTeachers() {
-        return teacherDAO.findAll();
+        try (Snapshot<Integer, Teacher> snapshot = teacherDAO.snapshot()) {
+            return snapshot.findAll();
+        }
+    }
+
+    /**
+     * Open a point-in-time view of all teachers, for reports that read them more than once
+     * @return the snapshot, which the caller must close
+     */
+    public Snapshot<Integer, Teacher> openTeacherSnapshot() {
+        return teacherDAO.snapshot();
+    }
+
+    /**
+     * List one page of all teachers, in ID order
+     * @param last the last teacher of the previous page, null for the first page
+     * @param pageSize maximum number of teachers on the page
+     */
+    public Page<Teacher> listTeachersPage(Teacher last, int pageSize) {
+        return teacherDAO.pageAfter(last, pageSize, TeacherDAO.ID_ORDER);
+    }
+
+    /**
+     * List all available teachers
+     */
+    public List<Teacher> listAvailableTeachers() {
+        return teacherDAO.findAvailable();
     }
 
     /**
@@ -70,11 +160,129 @@ public class AdminController {
 
     /**
      * Search teachers by qualification
+     * Every word of the keyword must start a word of the qualifications, e.g. "comp sci"; alternatives
+     * separated by OR match if any of them does, e.g. "physics OR computer science". If that finds
+     * nobody, teachers whose qualifications contain the keyword, or one of the alternatives, anywhere
+     * are returned instead, e.g. "ematics" still finds Mathematics.
      */
     public List<Teacher> searchTeachersByQualification(String keyword) {
-        return teacherDAO.findAll().stream()
-                .filter(t -> t.getQualifications().toLowerCase().contains(keyword.toLowerCase()))
-                .collect(Collectors.toList());
+        String[] alternatives = keyword.trim().split("(?i)\\s+OR\\s+");
+        List<Teacher> found;
+        if (alternatives.length == 1) {
+            found = searchTeachersByQualifications(Collections.singletonList(keyword), true);
+        } else {
+            Condition<Teacher> condition = null;
+            for (String alternative : alternatives) {
+                Condition<Teacher> qualified = TeacherConditions.qualifiedIn(Collections.singletonList(alternative), true);
+                condition = condition == null ? qualified : condition.or(qualified);
+            }
+            found = queryTeachers(condition).getRows();
+        }
+        if (!found.isEmpty()) {
+            return found;
+        }
+
+        // Fall back to a scan for the text inside words, which the word index cannot answer
+        Condition<Teacher> contains = null;
+        for (String alternative : alternatives.length == 1 ? new String[]{keyword} : alternatives) {
+            Condition<Teacher> condition = TeacherConditions.qualificationsContain(alternative);
+            contains = contains == null ? condition : contains.or(condition);
+        }
+        return queryTeachers(contains).getRows();
+    }
+
+    /**
+     * Find teachers satisfying a condition built from TeacherConditions
+     * The result also explains which indexes answered the query.
+     */
+    public QueryResult<Teacher> queryTeachers(Condition<Teacher> condition) {
+        return teacherDAO.query(condition);
+    }
+
+    /**
+     * Search teachers matching all (AND) or any (OR) of the given qualifications
+     */
+    public List<Teacher> searchTeachersByQualifications(List<String> qualifications, boolean matchAll) {
+        return teacherDAO.findByQualifications(qualifications, matchAll);
+    }
+
+    /**
+     * Add a new teacher without waiting
+     * @return future completed with true once the teacher is durable, false if it could not be added or saved
+     */
+    public CompletableFuture<Boolean> addTeacherAsync(int id, String name, String contact, Boolean isAvailable,
+                                                      String qualifications) {
+        return write(() -> addTeacher(id, name, contact, isAvailable, qualifications));
+    }
+
+    /**
+     * Update information of a registered teacher without waiting
+     * @return future completed with true once the change is durable, false if there is no such teacher or
+     *         the change could not be saved
+     */
+    public CompletableFuture<Boolean> updateTeacherAsync(int id, String name, String contact, Boolean isAvailable,
+                                                         String qualifications) {
+        return write(() -> updateTeacher(id, name, contact, isAvailable, qualifications));
+    }
+
+    /**
+     * Update information of a registered teacher without waiting, only if it is still the version the caller read
+     * @return future completed with true once the change is durable, false if there is no such teacher, it has
+     *         been changed since, or the change could not be saved
+     */
+    public CompletableFuture<Boolean> updateTeacherAsync(int id, long expectedVersion, String name, String contact,
+                                                         Boolean isAvailable, String qualifications) {
+        return write(() -> updateTeacher(id, expectedVersion, name, contact, isAvailable, qualifications));
+    }
+
+    /**
+     * Delete teacher by ID without waiting
+     * @return future completed with true once the deletion is durable, false if there is no such teacher or
+     *         the deletion could not be saved
+     */
+    public CompletableFuture<Boolean> deleteTeacherAsync(int id) {
+        return write(() -> deleteTeacher(id));
+    }
+
+    /**
+     * Find the teacher by ID without waiting
+     */
+    public CompletableFuture<Teacher> findTeacherByIdAsync(int id) {
+        return AsyncOperations.read(() -> findTeacherById(id), asyncExecutor);
+    }
+
+    /**
+     * List all teachers as they were at one moment, without waiting
+     */
+    public CompletableFuture<List<Teacher>> listAllTeachersAsync() {
+        return AsyncOperations.read(this::listAllTeachers, asyncExecutor);
+    }
+
+    /**
+     * List all available teachers without waiting
+     */
+    public CompletableFuture<List<Teacher>> listAvailableTeachersAsync() {
+        return AsyncOperations.read(this::listAvailableTeachers, asyncExecutor);
+    }
+
+    /**
+     * Search teachers by qualification without waiting, see {@link #searchTeachersByQualification(String)}
+     */
+    public CompletableFuture<List<Teacher>> searchTeachersByQualificationAsync(String keyword) {
+        return AsyncOperations.read(() -> searchTeachersByQualification(keyword), asyncExecutor);
+    }
+
+    /**
+     * Search teachers matching all (AND) or any (OR) of the given qualifications without waiting
+     */
+    public CompletableFuture<List<Teacher>> searchTeachersByQualificationsAsync(List<String> qualifications,
+                                                                               boolean matchAll) {
+        return AsyncOperations.read(() -> searchTeachersByQualifications(qualifications, matchAll), asyncExecutor);
+    }
+
+    // Run a change on the executor; with write-behind stores, changes started together are persisted together
+    private CompletableFuture<Boolean> write(Supplier<Boolean> change) {
+        return AsyncOperations.write(change, Boolean::booleanValue, false, teacherDAO::flushed, asyncExecutor);
     }
 
-}
\ No newline at end of file
+}
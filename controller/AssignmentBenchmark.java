@@ -0,0 +1,241 @@
+package controller;
+
+import dao.TeacherDAO;
+import dao.TeachingRequirementDAO;
+import model.Teacher;
+import model.TeachingRequirement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark for bulk teacher assignment
+ * Generates a roster of teachers and teaching requirements with random qualifications and
+ * schedules, some of the teachers already busy with assigned requirements, then times
+ * {@link AssignmentController#planAssignments(boolean)} in unweighted and weighted mode and
+ * prints the plan size and best and median times. The stores are held in memory, so the
+ * data directory is not touched.
+ *
+ * Usage: java controller.AssignmentBenchmark [requirements] [teachers] [runs] [seed]
+ * e.g.   java controller.AssignmentBenchmark 3000 20000 5
+ */
+public final class AssignmentBenchmark {
+    private static final String[] SUBJECTS = {
+            "mathematics", "physics", "chemistry", "biology", "computer science", "statistics", "economics",
+            "history", "geography", "literature", "philosophy", "music", "art", "drama", "french", "german",
+            "spanish", "psychology", "sociology", "law", "accounting", "engineering", "electronics", "design"};
+    private static final String[] DAYS = {"Mon", "Tue", "Wed", "Thu", "Fri"};
+    // Share of the requirements that are already assigned, so that teachers have loads and clashes
+    private static final double ASSIGNED_SHARE = 0.1;
+
+    private AssignmentBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int requirements = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        int teachers = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+
+        MemoryTeacherDAO teacherDAO = new MemoryTeacherDAO();
+        MemoryRequirementDAO requirementDAO = new MemoryRequirementDAO();
+        generate(requirements, teachers, new Random(seed), teacherDAO, requirementDAO);
+        AssignmentController controller = new AssignmentController(requirementDAO, teacherDAO);
+
+        System.out.printf("%d requirements x %d teachers, %d cores, %d runs after one warm-up%n",
+                requirements, teachers, Runtime.getRuntime().availableProcessors(), runs);
+        for (boolean weighted : new boolean[]{false, true}) {
+            Result result = run(controller, weighted, runs);
+            System.out.println((weighted ? "weighted:   " : "unweighted: ") + result);
+        }
+    }
+
+    /**
+     * Outcome of timing one mode
+     */
+    public static final class Result {
+        private final int assigned;
+        private final long[] sortedNanos;
+
+        Result(int assigned, long[] sortedNanos) {
+            this.assigned = assigned;
+            this.sortedNanos = sortedNanos;
+        }
+
+        public int getAssigned() {
+            return assigned;
+        }
+
+        public double getBestMillis() {
+            return sortedNanos[0] / 1e6;
+        }
+
+        public double getMedianMillis() {
+            return sortedNanos[sortedNanos.length / 2] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d assigned, best %.1f ms, median %.1f ms",
+                    assigned, getBestMillis(), getMedianMillis());
+        }
+    }
+
+    /**
+     * Time planning in one mode
+     *
+     * @param controller Controller over the generated stores
+     * @param weighted true for the cost-weighted mode
+     * @param runs Number of timed runs, after one untimed warm-up run
+     * @return The plan size and timings
+     */
+    public static Result run(AssignmentController controller, boolean weighted, int runs) {
+        int assigned = controller.planAssignments(weighted).size();
+        long[] nanos = new long[Math.max(1, runs)];
+        for (int i = 0; i < nanos.length; i++) {
+            long start = System.nanoTime();
+            assigned = controller.planAssignments(weighted).size();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return new Result(assigned, nanos);
+    }
+
+    // Teachers hold two to four subjects; requirements need one or two and take a two-hour slot
+    private static void generate(int requirements, int teachers, Random random,
+                                 TeacherDAO teacherDAO, TeachingRequirementDAO requirementDAO) {
+        for (int t = 1; t <= teachers; t++) {
+            StringBuilder qualifications = new StringBuilder();
+            int count = 2 + random.nextInt(3);
+            for (int q = 0; q < count; q++) {
+                if (q > 0) {
+                    qualifications.append(", ");
+                }
+                qualifications.append(SUBJECTS[random.nextInt(SUBJECTS.length)]);
+            }
+            teacherDAO.save(new Teacher(t, "Teacher " + t, "teacher" + t + "@example.com",
+                    random.nextInt(10) < 9, qualifications.toString()));
+        }
+
+        int assigned = (int) (requirements * ASSIGNED_SHARE);
+        for (int r = 0; r < requirements + assigned; r++) {
+            List<String> required = new ArrayList<>();
+            required.add(SUBJECTS[random.nextInt(SUBJECTS.length)]);
+            if (random.nextBoolean()) {
+                required.add(SUBJECTS[random.nextInt(SUBJECTS.length)]);
+            }
+            int hour = 9 + random.nextInt(8);
+            String schedule = DAYS[random.nextInt(DAYS.length)] + " " + hour + ":00-" + (hour + 2) + ":00";
+            TeachingRequirement requirement = new TeachingRequirement("Course " + r, "C" + r, schedule,
+                    "Room " + random.nextInt(200), required);
+            if (r >= requirements) {
+                requirement.assignTeacher(String.valueOf(1 + random.nextInt(teachers)));
+            }
+            requirementDAO.save(requirement);
+        }
+    }
+
+    // Stores kept in memory only, for the benchmark's generated data
+    private static final class MemoryTeacherDAO implements TeacherDAO {
+        private final Map<Integer, Teacher> teachers = new LinkedHashMap<>();
+
+        @Override
+        public boolean save(Teacher teacher) {
+            teachers.put(teacher.getId(), teacher);
+            return true;
+        }
+
+        @Override
+        public boolean update(Teacher teacher) {
+            return teachers.replace(teacher.getId(), teacher) != null;
+        }
+
+        @Override
+        public boolean deleteById(int id) {
+            return teachers.remove(id) != null;
+        }
+
+        @Override
+        public boolean delete(int id) {
+            return deleteById(id);
+        }
+
+        @Override
+        public Teacher findById(int id) {
+            return teachers.get(id);
+        }
+
+        @Override
+        public List<Teacher> getAll() {
+            return new ArrayList<>(teachers.values());
+        }
+
+        @Override
+        public List<Teacher> findAll() {
+            return getAll();
+        }
+
+        @Override
+        public boolean saveAll() {
+            return true;
+        }
+
+        @Override
+        public boolean loadAll() {
+            return true;
+        }
+
+        @Override
+        public Teacher getTeacherById(String teacherId) {
+            try {
+                return teachers.get(Integer.parseInt(teacherId));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class MemoryRequirementDAO implements TeachingRequirementDAO {
+        private final Map<String, TeachingRequirement> requirements = new LinkedHashMap<>();
+
+        @Override
+        public boolean save(TeachingRequirement requirement) {
+            requirements.put(requirement.getId(), requirement);
+            return true;
+        }
+
+        @Override
+        public boolean update(TeachingRequirement requirement) {
+            return requirements.replace(requirement.getId(), requirement) != null;
+        }
+
+        @Override
+        public boolean delete(String id) {
+            return requirements.remove(id) != null;
+        }
+
+        @Override
+        public TeachingRequirement findById(String id) {
+            return requirements.get(id);
+        }
+
+        @Override
+        public List<TeachingRequirement> findAll() {
+            return new ArrayList<>(requirements.values());
+        }
+
+        @Override
+        public boolean saveAll() {
+            return true;
+        }
+
+        @Override
+        public boolean loadAll() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,626 @@
+package controller;
+
+import dao.TeacherDAO;
+import dao.TeachingRequirementDAO;
+import model.Teacher;
+import model.TeachingRequirement;
+import model.WeeklySchedule;
+import util.BipartiteMatcher;
+import util.MinCostFlow;
+import util.IntObjectMap;
+import util.QualificationIndex;
+import util.QualificationVectorCache;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Assignment Controller
+ * Assigns available teachers to all unassigned teaching requirements in one go. A teacher is
+ * eligible for a requirement when their qualifications match every required qualification and
+ * they are not already teaching at an overlapping time. The eligibility graph is built in
+ * parallel, and a maximum matching gives every requirement that can have a teacher one, with
+ * each teacher used at most once. The matching and the min-cost flow of the weighted mode run
+ * on one thread; only building and costing the graph use every core. See
+ * {@link AssignmentBenchmark} for timings on generated rosters.
+ * For a single requirement it also ranks the best-fit teachers, scoring cached qualification
+ * vectors in parallel and keeping the best few in bounded heaps.
+ */
+public class AssignmentController {
+
+    /**
+     * Number of cheapest candidates kept per requirement when costs are taken into account
+     */
+    public static final int DEFAULT_CANDIDATES_PER_REQUIREMENT = 64;
+
+    // Score multiplier for teachers who are not currently available
+    private static final double UNAVAILABLE_WEIGHT = 0.5;
+    // Each requirement a teacher already teaches divides the score by a further (1 + LOAD_WEIGHT)
+    private static final double LOAD_WEIGHT = 0.25;
+    // Rosters smaller than this are scored on the calling thread
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    // Teaching requirement data access object
+    private final TeachingRequirementDAO requirementDAO;
+
+    // Teacher data access object
+    private final TeacherDAO teacherDAO;
+
+    // Bounds the size of the flow network in cost-weighted mode
+    private final int candidatesPerRequirement;
+
+    // Qualification vectors of teachers, shared with the controller that edits teachers
+    private final QualificationVectorCache qualificationVectors;
+
+    /**
+     * A proposed pairing of a requirement with a teacher
+     */
+    public static final class Assignment {
+        private final TeachingRequirement requirement;
+        private final Teacher teacher;
+        private final int cost;
+
+        Assignment(TeachingRequirement requirement, Teacher teacher, int cost) {
+            this.requirement = requirement;
+            this.teacher = teacher;
+            this.cost = cost;
+        }
+
+        public TeachingRequirement getRequirement() {
+            return requirement;
+        }
+
+        public Teacher getTeacher() {
+            return teacher;
+        }
+
+        /**
+         * Get how poor a fit the teacher is: the qualification terms they have beyond those
+         * asked for, plus the number of requirements they already teach
+         */
+        public int getCost() {
+            return cost;
+        }
+
+        @Override
+        public String toString() {
+            return requirement.getCourseName() + " (" + requirement.getCourseCode() + ") -> "
+                    + teacher.getName() + " (ID " + teacher.getId() + ")";
+        }
+    }
+
+    /**
+     * A teacher ranked for a requirement
+     */
+    public static final class Recommendation {
+        private final Teacher teacher;
+        private final double score;
+        private final double fit;
+        private final int load;
+
+        Recommendation(Teacher teacher, double score, double fit, int load) {
+            this.teacher = teacher;
+            this.score = score;
+            this.fit = fit;
+            this.load = load;
+        }
+
+        public Teacher getTeacher() {
+            return teacher;
+        }
+
+        /**
+         * Get the ranking score: the fit, halved for an unavailable teacher and reduced by the load
+         */
+        public double getScore() {
+            return score;
+        }
+
+        /**
+         * Get how well the qualifications match, from 0 to 1
+         */
+        public double getFit() {
+            return fit;
+        }
+
+        /**
+         * Get the number of requirements the teacher already teaches
+         */
+        public int getLoad() {
+            return load;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (ID %d) score %.2f, fit %.2f, %s, teaching %d",
+                    teacher.getName(), teacher.getId(), score, fit,
+                    teacher.isAvailable() ? "available" : "unavailable", load);
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param requirementDAO Teaching requirement data access object
+     * @param teacherDAO Teacher data access object
+     */
+    public AssignmentController(TeachingRequirementDAO requirementDAO, TeacherDAO teacherDAO) {
+        this(requirementDAO, teacherDAO, DEFAULT_CANDIDATES_PER_REQUIREMENT);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param requirementDAO Teaching requirement data access object
+     * @param teacherDAO Teacher data access object
+     * @param candidatesPerRequirement Cheapest candidates kept per requirement in cost-weighted mode
+     */
+    public AssignmentController(TeachingRequirementDAO requirementDAO, TeacherDAO teacherDAO,
+                                int candidatesPerRequirement) {
+        this(requirementDAO, teacherDAO, candidatesPerRequirement, new QualificationVectorCache());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param requirementDAO Teaching requirement data access object
+     * @param teacherDAO Teacher data access object
+     * @param candidatesPerRequirement Cheapest candidates kept per requirement in cost-weighted mode
+     * @param qualificationVectors Cache of teachers' qualification vectors used for recommendations
+     */
+    public AssignmentController(TeachingRequirementDAO requirementDAO, TeacherDAO teacherDAO,
+                                int candidatesPerRequirement, QualificationVectorCache qualificationVectors) {
+        if (candidatesPerRequirement < 1) {
+            throw new IllegalArgumentException("At least one candidate per requirement is needed");
+        }
+        this.requirementDAO = requirementDAO;
+        this.teacherDAO = teacherDAO;
+        this.candidatesPerRequirement = candidatesPerRequirement;
+        this.qualificationVectors = qualificationVectors;
+    }
+
+    /**
+     * Work out assignments for every unassigned requirement without changing anything
+     * Without costs the result is a maximum matching (Hopcroft-Karp). With costs it is a
+     * maximum matching of least total cost (min-cost flow) over each requirement's cheapest
+     * candidates, which prefers the most closely qualified and least busy teachers.
+     *
+     * @param weighted true to minimise the total cost of the assignments
+     * @return Proposed assignments, at most one per requirement and per teacher
+     */
+    public List<Assignment> planAssignments(boolean weighted) {
+        List<TeachingRequirement> requirements =
+                requirementDAO.findByStatus(TeachingRequirement.RequirementStatus.UNASSIGNED);
+        List<Teacher> teachers = teacherDAO.findAvailable();
+        if (requirements.isEmpty() || teachers.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, List<WeeklySchedule>> busy = busySchedules();
+        Map<String, Integer> load = new HashMap<>();
+        busy.forEach((teacherId, schedules) -> load.put(teacherId, schedules.size()));
+
+        // Index the available teachers by their position in the list
+        QualificationIndex index = new QualificationIndex();
+        String[][] teacherTerms = new String[teachers.size()][];
+        for (int t = 0; t < teachers.size(); t++) {
+            index.put(t, teachers.get(t).getQualifications());
+            teacherTerms[t] = QualificationIndex.tokenize(teachers.get(t).getQualifications()).toArray(new String[0]);
+        }
+        int[] everyone = IntStream.range(0, teachers.size()).toArray();
+
+        // Each requirement's candidates are independent, so they are found on all cores
+        int[][] candidates = new int[requirements.size()][];
+        IntStream.range(0, requirements.size()).parallel().forEach(r -> {
+            TeachingRequirement requirement = requirements.get(r);
+            List<String> required = QualificationIndex.normalize(requirement.getRequiredQualifications());
+            int[] eligible = required.isEmpty() ? everyone : index.search(required, true);
+            candidates[r] = withoutConflicts(eligible, teachers, busy, requirement.getWeeklySchedule());
+        });
+
+        int[] matched = maximumMatching(teachers.size(), candidates);
+        if (!weighted) {
+            List<Assignment> plan = new ArrayList<>();
+            for (int r = 0; r < matched.length; r++) {
+                if (matched[r] >= 0) {
+                    plan.add(new Assignment(requirements.get(r), teachers.get(matched[r]), 0));
+                }
+            }
+            return plan;
+        }
+
+        // Keep each requirement's cheapest candidates plus its partner in the maximum matching,
+        // so that the smaller network still admits a matching of the same size
+        int[][] kept = new int[requirements.size()][];
+        int[][] costs = new int[requirements.size()][];
+        IntStream.range(0, requirements.size()).parallel().forEach(r -> {
+            List<String> required = QualificationIndex.normalize(requirements.get(r).getRequiredQualifications());
+            int[] eligibleCosts = new int[candidates[r].length];
+            for (int i = 0; i < candidates[r].length; i++) {
+                int t = candidates[r][i];
+                eligibleCosts[i] = surplus(teacherTerms[t], required)
+                        + load.getOrDefault(String.valueOf(teachers.get(t).getId()), 0);
+            }
+            keepCheapest(candidates[r], eligibleCosts, matched[r], r, kept, costs);
+        });
+        return matchByCost(requirements, teachers, kept, costs);
+    }
+
+    /**
+     * Apply planned assignments
+     * Assignments whose requirement has been assigned or whose teacher has become busy since
+     * planning are skipped.
+     *
+     * @param plan Assignments from {@link #planAssignments(boolean)}
+     * @return The assignments that were applied
+     */
+    public List<Assignment> applyAssignments(List<Assignment> plan) {
+        List<Assignment> applied = new ArrayList<>();
+        for (Assignment assignment : plan) {
+            TeachingRequirement requirement = requirementDAO.findById(assignment.getRequirement().getId());
+            String teacherId = String.valueOf(assignment.getTeacher().getId());
+            if (requirement == null
+                    || requirement.getStatus() != TeachingRequirement.RequirementStatus.UNASSIGNED) {
+                continue;
+            }
+            List<TeachingRequirement> conflicts =
+                    requirementDAO.findTeacherConflicts(teacherId, requirement.getWeeklySchedule());
+            conflicts.removeIf(other -> other.getId().equals(requirement.getId()));
+            if (!conflicts.isEmpty()) {
+                continue;
+            }
+            requirement.assignTeacher(teacherId);
+            if (requirementDAO.update(requirement)) {
+                applied.add(assignment);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Plan and apply assignments for every unassigned requirement
+     *
+     * @param weighted true to minimise the total cost of the assignments
+     * @return The assignments that were applied
+     */
+    public List<Assignment> assignAll(boolean weighted) {
+        return applyAssignments(planAssignments(weighted));
+    }
+
+    /**
+     * Rank the teachers best suited to a requirement
+     * Teachers already teaching at an overlapping time are left out, as are teachers matching
+     * none of the required qualifications when some are given.
+     *
+     * @param requirement The requirement
+     * @param limit Maximum number of teachers to return
+     * @return Recommendations, best first
+     */
+    public List<Recommendation> recommendTeachers(TeachingRequirement requirement, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit must be positive");
+        }
+        List<Teacher> teachers = teacherDAO.getAll();
+        int teacherCount = teachers.size();
+        int[] ids = new int[teacherCount];
+        String[] qualifications = new String[teacherCount];
+        for (int t = 0; t < teacherCount; t++) {
+            ids[t] = teachers.get(t).getId();
+            qualifications[t] = teachers.get(t).getQualifications();
+        }
+        // Vectors first, so that the query knows every term they use
+        QualificationVectorCache.TermVector[] vectors = qualificationVectors.getAll(ids, qualifications);
+        QualificationVectorCache.Query query = qualificationVectors.prepare(requirement.getRequiredQualifications());
+        IntObjectMap<List<WeeklySchedule>> busy = busySchedulesById(requirement.getId());
+        WeeklySchedule schedule = requirement.getWeeklySchedule();
+
+        int chunks = teacherCount < PARALLEL_THRESHOLD ? 1 : ForkJoinPool.getCommonPoolParallelism() * 4;
+        int chunkSize = (teacherCount + chunks - 1) / Math.max(1, chunks);
+        List<TopScores> chunkBest = IntStream.range(0, chunks).parallel().mapToObj(c -> {
+            TopScores top = new TopScores(limit);
+            int end = Math.min(teacherCount, (c + 1) * chunkSize);
+            for (int t = c * chunkSize; t < end; t++) {
+                double fit = query.score(vectors[t]);
+                if (fit == 0 && !query.isEmpty()) {
+                    continue;
+                }
+                List<WeeklySchedule> taken = busy.get(ids[t]);
+                if (taken != null && overlapsAny(schedule, taken)) {
+                    continue;
+                }
+                top.offer(rank(fit, teachers.get(t).isAvailable(), taken), ids[t], t);
+            }
+            return top;
+        }).collect(Collectors.toList());
+        TopScores best = new TopScores(limit);
+        for (TopScores top : chunkBest) {
+            best.merge(top);
+        }
+
+        List<Recommendation> recommendations = new ArrayList<>();
+        for (int position : best.positionsBestFirst()) {
+            Teacher teacher = teachers.get(position);
+            List<WeeklySchedule> taken = busy.get(teacher.getId());
+            double fit = query.score(vectors[position]);
+            recommendations.add(new Recommendation(teacher, rank(fit, teacher.isAvailable(), taken), fit,
+                    taken == null ? 0 : taken.size()));
+        }
+        return recommendations;
+    }
+
+    private static double rank(double fit, boolean available, List<WeeklySchedule> taken) {
+        int load = taken == null ? 0 : taken.size();
+        return fit * (available ? 1 : UNAVAILABLE_WEIGHT) / (1 + LOAD_WEIGHT * load);
+    }
+
+    // Schedules of the requirements each numeric teacher ID teaches, leaving one requirement out
+    private IntObjectMap<List<WeeklySchedule>> busySchedulesById(String excludedRequirementId) {
+        IntObjectMap<List<WeeklySchedule>> busy = new IntObjectMap<>();
+        for (TeachingRequirement.RequirementStatus status : TeachingRequirement.RequirementStatus.values()) {
+            if (status == TeachingRequirement.RequirementStatus.UNASSIGNED) {
+                continue;
+            }
+            for (TeachingRequirement requirement : requirementDAO.findByStatus(status)) {
+                if (requirement.getId().equals(excludedRequirementId)) {
+                    continue;
+                }
+                for (String teacherId : requirement.getAssignedTeacherIds()) {
+                    int id;
+                    try {
+                        id = Integer.parseInt(teacherId);
+                    } catch (NumberFormatException e) {
+                        continue;
+                    }
+                    List<WeeklySchedule> schedules = busy.get(id);
+                    if (schedules == null) {
+                        schedules = new ArrayList<>();
+                        busy.put(id, schedules);
+                    }
+                    schedules.add(requirement.getWeeklySchedule());
+                }
+            }
+        }
+        return busy;
+    }
+
+    private static boolean overlapsAny(WeeklySchedule schedule, List<WeeklySchedule> taken) {
+        for (WeeklySchedule other : taken) {
+            if (schedule.overlaps(other)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bounded min-heap of the best scores seen, on primitive arrays
+     * Ties go to the lower teacher ID, so the ranking does not depend on how the roster was split.
+     */
+    private static final class TopScores {
+        private final double[] scores;
+        private final int[] ids;
+        private final int[] positions;
+        private int size;
+
+        TopScores(int capacity) {
+            scores = new double[capacity];
+            ids = new int[capacity];
+            positions = new int[capacity];
+        }
+
+        void offer(double score, int id, int position) {
+            if (size < scores.length) {
+                set(size, score, id, position);
+                siftUp(size++);
+            } else if (worse(0, score, id)) {
+                set(0, score, id, position);
+                siftDown(0);
+            }
+        }
+
+        void merge(TopScores other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.scores[i], other.ids[i], other.positions[i]);
+            }
+        }
+
+        int[] positionsBestFirst() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> scores[a] != scores[b]
+                    ? Double.compare(scores[b], scores[a]) : Integer.compare(ids[a], ids[b]));
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = positions[order[i]];
+            }
+            return result;
+        }
+
+        // Whether the entry at a slot ranks below the given score and ID
+        private boolean worse(int slot, double score, int id) {
+            return scores[slot] < score || (scores[slot] == score && ids[slot] > id);
+        }
+
+        private void siftUp(int slot) {
+            while (slot > 0) {
+                int parent = (slot - 1) / 2;
+                if (!worse(slot, scores[parent], ids[parent])) {
+                    return;
+                }
+                swap(slot, parent);
+                slot = parent;
+            }
+        }
+
+        private void siftDown(int slot) {
+            while (true) {
+                int child = 2 * slot + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && worse(child + 1, scores[child], ids[child])) {
+                    child++;
+                }
+                if (!worse(child, scores[slot], ids[slot])) {
+                    return;
+                }
+                swap(slot, child);
+                slot = child;
+            }
+        }
+
+        private void set(int slot, double score, int id, int position) {
+            scores[slot] = score;
+            ids[slot] = id;
+            positions[slot] = position;
+        }
+
+        private void swap(int a, int b) {
+            double score = scores[a];
+            int id = ids[a];
+            int position = positions[a];
+            set(a, scores[b], ids[b], positions[b]);
+            set(b, score, id, position);
+        }
+    }
+
+    // Schedules each teacher is already committed to, by teacher ID
+    private Map<String, List<WeeklySchedule>> busySchedules() {
+        Map<String, List<WeeklySchedule>> busy = new HashMap<>();
+        for (TeachingRequirement.RequirementStatus status : TeachingRequirement.RequirementStatus.values()) {
+            if (status == TeachingRequirement.RequirementStatus.UNASSIGNED) {
+                continue;
+            }
+            for (TeachingRequirement requirement : requirementDAO.findByStatus(status)) {
+                for (String teacherId : requirement.getAssignedTeacherIds()) {
+                    busy.computeIfAbsent(teacherId, id -> new ArrayList<>()).add(requirement.getWeeklySchedule());
+                }
+            }
+        }
+        return busy;
+    }
+
+    private static int[] withoutConflicts(int[] eligible, List<Teacher> teachers,
+                                          Map<String, List<WeeklySchedule>> busy, WeeklySchedule schedule) {
+        if (schedule.isEmpty() || busy.isEmpty()) {
+            return eligible;
+        }
+        int[] kept = new int[eligible.length];
+        int count = 0;
+        for (int t : eligible) {
+            List<WeeklySchedule> taken = busy.get(String.valueOf(teachers.get(t).getId()));
+            boolean free = true;
+            if (taken != null) {
+                for (WeeklySchedule other : taken) {
+                    if (schedule.overlaps(other)) {
+                        free = false;
+                        break;
+                    }
+                }
+            }
+            if (free) {
+                kept[count++] = t;
+            }
+        }
+        return count == eligible.length ? eligible : Arrays.copyOf(kept, count);
+    }
+
+    // Qualification terms of the teacher that none of the required terms asks for
+    private static int surplus(String[] teacherTerms, List<String> required) {
+        int surplus = 0;
+        for (String term : teacherTerms) {
+            boolean asked = false;
+            for (String prefix : required) {
+                if (term.startsWith(prefix)) {
+                    asked = true;
+                    break;
+                }
+            }
+            if (!asked) {
+                surplus++;
+            }
+        }
+        return surplus;
+    }
+
+    private void keepCheapest(int[] eligible, int[] eligibleCosts, int partner, int r,
+                              int[][] kept, int[][] costs) {
+        int teacherCount = eligible.length;
+        // Sort by cost packed with a rotated position, so that ties are spread over different
+        // teachers for different requirements and no boxing is needed
+        int rotation = teacherCount == 0 ? 0 : Math.floorMod(r * 0x9E3779B9, teacherCount);
+        long[] keyed = new long[teacherCount];
+        for (int i = 0; i < teacherCount; i++) {
+            keyed[i] = ((long) eligibleCosts[i] << 32) | ((i + teacherCount - rotation) % teacherCount);
+        }
+        Arrays.sort(keyed);
+        int count = Math.min(teacherCount, candidatesPerRequirement);
+        int[] chosen = new int[count + 1];
+        int[] chosenCosts = new int[count + 1];
+        boolean partnerKept = partner < 0;
+        for (int i = 0; i < count; i++) {
+            int position = (int) (((keyed[i] & 0xFFFFFFFFL) + rotation) % teacherCount);
+            chosen[i] = eligible[position];
+            chosenCosts[i] = (int) (keyed[i] >>> 32);
+            partnerKept |= chosen[i] == partner;
+        }
+        if (!partnerKept) {
+            int position = Arrays.binarySearch(eligible, partner);
+            chosen[count] = partner;
+            chosenCosts[count] = eligibleCosts[position];
+            count++;
+        }
+        kept[r] = Arrays.copyOf(chosen, count);
+        costs[r] = Arrays.copyOf(chosenCosts, count);
+    }
+
+    // Hopcroft-Karp over the eligibility lists; returns each requirement's teacher position or -1
+    private static int[] maximumMatching(int teacherCount, int[][] candidates) {
+        int[] offsets = new int[candidates.length + 1];
+        for (int r = 0; r < candidates.length; r++) {
+            offsets[r + 1] = offsets[r] + candidates[r].length;
+        }
+        int[] targets = new int[offsets[candidates.length]];
+        for (int r = 0; r < candidates.length; r++) {
+            System.arraycopy(candidates[r], 0, targets, offsets[r], candidates[r].length);
+        }
+        return BipartiteMatcher.match(candidates.length, teacherCount, offsets, targets);
+    }
+
+    private static List<Assignment> matchByCost(List<TeachingRequirement> requirements, List<Teacher> teachers,
+                                                int[][] candidates, int[][] costs) {
+        // Nodes: source, one per requirement, one per teacher, sink
+        int source = 0;
+        int firstTeacher = 1 + requirements.size();
+        int sink = firstTeacher + teachers.size();
+        MinCostFlow network = new MinCostFlow(sink + 1);
+
+        int[][] edges = new int[requirements.size()][];
+        for (int r = 0; r < requirements.size(); r++) {
+            network.addEdge(source, 1 + r, 1, 0);
+            edges[r] = new int[candidates[r].length];
+            for (int i = 0; i < candidates[r].length; i++) {
+                edges[r][i] = network.addEdge(1 + r, firstTeacher + candidates[r][i], 1, costs[r][i]);
+            }
+        }
+        for (int t = 0; t < teachers.size(); t++) {
+            network.addEdge(firstTeacher + t, sink, 1, 0);
+        }
+        network.solve(source, sink);
+
+        List<Assignment> plan = new ArrayList<>();
+        for (int r = 0; r < requirements.size(); r++) {
+            for (int i = 0; i < edges[r].length; i++) {
+                if (network.flow(edges[r][i]) > 0) {
+                    plan.add(new Assignment(requirements.get(r), teachers.get(candidates[r][i]), costs[r][i]));
+                    break;
+                }
+            }
+        }
+        return plan;
+    }
+}
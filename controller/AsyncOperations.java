@@ -0,0 +1,58 @@
+package controller;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Runs controller operations off the caller's thread
+ * A write completes only once the store acknowledges it as durable, so callers that start many
+ * writes before waiting on any let a write-behind store persist them in one batch.
+ */
+final class AsyncOperations {
+
+    private AsyncOperations() {
+    }
+
+    // Operations block on disk and locks, so they get threads of their own rather than the common pool's
+    private static final class DefaultExecutor {
+        static final ExecutorService INSTANCE = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "controller-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the executor shared by controllers not given one, a cached pool of daemon threads
+     */
+    static Executor defaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    /**
+     * Run a read on the executor
+     */
+    static <T> CompletableFuture<T> read(Supplier<T> operation, Executor executor) {
+        return CompletableFuture.supplyAsync(operation, executor);
+    }
+
+    /**
+     * Run a write on the executor and complete once it is durable
+     *
+     * @param operation the blocking write
+     * @param succeeded whether a result is a change the store accepted
+     * @param failure the result to complete with if the accepted change could not be persisted
+     * @param flushed the store's acknowledgement of every change accepted so far
+     */
+    static <T> CompletableFuture<T> write(Supplier<T> operation, Predicate<T> succeeded, T failure,
+                                          Supplier<CompletableFuture<Boolean>> flushed, Executor executor) {
+        return CompletableFuture.supplyAsync(operation, executor)
+                .thenCompose(result -> succeeded.test(result)
+                        ? flushed.get().thenApply(durable -> durable ? result : failure)
+                        : CompletableFuture.completedFuture(result));
+    }
+}
@@ -1,11 +1,25 @@
 package controller;
 
+import dao.Page;
+import dao.Snapshot;
 import dao.TeachingRequirementDAO;
+import dao.query.Condition;
+import dao.query.QueryResult;
+import model.RoomUtilization;
+import model.ScheduleConflict;
 import model.TeachingRequirement;
+import model.WeekOccupancy;
+import model.WeeklySchedule;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Class Director Controller
@@ -16,13 +30,27 @@ public class ClassDirectorController {
     // Teaching requirement data access object
     private final TeachingRequirementDAO requirementDAO;
 
+    // Executor running the asynchronous operations
+    private final Executor asyncExecutor;
+
     /**
      * Constructor
      *
      * @param requirementDAO Teaching requirement data access object
      */
     public ClassDirectorController(TeachingRequirementDAO requirementDAO) {
+        this(requirementDAO, AsyncOperations.defaultExecutor());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param requirementDAO Teaching requirement data access object
+     * @param asyncExecutor Executor running the asynchronous operations
+     */
+    public ClassDirectorController(TeachingRequirementDAO requirementDAO, Executor asyncExecutor) {
         this.requirementDAO = requirementDAO;
+        this.asyncExecutor = Objects.requireNonNull(asyncExecutor, "asyncExecutor");
     }
 
     /**
@@ -34,7 +62,8 @@ public class ClassDirectorController {
      * @param location Location
      * @param qualifications Required teacher qualifications list
      * @param notes Additional notes
-     * @return Created requirement object on success, null on failure
+     * @return Created requirement object on success, null if the course name or code is missing or saving failed
+     * @throws IllegalStateException if the location is already booked during the schedule, naming the bookings
      */
     public TeachingRequirement createRequirement(
             String courseName,
@@ -50,6 +79,18 @@ public class ClassDirectorController {
             return null;
         }
 
+        // Refuse a requirement that would double-book its location
+        List<TeachingRequirement> conflicts = getLocationConflicts(location, schedule, null);
+        if (!conflicts.isEmpty()) {
+            StringBuilder message = new StringBuilder(location).append(" is already booked at that time by ");
+            for (int i = 0; i < conflicts.size(); i++) {
+                TeachingRequirement conflict = conflicts.get(i);
+                message.append(i > 0 ? ", " : "").append(conflict.getCourseName())
+                        .append(" (").append(conflict.getSchedule()).append(")");
+            }
+            throw new IllegalStateException(message.toString());
+        }
+
         // Create new teaching requirement object
         TeachingRequirement requirement = new TeachingRequirement(
                 courseName, courseCode, schedule, location, qualifications);
@@ -83,39 +124,74 @@ public class ClassDirectorController {
             List<String> qualifications,
             String notes) {
 
-        // Find existing requirement
-        TeachingRequirement requirement = requirementDAO.findById(id);
-        if (requirement == null) {
-            return false;
-        }
+        // Changed on a copy and stored only if no one else changed the requirement meanwhile, retrying
+        // otherwise, so concurrent changes to the requirement are not lost
+        return requirementDAO.modify(id, changes(courseName, courseCode, schedule, location, qualifications, notes));
+    }
 
-        // Update requirement properties
-        if (courseName != null && !courseName.trim().isEmpty()) {
-            requirement.setCourseName(courseName);
-        }
+    /**
+     * Update an existing teaching requirement, only if it is still the version the caller read
+     *
+     * @param id Requirement ID
+     * @param expectedVersion The version of the requirement the update is based on, see
+     *                        {@link TeachingRequirement#getVersion()}
+     * @param courseName Course name
+     * @param courseCode Course code
+     * @param schedule Time schedule
+     * @param location Location
+     * @param qualifications Required teacher qualifications list
+     * @param notes Additional notes
+     * @return true on successful update, false if there is no such requirement, it has been changed
+     *         since, or it could not be saved
+     */
+    public boolean updateRequirement(
+            String id,
+            long expectedVersion,
+            String courseName,
+            String courseCode,
+            String schedule,
+            String location,
+            List<String> qualifications,
+            String notes) {
 
-        if (courseCode != null && !courseCode.trim().isEmpty()) {
-            requirement.setCourseCode(courseCode);
+        TeachingRequirement current = requirementDAO.findById(id);
+        if (current == null || current.getVersion() != expectedVersion) {
+            return false;
         }
+        TeachingRequirement changed = new TeachingRequirement(current);
+        changes(courseName, courseCode, schedule, location, qualifications, notes).accept(changed);
+        return requirementDAO.update(changed, expectedVersion);
+    }
 
-        if (schedule != null) {
-            requirement.setSchedule(schedule);
-        }
+    // The properties of an update that are given; blank names and codes are left as they are
+    private static Consumer<TeachingRequirement> changes(String courseName, String courseCode, String schedule,
+                                                         String location, List<String> qualifications,
+                                                         String notes) {
+        return requirement -> {
+            if (courseName != null && !courseName.trim().isEmpty()) {
+                requirement.setCourseName(courseName);
+            }
 
-        if (location != null) {
-            requirement.setLocation(location);
-        }
+            if (courseCode != null && !courseCode.trim().isEmpty()) {
+                requirement.setCourseCode(courseCode);
+            }
 
-        if (qualifications != null) {
-            requirement.setRequiredQualifications(qualifications);
-        }
+            if (schedule != null) {
+                requirement.setSchedule(schedule);
+            }
 
-        if (notes != null) {
-            requirement.setNotes(notes);
-        }
+            if (location != null) {
+                requirement.setLocation(location);
+            }
+
+            if (qualifications != null) {
+                requirement.setRequiredQualifications(qualifications);
+            }
 
-        // Save the updated requirement
-        return requirementDAO.update(requirement);
+            if (notes != null) {
+                requirement.setNotes(notes);
+            }
+        };
     }
 
     /**
@@ -129,12 +205,133 @@ public class ClassDirectorController {
     }
 
     /**
-     * Get all teaching requirements
+     * Find the teaching requirements that already use a location during a schedule
+     *
+     * @param location Location
+     * @param schedule Time schedule
+     * @param excludeId ID of a requirement to leave out, e.g. the one being changed, or null
+     * @return List of conflicting teaching requirements
+     */
+    public List<TeachingRequirement> getLocationConflicts(String location, String schedule, String excludeId) {
+        WeeklySchedule weeklySchedule = WeeklySchedule.parse(schedule);
+        if (weeklySchedule.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<TeachingRequirement> conflicts = requirementDAO.findLocationConflicts(location, weeklySchedule);
+        conflicts.removeIf(requirement -> requirement.getId().equals(excludeId));
+        return conflicts;
+    }
+
+    /**
+     * Find the teaching requirements that keep a teacher busy during a requirement's schedule
+     *
+     * @param requirementId Requirement ID
+     * @param teacherId Teacher ID
+     * @return List of conflicting teaching requirements, empty if the requirement does not exist
+     */
+    public List<TeachingRequirement> getTeacherConflicts(String requirementId, String teacherId) {
+        TeachingRequirement requirement = requirementDAO.findById(requirementId);
+        if (requirement == null || requirement.getWeeklySchedule().isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<TeachingRequirement> conflicts =
+                requirementDAO.findTeacherConflicts(teacherId, requirement.getWeeklySchedule());
+        conflicts.removeIf(other -> other.getId().equals(requirementId));
+        return conflicts;
+    }
+
+    /**
+     * Assign a teacher to a teaching requirement
+     * The assignment is refused if the teacher is already teaching at an overlapping time.
+     *
+     * @param requirementId Requirement ID
+     * @param teacherId Teacher ID
+     * @return true on successful assignment, false if the requirement was not found or the teacher is busy
+     */
+    public boolean assignTeacher(String requirementId, String teacherId) {
+        if (teacherId == null || teacherId.trim().isEmpty()) {
+            return false;
+        }
+        if (!getTeacherConflicts(requirementId, teacherId.trim()).isEmpty()) {
+            return false;
+        }
+
+        return requirementDAO.modify(requirementId, requirement -> requirement.assignTeacher(teacherId.trim()));
+    }
+
+    /**
+     * Find every schedule conflict between teaching requirements
+     *
+     * @return List of requirement pairs that share a location or a teacher at overlapping times
+     */
+    public List<ScheduleConflict> findAllConflicts() {
+        return requirementDAO.findAllConflicts();
+    }
+
+    /**
+     * Report how every location is booked over the week
+     *
+     * @return One entry per location, with its booked and double-booked slots
+     */
+    public List<RoomUtilization> getRoomUtilization() {
+        return requirementDAO.getRoomUtilization();
+    }
+
+    /**
+     * Find the times when a location is free
+     *
+     * @param location Location
+     * @param window Schedule text of the times to look in, blank for the teaching week
+     * @return The free times, to the half hour
+     */
+    public WeeklySchedule getFreeTimes(String location, String window) {
+        return requirementDAO.findFreeTimes(location, parseWindow(window));
+    }
+
+    /**
+     * Find the locations free for the whole of a schedule
+     *
+     * @param schedule Schedule text, blank for the teaching week
+     * @return The free locations, among those used by some requirement
+     */
+    public List<String> getFreeLocations(String schedule) {
+        return requirementDAO.findFreeLocations(parseWindow(schedule));
+    }
+
+    private static WeeklySchedule parseWindow(String text) {
+        WeeklySchedule window = WeeklySchedule.parse(text);
+        return window.isEmpty() ? WeekOccupancy.TEACHING_WEEK.toSchedule() : window;
+    }
+
+    /**
+     * Get all teaching requirements as they were at one moment, unaffected by concurrent changes
      *
      * @return List of all teaching requirements
      */
     public List<TeachingRequirement> getAllRequirements() {
-        return requirementDAO.findAll();
+        try (Snapshot<String, TeachingRequirement> snapshot = requirementDAO.snapshot()) {
+            return snapshot.findAll();
+        }
+    }
+
+    /**
+     * Open a point-in-time view of all teaching requirements, for reports that read them more than once
+     *
+     * @return The snapshot, which the caller must close
+     */
+    public Snapshot<String, TeachingRequirement> openRequirementSnapshot() {
+        return requirementDAO.snapshot();
+    }
+
+    /**
+     * Get one page of all teaching requirements, in ID order
+     *
+     * @param last The last requirement of the previous page, null for the first page
+     * @param pageSize Maximum number of requirements on the page
+     * @return The page
+     */
+    public Page<TeachingRequirement> getRequirementsPage(TeachingRequirement last, int pageSize) {
+        return requirementDAO.pageAfter(last, pageSize, TeachingRequirementDAO.ID_ORDER);
     }
 
     /**
@@ -158,9 +355,45 @@ public class ClassDirectorController {
             return new ArrayList<>();
         }
 
-        return requirementDAO.findAll().stream()
-                .filter(requirement -> requirement.getStatus() == status)
-                .collect(Collectors.toList());
+        return requirementDAO.findByStatus(status);
+    }
+
+    /**
+     * Count teaching requirements in each status
+     *
+     * @return Number of teaching requirements per status
+     */
+    public Map<TeachingRequirement.RequirementStatus, Integer> countRequirementsByStatus() {
+        Map<TeachingRequirement.RequirementStatus, Integer> counts =
+                new EnumMap<>(TeachingRequirement.RequirementStatus.class);
+        for (TeachingRequirement.RequirementStatus status : TeachingRequirement.RequirementStatus.values()) {
+            counts.put(status, requirementDAO.countByStatus(status));
+        }
+        return counts;
+    }
+
+    /**
+     * Get the teaching requirements a teacher is assigned to
+     *
+     * @param teacherId Teacher ID
+     * @return List of teaching requirements assigned to the teacher
+     */
+    public List<TeachingRequirement> getRequirementsByTeacher(String teacherId) {
+        if (teacherId == null || teacherId.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return requirementDAO.findByTeacher(teacherId.trim());
+    }
+
+    /**
+     * Find teaching requirements satisfying a condition built from RequirementConditions
+     *
+     * @param condition The condition
+     * @return Matching teaching requirements, with an explanation of which indexes answered the query
+     */
+    public QueryResult<TeachingRequirement> queryRequirements(Condition<TeachingRequirement> condition) {
+        return requirementDAO.query(condition);
     }
 
     /**
@@ -174,14 +407,142 @@ public class ClassDirectorController {
             return new ArrayList<>();
         }
 
-        String keyword = courseName.toLowerCase().trim();
+        return requirementDAO.searchByCourseName(courseName.trim());
+    }
+
+    /**
+     * Create a new teaching requirement without waiting
+     *
+     * @return Future completed with the created requirement once it is durable, or with null if it could not
+     *         be created or saved; completed exceptionally with IllegalStateException if the location is booked
+     * @see #createRequirement(String, String, String, String, List, String)
+     */
+    public CompletableFuture<TeachingRequirement> createRequirementAsync(
+            String courseName,
+            String courseCode,
+            String schedule,
+            String location,
+            List<String> qualifications,
+            String notes) {
+
+        return AsyncOperations.write(
+                () -> createRequirement(courseName, courseCode, schedule, location, qualifications, notes),
+                Objects::nonNull, null, requirementDAO::flushed, asyncExecutor);
+    }
+
+    /**
+     * Update an existing teaching requirement without waiting
+     *
+     * @return Future completed with true once the change is durable, false on failure
+     * @see #updateRequirement(String, String, String, String, String, List, String)
+     */
+    public CompletableFuture<Boolean> updateRequirementAsync(
+            String id,
+            String courseName,
+            String courseCode,
+            String schedule,
+            String location,
+            List<String> qualifications,
+            String notes) {
+
+        return write(() -> updateRequirement(id, courseName, courseCode, schedule, location, qualifications, notes));
+    }
+
+    /**
+     * Update an existing teaching requirement without waiting, only if it is still the version the caller read
+     *
+     * @return Future completed with true once the change is durable, false if there is no such requirement,
+     *         it has been changed since, or the change could not be saved
+     * @see #updateRequirement(String, long, String, String, String, String, List, String)
+     */
+    public CompletableFuture<Boolean> updateRequirementAsync(
+            String id,
+            long expectedVersion,
+            String courseName,
+            String courseCode,
+            String schedule,
+            String location,
+            List<String> qualifications,
+            String notes) {
+
+        return write(() -> updateRequirement(id, expectedVersion, courseName, courseCode, schedule, location,
+                qualifications, notes));
+    }
+
+    /**
+     * Delete a teaching requirement without waiting
+     *
+     * @param id Requirement ID
+     * @return Future completed with true once the deletion is durable, false on failure
+     */
+    public CompletableFuture<Boolean> deleteRequirementAsync(String id) {
+        return write(() -> deleteRequirement(id));
+    }
+
+    /**
+     * Assign a teacher to a teaching requirement without waiting
+     *
+     * @param requirementId Requirement ID
+     * @param teacherId Teacher ID
+     * @return Future completed with true once the assignment is durable, false if it was refused or could not
+     *         be saved
+     * @see #assignTeacher(String, String)
+     */
+    public CompletableFuture<Boolean> assignTeacherAsync(String requirementId, String teacherId) {
+        return write(() -> assignTeacher(requirementId, teacherId));
+    }
+
+    /**
+     * Get a teaching requirement by ID without waiting
+     *
+     * @param id Requirement ID
+     * @return Future completed with the requirement, or with null if not found
+     */
+    public CompletableFuture<TeachingRequirement> getRequirementByIdAsync(String id) {
+        return AsyncOperations.read(() -> getRequirementById(id), asyncExecutor);
+    }
+
+    /**
+     * Get all teaching requirements as they were at one moment, without waiting
+     *
+     * @return Future completed with the list of all teaching requirements
+     */
+    public CompletableFuture<List<TeachingRequirement>> getAllRequirementsAsync() {
+        return AsyncOperations.read(this::getAllRequirements, asyncExecutor);
+    }
+
+    /**
+     * Get the teaching requirements a teacher is assigned to, without waiting
+     *
+     * @param teacherId Teacher ID
+     * @return Future completed with the teacher's requirements
+     */
+    public CompletableFuture<List<TeachingRequirement>> getRequirementsByTeacherAsync(String teacherId) {
+        return AsyncOperations.read(() -> getRequirementsByTeacher(teacherId), asyncExecutor);
+    }
+
+    /**
+     * Search teaching requirements by course name without waiting
+     *
+     * @param courseName Course name keyword
+     * @return Future completed with the matching teaching requirements
+     */
+    public CompletableFuture<List<TeachingRequirement>> searchRequirementsByCourseNameAsync(String courseName) {
+        return AsyncOperations.read(() -> searchRequirementsByCourseName(courseName), asyncExecutor);
+    }
+
+    /**
+     * Find every schedule conflict between teaching requirements without waiting
+     *
+     * @return Future completed with the conflicting requirement pairs
+     */
+    public CompletableFuture<List<ScheduleConflict>> findAllConflictsAsync() {
+        return AsyncOperations.read(this::findAllConflicts, asyncExecutor);
+    }
 
-        return requirementDAO.findAll().stream()
-                .filter(requirement -> {
-                    String name = requirement.getCourseName();
-                    return name != null && name.toLowerCase().contains(keyword);
-                })
-                .collect(Collectors.toList());
+    // Run a change on the executor; with write-behind stores, changes started together are persisted together
+    private CompletableFuture<Boolean> write(Supplier<Boolean> change) {
+        return AsyncOperations.write(change, Boolean::booleanValue, false, requirementDAO::flushed, asyncExecutor);
     }
 
-}
\ No newline at end of file
+}
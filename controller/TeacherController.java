@@ -1,18 +1,30 @@
 package controller;
 
+import dao.Snapshot;
 import dao.TeacherDAO;
+import dao.TrainingSessionDAO;
 import model.Teacher;
+import model.TrainingSession;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 
 public class TeacherController {
     public final TeacherDAO teacherDAO;
+    private final TrainingSessionDAO trainingSessionDAO;
     private final Scanner scanner = new Scanner(System.in);
 
     // Constructor to initialize the DAO
     public TeacherController(TeacherDAO teacherDAO) {
+        this(teacherDAO, null);
+    }
+
+    // Constructor with a training session store, used to record and list training attendance
+    public TeacherController(TeacherDAO teacherDAO, TrainingSessionDAO trainingSessionDAO) {
         this.teacherDAO = teacherDAO;
+        this.trainingSessionDAO = trainingSessionDAO;
     }
 
     // SC-07: Update teacher profile (personal details and qualifications)
@@ -93,19 +105,63 @@ public class TeacherController {
             return;
         }
 
+        if (trainingSessionDAO != null) {
+            try {
+                trainingSessionDAO.addParticipant(trainingId, String.valueOf(teacherId));
+            } catch (NoSuchElementException e) {
+                System.out.println(e.getMessage());
+                return;
+            }
+        }
         System.out.println("Teacher " + teacher.getName() + " has attended training: " + trainingId);
-        // Logic to record training attendance can be implemented here.
     }
 
-    // SC-09: View all training sessions attended (Assuming data is stored elsewhere)
+    // SC-09: Record attendance of a training session without console interaction
+    // Returns false if the teacher or the training session does not exist
+    public boolean recordTraining(int teacherId, String trainingId) {
+        if (teacherDAO.findById(teacherId) == null || trainingSessionDAO == null) {
+            return false;
+        }
+        try {
+            trainingSessionDAO.addParticipant(trainingId, String.valueOf(teacherId));
+            return true;
+        } catch (NoSuchElementException e) {
+            return false;
+        }
+    }
+
+    // SC-09: Get the training sessions a teacher has attended, empty if there are no training records
+    public List<TrainingSession> getCompletedTraining(int teacherId) {
+        if (trainingSessionDAO == null) {
+            return new ArrayList<>();
+        }
+        return trainingSessionDAO.getTrainingSessionsByTeacherId(String.valueOf(teacherId));
+    }
+
+    // SC-09: View all training sessions attended
     public void viewCompletedTraining(int teacherId) {
-        // Placeholder logic to show completed trainings
-        System.out.println("Completed trainings for Teacher ID " + teacherId + ": [Training1, Training2]");
+        if (trainingSessionDAO == null) {
+            System.out.println("No training records are available.");
+            return;
+        }
+
+        List<TrainingSession> sessions = getCompletedTraining(teacherId);
+        if (sessions.isEmpty()) {
+            System.out.println("No completed trainings for Teacher ID " + teacherId + ".");
+            return;
+        }
+        System.out.println("Completed trainings for Teacher ID " + teacherId + ":");
+        for (TrainingSession session : sessions) {
+            System.out.println(session);
+        }
     }
 
     // Display all teachers for reference
     public void displayAllTeachers() {
-        List<Teacher> teachers = teacherDAO.getAll();
+        List<Teacher> teachers;
+        try (Snapshot<Integer, Teacher> snapshot = teacherDAO.snapshot()) {
+            teachers = snapshot.findAll();
+        }
         for (Teacher teacher : teachers) {
             System.out.println(teacher);
         }
@@ -0,0 +1,60 @@
+package dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a listing
+ * The last item of a page is the key for fetching the next one with keyset pagination,
+ * which stays cheap however deep the listing goes; offset pagination is also supported.
+ *
+ * @param <T> Entity type
+ */
+public final class Page<T> {
+    private final List<T> items;
+    private final int offset;
+    private final boolean hasMore;
+
+    /**
+     * Constructor
+     *
+     * @param items Items on the page, in listing order
+     * @param offset Position of the first item in the whole listing, or -1 if unknown
+     * @param hasMore Whether items follow this page
+     */
+    public Page(List<T> items, int offset, boolean hasMore) {
+        this.items = Collections.unmodifiableList(items);
+        this.offset = offset;
+        this.hasMore = hasMore;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Get the position of the first item in the whole listing
+     *
+     * @return The offset, or -1 for a keyset page, whose position is not counted
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    /**
+     * Get the last item, the key for the next page
+     *
+     * @return The last item, or null if the page is empty
+     */
+    public T getLast() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+}
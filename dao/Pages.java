@@ -0,0 +1,112 @@
+package dao;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Paging over a source that can only be walked in full
+ * The rows of a page are picked with a bounded heap while the source is walked, so a page
+ * costs memory in proportion to its depth, never to the size of the source.
+ */
+final class Pages {
+    // Rows fetched per round trip by a cursor
+    static final int CURSOR_CHUNK = 256;
+
+    private Pages() {
+    }
+
+    /**
+     * Make a listing order total by breaking its ties with a key order
+     *
+     * @param order The requested order, or null for the key order alone
+     * @param key Order on a unique key
+     */
+    static <T> Comparator<T> total(Comparator<? super T> order, Comparator<T> key) {
+        if (order == null || order == key) {
+            return key;
+        }
+        return (first, second) -> {
+            int compared = order.compare(first, second);
+            return compared != 0 ? compared : key.compare(first, second);
+        };
+    }
+
+    /**
+     * Select a page
+     *
+     * @param source Walks every row
+     * @param order Total order of the listing; no two distinct rows may compare equal
+     * @param after Key of the previous page, or null to start from the beginning
+     * @param offset Rows to skip after the key
+     * @param limit Page size
+     * @return The page
+     */
+    static <T> Page<T> select(Consumer<Consumer<T>> source, Comparator<T> order,
+                              T after, int offset, int limit) {
+        checkBounds(offset, limit);
+        // Keep the offset + limit + 1 smallest rows; the extra one tells whether more follow
+        int keep = offset + limit + 1;
+        PriorityQueue<T> heap = new PriorityQueue<>(Math.min(keep, 1024), order.reversed());
+        source.accept(row -> {
+            if (after != null && order.compare(row, after) <= 0) {
+                return;
+            }
+            if (heap.size() < keep) {
+                heap.add(row);
+            } else if (order.compare(row, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(row);
+            }
+        });
+
+        List<T> rows = new ArrayList<>(heap);
+        rows.sort(order);
+        boolean hasMore = rows.size() == keep;
+        int end = Math.min(rows.size(), offset + limit);
+        List<T> items = offset >= end ? new ArrayList<>() : new ArrayList<>(rows.subList(offset, end));
+        return new Page<>(items, after == null ? offset : -1, hasMore);
+    }
+
+    /**
+     * Iterate a listing page by page
+     * Each chunk is fetched when the previous one is used up, so the iterator sees changes
+     * made while it is open, but never skips or repeats a row that stays in place.
+     *
+     * @param next Fetches the page after a key, or the first page for null
+     * @return The iterator
+     */
+    static <T> Iterator<T> cursor(Function<T, Page<T>> next) {
+        return new Iterator<T>() {
+            private Page<T> page = next.apply(null);
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                if (position < page.getItems().size()) {
+                    return true;
+                }
+                if (!page.hasMore() || page.isEmpty()) {
+                    return false;
+                }
+                page = next.apply(page.getLast());
+                position = 0;
+                return !page.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.getItems().get(position++);
+            }
+        };
+    }
+
+    static void checkBounds(int offset, int limit) {
+        if (offset < 0 || limit < 1) {
+            throw new IllegalArgumentException("The offset must not be negative and the limit must be positive");
+        }
+    }
+}
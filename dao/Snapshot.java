@@ -0,0 +1,82 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-only view of a store as it was at one point in time
+ * Writers carry on while a snapshot is open, but the snapshot keeps seeing every record as it
+ * was when it was opened, and never a record half-way through a change. Entities it returns are
+ * copies, so changing them affects neither the store nor the snapshot. Close a snapshot when
+ * done, so that the store can reclaim the record versions it keeps for it.
+ *
+ * @param <K> Key type
+ * @param <T> Entity type
+ */
+public interface Snapshot<K, T> extends AutoCloseable {
+
+    /**
+     * Find an entity as it was when the snapshot was opened
+     *
+     * @param key The key of the entity
+     * @return A copy of the entity, or null if there was none
+     */
+    T get(K key);
+
+    /**
+     * Visit a copy of every entity the store held when the snapshot was opened
+     *
+     * @param action The action to run on each entity
+     */
+    void forEach(Consumer<? super T> action);
+
+    /**
+     * Get a copy of every entity the store held when the snapshot was opened
+     *
+     * @return A list of the entities
+     */
+    default List<T> findAll() {
+        List<T> entities = new ArrayList<>();
+        forEach(entities::add);
+        return entities;
+    }
+
+    /**
+     * Release the snapshot; it must not be used afterwards
+     */
+    @Override
+    void close();
+
+    /**
+     * Create a snapshot over entities already copied out of a store
+     *
+     * @param copies Entities by key, owned by the snapshot from now on
+     * @param copier Makes an independent copy of an entity
+     * @param <K> Key type
+     * @param <T> Entity type
+     * @return A snapshot holding the copies, which needs no store and nothing to release
+     */
+    static <K, T> Snapshot<K, T> of(Map<K, T> copies, UnaryOperator<T> copier) {
+        return new Snapshot<K, T>() {
+            @Override
+            public T get(K key) {
+                T entity = copies.get(key);
+                return entity == null ? null : copier.apply(entity);
+            }
+
+            @Override
+            public void forEach(Consumer<? super T> action) {
+                for (T entity : copies.values()) {
+                    action.accept(copier.apply(entity));
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
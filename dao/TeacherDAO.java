@@ -1,8 +1,20 @@
 package dao;
 
+import dao.query.Condition;
+import dao.query.QueryResult;
+import dao.query.TeacherConditions;
 import model.Teacher;
+import util.QualificationIndex;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /** Teacher DAO Interface
  * Defines operations for managing teacher data(CRUD)
@@ -11,6 +23,11 @@ import java.util.List;
  * @version 1.0.0
 */
 public interface TeacherDAO {
+    /**
+     * Natural listing order, by ID; implementations page through it without sorting
+     */
+    Comparator<Teacher> ID_ORDER = Comparator.comparingInt(Teacher::getId);
+
     /**
      * Save the information of a new teacher
      * @param teacher the teacher to be saved
@@ -62,4 +79,191 @@ public interface TeacherDAO {
     boolean loadAll();
 
     Teacher getTeacherById(String teacherId);
+
+    /**
+     * Update a registered teacher only if it has not been changed since it was read
+     * Every stored change gives a teacher a higher version, see {@link Teacher#getVersion()}, and
+     * the teacher passed in gets the version it was stored with. Thread-safe implementations
+     * compare and swap without holding a lock while the caller prepares the change, so a writer
+     * that loses a race simply reads the teacher again and retries. The default is not atomic.
+     * Implementations that hand out their stored teachers expect a changed copy
+     * ({@link Teacher#Teacher(Teacher)}), not the stored teacher itself.
+     * @param teacher the changed teacher
+     * @param expectedVersion the version of the teacher the change was based on
+     * @return true if successful, false if there is no such teacher, it has another version,
+     *         or it could not be saved
+     */
+    default boolean update(Teacher teacher, long expectedVersion) {
+        Teacher current = findById(teacher.getId());
+        if (current == null || current.getVersion() != expectedVersion) {
+            return false;
+        }
+        return update(teacher);
+    }
+
+    /**
+     * Read, change and write back a registered teacher in one step
+     * The change is made to a copy and stored with {@link #update(Teacher, long)}; when another
+     * write to the same teacher gets in first, the change is made again to a fresh copy, so no
+     * update is lost and no lock is held while the change runs.
+     * @param id the id of the teacher to be changed
+     * @param change the change, which must not alter the ID and may run more than once
+     * @return true if successful, false if there is no such teacher or it could not be saved
+     */
+    default boolean modify(int id, Consumer<? super Teacher> change) {
+        while (true) {
+            Teacher current = findById(id);
+            if (current == null) {
+                return false;
+            }
+            Teacher changed = new Teacher(current);
+            change.accept(changed);
+            if (changed.getId() != id) {
+                throw new IllegalArgumentException("A change must not alter the ID of a teacher");
+            }
+            if (update(changed, current.getVersion())) {
+                return true;
+            }
+            Teacher now = findById(id);
+            if (now == null || now.getVersion() == current.getVersion()
+                    || now.getVersion() == changed.getVersion()) {
+                // Not a lost race: the teacher is gone, or the change was kept but could not be saved
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Visit every teacher without copying them into a list
+     * Implementations that hold a lock while visiting must not be modified by the action.
+     * @param action the action to run on each teacher
+     */
+    default void forEach(Consumer<? super Teacher> action) {
+        getAll().forEach(action);
+    }
+
+    /**
+     * Get one page of teachers by position
+     * @param offset number of teachers to skip
+     * @param limit maximum number of teachers on the page
+     * @param order listing order, ties broken by ID; null or {@link #ID_ORDER} for the natural order
+     * @return the page
+     */
+    default Page<Teacher> page(int offset, int limit, Comparator<? super Teacher> order) {
+        return Pages.select(this::forEach, Pages.total(order, ID_ORDER), null, offset, limit);
+    }
+
+    /**
+     * Get the page of teachers that follows a teacher in a listing
+     * Unlike {@link #page}, the cost does not grow with how far into the listing the page is.
+     * @param last the last teacher of the previous page, null for the first page
+     * @param limit maximum number of teachers on the page
+     * @param order listing order, ties broken by ID; null or {@link #ID_ORDER} for the natural order
+     * @return the page
+     */
+    default Page<Teacher> pageAfter(Teacher last, int limit, Comparator<? super Teacher> order) {
+        return Pages.select(this::forEach, Pages.total(order, ID_ORDER), last, 0, limit);
+    }
+
+    /**
+     * Iterate over all teachers in a listing order, fetching them a page at a time
+     * @param order listing order, ties broken by ID; null or {@link #ID_ORDER} for the natural order
+     * @return the iterator
+     */
+    default Iterator<Teacher> cursor(Comparator<? super Teacher> order) {
+        return Pages.cursor(last -> pageAfter(last, Pages.CURSOR_CHUNK, order));
+    }
+
+    /**
+     * Find all the teachers that are currently available
+     * @return list of available teachers
+     */
+    default List<Teacher> findAvailable() {
+        List<Teacher> available = new ArrayList<>();
+        for (Teacher teacher : getAll()) {
+            if (teacher.isAvailable()) {
+                available.add(teacher);
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Count the teachers that are currently available
+     * @return number of available teachers
+     */
+    default int countAvailable() {
+        return findAvailable().size();
+    }
+
+    /**
+     * Find the teachers whose qualifications match the given terms
+     * Terms are matched case-insensitively against the words of the qualifications, as prefixes,
+     * so "math" matches "Mathematics". Implementations may answer from an index.
+     * @param terms the qualification terms to look for
+     * @param matchAll true if a teacher must match every term, false if matching any term is enough
+     * @return list of matching teachers
+     */
+    default List<Teacher> findByQualifications(Collection<String> terms, boolean matchAll) {
+        if (QualificationIndex.normalize(terms).isEmpty()) {
+            return getAll();
+        }
+        List<Teacher> matches = new ArrayList<>();
+        for (Teacher teacher : getAll()) {
+            if (QualificationIndex.matches(teacher.getQualifications(), terms, matchAll)) {
+                matches.add(teacher);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Check whether a query attribute is answered from an index rather than by scanning
+     * @param attribute one of the attribute names in {@link TeacherConditions}
+     * @return true if the implementation keeps an index for the attribute
+     */
+    default boolean isIndexed(String attribute) {
+        return false;
+    }
+
+    /**
+     * Find the teachers satisfying a condition, using whichever indexes apply
+     * @param condition the condition, built from {@link TeacherConditions}
+     * @return the matching teachers and the plan that found them
+     */
+    default QueryResult<Teacher> query(Condition<Teacher> condition) {
+        return TeacherConditions.planner(this).execute(condition);
+    }
+
+    /**
+     * Get an acknowledgement for every mutation accepted so far
+     * Implementations that persist synchronously are always durable on return.
+     * @return future completed with true once the mutations are durable, false if persisting failed
+     */
+    default CompletableFuture<Boolean> flushed() {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * Save every teacher and stop background writing, for application shutdown
+     * Write-behind implementations let their flusher write its last batch before saving, so the
+     * two never write at once. The store is not to be changed after closing.
+     * @return future completed with true once everything is saved, false if saving failed
+     */
+    default CompletableFuture<Boolean> close() {
+        return CompletableFuture.completedFuture(saveAll());
+    }
+
+    /**
+     * Open a consistent view of all teachers as they are now, for listings and reports
+     * Multi-version implementations open it at once and hold back writers only for that moment;
+     * the default copies every teacher during one {@link #forEach}, so implementations that lock
+     * while visiting hold back writers for as long as the copy takes.
+     * @return the snapshot, to be closed when done
+     */
+    default Snapshot<Integer, Teacher> snapshot() {
+        Map<Integer, Teacher> copies = new LinkedHashMap<>();
+        forEach(teacher -> copies.put(teacher.getId(), new Teacher(teacher)));
+        return Snapshot.of(copies, Teacher::new);
+    }
 }
\ No newline at end of file
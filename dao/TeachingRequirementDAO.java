@@ -1,12 +1,33 @@
 package dao;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import dao.query.Condition;
+import dao.query.QueryResult;
+import dao.query.RequirementConditions;
+import model.RoomUtilization;
+import model.ScheduleConflict;
 import model.TeachingRequirement;
+import model.WeekOccupancy;
+import model.WeeklySchedule;
 /**
  * Teaching Requirement DAO Interface
  * Defines operations for accessing teaching requirement data
  */
 public interface TeachingRequirementDAO {
+    /**
+     * Natural listing order, by ID; implementations page through it without sorting
+     */
+    Comparator<TeachingRequirement> ID_ORDER = Comparator.comparing(TeachingRequirement::getId);
+
     /**
      * Save a new teaching requirement
      *
@@ -59,4 +80,379 @@ public interface TeachingRequirementDAO {
      * @return Returns true if loaded successfully, otherwise returns false
      */
     boolean loadAll();
+
+    /**
+     * Update a teaching requirement only if it has not been changed since it was read
+     * Every stored change gives a requirement a higher version, see
+     * {@link TeachingRequirement#getVersion()}, and the requirement passed in gets the version it
+     * was stored with. Thread-safe implementations compare and swap without holding a lock while
+     * the caller prepares the change, so a writer that loses a race simply reads the requirement
+     * again and retries. The default is not atomic. Implementations that hand out their stored
+     * requirements expect a changed copy ({@link TeachingRequirement#TeachingRequirement(TeachingRequirement)}),
+     * not the stored requirement itself.
+     *
+     * @param requirement The changed teaching requirement
+     * @param expectedVersion The version of the requirement the change was based on
+     * @return Returns true if updated successfully, false if there is no such requirement, it has
+     *         another version, or it could not be saved
+     */
+    default boolean update(TeachingRequirement requirement, long expectedVersion) {
+        TeachingRequirement current = findById(requirement.getId());
+        if (current == null || current.getVersion() != expectedVersion) {
+            return false;
+        }
+        return update(requirement);
+    }
+
+    /**
+     * Read, change and write back a teaching requirement in one step
+     * The change is made to a copy and stored with {@link #update(TeachingRequirement, long)}; when
+     * another write to the same requirement gets in first, the change is made again to a fresh
+     * copy, so no update is lost and no lock is held while the change runs.
+     *
+     * @param id The ID of the teaching requirement to change
+     * @param change The change, which must not alter the ID and may run more than once
+     * @return Returns true if successful, false if there is no such requirement or it could not be saved
+     */
+    default boolean modify(String id, Consumer<? super TeachingRequirement> change) {
+        while (true) {
+            TeachingRequirement current = findById(id);
+            if (current == null) {
+                return false;
+            }
+            TeachingRequirement changed = new TeachingRequirement(current);
+            change.accept(changed);
+            if (update(changed, current.getVersion())) {
+                return true;
+            }
+            TeachingRequirement now = findById(id);
+            if (now == null || now.getVersion() == current.getVersion()
+                    || now.getVersion() == changed.getVersion()) {
+                // Not a lost race: the requirement is gone, or the change was kept but could not be saved
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Visit every teaching requirement without copying them into a list
+     * Implementations that hold a lock while visiting must not be modified by the action.
+     *
+     * @param action The action to run on each teaching requirement
+     */
+    default void forEach(Consumer<? super TeachingRequirement> action) {
+        findAll().forEach(action);
+    }
+
+    /**
+     * Get one page of teaching requirements by position
+     *
+     * @param offset The number of teaching requirements to skip
+     * @param limit The maximum number of teaching requirements on the page
+     * @param order The listing order, ties broken by ID; null or {@link #ID_ORDER} for the natural order
+     * @return The page
+     */
+    default Page<TeachingRequirement> page(int offset, int limit, Comparator<? super TeachingRequirement> order) {
+        return Pages.select(this::forEach, Pages.total(order, ID_ORDER), null, offset, limit);
+    }
+
+    /**
+     * Get the page of teaching requirements that follows a requirement in a listing
+     * Unlike {@link #page}, the cost does not grow with how far into the listing the page is.
+     *
+     * @param last The last teaching requirement of the previous page, null for the first page
+     * @param limit The maximum number of teaching requirements on the page
+     * @param order The listing order, ties broken by ID; null or {@link #ID_ORDER} for the natural order
+     * @return The page
+     */
+    default Page<TeachingRequirement> pageAfter(TeachingRequirement last, int limit,
+                                                Comparator<? super TeachingRequirement> order) {
+        return Pages.select(this::forEach, Pages.total(order, ID_ORDER), last, 0, limit);
+    }
+
+    /**
+     * Iterate over all teaching requirements in a listing order, fetching them a page at a time
+     *
+     * @param order The listing order, ties broken by ID; null or {@link #ID_ORDER} for the natural order
+     * @return The iterator
+     */
+    default Iterator<TeachingRequirement> cursor(Comparator<? super TeachingRequirement> order) {
+        return Pages.cursor(last -> pageAfter(last, Pages.CURSOR_CHUNK, order));
+    }
+
+    /**
+     * Find teaching requirements whose course name contains a keyword, ignoring case
+     * Implementations may answer from an index instead of scanning every requirement.
+     *
+     * @param keyword The text to look for in course names
+     * @return A list of the matching teaching requirements
+     */
+    default List<TeachingRequirement> searchByCourseName(String keyword) {
+        String needle = keyword.toLowerCase(Locale.ROOT);
+        List<TeachingRequirement> matches = new ArrayList<>();
+        for (TeachingRequirement requirement : findAll()) {
+            String name = requirement.getCourseName();
+            if (name != null && name.toLowerCase(Locale.ROOT).contains(needle)) {
+                matches.add(requirement);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Find teaching requirements with a given status
+     * Implementations may answer from status buckets instead of scanning every requirement.
+     *
+     * @param status The status to look for
+     * @return A list of the teaching requirements with that status
+     */
+    default List<TeachingRequirement> findByStatus(TeachingRequirement.RequirementStatus status) {
+        List<TeachingRequirement> matches = new ArrayList<>();
+        for (TeachingRequirement requirement : findAll()) {
+            if (requirement.getStatus() == status) {
+                matches.add(requirement);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Count teaching requirements with a given status
+     *
+     * @param status The status to count
+     * @return The number of teaching requirements with that status
+     */
+    default int countByStatus(TeachingRequirement.RequirementStatus status) {
+        return findByStatus(status).size();
+    }
+
+    /**
+     * Find the teaching requirements a teacher is assigned to
+     * Implementations may answer from a reverse index instead of scanning every requirement.
+     *
+     * @param teacherId The teacher ID
+     * @return A list of the teaching requirements the teacher is assigned to
+     */
+    default List<TeachingRequirement> findByTeacher(String teacherId) {
+        List<TeachingRequirement> matches = new ArrayList<>();
+        for (TeachingRequirement requirement : findAll()) {
+            if (requirement.isAssigned(teacherId)) {
+                matches.add(requirement);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Find the teaching requirements at a location
+     * Implementations may answer from a location index instead of scanning every requirement.
+     *
+     * @param location The location, compared after normalisation
+     * @return A list of the teaching requirements at the location
+     */
+    default List<TeachingRequirement> findByLocation(String location) {
+        String key = TeachingRequirement.locationKey(location);
+        List<TeachingRequirement> matches = new ArrayList<>();
+        if (key == null) {
+            return matches;
+        }
+        for (TeachingRequirement requirement : findAll()) {
+            if (key.equals(TeachingRequirement.locationKey(requirement.getLocation()))) {
+                matches.add(requirement);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Get the half-hour slots of the week booked at a location
+     *
+     * @param location The location, compared after normalisation
+     * @return The booked slots, empty for an unknown location
+     */
+    default WeekOccupancy findRoomOccupancy(String location) {
+        WeekOccupancy occupied = WeekOccupancy.EMPTY;
+        for (TeachingRequirement requirement : findByLocation(location)) {
+            occupied = occupied.or(WeekOccupancy.of(requirement.getWeeklySchedule()));
+        }
+        return occupied;
+    }
+
+    /**
+     * Find the times within a window when a location is free, to the half hour
+     *
+     * @param location The location, compared after normalisation
+     * @param window The times to look in
+     * @return The free parts of the window
+     */
+    default WeeklySchedule findFreeTimes(String location, WeeklySchedule window) {
+        return WeekOccupancy.of(window).andNot(findRoomOccupancy(location)).toSchedule();
+    }
+
+    /**
+     * Find the locations free for the whole of a schedule, to the half hour
+     * Only locations some requirement uses are known.
+     *
+     * @param schedule The schedule to fit in
+     * @return The free locations
+     */
+    default List<String> findFreeLocations(WeeklySchedule schedule) {
+        WeekOccupancy wanted = WeekOccupancy.of(schedule);
+        List<String> free = new ArrayList<>();
+        for (RoomUtilization room : getRoomUtilization()) {
+            if (!room.getOccupied().intersects(wanted)) {
+                free.add(room.getLocation());
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Report how every location is booked over the week, including double-booked slots
+     *
+     * @return One entry per location, in order of the normalised location names
+     */
+    default List<RoomUtilization> getRoomUtilization() {
+        // One pass: a slot is double-booked once it is booked again while already occupied
+        Map<String, RoomUtilization> rooms = new TreeMap<>();
+        for (TeachingRequirement requirement : findAll()) {
+            String key = TeachingRequirement.locationKey(requirement.getLocation());
+            if (key == null) {
+                continue;
+            }
+            WeekOccupancy slots = WeekOccupancy.of(requirement.getWeeklySchedule());
+            String location = requirement.getLocation().trim().replaceAll("\\s+", " ");
+            RoomUtilization room = rooms.get(key);
+            rooms.put(key, room == null
+                    ? new RoomUtilization(location, 1, slots, WeekOccupancy.EMPTY)
+                    : new RoomUtilization(room.getLocation(), room.getRequirementCount() + 1,
+                            room.getOccupied().or(slots), room.getClashes().or(room.getOccupied().and(slots))));
+        }
+        return new ArrayList<>(rooms.values());
+    }
+
+    /**
+     * Find teaching requirements at a location whose schedules overlap a schedule
+     * Implementations may answer from an interval index instead of scanning every requirement.
+     *
+     * @param location The location, compared after normalisation
+     * @param schedule The schedule to check
+     * @return A list of the overlapping teaching requirements
+     */
+    default List<TeachingRequirement> findLocationConflicts(String location, WeeklySchedule schedule) {
+        String key = TeachingRequirement.locationKey(location);
+        List<TeachingRequirement> matches = new ArrayList<>();
+        if (key == null) {
+            return matches;
+        }
+        for (TeachingRequirement requirement : findAll()) {
+            if (key.equals(TeachingRequirement.locationKey(requirement.getLocation()))
+                    && requirement.getWeeklySchedule().overlaps(schedule)) {
+                matches.add(requirement);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Find teaching requirements assigned to a teacher whose schedules overlap a schedule
+     *
+     * @param teacherId The teacher ID
+     * @param schedule The schedule to check
+     * @return A list of the overlapping teaching requirements
+     */
+    default List<TeachingRequirement> findTeacherConflicts(String teacherId, WeeklySchedule schedule) {
+        List<TeachingRequirement> matches = new ArrayList<>();
+        for (TeachingRequirement requirement : findByTeacher(teacherId)) {
+            if (requirement.getWeeklySchedule().overlaps(schedule)) {
+                matches.add(requirement);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Find every pair of teaching requirements that overlap in time while sharing a location or a teacher
+     *
+     * @return A list of all schedule conflicts
+     */
+    default List<ScheduleConflict> findAllConflicts() {
+        List<TeachingRequirement> requirements = findAll();
+        List<ScheduleConflict> conflicts = new ArrayList<>();
+        for (int i = 0; i < requirements.size(); i++) {
+            TeachingRequirement first = requirements.get(i);
+            for (int j = i + 1; j < requirements.size(); j++) {
+                TeachingRequirement second = requirements.get(j);
+                if (!first.getWeeklySchedule().overlaps(second.getWeeklySchedule())) {
+                    continue;
+                }
+                String location = TeachingRequirement.locationKey(first.getLocation());
+                if (location != null && location.equals(TeachingRequirement.locationKey(second.getLocation()))) {
+                    conflicts.add(new ScheduleConflict(first, second, ScheduleConflict.Kind.LOCATION,
+                            first.getLocation()));
+                }
+                for (String teacherId : first.getAssignedTeacherIds()) {
+                    if (second.isAssigned(teacherId)) {
+                        conflicts.add(new ScheduleConflict(first, second, ScheduleConflict.Kind.TEACHER, teacherId));
+                    }
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Check whether a query attribute is answered from an index rather than by scanning
+     *
+     * @param attribute One of the attribute names in {@link RequirementConditions}
+     * @return True if the implementation keeps an index for the attribute
+     */
+    default boolean isIndexed(String attribute) {
+        return false;
+    }
+
+    /**
+     * Find the teaching requirements satisfying a condition, using whichever indexes apply
+     *
+     * @param condition The condition, built from {@link RequirementConditions}
+     * @return The matching teaching requirements and the plan that found them
+     */
+    default QueryResult<TeachingRequirement> query(Condition<TeachingRequirement> condition) {
+        return RequirementConditions.planner(this).execute(condition);
+    }
+
+    /**
+     * Get an acknowledgement for every mutation accepted so far
+     * Implementations that persist synchronously are always durable on return.
+     *
+     * @return Future completed with true once the mutations are durable, false if persisting failed
+     */
+    default CompletableFuture<Boolean> flushed() {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * Save every teaching requirement and stop background writing, for application shutdown
+     * Write-behind implementations let their flusher write its last batch before saving, so the
+     * two never write at once. The store is not to be changed after closing.
+     *
+     * @return Future completed with true once everything is saved, false if saving failed
+     */
+    default CompletableFuture<Boolean> close() {
+        return CompletableFuture.completedFuture(saveAll());
+    }
+
+    /**
+     * Open a consistent view of all teaching requirements as they are now, for listings and reports
+     * Multi-version implementations open it at once and hold back writers only for that moment;
+     * the default copies every requirement during one {@link #forEach}, so implementations that lock
+     * while visiting hold back writers for as long as the copy takes.
+     *
+     * @return The snapshot, to be closed when done
+     */
+    default Snapshot<String, TeachingRequirement> snapshot() {
+        Map<String, TeachingRequirement> copies = new LinkedHashMap<>();
+        forEach(requirement -> copies.put(requirement.getId(), new TeachingRequirement(requirement)));
+        return Snapshot.of(copies, TeachingRequirement::new);
+    }
 }
\ No newline at end of file
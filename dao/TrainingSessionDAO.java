@@ -9,6 +9,9 @@ public interface TrainingSessionDAO {
     List<TrainingSession> getAllTrainingSessions();
     void updateTrainingSession(TrainingSession session);
     void deleteTrainingSession(String id);
+    void addParticipant(String sessionId, String teacherId);
+    void removeParticipant(String sessionId, String teacherId);
+    List<TrainingSession> getTrainingSessionsByTeacherId(String teacherId);
 }
 
 
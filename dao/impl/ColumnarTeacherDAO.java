@@ -0,0 +1,653 @@
+package dao.impl;
+
+import dao.TeacherDAO;
+import dao.query.TeacherConditions;
+import model.Teacher;
+
+import java.io.DataInput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Columnar, off-heap Teacher DAO Implementation
+ * Teachers are stored column-wise in direct buffers instead of as Teacher objects: an int
+ * ID column, live and availability bitsets, dictionary-encoded qualifications and offset
+ * addressed UTF-8 name and contact blobs. An off-heap open-addressing table maps IDs to rows.
+ * The heap holds no per-teacher objects, and queries such as "all available teachers" are
+ * bitset scans. Teacher objects are only materialised for the rows a query returns.
+ *
+ * Rows of deleted teachers and superseded strings are reclaimed by a vacuum that rewrites
+ * the columns once more than half of them is garbage. Persistence uses the same snapshot
+ * and journal formats as the file store, under their own file names.
+ */
+public class ColumnarTeacherDAO implements TeacherDAO {
+    private static final String DIRECTORY_PATH = "data";
+    private static final String SNAPSHOT_PATH = DIRECTORY_PATH + "/teachers.columns.snapshot";
+    private static final String JOURNAL_PATH = DIRECTORY_PATH + "/teachers.columns.journal";
+    // Number of journal records after which the journal is folded into a new snapshot
+    private static final int COMPACTION_THRESHOLD = 1000;
+
+    private static final int INITIAL_ROWS = 1024;
+    private static final int INITIAL_BLOB_BYTES = 64 * 1024;
+    private static final int EMPTY_SLOT = 0;
+    private static final int TOMBSTONE = -1;
+    private static final int NO_QUALIFICATIONS = -1;
+    private static final long NULL_STRING = -1L;
+
+    // Columns, indexed by row
+    private IntBuffer ids;
+    private IntBuffer qualificationCodes;
+    // String references: offset into the blob in the high half, byte length in the low half
+    private LongBuffer nameRefs;
+    private LongBuffer contactRefs;
+    // Version of each row, 0 for teachers not changed since they were loaded
+    private LongBuffer versions;
+    private LongBuffer liveBits;
+    private LongBuffer availableBits;
+    private ByteBuffer blob;
+    private int rowCount;
+    private int liveCount;
+    private int blobEnd;
+    private int deadBytes;
+    // Version given to the last stored change
+    private long lastVersion;
+
+    // ID -> row + 1; 0 marks an empty slot and -1 a deleted one
+    private IntBuffer slots;
+    private int slotsUsed;
+
+    // Qualification dictionary; distinct qualification strings are few compared to teachers
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> dictionaryCodes = new HashMap<>();
+
+    private final OperationJournal journal;
+    private final SegmentedSnapshot<Teacher> snapshot =
+            new SegmentedSnapshot<>(Paths.get(SNAPSHOT_PATH), RecordCodec::writeTeacher, RecordCodec::readTeacher);
+
+    public ColumnarTeacherDAO() {
+        createDataDirectory();
+        allocate(INITIAL_ROWS, INITIAL_BLOB_BYTES);
+        try {
+            journal = new OperationJournal(Paths.get(JOURNAL_PATH));
+        } catch (IOException e) {
+            throw new RuntimeException("The teacher journal could not be opened.", e);
+        }
+        boolean firstStart = !snapshot.exists();
+        loadAll();
+        if (firstStart) {
+            importTeachers();
+        }
+    }
+
+    // Automatically create data directory
+    private void createDataDirectory() {
+        File directory = new File(DIRECTORY_PATH);
+        if (!directory.exists()) {
+            boolean created = directory.mkdirs();
+            if (!created) {
+                throw new RuntimeException("The data directory could not be created.");
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean save(Teacher teacher) {
+        teacher.setVersion(++lastVersion);
+        put(teacher);
+        return appendPut(teacher);
+    }
+
+    @Override
+    public synchronized boolean update(Teacher teacher) {
+        if (findRow(teacher.getId()) < 0) {
+            return false;
+        }
+        teacher.setVersion(++lastVersion);
+        put(teacher);
+        return appendPut(teacher);
+    }
+
+    @Override
+    public synchronized boolean update(Teacher teacher, long expectedVersion) {
+        int row = findRow(teacher.getId());
+        if (row < 0 || versions.get(row) != expectedVersion) {
+            return false;
+        }
+        return update(teacher);
+    }
+
+    @Override
+    public synchronized boolean deleteById(int id) {
+        if (!remove(id)) {
+            return false;
+        }
+        return appendDelete(id);
+    }
+
+    @Override
+    public boolean delete(int id) {
+        return deleteById(id);
+    }
+
+    @Override
+    public synchronized Teacher findById(int id) {
+        int row = findRow(id);
+        return row < 0 ? null : materialize(row);
+    }
+
+    @Override
+    public synchronized List<Teacher> getAll() {
+        return collect(liveBits);
+    }
+
+    @Override
+    public List<Teacher> findAll() {
+        return getAll();
+    }
+
+    /**
+     * Find all available teachers by scanning the availability bitset
+     * @return list of available teachers
+     */
+    @Override
+    public synchronized List<Teacher> findAvailable() {
+        return collect(availableBits);
+    }
+
+    /**
+     * Count the available teachers without materialising them
+     * @return number of available teachers
+     */
+    @Override
+    public synchronized int countAvailable() {
+        int count = 0;
+        for (int word = 0, words = wordCount(rowCount); word < words; word++) {
+            count += Long.bitCount(availableBits.get(word));
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isIndexed(String attribute) {
+        return TeacherConditions.AVAILABLE.equals(attribute);
+    }
+
+    @Override
+    public Teacher getTeacherById(String teacherId) {
+        try {
+            return findById(Integer.parseInt(teacherId));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized boolean saveAll() {
+        vacuum();
+        try {
+            snapshot.write(liveTeachers());
+            journal.reset();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized boolean loadAll() {
+        clear();
+
+        boolean loaded = true;
+        if (snapshot.exists()) {
+            int damaged;
+            try {
+                damaged = snapshot.load(segment -> {
+                    for (Teacher teacher : segment) {
+                        putLoadedTeacher(teacher);
+                    }
+                });
+            } catch (IOException e) {
+                damaged = -1;
+                System.err.println("Error loading data: " + e.getMessage());
+            }
+            if (damaged != 0) {
+                try {
+                    System.err.println("Error: Teacher snapshot is damaged; a copy was kept at " + snapshot.quarantine());
+                } catch (IOException e) {
+                    System.err.println("Error: Could not copy the damaged teacher snapshot: " + e.getMessage());
+                }
+                loaded = false;
+            }
+        }
+
+        try {
+            journal.replay(new OperationJournal.Replayer() {
+                @Override
+                public void put(DataInput in) throws IOException {
+                    putLoadedTeacher(RecordCodec.readTeacher(in));
+                }
+
+                @Override
+                public void delete(DataInput in) throws IOException {
+                    remove(in.readInt());
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error replaying journal: " + e.getMessage());
+            return false;
+        }
+
+        // Replace a damaged snapshot with the teachers that could be recovered
+        if (!loaded || journal.hasRotated()) {
+            saveAll();
+        }
+        return loaded;
+    }
+
+    // Import the teachers of the file store the first time the columnar store is created
+    private void importTeachers() {
+        if (!new File(DIRECTORY_PATH + "/teachers.snapshot").exists()
+                && !new File(DIRECTORY_PATH + "/teachers.json").exists()) {
+            return;
+        }
+        synchronized (this) {
+            for (Teacher teacher : new FileTeacherDAO().getAll()) {
+                put(teacher);
+            }
+            saveAll();
+        }
+    }
+
+    private void putLoadedTeacher(Teacher teacher) {
+        if (teacher.getId() != 0) {  // Assuming 0 is an invalid ID
+            put(teacher);
+        } else {
+            System.err.println("Warning: Skipped a teacher with invalid ID");
+        }
+    }
+
+    private boolean appendPut(Teacher teacher) {
+        try {
+            journal.append(OperationJournal.PUT, out -> RecordCodec.writeTeacher(out, teacher), true);
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+        compactIfNeeded();
+        return true;
+    }
+
+    private boolean appendDelete(int id) {
+        try {
+            journal.append(OperationJournal.DELETE, out -> out.writeInt(id), true);
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+        compactIfNeeded();
+        return true;
+    }
+
+    private void compactIfNeeded() {
+        if (journal.size() >= COMPACTION_THRESHOLD) {
+            saveAll();
+        }
+    }
+
+    // ---- Column storage ----
+
+    private void allocate(int rows, int blobBytes) {
+        ids = newIntColumn(rows);
+        qualificationCodes = newIntColumn(rows);
+        nameRefs = newLongColumn(rows);
+        contactRefs = newLongColumn(rows);
+        versions = newLongColumn(rows);
+        liveBits = newLongColumn(wordCount(rows));
+        availableBits = newLongColumn(wordCount(rows));
+        blob = ByteBuffer.allocateDirect(blobBytes);
+        slots = newIntColumn(tableSizeFor(rows));
+        rowCount = 0;
+        liveCount = 0;
+        blobEnd = 0;
+        deadBytes = 0;
+        slotsUsed = 0;
+    }
+
+    private void clear() {
+        allocate(INITIAL_ROWS, INITIAL_BLOB_BYTES);
+        dictionary.clear();
+        dictionaryCodes.clear();
+    }
+
+    private void put(Teacher teacher) {
+        int row = findRow(teacher.getId());
+        if (row < 0) {
+            row = appendRow(teacher.getId());
+        } else {
+            deadBytes += storedLength(nameRefs.get(row)) + storedLength(contactRefs.get(row));
+        }
+        nameRefs.put(row, writeString(teacher.getName()));
+        contactRefs.put(row, writeString(teacher.getContact()));
+        versions.put(row, teacher.getVersion());
+        qualificationCodes.put(row, encodeQualifications(teacher.getQualifications()));
+        setBit(availableBits, row, teacher.isAvailable());
+        vacuumIfNeeded();
+    }
+
+    private boolean remove(int id) {
+        int slot = findSlot(id);
+        if (slot < 0) {
+            return false;
+        }
+        int row = slots.get(slot) - 1;
+        slots.put(slot, TOMBSTONE);
+        setBit(liveBits, row, false);
+        setBit(availableBits, row, false);
+        deadBytes += storedLength(nameRefs.get(row)) + storedLength(contactRefs.get(row));
+        liveCount--;
+        vacuumIfNeeded();
+        return true;
+    }
+
+    private int appendRow(int id) {
+        if (rowCount == ids.capacity()) {
+            growRows(ids.capacity() * 2);
+        }
+        int row = rowCount++;
+        ids.put(row, id);
+        insertSlot(id, row);
+        setBit(liveBits, row, true);
+        liveCount++;
+        return row;
+    }
+
+    private Teacher materialize(int row) {
+        int code = qualificationCodes.get(row);
+        Teacher teacher = new Teacher(ids.get(row), readString(nameRefs.get(row)), readString(contactRefs.get(row)),
+                testBit(availableBits, row), code == NO_QUALIFICATIONS ? null : dictionary.get(code));
+        teacher.setVersion(versions.get(row));
+        return teacher;
+    }
+
+    // Materialise the rows whose bit is set, in row order
+    private List<Teacher> collect(LongBuffer bits) {
+        List<Teacher> teachers = new ArrayList<>();
+        for (int word = 0, words = wordCount(rowCount); word < words; word++) {
+            long value = bits.get(word);
+            while (value != 0) {
+                teachers.add(materialize(word * 64 + Long.numberOfTrailingZeros(value)));
+                value &= value - 1;
+            }
+        }
+        return teachers;
+    }
+
+    // Read-only view over the live rows that materialises one teacher at a time
+    private Collection<Teacher> liveTeachers() {
+        return new AbstractCollection<Teacher>() {
+            @Override
+            public Iterator<Teacher> iterator() {
+                return new Iterator<Teacher>() {
+                    private int next = nextLiveRow(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    @Override
+                    public Teacher next() {
+                        if (next < 0) {
+                            throw new NoSuchElementException();
+                        }
+                        Teacher teacher = materialize(next);
+                        next = nextLiveRow(next + 1);
+                        return teacher;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return liveCount;
+            }
+        };
+    }
+
+    private int nextLiveRow(int from) {
+        for (int row = from; row < rowCount; row++) {
+            if (testBit(liveBits, row)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    // Vacuum once more than half of the rows or of the string storage is garbage
+    private void vacuumIfNeeded() {
+        boolean rowsWasted = rowCount >= INITIAL_ROWS && rowCount - liveCount > rowCount / 2;
+        boolean bytesWasted = blobEnd >= INITIAL_BLOB_BYTES && deadBytes > blobEnd / 2;
+        if (rowsWasted || bytesWasted) {
+            vacuum();
+        }
+    }
+
+    // Rewrite the columns without deleted rows, superseded strings or unused dictionary entries
+    private void vacuum() {
+        if (liveCount == rowCount && deadBytes == 0) {
+            return;
+        }
+        IntBuffer oldIds = ids;
+        IntBuffer oldCodes = qualificationCodes;
+        LongBuffer oldNames = nameRefs;
+        LongBuffer oldContacts = contactRefs;
+        LongBuffer oldVersions = versions;
+        LongBuffer oldLive = liveBits;
+        LongBuffer oldAvailable = availableBits;
+        ByteBuffer oldBlob = blob;
+        int oldRows = rowCount;
+        List<String> oldDictionary = new ArrayList<>(dictionary);
+
+        allocate(Math.max(INITIAL_ROWS, Integer.highestOneBit(Math.max(1, liveCount)) * 2),
+                Math.max(INITIAL_BLOB_BYTES, blobEnd - deadBytes + 1));
+        dictionary.clear();
+        dictionaryCodes.clear();
+
+        for (int oldRow = 0; oldRow < oldRows; oldRow++) {
+            if (!testBit(oldLive, oldRow)) {
+                continue;
+            }
+            int row = appendRow(oldIds.get(oldRow));
+            nameRefs.put(row, copyString(oldBlob, oldNames.get(oldRow)));
+            contactRefs.put(row, copyString(oldBlob, oldContacts.get(oldRow)));
+            versions.put(row, oldVersions.get(oldRow));
+            int code = oldCodes.get(oldRow);
+            qualificationCodes.put(row, code == NO_QUALIFICATIONS
+                    ? NO_QUALIFICATIONS : encodeQualifications(oldDictionary.get(code)));
+            setBit(availableBits, row, testBit(oldAvailable, oldRow));
+        }
+    }
+
+    private void growRows(int rows) {
+        ids = copyOf(ids, rows);
+        qualificationCodes = copyOf(qualificationCodes, rows);
+        nameRefs = copyOf(nameRefs, rows);
+        contactRefs = copyOf(contactRefs, rows);
+        versions = copyOf(versions, rows);
+        liveBits = copyOf(liveBits, wordCount(rows));
+        availableBits = copyOf(availableBits, wordCount(rows));
+    }
+
+    private int encodeQualifications(String qualifications) {
+        if (qualifications == null) {
+            return NO_QUALIFICATIONS;
+        }
+        Integer code = dictionaryCodes.get(qualifications);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(qualifications);
+            dictionaryCodes.put(qualifications, code);
+        }
+        return code;
+    }
+
+    // ---- Strings ----
+
+    private long writeString(String value) {
+        if (value == null) {
+            return NULL_STRING;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return writeBytes(bytes);
+    }
+
+    private long writeBytes(byte[] bytes) {
+        ensureBlobCapacity(bytes.length);
+        int offset = blobEnd;
+        blob.put(offset, bytes);
+        blobEnd += bytes.length;
+        return ((long) offset << 32) | bytes.length;
+    }
+
+    private String readString(long ref) {
+        if (ref == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) ref];
+        blob.get((int) (ref >>> 32), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long copyString(ByteBuffer source, long ref) {
+        if (ref == NULL_STRING) {
+            return NULL_STRING;
+        }
+        byte[] bytes = new byte[(int) ref];
+        source.get((int) (ref >>> 32), bytes);
+        return writeBytes(bytes);
+    }
+
+    private static int storedLength(long ref) {
+        return ref == NULL_STRING ? 0 : (int) ref;
+    }
+
+    private void ensureBlobCapacity(int extra) {
+        if (blobEnd + extra <= blob.capacity()) {
+            return;
+        }
+        long capacity = Math.max((long) blob.capacity() * 2, (long) blobEnd + extra);
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Teacher string storage is full");
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+        grown.put(0, blob, 0, blobEnd);
+        blob = grown;
+    }
+
+    // ---- ID table ----
+
+    private int findRow(int id) {
+        int slot = findSlot(id);
+        return slot < 0 ? -1 : slots.get(slot) - 1;
+    }
+
+    private int findSlot(int id) {
+        int mask = slots.capacity() - 1;
+        for (int slot = mix(id) & mask; ; slot = (slot + 1) & mask) {
+            int value = slots.get(slot);
+            if (value == EMPTY_SLOT) {
+                return -1;
+            }
+            if (value != TOMBSTONE && ids.get(value - 1) == id) {
+                return slot;
+            }
+        }
+    }
+
+    private void insertSlot(int id, int row) {
+        if ((slotsUsed + 1) * 4L > slots.capacity() * 3L) {
+            rehash(tableSizeFor(Math.max(liveCount + 1, INITIAL_ROWS)));
+        }
+        int mask = slots.capacity() - 1;
+        int slot = mix(id) & mask;
+        while (slots.get(slot) > 0) {
+            slot = (slot + 1) & mask;
+        }
+        if (slots.get(slot) == EMPTY_SLOT) {
+            slotsUsed++;
+        }
+        slots.put(slot, row + 1);
+    }
+
+    // Rebuild the table from the live rows, dropping tombstones
+    private void rehash(int capacity) {
+        slots = newIntColumn(capacity);
+        slotsUsed = 0;
+        int mask = capacity - 1;
+        for (int row = 0; row < rowCount; row++) {
+            if (!testBit(liveBits, row)) {
+                continue;
+            }
+            int slot = mix(ids.get(row)) & mask;
+            while (slots.get(slot) != EMPTY_SLOT) {
+                slot = (slot + 1) & mask;
+            }
+            slots.put(slot, row + 1);
+            slotsUsed++;
+        }
+    }
+
+    // Table size with room for the given number of entries at a load factor of at most one half
+    private static int tableSizeFor(int entries) {
+        return Integer.highestOneBit(Math.max(16, entries) - 1) << 2;
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // ---- Buffers and bitsets ----
+
+    private static int wordCount(int rows) {
+        return (rows + 63) >>> 6;
+    }
+
+    private static boolean testBit(LongBuffer bits, int index) {
+        return (bits.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    private static void setBit(LongBuffer bits, int index, boolean value) {
+        int word = index >>> 6;
+        long mask = 1L << index;
+        bits.put(word, value ? bits.get(word) | mask : bits.get(word) & ~mask);
+    }
+
+    private static IntBuffer newIntColumn(int length) {
+        return ByteBuffer.allocateDirect(length * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    private static LongBuffer newLongColumn(int length) {
+        return ByteBuffer.allocateDirect(length * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    private static IntBuffer copyOf(IntBuffer column, int length) {
+        IntBuffer grown = newIntColumn(length);
+        grown.put(0, column, 0, column.capacity());
+        return grown;
+    }
+
+    private static LongBuffer copyOf(LongBuffer column, int length) {
+        LongBuffer grown = newLongColumn(length);
+        grown.put(0, column, 0, column.capacity());
+        return grown;
+    }
+}
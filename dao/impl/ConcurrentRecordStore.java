@@ -0,0 +1,701 @@
+package dao.impl;
+
+import dao.Snapshot;
+import util.StripedLock;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Record store shared by the concurrent DAOs
+ * Records live in a ConcurrentHashMap, so reads never lock. Writes to one key are serialised by
+ * a striped lock that also covers the key's journal record, so the journal holds each key's
+ * mutations in the order they were applied. Stored records are never changed in place:
+ * {@link #modify} works on a copy and swaps it in, which keeps snapshots consistent per record.
+ * Without a write-behind flusher, a write forces the journal only after releasing its locks, and
+ * writes that finish together share one force, so writers to other keys never wait for another's sync.
+ *
+ * Every stored record carries a version from one counter for the whole store. Updates can be
+ * made conditional on the version ({@link #compareAndReplace}); the caller's change is then
+ * prepared without any lock, and the key's lock is held only to check the version, swap the
+ * record in and append it to the journal. A writer that loses the race fails without waiting
+ * and retries on a fresh copy, so writers to a hot record do not queue behind each other's changes.
+ *
+ * Versions also give readers point-in-time views ({@link #openSnapshot}). Each key maps to a
+ * chain of its record versions, newest first, and a deletion is a version without a record. A
+ * view sees, for every key, the newest version no later than the moment it was opened. Stored
+ * records are never changed, so a view never sees one half-way through a change. Older versions
+ * are kept only while some open view can still see them: a write drops whatever no open view
+ * needs, and when the oldest view closes, the versions it alone kept are reclaimed in the background.
+ *
+ * A snapshot file is written by rotating the journal, which only briefly holds back writers, and then
+ * writing the map as it stands; readers are never blocked. Mutations made while the snapshot
+ * is written may or may not be in it, but they are always in the new journal, and replaying
+ * whole-record puts and deletes over the snapshot gives the same result either way.
+ *
+ * @param <K> Key type
+ * @param <V> Record type
+ */
+final class ConcurrentRecordStore<K, V> {
+    // Number of journal records after which the journal is folded into a new snapshot
+    private static final int COMPACTION_THRESHOLD = 1000;
+    private static final int STRIPES = 256;
+
+    /**
+     * Writes and reads record keys in the journal
+     */
+    interface KeyCodec<K> {
+        void write(DataOutput out, K key) throws IOException;
+
+        K read(DataInput in) throws IOException;
+    }
+
+    private final String name;
+    private final Function<V, K> keyOf;
+    private final UnaryOperator<V> copier;
+    private final ToLongFunction<V> versionOf;
+    private final ObjLongConsumer<V> versionSetter;
+    private final KeyCodec<K> keyCodec;
+    private final SegmentedSnapshot.Encoder<V> encoder;
+    private final SegmentedSnapshot.Decoder<V> decoder;
+    private final SegmentedSnapshot<V> snapshot;
+    private final OperationJournal journal;
+
+    /**
+     * One version of a record, linked to the version before it
+     */
+    private static final class Version<V> {
+        // null for a deletion
+        final V record;
+        final long number;
+        // Older versions still visible to some open view, null when none is
+        volatile Version<V> older;
+
+        Version(V record, long number, Version<V> older) {
+            this.record = record;
+            this.number = number;
+            this.older = older;
+        }
+    }
+
+    private volatile ConcurrentHashMap<K, Version<V>> records = new ConcurrentHashMap<>();
+    // Number of keys whose newest version is a record rather than a deletion
+    private final AtomicInteger liveCount = new AtomicInteger();
+    private final StripedLock keyLocks = new StripedLock(STRIPES);
+    // Version given to the last stored change; loaded records have version 0
+    private final AtomicLong lastVersion = new AtomicLong();
+    // Shared by writers, taken exclusively to rotate the journal, reload or open a view
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+    // Number of open views at each version; guarded by itself
+    private final TreeMap<Long, Integer> openViews = new TreeMap<>();
+    // Version of the oldest open view, Long.MAX_VALUE when none is open
+    private volatile long oldestView = Long.MAX_VALUE;
+    // Keys whose chains hold older versions for open views
+    private final Set<K> retained = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean reclaimScheduled = new AtomicBoolean();
+    // One snapshot at a time
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    // Compacts the journal and reclaims versions no view needs any more
+    private final ExecutorService compactor;
+    // Group-commit flusher, null when every mutation is forced to disk before returning
+    private final WriteBehindFlusher flusher;
+
+    /**
+     * Constructor
+     *
+     * @param name Name used for threads and messages, e.g. "teacher"
+     * @param snapshotPath Location of the snapshot
+     * @param journalPath Location of the journal
+     * @param keyOf Extracts a record's key
+     * @param copier Makes an independent copy of a record, including its version
+     * @param versionOf Reads a record's version
+     * @param versionSetter Sets a record's version
+     * @param keyCodec Journal format of keys
+     * @param encoder Record format
+     * @param decoder Record format
+     * @param flushWindowMillis Longest time a mutation waits to be synced with others, 0 to sync every mutation
+     * @param flushBatchSize Number of mutations that triggers a sync before the window ends
+     */
+    ConcurrentRecordStore(String name, Path snapshotPath, Path journalPath, Function<V, K> keyOf,
+                          UnaryOperator<V> copier, ToLongFunction<V> versionOf, ObjLongConsumer<V> versionSetter,
+                          KeyCodec<K> keyCodec, SegmentedSnapshot.Encoder<V> encoder,
+                          SegmentedSnapshot.Decoder<V> decoder, long flushWindowMillis, int flushBatchSize) {
+        this.name = name;
+        this.keyOf = keyOf;
+        this.copier = copier;
+        this.versionOf = versionOf;
+        this.versionSetter = versionSetter;
+        this.keyCodec = keyCodec;
+        this.encoder = encoder;
+        this.decoder = decoder;
+        File directory = snapshotPath.toAbsolutePath().getParent().toFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new RuntimeException("The data directory could not be created.");
+        }
+        this.snapshot = new SegmentedSnapshot<>(snapshotPath, encoder, decoder);
+        try {
+            this.journal = new OperationJournal(journalPath);
+        } catch (IOException e) {
+            throw new RuntimeException("The " + name + " journal could not be opened.", e);
+        }
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name + "-journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher = flushWindowMillis > 0
+                ? new WriteBehindFlusher(name + "-write-behind", flushWindowMillis, flushBatchSize, this::syncJournal)
+                : null;
+    }
+
+    V get(K key) {
+        Version<V> version = records.get(key);
+        return version == null ? null : version.record;
+    }
+
+    /**
+     * Visit the newest version of every record, weakly consistently; writers may run meanwhile
+     */
+    void forEach(Consumer<? super V> action) {
+        for (Version<V> version : records.values()) {
+            if (version.record != null) {
+                action.accept(version.record);
+            }
+        }
+    }
+
+    List<V> copyValues() {
+        List<V> values = new ArrayList<>(size());
+        forEach(values::add);
+        return values;
+    }
+
+    int size() {
+        return liveCount.get();
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Store a record under its key, replacing any record already there
+     * The record gets its new version before it is published.
+     */
+    boolean put(V record) {
+        K key = keyOf.apply(record);
+        byte[] entry = encodePut(record);
+        return entry != null && write(key, () -> {
+            install(key, records.get(key), record);
+            return append(entry);
+        });
+    }
+
+    /**
+     * Store a record only if its key is new
+     */
+    boolean insert(V record) {
+        K key = keyOf.apply(record);
+        byte[] entry = encodePut(record);
+        return entry != null && write(key, () -> {
+            Version<V> current = records.get(key);
+            if (current != null && current.record != null) {
+                return false;
+            }
+            install(key, current, record);
+            return append(entry);
+        });
+    }
+
+    /**
+     * Replace the record stored under a key, if there is one
+     */
+    boolean replace(V record) {
+        K key = keyOf.apply(record);
+        byte[] entry = encodePut(record);
+        return entry != null && write(key, () -> {
+            Version<V> current = records.get(key);
+            if (current == null || current.record == null) {
+                return false;
+            }
+            install(key, current, record);
+            return append(entry);
+        });
+    }
+
+    /**
+     * Replace the record stored under a key only if it still has the expected version
+     * A stale version is detected without locking; otherwise the key's lock is held just to check
+     * the version again, swap the record in and journal it.
+     *
+     * @param record The new record, which gets its new version if it is stored
+     * @param expectedVersion Version the stored record must have
+     * @return false if there is no such record, it has another version, or it could not be persisted
+     */
+    boolean compareAndReplace(V record, long expectedVersion) {
+        K key = keyOf.apply(record);
+        V current = get(key);
+        if (current == null || versionOf.applyAsLong(current) != expectedVersion) {
+            return false;
+        }
+        byte[] entry = encodePut(record);
+        return entry != null && write(key, () -> {
+            Version<V> stored = records.get(key);
+            if (stored == null || stored.record == null
+                    || versionOf.applyAsLong(stored.record) != expectedVersion) {
+                return false;
+            }
+            install(key, stored, record);
+            return append(entry);
+        });
+    }
+
+    boolean remove(K key) {
+        byte[] entry = encode(OperationJournal.DELETE, out -> keyCodec.write(out, key));
+        return entry != null && write(key, () -> {
+            Version<V> current = records.get(key);
+            if (current == null || current.record == null) {
+                return false;
+            }
+            install(key, current, null);
+            return append(entry);
+        });
+    }
+
+    /**
+     * Change a record without losing concurrent changes to it
+     * The change is made to a copy outside any lock and swapped in with {@link #compareAndReplace};
+     * if another write to the key got in first, it is made again to a copy of the new record.
+     * Readers keep seeing the old record until the new one is stored.
+     *
+     * @param key Key of the record
+     * @param change Applied to a copy of the record, possibly more than once; the key must not be changed
+     * @return false if there is no such record or it could not be persisted
+     */
+    boolean modify(K key, Consumer<? super V> change) {
+        while (true) {
+            V current = get(key);
+            if (current == null) {
+                return false;
+            }
+            V updated = copier.apply(current);
+            change.accept(updated);
+            if (!key.equals(keyOf.apply(updated))) {
+                throw new IllegalArgumentException("A change must not alter the key of a " + name);
+            }
+            if (compareAndReplace(updated, versionOf.applyAsLong(current))) {
+                return true;
+            }
+            V now = get(key);
+            if (now == null || now == current || now == updated) {
+                // Not a lost race: the record is gone, or it was stored but not persisted
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Publish the next version of a key: a record, or a deletion when record is null
+     * Called under the key's lock and the shared gate, so no view opens meanwhile. Of the versions
+     * before it, only those an open view can still see are kept.
+     */
+    private void install(K key, Version<V> current, V record) {
+        long number = lastVersion.incrementAndGet();
+        if (record != null) {
+            versionSetter.accept(record, number);
+        }
+        Version<V> version = new Version<>(record, number, current);
+        trim(version, oldestView);
+        if (version.older != null) {
+            records.put(key, version);
+            retained.add(key);
+        } else if (record != null) {
+            records.put(key, version);
+        } else {
+            records.remove(key);
+        }
+        boolean wasLive = current != null && current.record != null;
+        if (wasLive != (record != null)) {
+            liveCount.addAndGet(wasLive ? -1 : 1);
+        }
+    }
+
+    /**
+     * Unlink the versions behind a chain's head that no open view can see
+     * Every open view is at the oldest view's version or later, and sees the newest version at or
+     * before its own, so nothing behind the newest version at or before the oldest view is visible.
+     * A deletion at that point is dropped too, since a missing version reads the same.
+     */
+    private static <V> void trim(Version<V> head, long oldestView) {
+        for (Version<V> version = head; version != null; version = version.older) {
+            Version<V> older = version.older;
+            if (version.number <= oldestView
+                    || (older != null && older.number <= oldestView && older.record == null)) {
+                version.older = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Open a point-in-time view of the records
+     * Opening waits for the writes in progress and holds back new ones just while the view's
+     * version is taken; reading the view never holds back anyone.
+     *
+     * @return The view, returning copies of the records; it must be closed
+     */
+    Snapshot<K, V> openSnapshot() {
+        ConcurrentHashMap<K, Version<V>> viewed;
+        long at;
+        gate.writeLock().lock();
+        try {
+            viewed = records;
+            at = lastVersion.get();
+            synchronized (openViews) {
+                openViews.merge(at, 1, Integer::sum);
+                oldestView = openViews.firstKey();
+            }
+        } finally {
+            gate.writeLock().unlock();
+        }
+        return new View(viewed, at);
+    }
+
+    private final class View implements Snapshot<K, V> {
+        private final ConcurrentHashMap<K, Version<V>> viewed;
+        private final long at;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        View(ConcurrentHashMap<K, Version<V>> viewed, long at) {
+            this.viewed = viewed;
+            this.at = at;
+        }
+
+        @Override
+        public V get(K key) {
+            V record = visible(viewed.get(key));
+            return record == null ? null : copier.apply(record);
+        }
+
+        @Override
+        public void forEach(Consumer<? super V> action) {
+            for (Version<V> chain : viewed.values()) {
+                V record = visible(chain);
+                if (record != null) {
+                    action.accept(copier.apply(record));
+                }
+            }
+        }
+
+        // The newest version at or before the view's, null if the key did not exist then
+        private V visible(Version<V> chain) {
+            Version<V> version = chain;
+            while (version != null && version.number > at) {
+                version = version.older;
+            }
+            return version == null ? null : version.record;
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            boolean advanced;
+            synchronized (openViews) {
+                if (openViews.merge(at, -1, Integer::sum) == 0) {
+                    openViews.remove(at);
+                }
+                long oldest = openViews.isEmpty() ? Long.MAX_VALUE : openViews.firstKey();
+                advanced = oldest != oldestView;
+                oldestView = oldest;
+            }
+            if (advanced && !retained.isEmpty() && reclaimScheduled.compareAndSet(false, true)) {
+                compactor.execute(ConcurrentRecordStore.this::reclaim);
+            }
+        }
+    }
+
+    // Trim the chains that kept versions for views which have since closed
+    private void reclaim() {
+        reclaimScheduled.set(false);
+        for (K key : retained) {
+            gate.readLock().lock();
+            try {
+                ReentrantLock lock = keyLocks.get(key);
+                lock.lock();
+                try {
+                    Version<V> head = records.get(key);
+                    if (head != null) {
+                        trim(head, oldestView);
+                        if (head.record == null && head.older == null) {
+                            records.remove(key, head);
+                        }
+                    }
+                    if (head == null || head.older == null) {
+                        retained.remove(key);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                gate.readLock().unlock();
+            }
+        }
+    }
+
+    private interface Write {
+        boolean run();
+    }
+
+    private boolean write(K key, Write write) {
+        boolean written;
+        gate.readLock().lock();
+        try {
+            ReentrantLock lock = keyLocks.get(key);
+            lock.lock();
+            try {
+                written = write.run();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            gate.readLock().unlock();
+        }
+        if (written) {
+            written = acknowledge();
+        }
+        return written;
+    }
+
+    // Journal records are encoded before any lock is taken, which the encoding allows by leaving out
+    // the version; null if the record cannot be encoded, in which case nothing is stored
+    private byte[] encodePut(V record) {
+        return encode(OperationJournal.PUT, out -> encoder.write(out, record));
+    }
+
+    private static byte[] encode(byte operation, OperationJournal.RecordWriter body) {
+        try {
+            return OperationJournal.encode(operation, body);
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean append(byte[] entry) {
+        try {
+            journal.append(entry, false);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Make a journalled write durable, or hand it to the flusher; called once the write's locks are released
+    private boolean acknowledge() {
+        boolean durable = true;
+        if (flusher != null) {
+            flusher.submit();
+        } else {
+            try {
+                journal.syncAppended();
+            } catch (IOException e) {
+                System.err.println("Error saving data: " + e.getMessage());
+                durable = false;
+            }
+        }
+        if (journal.size() >= COMPACTION_THRESHOLD && compactionScheduled.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    saveAll();
+                } finally {
+                    compactionScheduled.set(false);
+                }
+            });
+        }
+        return durable;
+    }
+
+    private boolean syncJournal() {
+        try {
+            journal.sync();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+    }
+
+    CompletableFuture<Boolean> flushed() {
+        return flusher != null ? flusher.pending() : CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * Let the flusher write its last batch, then write a snapshot of every record
+     */
+    CompletableFuture<Boolean> close() {
+        if (flusher == null) {
+            return CompletableFuture.completedFuture(saveAll());
+        }
+        return flusher.close().thenApply(durable -> saveAll() && durable);
+    }
+
+    /**
+     * Write a snapshot of every record and drop the journal it covers
+     * Writers wait only while the journal is rotated; readers never wait.
+     */
+    boolean saveAll() {
+        snapshotLock.lock();
+        try {
+            // Force the journal first, so that writers are held back only for what is appended meanwhile
+            journal.syncAppended();
+            gate.writeLock().lock();
+            try {
+                journal.rotate();
+            } finally {
+                gate.writeLock().unlock();
+            }
+            snapshot.write(copyValues());
+            journal.discardRotated();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Load the snapshot and replay the journal, replacing the records in memory
+     * Writers wait until loading is done; readers see the old records until the new ones are swapped in.
+     */
+    boolean loadAll() {
+        snapshotLock.lock();
+        gate.writeLock().lock();
+        try {
+            ConcurrentHashMap<K, Version<V>> loaded = new ConcurrentHashMap<>();
+            boolean snapshotLoaded = true;
+            if (snapshot.exists()) {
+                int damaged;
+                try {
+                    damaged = snapshot.load(segment -> {
+                        for (V record : segment) {
+                            loaded.put(keyOf.apply(record), new Version<>(record, 0, null));
+                        }
+                    });
+                } catch (IOException e) {
+                    damaged = -1;
+                    System.err.println("Error loading data: " + e.getMessage());
+                }
+                if (damaged != 0) {
+                    try {
+                        System.err.println("Error: The " + name + " snapshot is damaged; a copy was kept at "
+                                + snapshot.quarantine());
+                    } catch (IOException e) {
+                        System.err.println("Error: Could not copy the damaged " + name + " snapshot: " + e.getMessage());
+                    }
+                    snapshotLoaded = false;
+                }
+            }
+
+            try {
+                journal.replay(new OperationJournal.Replayer() {
+                    @Override
+                    public void put(DataInput in) throws IOException {
+                        V record = decoder.read(in);
+                        loaded.put(keyOf.apply(record), new Version<>(record, 0, null));
+                    }
+
+                    @Override
+                    public void delete(DataInput in) throws IOException {
+                        loaded.remove(keyCodec.read(in));
+                    }
+                });
+            } catch (IOException e) {
+                System.err.println("Error replaying journal: " + e.getMessage());
+                swapIn(loaded);
+                return false;
+            }
+            swapIn(loaded);
+
+            // Replace a damaged snapshot, or finish an interrupted compaction
+            if (!snapshotLoaded || journal.hasRotated()) {
+                try {
+                    snapshot.write(copyValues());
+                    journal.reset();
+                } catch (IOException e) {
+                    System.err.println("Error saving data: " + e.getMessage());
+                }
+            }
+            return snapshotLoaded;
+        } finally {
+            gate.writeLock().unlock();
+            snapshotLock.unlock();
+        }
+    }
+
+    // Swap in loaded records; open views keep the records they were opened on
+    private void swapIn(ConcurrentHashMap<K, Version<V>> loaded) {
+        records = loaded;
+        liveCount.set(loaded.size());
+        retained.clear();
+    }
+
+    /**
+     * Check whether the store has never been written
+     * Looks at the files rather than at the records replayed, so it may be asked before loading.
+     */
+    boolean isNew() {
+        try {
+            return !snapshot.exists() && journal.isEmpty();
+        } catch (IOException e) {
+            System.err.println("Error reading the " + name + " journal: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Fill a new store from another one and write its first snapshot
+     *
+     * @param imported Records to add, later ones replacing earlier ones with the same key
+     */
+    void importAll(Collection<V> imported) {
+        gate.writeLock().lock();
+        try {
+            for (V record : imported) {
+                if (records.put(keyOf.apply(record), new Version<>(record, 0, null)) == null) {
+                    liveCount.incrementAndGet();
+                }
+            }
+        } finally {
+            gate.writeLock().unlock();
+        }
+        saveAll();
+    }
+}
@@ -0,0 +1,204 @@
+package dao.impl;
+
+import dao.Snapshot;
+import dao.TeacherDAO;
+import model.Teacher;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe Teacher DAO Implementation
+ * Teachers are kept in a ConcurrentHashMap, so lookups and listings never wait for a lock, and
+ * writes to different teachers run in parallel under striped per-ID locks. {@link #modify} makes
+ * read-modify-write atomic per teacher, and {@link #update(Teacher, long)} stores a change only if
+ * the teacher still has the version it was read with; neither holds a lock while the change is
+ * made. Snapshots, on disk and in memory ({@link #snapshot()}), are taken while readers and
+ * writers carry on; see {@link ConcurrentRecordStore}.
+ *
+ * Stored teachers are never handed out: every read returns a copy, and every write stores one.
+ * Persistence uses the same snapshot and journal formats as the file store, under their own
+ * file names; the teachers of the file store are imported the first time.
+ */
+public class ConcurrentTeacherDAO implements TeacherDAO {
+    private static final String DIRECTORY_PATH = "data";
+    private static final String SNAPSHOT_PATH = DIRECTORY_PATH + "/teachers.concurrent.snapshot";
+    private static final String JOURNAL_PATH = DIRECTORY_PATH + "/teachers.concurrent.journal";
+
+    private final ConcurrentRecordStore<Integer, Teacher> store;
+
+    /**
+     * Constructor
+     */
+    public ConcurrentTeacherDAO() {
+        this(0, 0);
+    }
+
+    /**
+     * Constructor for write-behind mode
+     *
+     * @param flushWindowMillis Longest time a mutation waits to be synced with others, 0 to sync every mutation
+     * @param flushBatchSize Number of mutations that triggers a sync before the window ends
+     */
+    public ConcurrentTeacherDAO(long flushWindowMillis, int flushBatchSize) {
+        store = new ConcurrentRecordStore<>("teacher", Paths.get(SNAPSHOT_PATH), Paths.get(JOURNAL_PATH),
+                Teacher::getId, Teacher::new, Teacher::getVersion, Teacher::setVersion,
+                new ConcurrentRecordStore.KeyCodec<Integer>() {
+                    @Override
+                    public void write(DataOutput out, Integer id) throws IOException {
+                        out.writeInt(id);
+                    }
+
+                    @Override
+                    public Integer read(DataInput in) throws IOException {
+                        return in.readInt();
+                    }
+                },
+                RecordCodec::writeTeacher, RecordCodec::readTeacher, flushWindowMillis, flushBatchSize);
+        boolean firstStart = store.isNew();
+        loadAll();
+        if (firstStart) {
+            importTeachers();
+        }
+    }
+
+    @Override
+    public boolean save(Teacher teacher) {
+        return write(teacher, store::put);
+    }
+
+    @Override
+    public boolean update(Teacher teacher) {
+        return write(teacher, store::replace);
+    }
+
+    @Override
+    public boolean update(Teacher teacher, long expectedVersion) {
+        return write(teacher, stored -> store.compareAndReplace(stored, expectedVersion));
+    }
+
+    // Store a copy and give the teacher the version the copy was stored with
+    private static boolean write(Teacher teacher, Predicate<Teacher> write) {
+        Teacher stored = new Teacher(teacher);
+        boolean written = write.test(stored);
+        teacher.setVersion(stored.getVersion());
+        return written;
+    }
+
+    @Override
+    public boolean modify(int id, Consumer<? super Teacher> change) {
+        return store.modify(id, change);
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        return store.remove(id);
+    }
+
+    @Override
+    public boolean delete(int id) {
+        return deleteById(id);
+    }
+
+    @Override
+    public Teacher findById(int id) {
+        Teacher teacher = store.get(id);
+        return teacher == null ? null : new Teacher(teacher);
+    }
+
+    @Override
+    public List<Teacher> getAll() {
+        List<Teacher> teachers = new ArrayList<>(store.size());
+        forEach(teachers::add);
+        return teachers;
+    }
+
+    @Override
+    public List<Teacher> findAll() {
+        return getAll();
+    }
+
+    /**
+     * Visit a copy of every teacher; the action may modify the DAO
+     */
+    @Override
+    public void forEach(Consumer<? super Teacher> action) {
+        store.forEach(teacher -> action.accept(new Teacher(teacher)));
+    }
+
+    @Override
+    public List<Teacher> findAvailable() {
+        List<Teacher> available = new ArrayList<>();
+        store.forEach(teacher -> {
+            if (teacher.isAvailable()) {
+                available.add(new Teacher(teacher));
+            }
+        });
+        return available;
+    }
+
+    @Override
+    public int countAvailable() {
+        int[] count = {0};
+        store.forEach(teacher -> {
+            if (teacher.isAvailable()) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Open a point-in-time view of the teachers, without copying them up front; see {@link ConcurrentRecordStore}
+     */
+    @Override
+    public Snapshot<Integer, Teacher> snapshot() {
+        return store.openSnapshot();
+    }
+
+    @Override
+    public Teacher getTeacherById(String teacherId) {
+        try {
+            return findById(Integer.parseInt(teacherId));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean saveAll() {
+        return store.saveAll();
+    }
+
+    @Override
+    public boolean loadAll() {
+        return store.loadAll();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> flushed() {
+        return store.flushed();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> close() {
+        return store.close();
+    }
+
+    // Import the teachers of the file store the first time the concurrent store is created
+    private void importTeachers() {
+        if (!new File(DIRECTORY_PATH + "/teachers.snapshot").exists()
+                && !new File(DIRECTORY_PATH + "/teachers.json").exists()) {
+            return;
+        }
+        store.importAll(new FileTeacherDAO().getAll());
+    }
+}
@@ -0,0 +1,171 @@
+package dao.impl;
+
+import dao.Snapshot;
+import dao.TeachingRequirementDAO;
+import model.TeachingRequirement;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe Teaching Requirement DAO Implementation
+ * Requirements are kept in a ConcurrentHashMap and written under striped per-ID locks, so
+ * lookups never wait and writes to different requirements run in parallel. {@link #modify}
+ * makes read-modify-write, such as assigning a teacher, atomic per requirement, and
+ * {@link #update(TeachingRequirement, long)} stores a change only if the requirement still has
+ * the version it was read with; neither holds a lock while the change is made. Snapshots, on
+ * disk and in memory ({@link #snapshot()}), are taken while readers and writers carry on; see
+ * {@link ConcurrentRecordStore}.
+ *
+ * Stored requirements are never handed out: every read returns a copy, and every write stores
+ * one. Secondary lookups (status, teacher, schedule, location) scan the map through the
+ * interface defaults. Persistence uses the same snapshot and journal formats as the file store,
+ * under their own file names; the requirements of the file store are imported the first time.
+ */
+public class ConcurrentTeachingRequirementDAO implements TeachingRequirementDAO {
+    private static final String DIRECTORY_PATH = "data";
+    private static final String SNAPSHOT_PATH = DIRECTORY_PATH + "/requirements.concurrent.snapshot";
+    private static final String JOURNAL_PATH = DIRECTORY_PATH + "/requirements.concurrent.journal";
+
+    private final ConcurrentRecordStore<String, TeachingRequirement> store;
+
+    /**
+     * Constructor
+     */
+    public ConcurrentTeachingRequirementDAO() {
+        this(0, 0);
+    }
+
+    /**
+     * Constructor for write-behind mode
+     *
+     * @param flushWindowMillis Longest time a mutation waits to be synced with others, 0 to sync every mutation
+     * @param flushBatchSize Number of mutations that triggers a sync before the window ends
+     */
+    public ConcurrentTeachingRequirementDAO(long flushWindowMillis, int flushBatchSize) {
+        store = new ConcurrentRecordStore<>("requirement", Paths.get(SNAPSHOT_PATH), Paths.get(JOURNAL_PATH),
+                TeachingRequirement::getId, TeachingRequirement::new,
+                TeachingRequirement::getVersion, TeachingRequirement::setVersion,
+                new ConcurrentRecordStore.KeyCodec<String>() {
+                    @Override
+                    public void write(DataOutput out, String id) throws IOException {
+                        out.writeUTF(id);
+                    }
+
+                    @Override
+                    public String read(DataInput in) throws IOException {
+                        return in.readUTF();
+                    }
+                },
+                RecordCodec::writeRequirement, RecordCodec::readRequirement, flushWindowMillis, flushBatchSize);
+        boolean firstStart = store.isNew();
+        loadAll();
+        if (firstStart) {
+            importRequirements();
+        }
+    }
+
+    @Override
+    public boolean save(TeachingRequirement requirement) {
+        return write(requirement, store::insert);
+    }
+
+    @Override
+    public boolean update(TeachingRequirement requirement) {
+        return write(requirement, store::replace);
+    }
+
+    @Override
+    public boolean update(TeachingRequirement requirement, long expectedVersion) {
+        return write(requirement, stored -> store.compareAndReplace(stored, expectedVersion));
+    }
+
+    // Store a copy, without listeners, and give the requirement the version the copy was stored with
+    private static boolean write(TeachingRequirement requirement, Predicate<TeachingRequirement> write) {
+        TeachingRequirement stored = new TeachingRequirement(requirement);
+        boolean written = write.test(stored);
+        requirement.setVersion(stored.getVersion());
+        return written;
+    }
+
+    @Override
+    public boolean modify(String id, Consumer<? super TeachingRequirement> change) {
+        return store.modify(id, change);
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return store.remove(id);
+    }
+
+    @Override
+    public TeachingRequirement findById(String id) {
+        TeachingRequirement requirement = id == null ? null : store.get(id);
+        return requirement == null ? null : new TeachingRequirement(requirement);
+    }
+
+    @Override
+    public List<TeachingRequirement> findAll() {
+        List<TeachingRequirement> requirements = new ArrayList<>(store.size());
+        forEach(requirements::add);
+        return requirements;
+    }
+
+    /**
+     * Visit a copy of every teaching requirement; the action may modify the DAO
+     *
+     * @param action The action to run on each teaching requirement
+     */
+    @Override
+    public void forEach(Consumer<? super TeachingRequirement> action) {
+        store.forEach(requirement -> action.accept(new TeachingRequirement(requirement)));
+    }
+
+    /**
+     * Open a point-in-time view of the requirements, without copying them up front; see
+     * {@link ConcurrentRecordStore}
+     *
+     * @return The snapshot, to be closed when done
+     */
+    @Override
+    public Snapshot<String, TeachingRequirement> snapshot() {
+        return store.openSnapshot();
+    }
+
+    @Override
+    public boolean saveAll() {
+        return store.saveAll();
+    }
+
+    @Override
+    public boolean loadAll() {
+        return store.loadAll();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> flushed() {
+        return store.flushed();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> close() {
+        return store.close();
+    }
+
+    // Import the requirements of the file store the first time the concurrent store is created
+    private void importRequirements() {
+        if (!new File(DIRECTORY_PATH + "/requirements.snapshot").exists()
+                && !new File(DIRECTORY_PATH + "/requirements.json").exists()) {
+            return;
+        }
+        store.importAll(new FileTeachingRequirementDAO().findAll());
+    }
+}
@@ -0,0 +1,51 @@
+package dao.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Stand-in for a DAO that is still loading
+ * The returned object implements the DAO interface and forwards every call to the real
+ * DAO once it has finished loading. A call made before then blocks until that one DAO is
+ * ready, so the application can start using the stores that loaded first.
+ */
+public final class DeferredDAO {
+
+    private DeferredDAO() {
+    }
+
+    /**
+     * Create a stand-in for a DAO that is being loaded
+     *
+     * @param type DAO interface
+     * @param loading Completes with the loaded DAO
+     * @param <T> DAO interface type
+     * @return object implementing the interface that forwards to the loaded DAO
+     */
+    public static <T> T of(Class<T> type, CompletableFuture<? extends T> loading) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals": return proxy == args[0];
+                    case "hashCode": return System.identityHashCode(proxy);
+                    default: break;
+                }
+            }
+            T target;
+            try {
+                target = loading.join();
+            } catch (CompletionException e) {
+                throw e.getCause() != null ? e.getCause() : e;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
@@ -1,19 +1,82 @@
 package dao.impl;
 
 
+import dao.Page;
 import dao.TeacherDAO;
+import dao.query.TeacherConditions;
 import model.Teacher;
+import util.IntObjectMap;
+import util.JsonReader;
+import util.PostingList;
+import util.QualificationIndex;
 
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
+/**
+ * File-based Teacher DAO Implementation
+ * Mutations are appended to an operation journal; the journal is replayed on load
+ * and periodically compacted into a full snapshot in the background.
+ * Snapshots use the segmented, checksummed format; teachers.json is imported
+ * only until the first snapshot has been written.
+ * In write-behind mode journal appends are not forced individually; a background
+ * flusher syncs the journal once per batch of mutations.
+ */
 public class FileTeacherDAO implements TeacherDAO {
     private static final String DIRECTORY_PATH = "data";
     private static final String FILE_PATH = DIRECTORY_PATH + "/teachers.json";
-    private final Map<Integer, Teacher> teacherDB = new HashMap<>();
+    private static final String SNAPSHOT_PATH = DIRECTORY_PATH + "/teachers.snapshot";
+    private static final String JOURNAL_PATH = DIRECTORY_PATH + "/teachers.journal";
+    // Number of journal records after which the journal is folded into a new snapshot
+    private static final int COMPACTION_THRESHOLD = 1000;
+
+    // Primary index keyed by primitive teacher ID, so lookups neither box nor allocate entry nodes
+    private final IntObjectMap<Teacher> teacherDB = new IntObjectMap<>();
+    // Qualification term -> teacher IDs, kept in step with every mutation
+    private final QualificationIndex qualificationIndex = new QualificationIndex();
+    // All teacher IDs in ascending order, so pages in ID order are read by position without sorting
+    private PostingList sortedIds = new PostingList();
+    // Version given to the last stored change; teachers read from disk have version 0
+    private long lastVersion;
+    private final OperationJournal journal;
+    private final SegmentedSnapshot<Teacher> snapshot =
+            new SegmentedSnapshot<>(Paths.get(SNAPSHOT_PATH), RecordCodec::writeTeacher, RecordCodec::readTeacher);
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "teacher-journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private boolean compactionScheduled;
+    // Held, before the monitor, while a snapshot is written and the journal it covers is dropped,
+    // so a full save waits for a compaction in progress rather than racing it
+    private final Object snapshotLock = new Object();
+    // Group-commit flusher, null when every mutation is forced to disk before returning
+    private final WriteBehindFlusher flusher;
 
     public FileTeacherDAO() {
+        this(0, 0);
+    }
+
+    /**
+     * Constructor for write-behind mode
+     * @param flushWindowMillis longest time a mutation waits to be synced with others, 0 to sync every mutation
+     * @param flushBatchSize number of mutations that triggers a sync before the window ends
+     */
+    public FileTeacherDAO(long flushWindowMillis, int flushBatchSize) {
         createDataDirectory();
+        try {
+            journal = new OperationJournal(Paths.get(JOURNAL_PATH));
+        } catch (IOException e) {
+            throw new RuntimeException("The teacher journal could not be opened.", e);
+        }
+        flusher = flushWindowMillis > 0
+                ? new WriteBehindFlusher("teacher-write-behind", flushWindowMillis, flushBatchSize, this::syncJournal)
+                : null;
         loadAll();
     }
 
@@ -29,24 +92,40 @@ public class FileTeacherDAO implements TeacherDAO {
     }
 
     @Override
-    public boolean save(Teacher teacher) {
+    public synchronized boolean save(Teacher teacher) {
+        teacher.setVersion(++lastVersion);
         teacherDB.put(teacher.getId(), teacher);
-        return saveAll();
+        qualificationIndex.put(teacher.getId(), teacher.getQualifications());
+        sortedIds.add(teacher.getId());
+        return appendPut(teacher);
     }
 
     @Override
-    public boolean update(Teacher teacher) {
+    public synchronized boolean update(Teacher teacher) {
         if (teacherDB.containsKey(teacher.getId())) {
+            teacher.setVersion(++lastVersion);
             teacherDB.put(teacher.getId(), teacher);
-            return saveAll();
+            qualificationIndex.put(teacher.getId(), teacher.getQualifications());
+            return appendPut(teacher);
         }
         return false;
     }
 
     @Override
-    public boolean deleteById(int id) {
+    public synchronized boolean update(Teacher teacher, long expectedVersion) {
+        Teacher current = teacherDB.get(teacher.getId());
+        if (current == null || current.getVersion() != expectedVersion) {
+            return false;
+        }
+        return update(teacher);
+    }
+
+    @Override
+    public synchronized boolean deleteById(int id) {
         if (teacherDB.remove(id) != null) {
-            return saveAll();
+            qualificationIndex.remove(id);
+            sortedIds.remove(id);
+            return appendDelete(id);
         }
         return false;
     }
@@ -57,13 +136,13 @@ public class FileTeacherDAO implements TeacherDAO {
     }
 
     @Override
-    public Teacher findById(int id) {
+    public synchronized Teacher findById(int id) {
         return teacherDB.get(id);
     }
 
     @Override
-    public List<Teacher> getAll() {
-        return new ArrayList<>(teacherDB.values());
+    public synchronized List<Teacher> getAll() {
+        return teacherDB.values();
     }
 
     @Override
@@ -71,10 +150,82 @@ public class FileTeacherDAO implements TeacherDAO {
         return getAll();
     }
 
+    @Override
+    public synchronized void forEach(Consumer<? super Teacher> action) {
+        teacherDB.forEach((id, teacher) -> action.accept(teacher));
+    }
+
+    @Override
+    public synchronized Page<Teacher> page(int offset, int limit, Comparator<? super Teacher> order) {
+        if (order != null && order != ID_ORDER) {
+            return TeacherDAO.super.page(offset, limit, order);
+        }
+        if (offset < 0 || limit < 1) {
+            throw new IllegalArgumentException("The offset must not be negative and the limit must be positive");
+        }
+        return pageFrom(offset, limit, offset);
+    }
+
+    @Override
+    public synchronized Page<Teacher> pageAfter(Teacher last, int limit, Comparator<? super Teacher> order) {
+        if (order != null && order != ID_ORDER) {
+            return TeacherDAO.super.pageAfter(last, limit, order);
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit must be positive");
+        }
+        return pageFrom(last == null ? 0 : sortedIds.indexAfter(last.getId()), limit, last == null ? 0 : -1);
+    }
+
+    // Read a page in ID order starting at a position of the sorted ID list
+    private Page<Teacher> pageFrom(int from, int limit, int offset) {
+        int to = (int) Math.min((long) from + limit, sortedIds.size());
+        List<Teacher> teachers = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            teachers.add(teacherDB.get(sortedIds.get(i)));
+        }
+        return new Page<>(teachers, offset, to < sortedIds.size());
+    }
+
+    @Override
+    public boolean isIndexed(String attribute) {
+        return TeacherConditions.QUALIFICATIONS.equals(attribute);
+    }
+
+    @Override
+    public synchronized List<Teacher> findByQualifications(Collection<String> terms, boolean matchAll) {
+        if (QualificationIndex.normalize(terms).isEmpty()) {
+            return getAll();
+        }
+        int[] ids = qualificationIndex.search(terms, matchAll);
+        List<Teacher> matches = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            matches.add(teacherDB.get(id));
+        }
+        return matches;
+    }
+
     @Override
     public boolean saveAll() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_PATH))) {
-            oos.writeObject(new ArrayList<>(teacherDB.values()));
+        synchronized (snapshotLock) {
+            synchronized (this) {
+                if (!writeSnapshot(teacherDB.values())) {
+                    return false;
+                }
+                try {
+                    journal.reset();
+                    return true;
+                } catch (IOException e) {
+                    System.err.println("Error resetting journal: " + e.getMessage());
+                    return false;
+                }
+            }
+        }
+    }
+
+    private boolean writeSnapshot(List<Teacher> teachers) {
+        try {
+            snapshot.write(teachers);
             return true;
         } catch (IOException e) {
             System.err.println("Error saving data: " + e.getMessage());
@@ -82,8 +233,143 @@ public class FileTeacherDAO implements TeacherDAO {
         }
     }
 
+    private boolean appendPut(Teacher teacher) {
+        try {
+            journal.append(OperationJournal.PUT, out -> RecordCodec.writeTeacher(out, teacher), flusher == null);
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+        acknowledge();
+        return true;
+    }
+
+    private boolean appendDelete(int id) {
+        try {
+            journal.append(OperationJournal.DELETE, out -> out.writeInt(id), flusher == null);
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+        acknowledge();
+        return true;
+    }
+
+    private void acknowledge() {
+        if (flusher != null) {
+            flusher.submit();
+        }
+        scheduleCompactionIfNeeded();
+    }
+
+    private boolean syncJournal() {
+        try {
+            journal.sync();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> flushed() {
+        return flusher != null ? flusher.pending() : CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> close() {
+        if (flusher == null) {
+            return CompletableFuture.completedFuture(saveAll());
+        }
+        return flusher.close().thenApply(durable -> saveAll() && durable);
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        if (!compactionScheduled && journal.size() >= COMPACTION_THRESHOLD) {
+            compactionScheduled = true;
+            compactor.execute(this::compact);
+        }
+    }
+
+    // Fold the journal into a new snapshot while new mutations keep appending to a fresh journal;
+    // saves and loads wait until the snapshot is written and the detached journal dropped
+    private void compact() {
+        synchronized (snapshotLock) {
+            List<Teacher> teachers;
+            try {
+                synchronized (this) {
+                    teachers = teacherDB.values();
+                    journal.rotate();
+                }
+                if (writeSnapshot(teachers)) {
+                    journal.discardRotated();
+                }
+            } catch (IOException e) {
+                System.err.println("Error compacting journal: " + e.getMessage());
+            } finally {
+                synchronized (this) {
+                    compactionScheduled = false;
+                }
+            }
+        }
+    }
+
     @Override
     public boolean loadAll() {
+        synchronized (snapshotLock) {
+            return reload();
+        }
+    }
+
+    private synchronized boolean reload() {
+        boolean snapshotLoaded = loadSnapshot();
+
+        // Apply the mutations recorded since the snapshot was written
+        try {
+            journal.replay(new OperationJournal.Replayer() {
+                @Override
+                public void put(DataInput in) throws IOException {
+                    Teacher teacher = RecordCodec.readTeacher(in);
+                    teacherDB.put(teacher.getId(), teacher);
+                }
+
+                @Override
+                public void delete(DataInput in) throws IOException {
+                    teacherDB.remove(in.readInt());
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error replaying journal: " + e.getMessage());
+            rebuildIndexes();
+            return false;
+        }
+
+        rebuildIndexes();
+
+        // An interrupted compaction left a detached journal behind; fold everything into a snapshot now
+        if (journal.hasRotated()) {
+            return saveAll() && snapshotLoaded;
+        }
+        return snapshotLoaded;
+    }
+
+    private void rebuildIndexes() {
+        qualificationIndex.clear();
+        int[] ids = new int[teacherDB.size()];
+        int[] count = {0};
+        teacherDB.forEach((id, teacher) -> {
+            qualificationIndex.put(id, teacher.getQualifications());
+            ids[count[0]++] = id;
+        });
+        sortedIds = PostingList.of(ids);
+    }
+
+    private boolean loadSnapshot() {
+        if (snapshot.exists()) {
+            return loadSegmentedSnapshot();
+        }
+
         File file = new File(FILE_PATH);
 
         // If file doesn't exist, create an empty Map and return success
@@ -92,6 +378,78 @@ public class FileTeacherDAO implements TeacherDAO {
             return true;
         }
 
+        try {
+            if (!JsonRecordCodec.isJson(file.toPath())) {
+                return loadSerializedSnapshot(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading data: " + e.getMessage());
+            teacherDB.clear();
+            return false;
+        }
+
+        // Stream the teachers straight into the map
+        teacherDB.clear();
+        try (JsonReader in = JsonRecordCodec.openReader(file.toPath())) {
+            JsonRecordCodec.readTeachers(in, this::putLoadedTeacher);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error loading data: " + e.getMessage());
+            // If loading fails, clear the current Map
+            teacherDB.clear();
+            return false;
+        }
+    }
+
+    // Segments are decoded in parallel; a damaged segment loses only its own teachers
+    private boolean loadSegmentedSnapshot() {
+        IntObjectMap<Teacher> loaded = new IntObjectMap<>();
+        int damaged;
+        try {
+            damaged = snapshot.load(segment -> {
+                for (Teacher teacher : segment) {
+                    loaded.put(teacher.getId(), teacher);
+                }
+            });
+        } catch (IOException e) {
+            damaged = -1;
+            System.err.println("Error loading data: " + e.getMessage());
+        }
+
+        if (damaged != 0) {
+            // Keep a copy of the damaged file for recovery before it is overwritten
+            try {
+                System.err.println("Error: Teacher snapshot is damaged; a copy was kept at " + snapshot.quarantine());
+            } catch (IOException e) {
+                System.err.println("Error: Could not copy the damaged teacher snapshot: " + e.getMessage());
+            }
+            if (damaged < 0) {
+                // Nothing could be read; leave the teachers already in memory untouched
+                return false;
+            }
+            // Replace the damaged snapshot with the teachers that could be recovered
+            try {
+                snapshot.write(loaded.values());
+            } catch (IOException e) {
+                System.err.println("Error saving data: " + e.getMessage());
+            }
+        }
+
+        teacherDB.clear();
+        loaded.forEach((id, teacher) -> putLoadedTeacher(teacher));
+        return damaged == 0;
+    }
+
+    private void putLoadedTeacher(Teacher teacher) {
+        if (teacher.getId() != 0) {  // Assuming 0 is an invalid ID
+            teacherDB.put(teacher.getId(), teacher);
+        } else {
+            System.err.println("Warning: Skipped a teacher with invalid ID");
+        }
+    }
+
+    // Snapshots written before the JSON format used Java serialization
+    private boolean loadSerializedSnapshot(File file) {
         try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
             Object obj = ois.readObject();
 
@@ -119,11 +477,7 @@ public class FileTeacherDAO implements TeacherDAO {
             // Convert list to Map
             teacherDB.clear();
             for (Teacher teacher : teacherList) {
-                if (teacher.getId() != 0) {  // Assuming 0 is an invalid ID
-                    teacherDB.put(teacher.getId(), teacher);
-                } else {
-                    System.err.println("Warning: Skipped a teacher with invalid ID");
-                }
+                putLoadedTeacher(teacher);
             }
             return true;
         } catch (IOException | ClassNotFoundException e) {
@@ -135,7 +489,7 @@ public class FileTeacherDAO implements TeacherDAO {
     }
 
     @Override
-    public Teacher getTeacherById(String teacherId) {
+    public synchronized Teacher getTeacherById(String teacherId) {
         try {
             int id = Integer.parseInt(teacherId);
             return teacherDB.get(id);
@@ -2,26 +2,83 @@ package dao.impl;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.nio.file.Paths;
+import model.RoomUtilization;
+import model.ScheduleConflict;
 import model.TeachingRequirement;
+import model.WeekOccupancy;
+import model.WeeklySchedule;
+import dao.Page;
 import dao.TeachingRequirementDAO;
+import dao.query.RequirementConditions;
+import util.JsonReader;
+import util.TrigramIndex;
 
 /**
  * File-based Teaching Requirement DAO Implementation
  * Implements data persistence of teaching requirements using the file system
+ * In write-behind mode mutations return immediately and a background flusher
+ * writes the file once per batch of mutations.
+ * Data is kept in a segmented, checksummed snapshot; requirements.json is imported
+ * only until the first snapshot has been written.
  */
 public class FileTeachingRequirementDAO implements TeachingRequirementDAO {
     private static final String DIRECTORY_PATH = "data";
     private static final String FILE_PATH = DIRECTORY_PATH + "/requirements.json";
+    private static final String SNAPSHOT_PATH = DIRECTORY_PATH + "/requirements.snapshot";
+    private static final Set<String> INDEXED_ATTRIBUTES = new HashSet<>(Arrays.asList(
+            RequirementConditions.STATUS, RequirementConditions.TEACHER,
+            RequirementConditions.COURSE_NAME, RequirementConditions.SCHEDULE, RequirementConditions.LOCATION));
 
-    // In-memory collection for storing all teaching requirements
-    private Map<String, TeachingRequirement> requirementsMap;
+    // In-memory collection for storing all teaching requirements, sorted by ID so that
+    // pages in the natural order are read straight from the map
+    private NavigableMap<String, TeachingRequirement> requirementsMap;
+    // Trigram index over course names, kept in step with every mutation
+    private final TrigramIndex courseNameIndex = new TrigramIndex();
+    // Requirement IDs by status, moved between buckets as soon as a requirement's status changes
+    private final Map<TeachingRequirement.RequirementStatus, Set<String>> statusBuckets =
+            new EnumMap<>(TeachingRequirement.RequirementStatus.class);
+    // Status each requirement is currently filed under
+    private final Map<String, TeachingRequirement.RequirementStatus> filedStatus = new HashMap<>();
+    private final TeachingRequirement.StatusListener statusListener = (requirement, previous) -> refile(requirement);
+    // Requirement IDs by assigned teacher ID, updated as soon as a teacher is assigned or removed
+    private final Map<String, Set<String>> requirementsByTeacher = new HashMap<>();
+    private final TeachingRequirement.AssignmentListener assignmentListener = this::reassign;
+    // Interval trees of schedules per location and per assigned teacher
+    private final ScheduleIndex scheduleIndex = new ScheduleIndex();
+    // Requirements and half-hour occupancy bitmaps per location
+    private final LocationIndex locationIndex = new LocationIndex();
+    // Version given to the last stored change; requirements read from disk have version 0
+    private long lastVersion;
+
+    private final SegmentedSnapshot<TeachingRequirement> snapshot = new SegmentedSnapshot<>(
+            Paths.get(SNAPSHOT_PATH), RecordCodec::writeRequirement, RecordCodec::readRequirement);
+
+    // Group-commit flusher, null when every mutation is written before returning
+    private final WriteBehindFlusher flusher;
 
     /**
      * Constructor
      */
     public FileTeachingRequirementDAO() {
+        this(0, 0);
+    }
+
+    /**
+     * Constructor for write-behind mode
+     *
+     * @param flushWindowMillis Longest time a mutation waits to be written with others, 0 to write every mutation
+     * @param flushBatchSize Number of mutations that triggers a write before the window ends
+     */
+    public FileTeachingRequirementDAO(long flushWindowMillis, int flushBatchSize) {
         createDataDirectory();
-        this.requirementsMap = new HashMap<>();
+        this.requirementsMap = new TreeMap<>();
+        this.flusher = flushWindowMillis > 0
+                ? new WriteBehindFlusher("requirement-write-behind", flushWindowMillis, flushBatchSize, this::saveAll)
+                : null;
         loadAll();
     }
 
@@ -37,51 +94,323 @@ public class FileTeachingRequirementDAO implements TeachingRequirementDAO {
     }
 
     @Override
-    public boolean save(TeachingRequirement requirement) {
+    public synchronized boolean save(TeachingRequirement requirement) {
         // Ensure there is no requirement with the same ID
         if (findById(requirement.getId()) != null) {
             return false;
         }
 
+        requirement.setVersion(++lastVersion);
         requirementsMap.put(requirement.getId(), requirement);
-        return saveAll();
+        index(requirement);
+        return persist();
     }
 
     @Override
-    public boolean update(TeachingRequirement requirement) {
+    public synchronized boolean update(TeachingRequirement requirement) {
         // Find and replace the existing requirement
         if (!requirementsMap.containsKey(requirement.getId())) {
             return false;
         }
 
-        requirementsMap.put(requirement.getId(), requirement);
-        return saveAll();
+        requirement.setVersion(++lastVersion);
+        TeachingRequirement previous = requirementsMap.put(requirement.getId(), requirement);
+        if (previous != requirement) {
+            unindexTeachers(previous);
+            detach(previous);
+        }
+        index(requirement);
+        return persist();
     }
 
     @Override
-    public boolean delete(String id) {
+    public synchronized boolean update(TeachingRequirement requirement, long expectedVersion) {
+        TeachingRequirement current = requirementsMap.get(requirement.getId());
+        if (current == null || current.getVersion() != expectedVersion) {
+            return false;
+        }
+        return update(requirement);
+    }
+
+    @Override
+    public synchronized boolean delete(String id) {
         if (!requirementsMap.containsKey(id)) {
             return false;
         }
 
-        requirementsMap.remove(id);
+        unindex(requirementsMap.remove(id));
+        return persist();
+    }
+
+    // Write the file now, or hand the mutation to the write-behind flusher
+    private boolean persist() {
+        if (flusher != null) {
+            flusher.submit();
+            return true;
+        }
         return saveAll();
     }
 
     @Override
-    public TeachingRequirement findById(String id) {
+    public CompletableFuture<Boolean> flushed() {
+        return flusher != null ? flusher.pending() : CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> close() {
+        if (flusher == null) {
+            return CompletableFuture.completedFuture(saveAll());
+        }
+        return flusher.close().thenApply(durable -> saveAll() && durable);
+    }
+
+    @Override
+    public synchronized TeachingRequirement findById(String id) {
         return requirementsMap.get(id);
     }
 
     @Override
-    public List<TeachingRequirement> findAll() {
+    public synchronized List<TeachingRequirement> findAll() {
         return new ArrayList<>(requirementsMap.values());
     }
 
     @Override
-    public boolean saveAll() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_PATH))) {
-            oos.writeObject(new ArrayList<>(requirementsMap.values()));
+    public synchronized void forEach(Consumer<? super TeachingRequirement> action) {
+        requirementsMap.values().forEach(action);
+    }
+
+    @Override
+    public synchronized Page<TeachingRequirement> page(int offset, int limit,
+                                                       Comparator<? super TeachingRequirement> order) {
+        if (order != null && order != ID_ORDER) {
+            return TeachingRequirementDAO.super.page(offset, limit, order);
+        }
+        if (offset < 0 || limit < 1) {
+            throw new IllegalArgumentException("The offset must not be negative and the limit must be positive");
+        }
+        return pageOf(requirementsMap.values().iterator(), offset, limit, offset);
+    }
+
+    @Override
+    public synchronized Page<TeachingRequirement> pageAfter(TeachingRequirement last, int limit,
+                                                            Comparator<? super TeachingRequirement> order) {
+        if (order != null && order != ID_ORDER) {
+            return TeachingRequirementDAO.super.pageAfter(last, limit, order);
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit must be positive");
+        }
+        if (last == null) {
+            return pageOf(requirementsMap.values().iterator(), 0, limit, 0);
+        }
+        return pageOf(requirementsMap.tailMap(last.getId(), false).values().iterator(), 0, limit, -1);
+    }
+
+    private static Page<TeachingRequirement> pageOf(Iterator<TeachingRequirement> requirements,
+                                                    int skip, int limit, int offset) {
+        for (int i = 0; i < skip && requirements.hasNext(); i++) {
+            requirements.next();
+        }
+        List<TeachingRequirement> page = new ArrayList<>(Math.min(limit, 1024));
+        while (page.size() < limit && requirements.hasNext()) {
+            page.add(requirements.next());
+        }
+        return new Page<>(page, offset, requirements.hasNext());
+    }
+
+    @Override
+    public boolean isIndexed(String attribute) {
+        return INDEXED_ATTRIBUTES.contains(attribute);
+    }
+
+    @Override
+    public synchronized List<TeachingRequirement> searchByCourseName(String keyword) {
+        List<TeachingRequirement> matches = new ArrayList<>();
+        for (String id : courseNameIndex.search(keyword)) {
+            matches.add(requirementsMap.get(id));
+        }
+        return matches;
+    }
+
+    @Override
+    public synchronized List<TeachingRequirement> findByStatus(TeachingRequirement.RequirementStatus status) {
+        Set<String> ids = statusBuckets.get(status);
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        List<TeachingRequirement> matches = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            matches.add(requirementsMap.get(id));
+        }
+        return matches;
+    }
+
+    @Override
+    public synchronized int countByStatus(TeachingRequirement.RequirementStatus status) {
+        Set<String> ids = statusBuckets.get(status);
+        return ids == null ? 0 : ids.size();
+    }
+
+    @Override
+    public synchronized List<TeachingRequirement> findByTeacher(String teacherId) {
+        Set<String> ids = requirementsByTeacher.get(teacherId);
+        return ids == null ? new ArrayList<>() : resolve(ids);
+    }
+
+    @Override
+    public synchronized List<TeachingRequirement> findLocationConflicts(String location, WeeklySchedule schedule) {
+        return resolve(scheduleIndex.findAtLocation(location, schedule));
+    }
+
+    @Override
+    public synchronized List<TeachingRequirement> findByLocation(String location) {
+        return resolve(locationIndex.findAtLocation(location));
+    }
+
+    @Override
+    public synchronized WeekOccupancy findRoomOccupancy(String location) {
+        return locationIndex.occupancy(location);
+    }
+
+    @Override
+    public synchronized List<String> findFreeLocations(WeeklySchedule schedule) {
+        return locationIndex.freeLocations(WeekOccupancy.of(schedule));
+    }
+
+    @Override
+    public synchronized List<RoomUtilization> getRoomUtilization() {
+        return locationIndex.utilization();
+    }
+
+    @Override
+    public synchronized List<TeachingRequirement> findTeacherConflicts(String teacherId, WeeklySchedule schedule) {
+        return resolve(scheduleIndex.findForTeacher(teacherId, schedule));
+    }
+
+    @Override
+    public synchronized List<ScheduleConflict> findAllConflicts() {
+        // Holding the lock keeps writers out, so the workers can share the read-only indexes
+        return requirementsMap.values().parallelStream()
+                .flatMap(requirement -> conflictsOf(requirement).stream())
+                .collect(Collectors.toList());
+    }
+
+    // Conflicts of one requirement with the requirements ordered after it, so each pair is reported once
+    private List<ScheduleConflict> conflictsOf(TeachingRequirement requirement) {
+        List<ScheduleConflict> conflicts = new ArrayList<>();
+        WeeklySchedule schedule = requirement.getWeeklySchedule();
+        if (schedule.isEmpty()) {
+            return conflicts;
+        }
+        for (String id : scheduleIndex.findAtLocation(requirement.getLocation(), schedule)) {
+            if (id.compareTo(requirement.getId()) > 0) {
+                conflicts.add(new ScheduleConflict(requirement, requirementsMap.get(id),
+                        ScheduleConflict.Kind.LOCATION, requirement.getLocation()));
+            }
+        }
+        for (String teacherId : requirement.getAssignedTeacherIds()) {
+            for (String id : scheduleIndex.findForTeacher(teacherId, schedule)) {
+                if (id.compareTo(requirement.getId()) > 0) {
+                    conflicts.add(new ScheduleConflict(requirement, requirementsMap.get(id),
+                            ScheduleConflict.Kind.TEACHER, teacherId));
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    private List<TeachingRequirement> resolve(Collection<String> ids) {
+        List<TeachingRequirement> requirements = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            requirements.add(requirementsMap.get(id));
+        }
+        return requirements;
+    }
+
+    // Bring every secondary index up to date with a stored requirement
+    private void index(TeachingRequirement requirement) {
+        requirement.setStatusListener(statusListener);
+        requirement.setAssignmentListener(assignmentListener);
+        courseNameIndex.put(requirement.getId(), requirement.getCourseName());
+        scheduleIndex.put(requirement);
+        locationIndex.put(requirement);
+        for (String teacherId : requirement.getAssignedTeacherIds()) {
+            requirementsByTeacher.computeIfAbsent(teacherId, t -> new LinkedHashSet<>()).add(requirement.getId());
+        }
+        refile(requirement);
+    }
+
+    private void unindex(TeachingRequirement requirement) {
+        unindexTeachers(requirement);
+        detach(requirement);
+        courseNameIndex.remove(requirement.getId());
+        scheduleIndex.remove(requirement.getId());
+        locationIndex.remove(requirement.getId());
+        TeachingRequirement.RequirementStatus status = filedStatus.remove(requirement.getId());
+        if (status != null) {
+            statusBuckets.get(status).remove(requirement.getId());
+        }
+    }
+
+    // The stored instance is listened to, so its assigned teachers are exactly what it is indexed under
+    private void unindexTeachers(TeachingRequirement requirement) {
+        if (requirement == null) {
+            return;
+        }
+        for (String teacherId : requirement.getAssignedTeacherIds()) {
+            removeFromTeacher(teacherId, requirement.getId());
+        }
+    }
+
+    private void removeFromTeacher(String teacherId, String requirementId) {
+        Set<String> ids = requirementsByTeacher.get(teacherId);
+        if (ids != null && ids.remove(requirementId) && ids.isEmpty()) {
+            requirementsByTeacher.remove(teacherId);
+        }
+    }
+
+    // Stop listening to an instance that is no longer the stored one
+    private void detach(TeachingRequirement requirement) {
+        if (requirement != null && requirement.getStatusListener() == statusListener) {
+            requirement.setStatusListener(null);
+        }
+        if (requirement != null && requirement.getAssignmentListener() == assignmentListener) {
+            requirement.setAssignmentListener(null);
+        }
+    }
+
+    // Follow a teacher being assigned to or removed from a stored requirement
+    private synchronized void reassign(TeachingRequirement requirement, String teacherId, boolean assigned) {
+        if (requirementsMap.get(requirement.getId()) != requirement) {
+            return;
+        }
+        if (assigned) {
+            requirementsByTeacher.computeIfAbsent(teacherId, t -> new LinkedHashSet<>()).add(requirement.getId());
+        } else {
+            removeFromTeacher(teacherId, requirement.getId());
+        }
+        scheduleIndex.put(requirement);
+    }
+
+    // Move a requirement to the bucket of its current status
+    private synchronized void refile(TeachingRequirement requirement) {
+        if (requirementsMap.get(requirement.getId()) != requirement) {
+            return;
+        }
+        TeachingRequirement.RequirementStatus status = requirement.getStatus();
+        TeachingRequirement.RequirementStatus previous = filedStatus.put(requirement.getId(), status);
+        if (previous != status) {
+            if (previous != null) {
+                statusBuckets.get(previous).remove(requirement.getId());
+            }
+            statusBuckets.computeIfAbsent(status, s -> new LinkedHashSet<>()).add(requirement.getId());
+        }
+    }
+
+    @Override
+    public synchronized boolean saveAll() {
+        try {
+            snapshot.write(new ArrayList<>(requirementsMap.values()));
             return true;
         } catch (IOException e) {
             System.err.println("Error saving data: " + e.getMessage());
@@ -89,17 +418,99 @@ public class FileTeachingRequirementDAO implements TeachingRequirementDAO {
         }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
-    public boolean loadAll() {
+    public synchronized boolean loadAll() {
+        boolean loaded = loadRequirements();
+        courseNameIndex.clear();
+        scheduleIndex.clear();
+        locationIndex.clear();
+        statusBuckets.clear();
+        filedStatus.clear();
+        requirementsByTeacher.clear();
+        for (TeachingRequirement requirement : requirementsMap.values()) {
+            index(requirement);
+        }
+        return loaded;
+    }
+
+    private boolean loadRequirements() {
+        if (snapshot.exists()) {
+            return loadSnapshot();
+        }
+
         File file = new File(FILE_PATH);
 
         // If the file doesn't exist, create an empty list and return success
         if (!file.exists()) {
-            requirementsMap = new HashMap<>();
+            requirementsMap = new TreeMap<>();
             return true;
         }
 
+        try {
+            if (!JsonRecordCodec.isJson(file.toPath())) {
+                return loadSerialized(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading data: " + e.getMessage());
+            requirementsMap = new TreeMap<>();
+            return false;
+        }
+
+        // Stream the requirements straight into the map
+        requirementsMap.clear();
+        try (JsonReader in = JsonRecordCodec.openReader(file.toPath())) {
+            JsonRecordCodec.readRequirements(in, requirement -> requirementsMap.put(requirement.getId(), requirement));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error loading data: " + e.getMessage());
+            // If loading fails, initialize a new empty map
+            requirementsMap = new TreeMap<>();
+            return false;
+        }
+    }
+
+    // Segments are decoded in parallel; a damaged segment loses only its own requirements
+    private boolean loadSnapshot() {
+        Map<String, TeachingRequirement> loaded = new HashMap<>();
+        int damaged;
+        try {
+            damaged = snapshot.load(segment -> {
+                for (TeachingRequirement requirement : segment) {
+                    loaded.put(requirement.getId(), requirement);
+                }
+            });
+        } catch (IOException e) {
+            damaged = -1;
+            System.err.println("Error loading data: " + e.getMessage());
+        }
+
+        if (damaged != 0) {
+            // Keep a copy of the damaged file for recovery before it is overwritten
+            try {
+                System.err.println("Error: Requirement snapshot is damaged; a copy was kept at " + snapshot.quarantine());
+            } catch (IOException e) {
+                System.err.println("Error: Could not copy the damaged requirement snapshot: " + e.getMessage());
+            }
+            if (damaged < 0) {
+                // Nothing could be read; leave the requirements already in memory untouched
+                return false;
+            }
+            // Replace the damaged snapshot with the requirements that could be recovered
+            try {
+                snapshot.write(new ArrayList<>(loaded.values()));
+            } catch (IOException e) {
+                System.err.println("Error saving data: " + e.getMessage());
+            }
+        }
+
+        requirementsMap.clear();
+        requirementsMap.putAll(loaded);
+        return damaged == 0;
+    }
+
+    // Files written before the JSON format used Java serialization
+    @SuppressWarnings("unchecked")
+    private boolean loadSerialized(File file) {
         try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
             List<TeachingRequirement> requirementsList = (List<TeachingRequirement>) ois.readObject();
 
@@ -112,7 +523,7 @@ public class FileTeachingRequirementDAO implements TeachingRequirementDAO {
         } catch (IOException | ClassNotFoundException e) {
             System.err.println("Error loading data: " + e.getMessage());
             // If loading fails, initialize a new empty map
-            requirementsMap = new HashMap<>();
+            requirementsMap = new TreeMap<>();
             return false;
         }
     }
@@ -3,40 +3,290 @@ package dao.impl;
 import dao.TrainingSessionDAO;
 import model.TrainingSession;
 
+import java.io.DataInput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
 
+/**
+ * File-based Training Session DAO Implementation
+ * Sessions are kept in a segmented snapshot plus an operation journal, so each change
+ * costs one small append. A reverse index from teacher ID to session IDs answers
+ * "which sessions did this teacher attend" without scanning every session.
+ */
 public class FileTrainingSessionDAO implements TrainingSessionDAO {
+    private static final String DIRECTORY_PATH = "data";
+    private static final String SNAPSHOT_PATH = DIRECTORY_PATH + "/training_sessions.snapshot";
+    private static final String JOURNAL_PATH = DIRECTORY_PATH + "/training_sessions.journal";
+    // Number of journal records after which the journal is folded into a new snapshot
+    private static final int COMPACTION_THRESHOLD = 1000;
+
     private final Map<String, TrainingSession> trainingSessionDB = new HashMap<>();
+    // Teacher ID -> IDs of the sessions the teacher participates in
+    private final Map<String, Set<String>> sessionsByTeacher = new HashMap<>();
+    // Participants as last indexed, so in-place changes to a session can be diffed on update
+    private final Map<String, Set<String>> indexedParticipants = new HashMap<>();
+
+    private final OperationJournal journal;
+    // Set while the snapshot on disk cannot be read at all; it is then never written over,
+    // and the journal keeps every change until the snapshot loads again
+    private boolean snapshotUnreadable;
+    private final SegmentedSnapshot<TrainingSession> snapshot = new SegmentedSnapshot<>(
+            Paths.get(SNAPSHOT_PATH), RecordCodec::writeTrainingSession, RecordCodec::readTrainingSession);
+
+    public FileTrainingSessionDAO() {
+        createDataDirectory();
+        try {
+            journal = new OperationJournal(Paths.get(JOURNAL_PATH));
+        } catch (IOException e) {
+            throw new RuntimeException("The training session journal could not be opened.", e);
+        }
+        loadAll();
+    }
+
+    // Automatically create data directory
+    private void createDataDirectory() {
+        File directory = new File(DIRECTORY_PATH);
+        if (!directory.exists()) {
+            boolean created = directory.mkdirs();
+            if (!created) {
+                throw new RuntimeException("The data directory could not be created.");
+            }
+        }
+    }
 
     @Override
-    public void addTrainingSession(TrainingSession session) {
+    public synchronized void addTrainingSession(TrainingSession session) {
         trainingSessionDB.put(session.getId(), session);
+        reindex(session);
+        appendPut(session);
     }
 
     @Override
-    public TrainingSession getTrainingSessionById(String id) {
+    public synchronized TrainingSession getTrainingSessionById(String id) {
         return trainingSessionDB.get(id);
     }
 
     @Override
-    public List<TrainingSession> getAllTrainingSessions() {
+    public synchronized List<TrainingSession> getAllTrainingSessions() {
         return new ArrayList<>(trainingSessionDB.values());
     }
 
     @Override
-    public void updateTrainingSession(TrainingSession session) {
+    public synchronized void updateTrainingSession(TrainingSession session) {
         if (trainingSessionDB.containsKey(session.getId())) {
             trainingSessionDB.put(session.getId(), session);
+            reindex(session);
+            appendPut(session);
         } else {
             throw new NoSuchElementException("Training session not found.");
         }
     }
 
     @Override
-    public void deleteTrainingSession(String id) {
+    public synchronized void deleteTrainingSession(String id) {
         if (!trainingSessionDB.containsKey(id)) {
             throw new NoSuchElementException("Training session not found.");
         }
         trainingSessionDB.remove(id);
+        unindex(id);
+        appendDelete(id);
+    }
+
+    @Override
+    public synchronized void addParticipant(String sessionId, String teacherId) {
+        TrainingSession session = trainingSessionDB.get(sessionId);
+        if (session == null) {
+            throw new NoSuchElementException("Training session not found.");
+        }
+        if (session.addTeacher(teacherId)) {
+            reindex(session);
+            appendPut(session);
+        }
+    }
+
+    @Override
+    public synchronized void removeParticipant(String sessionId, String teacherId) {
+        TrainingSession session = trainingSessionDB.get(sessionId);
+        if (session == null) {
+            throw new NoSuchElementException("Training session not found.");
+        }
+        if (session.removeTeacher(teacherId)) {
+            reindex(session);
+            appendPut(session);
+        }
+    }
+
+    @Override
+    public synchronized List<TrainingSession> getTrainingSessionsByTeacherId(String teacherId) {
+        Set<String> sessionIds = sessionsByTeacher.get(teacherId);
+        if (sessionIds == null) {
+            return new ArrayList<>();
+        }
+        List<TrainingSession> sessions = new ArrayList<>(sessionIds.size());
+        for (String sessionId : sessionIds) {
+            sessions.add(trainingSessionDB.get(sessionId));
+        }
+        return sessions;
+    }
+
+    /**
+     * Write a full snapshot and clear the journal
+     * @return true if successful, otherwise false
+     */
+    public synchronized boolean saveAll() {
+        if (snapshotUnreadable) {
+            System.err.println("Error: The training session snapshot could not be read; it is kept until it loads again");
+            return false;
+        }
+        try {
+            snapshot.write(new ArrayList<>(trainingSessionDB.values()));
+            journal.reset();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Load the snapshot and replay the journal on top of it
+     * @return true if successful, otherwise false
+     */
+    public synchronized boolean loadAll() {
+        boolean loaded = true;
+        snapshotUnreadable = false;
+        if (snapshot.exists()) {
+            loaded = loadSnapshot();
+        } else {
+            trainingSessionDB.clear();
+        }
+
+        try {
+            journal.replay(new OperationJournal.Replayer() {
+                @Override
+                public void put(DataInput in) throws IOException {
+                    TrainingSession session = RecordCodec.readTrainingSession(in);
+                    trainingSessionDB.put(session.getId(), session);
+                }
+
+                @Override
+                public void delete(DataInput in) throws IOException {
+                    trainingSessionDB.remove(RecordCodec.readString(in));
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error replaying journal: " + e.getMessage());
+            loaded = false;
+        }
+
+        sessionsByTeacher.clear();
+        indexedParticipants.clear();
+        for (TrainingSession session : trainingSessionDB.values()) {
+            reindex(session);
+        }
+        return loaded;
+    }
+
+    // Segments are decoded in parallel; a damaged segment loses only its own sessions
+    private boolean loadSnapshot() {
+        Map<String, TrainingSession> loaded = new HashMap<>();
+        int damaged;
+        try {
+            damaged = snapshot.load(segment -> {
+                for (TrainingSession session : segment) {
+                    loaded.put(session.getId(), session);
+                }
+            });
+        } catch (IOException e) {
+            damaged = -1;
+            System.err.println("Error loading data: " + e.getMessage());
+        }
+
+        if (damaged != 0) {
+            // Keep a copy of the damaged file for recovery before it is overwritten
+            try {
+                System.err.println("Error: Training session snapshot is damaged; a copy was kept at "
+                        + snapshot.quarantine());
+            } catch (IOException e) {
+                System.err.println("Error: Could not copy the damaged training session snapshot: " + e.getMessage());
+            }
+            if (damaged < 0) {
+                // Nothing could be read; leave the sessions already in memory and the file untouched
+                snapshotUnreadable = true;
+                return false;
+            }
+            // Replace the damaged snapshot with the sessions that could be recovered
+            try {
+                snapshot.write(new ArrayList<>(loaded.values()));
+            } catch (IOException e) {
+                System.err.println("Error saving data: " + e.getMessage());
+            }
+        }
+
+        trainingSessionDB.clear();
+        trainingSessionDB.putAll(loaded);
+        return damaged == 0;
+    }
+
+    // Bring the reverse index in line with the session's current participants
+    private void reindex(TrainingSession session) {
+        Set<String> current = new HashSet<>(session.getParticipatingTeacherIds());
+        Set<String> previous = indexedParticipants.getOrDefault(session.getId(), Collections.emptySet());
+        for (String teacherId : previous) {
+            if (!current.contains(teacherId)) {
+                removeFromIndex(teacherId, session.getId());
+            }
+        }
+        for (String teacherId : current) {
+            if (!previous.contains(teacherId)) {
+                sessionsByTeacher.computeIfAbsent(teacherId, k -> new LinkedHashSet<>()).add(session.getId());
+            }
+        }
+        indexedParticipants.put(session.getId(), current);
+    }
+
+    private void unindex(String sessionId) {
+        Set<String> previous = indexedParticipants.remove(sessionId);
+        if (previous != null) {
+            for (String teacherId : previous) {
+                removeFromIndex(teacherId, sessionId);
+            }
+        }
+    }
+
+    private void removeFromIndex(String teacherId, String sessionId) {
+        Set<String> sessionIds = sessionsByTeacher.get(teacherId);
+        if (sessionIds != null) {
+            sessionIds.remove(sessionId);
+            if (sessionIds.isEmpty()) {
+                sessionsByTeacher.remove(teacherId);
+            }
+        }
+    }
+
+    private void appendPut(TrainingSession session) {
+        try {
+            journal.append(OperationJournal.PUT, out -> RecordCodec.writeTrainingSession(out, session), true);
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+        }
+        compactIfNeeded();
+    }
+
+    private void appendDelete(String id) {
+        try {
+            journal.append(OperationJournal.DELETE, out -> RecordCodec.writeString(out, id), true);
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+        }
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        if (!snapshotUnreadable && journal.size() >= COMPACTION_THRESHOLD) {
+            saveAll();
+        }
     }
 }
@@ -0,0 +1,193 @@
+package dao.impl;
+
+import model.Teacher;
+import model.TeachingRequirement;
+import util.JsonReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * JSON decoding of model objects
+ * Data files are JSON objects keyed by record ID; records are streamed one at a time
+ * to a consumer instead of being collected into a list first. The JSON files are only
+ * imported; the stores persist to their own snapshots and never write JSON back.
+ */
+final class JsonRecordCodec {
+
+    private JsonRecordCodec() {
+    }
+
+    /**
+     * Check whether a data file holds JSON rather than the older Java serialization format
+     *
+     * @param file Data file
+     * @return true if the first non-blank character opens a JSON object or array
+     * @throws IOException if the file cannot be read
+     */
+    static boolean isJson(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            int c;
+            do {
+                c = in.read();
+            } while (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == 0xEF || c == 0xBB || c == 0xBF);
+            return c == '{' || c == '[';
+        }
+    }
+
+    /**
+     * Open a streaming reader over a JSON data file
+     *
+     * @param file Data file
+     * @return Reader positioned at the start of the document
+     * @throws IOException if the file cannot be opened
+     */
+    static JsonReader openReader(Path file) throws IOException {
+        return new JsonReader(Channels.newReader(FileChannel.open(file, StandardOpenOption.READ),
+                StandardCharsets.UTF_8.newDecoder(), -1));
+    }
+
+    /**
+     * Read every teacher in a document keyed by teacher ID (a plain array is accepted too)
+     *
+     * @param in Source document
+     * @param sink Receives each teacher as soon as it has been parsed
+     * @throws IOException if the document is malformed
+     */
+    static void readTeachers(JsonReader in, Consumer<Teacher> sink) throws IOException {
+        readRecords(in, () -> sink.accept(readTeacher(in)));
+    }
+
+    /**
+     * Read every requirement in a document keyed by requirement ID (a plain array is accepted too)
+     *
+     * @param in Source document
+     * @param sink Receives each requirement as soon as it has been parsed
+     * @throws IOException if the document is malformed
+     */
+    static void readRequirements(JsonReader in, Consumer<TeachingRequirement> sink) throws IOException {
+        readRecords(in, () -> sink.accept(readRequirement(in)));
+    }
+
+    private interface RecordReader {
+        void read() throws IOException;
+    }
+
+    private static void readRecords(JsonReader in, RecordReader record) throws IOException {
+        if (in.peekNull()) {
+            in.nextNull();
+            return;
+        }
+        boolean keyed = !in.peekBeginArray();
+        if (keyed) {
+            in.beginObject();
+        } else {
+            in.beginArray();
+        }
+        while (in.hasNext()) {
+            if (keyed) {
+                in.nextName();
+            }
+            record.read();
+        }
+        if (keyed) {
+            in.endObject();
+        } else {
+            in.endArray();
+        }
+    }
+
+    private static Teacher readTeacher(JsonReader in) throws IOException {
+        int id = 0;
+        String name = null;
+        String contact = null;
+        boolean available = false;
+        String qualifications = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id": id = in.nextInt(); break;
+                case "name": name = in.nextString(); break;
+                case "contact": contact = in.nextString(); break;
+                case "isAvailable":
+                case "available":
+                    available = in.nextBoolean();
+                    break;
+                case "qualifications": qualifications = in.nextString(); break;
+                default: in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Teacher(id, name, contact, available, qualifications);
+    }
+
+    private static TeachingRequirement readRequirement(JsonReader in) throws IOException {
+        String id = null;
+        String courseName = null;
+        String courseCode = null;
+        String schedule = null;
+        String location = null;
+        List<String> qualifications = null;
+        TeachingRequirement.RequirementStatus status = null;
+        List<String> assignedTeacherIds = null;
+        String notes = "";
+        long created = System.currentTimeMillis();
+        long lastModified = created;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id": id = in.nextString(); break;
+                case "courseName": courseName = in.nextString(); break;
+                case "courseCode": courseCode = in.nextString(); break;
+                case "schedule": schedule = in.nextString(); break;
+                case "location": location = in.nextString(); break;
+                case "requiredQualifications": qualifications = readStringList(in); break;
+                case "status":
+                    String statusName = in.nextString();
+                    try {
+                        status = TeachingRequirement.RequirementStatus.valueOf(statusName);
+                    } catch (IllegalArgumentException | NullPointerException e) {
+                        throw new IOException("Unknown requirement status: " + statusName);
+                    }
+                    break;
+                case "assignedTeacherIds": assignedTeacherIds = readStringList(in); break;
+                case "notes": notes = in.nextString(); break;
+                case "createdTimestamp": created = in.nextLong(); break;
+                case "lastModifiedTimestamp": lastModified = in.nextLong(); break;
+                default: in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (id == null) {
+            throw new IOException("Requirement without an ID");
+        }
+        return new TeachingRequirement(id, courseName, courseCode, schedule, location, qualifications,
+                status, assignedTeacherIds, notes, created, lastModified);
+    }
+
+    private static List<String> readStringList(JsonReader in) throws IOException {
+        List<String> values = new ArrayList<>();
+        if (in.peekNull()) {
+            in.nextNull();
+            return values;
+        }
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(in.nextString());
+        }
+        in.endArray();
+        return values;
+    }
+}
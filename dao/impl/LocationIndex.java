@@ -0,0 +1,161 @@
+package dao.impl;
+
+import model.RoomUtilization;
+import model.TeachingRequirement;
+import model.WeekOccupancy;
+
+import java.util.*;
+
+/**
+ * Location index with weekly occupancy bitmaps
+ * Keeps the requirements at each location and, per location, how many of them book each
+ * half-hour slot of the week. Bitmaps of the slots booked at least once and more than once
+ * follow the counts, so free-time, free-room and double-booking questions are answered with
+ * word-wide bit operations instead of comparing schedules.
+ */
+final class LocationIndex {
+    private final Map<String, Room> rooms = new TreeMap<>();
+    // What each requirement was indexed under, so that it can be unindexed after it has changed
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private static final class Room {
+        // The location as written on a requirement indexed under it
+        final String location;
+        final Set<String> ids = new LinkedHashSet<>();
+        // Requirements booking each slot
+        final int[] counts = new int[WeekOccupancy.SLOTS];
+        final BitSet occupied = new BitSet(WeekOccupancy.SLOTS);
+        final BitSet clashes = new BitSet(WeekOccupancy.SLOTS);
+
+        Room(String location) {
+            this.location = location;
+        }
+    }
+
+    private static final class Entry {
+        final String key;
+        final BitSet slots;
+
+        Entry(String key, BitSet slots) {
+            this.key = key;
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * Index or re-index a requirement
+     *
+     * @param requirement Requirement to index
+     */
+    void put(TeachingRequirement requirement) {
+        remove(requirement.getId());
+        String key = TeachingRequirement.locationKey(requirement.getLocation());
+        if (key == null) {
+            return;
+        }
+        BitSet slots = WeekOccupancy.of(requirement.getWeeklySchedule()).toBitSet();
+        entries.put(requirement.getId(), new Entry(key, slots));
+
+        String location = requirement.getLocation().trim().replaceAll("\\s+", " ");
+        Room room = rooms.computeIfAbsent(key, k -> new Room(location));
+        room.ids.add(requirement.getId());
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            int count = ++room.counts[slot];
+            if (count == 1) {
+                room.occupied.set(slot);
+            } else if (count == 2) {
+                room.clashes.set(slot);
+            }
+        }
+    }
+
+    /**
+     * Remove a requirement from the index
+     *
+     * @param id Requirement ID
+     */
+    void remove(String id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        Room room = rooms.get(entry.key);
+        room.ids.remove(id);
+        if (room.ids.isEmpty()) {
+            rooms.remove(entry.key);
+            return;
+        }
+        BitSet slots = entry.slots;
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            int count = --room.counts[slot];
+            if (count == 0) {
+                room.occupied.clear(slot);
+            } else if (count == 1) {
+                room.clashes.clear(slot);
+            }
+        }
+    }
+
+    void clear() {
+        rooms.clear();
+        entries.clear();
+    }
+
+    /**
+     * Find the requirements at a location
+     *
+     * @param location Location, compared after normalisation
+     * @return IDs of the requirements
+     */
+    Set<String> findAtLocation(String location) {
+        Room room = room(location);
+        return room == null ? Collections.emptySet() : room.ids;
+    }
+
+    /**
+     * Get the slots booked at a location
+     *
+     * @param location Location, compared after normalisation
+     * @return The occupancy, empty for an unknown location
+     */
+    WeekOccupancy occupancy(String location) {
+        Room room = room(location);
+        return room == null ? WeekOccupancy.EMPTY : WeekOccupancy.of(room.occupied);
+    }
+
+    /**
+     * Find the locations with none of the given slots booked
+     *
+     * @param wanted Slots that must be free
+     * @return The locations, in order of their normalised names
+     */
+    List<String> freeLocations(WeekOccupancy wanted) {
+        BitSet slots = wanted.toBitSet();
+        List<String> free = new ArrayList<>();
+        for (Room room : rooms.values()) {
+            if (!room.occupied.intersects(slots)) {
+                free.add(room.location);
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Report how every location is booked, in one pass over the locations
+     *
+     * @return One entry per location, in order of their normalised names
+     */
+    List<RoomUtilization> utilization() {
+        List<RoomUtilization> report = new ArrayList<>(rooms.size());
+        for (Room room : rooms.values()) {
+            report.add(new RoomUtilization(room.location, room.ids.size(),
+                    WeekOccupancy.of(room.occupied), WeekOccupancy.of(room.clashes)));
+        }
+        return report;
+    }
+
+    private Room room(String location) {
+        String key = TeachingRequirement.locationKey(location);
+        return key == null ? null : rooms.get(key);
+    }
+}
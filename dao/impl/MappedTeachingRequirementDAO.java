@@ -0,0 +1,608 @@
+package dao.impl;
+
+import dao.TeachingRequirementDAO;
+import model.TeachingRequirement;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Memory-mapped Teaching Requirement DAO Implementation
+ * Keeps requirements in fixed-size records of a memory-mapped file and locates them through
+ * an on-disk UUID index, so start-up does not read the records and only the requirements
+ * actually requested are decoded onto the heap.
+ *
+ * Data file: header, then slots of {@value #RECORD_SIZE} bytes
+ * (state, UUID, payload length, payload). Free slots are chained through a free list.
+ * A requirement whose encoding does not fit in one slot, e.g. one with long notes, keeps the
+ * start of its payload in its own slot behind the number of a continuation slot, and the rest
+ * in a chain of continuation slots (state, next slot, payload); requirements are limited only
+ * by the {@value #MAX_RECORD_PAYLOAD} byte bound on an encoded record.
+ * Index file: header, then an open-addressing table of (UUID, slot) entries.
+ */
+public class MappedTeachingRequirementDAO implements TeachingRequirementDAO {
+    private static final String DIRECTORY_PATH = "data";
+    private static final String DATA_PATH = DIRECTORY_PATH + "/requirements.records";
+    private static final String INDEX_PATH = DIRECTORY_PATH + "/requirements.records.idx";
+
+    private static final int DATA_MAGIC = 0x50545244;
+    private static final int INDEX_MAGIC = 0x50545249;
+    private static final int VERSION = 1;
+
+    // Data file header: magic, version, record size, slot count, high water mark, free list head, live count
+    private static final int DATA_HEADER_SIZE = 32;
+    private static final int H_SLOT_COUNT = 12;
+    private static final int H_HIGH_WATER = 16;
+    private static final int H_FREE_HEAD = 20;
+    private static final int H_LIVE_COUNT = 24;
+
+    // Record layout: state (byte), UUID (two longs), payload length (int), payload
+    static final int RECORD_SIZE = 1024;
+    private static final int R_MSB = 1;
+    private static final int R_LSB = 9;
+    private static final int R_LENGTH = 17;
+    private static final int R_PAYLOAD = 21;
+    private static final int MAX_PAYLOAD = RECORD_SIZE - R_PAYLOAD;
+    private static final byte SLOT_FREE = 0;
+    private static final byte SLOT_LIVE = 1;
+    private static final byte SLOT_CONTINUATION = 2;
+
+    // Chained records: the first slot's payload starts with the first continuation slot
+    private static final int HEAD_CHAINED_PAYLOAD = MAX_PAYLOAD - 4;
+    // Continuation slot layout: state (byte), next continuation slot or -1 (int), payload
+    private static final int C_NEXT = 1;
+    private static final int C_PAYLOAD = 5;
+    private static final int CONTINUATION_PAYLOAD = RECORD_SIZE - C_PAYLOAD;
+    // Largest encoded requirement, so that a damaged length is not mistaken for a huge record
+    static final int MAX_RECORD_PAYLOAD = 16 * 1024 * 1024;
+
+    // Index file header: magic, capacity, size, tombstones
+    private static final int INDEX_HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 24;
+    private static final int EMPTY = 0;
+    private static final int TOMBSTONE = -1;
+
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int INITIAL_CAPACITY = 2048;
+
+    private FileChannel dataChannel;
+    private FileChannel indexChannel;
+    private MappedByteBuffer data;
+    private MappedByteBuffer index;
+    private int indexCapacity;
+    // Versions of the requirements changed since the files were mapped
+    private final VersionTable<UUID> versions = new VersionTable<>();
+
+    /**
+     * Constructor
+     * Maps the record and index files; the records themselves are not read
+     */
+    public MappedTeachingRequirementDAO() {
+        createDataDirectory();
+        if (!loadAll()) {
+            throw new RuntimeException("The requirement record store could not be opened.");
+        }
+    }
+
+    // Automatically create the data directory
+    private void createDataDirectory() {
+        File directory = new File(DIRECTORY_PATH);
+        if (!directory.exists()) {
+            boolean created = directory.mkdirs();
+            if (!created) {
+                System.err.println("Cannot create data directory");
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean save(TeachingRequirement requirement) {
+        UUID key = toKey(requirement.getId());
+        if (key == null || findSlot(key) >= 0) {
+            return false;
+        }
+
+        byte[] payload = encode(requirement);
+        if (payload == null) {
+            return false;
+        }
+
+        try {
+            int slot = allocateSlot();
+            try {
+                writeRecord(slot, key, payload);
+            } catch (IOException e) {
+                freeSlot(slot);
+                data.force(0, DATA_HEADER_SIZE);
+                throw e;
+            }
+            data.putInt(H_LIVE_COUNT, data.getInt(H_LIVE_COUNT) + 1);
+            data.force(0, DATA_HEADER_SIZE);
+            indexPut(key, slot);
+            requirement.setVersion(versions.next(key));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized boolean update(TeachingRequirement requirement) {
+        UUID key = toKey(requirement.getId());
+        int slot = key == null ? -1 : findSlot(key);
+        if (slot < 0) {
+            return false;
+        }
+
+        byte[] payload = encode(requirement);
+        if (payload == null) {
+            return false;
+        }
+
+        // Rewrite the record in place, then release the continuation slots of the old one
+        int oldChain = continuationOf(slot);
+        try {
+            writeRecord(slot, key, payload);
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+        freeChain(oldChain);
+        data.force(0, DATA_HEADER_SIZE);
+        requirement.setVersion(versions.next(key));
+        return true;
+    }
+
+    @Override
+    public synchronized boolean update(TeachingRequirement requirement, long expectedVersion) {
+        UUID key = toKey(requirement.getId());
+        if (key == null || findSlot(key) < 0 || versions.get(key) != expectedVersion) {
+            return false;
+        }
+        return update(requirement);
+    }
+
+    @Override
+    public synchronized boolean delete(String id) {
+        UUID key = toKey(id);
+        int slot = key == null ? -1 : findSlot(key);
+        if (slot < 0) {
+            return false;
+        }
+
+        freeChain(continuationOf(slot));
+        freeSlot(slot);
+        data.putInt(H_LIVE_COUNT, data.getInt(H_LIVE_COUNT) - 1);
+        data.force(0, DATA_HEADER_SIZE);
+        indexRemove(key);
+        versions.remove(key);
+        return true;
+    }
+
+    @Override
+    public synchronized TeachingRequirement findById(String id) {
+        UUID key = toKey(id);
+        int slot = key == null ? -1 : findSlot(key);
+        return slot < 0 ? null : readSlot(slot);
+    }
+
+    @Override
+    public synchronized List<TeachingRequirement> findAll() {
+        int highWater = data.getInt(H_HIGH_WATER);
+        List<TeachingRequirement> requirements = new ArrayList<>(data.getInt(H_LIVE_COUNT));
+        for (int slot = 0; slot < highWater; slot++) {
+            if (data.get(slotOffset(slot)) == SLOT_LIVE) {
+                TeachingRequirement requirement = readSlot(slot);
+                if (requirement != null) {
+                    requirements.add(requirement);
+                }
+            }
+        }
+        return requirements;
+    }
+
+    @Override
+    public synchronized boolean saveAll() {
+        // Every mutation is already written through the mapping; make sure it reached the disk
+        data.force();
+        index.force();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean loadAll() {
+        try {
+            closeChannels();
+            versions.clear();
+            boolean created = openData();
+            if (!openIndex()) {
+                rebuildIndex(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(data.getInt(H_LIVE_COUNT) * 4)));
+            }
+            if (created) {
+                importLegacyRequirements();
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error loading data: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Returns true if a new, empty data file was created
+    private boolean openData() throws IOException {
+        dataChannel = FileChannel.open(Paths.get(DATA_PATH), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean created = dataChannel.size() < DATA_HEADER_SIZE;
+        if (created) {
+            data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    DATA_HEADER_SIZE + (long) INITIAL_SLOTS * RECORD_SIZE);
+            data.putInt(0, DATA_MAGIC);
+            data.putInt(4, VERSION);
+            data.putInt(8, RECORD_SIZE);
+            data.putInt(H_SLOT_COUNT, INITIAL_SLOTS);
+            data.putInt(H_HIGH_WATER, 0);
+            data.putInt(H_FREE_HEAD, -1);
+            data.putInt(H_LIVE_COUNT, 0);
+            data.force();
+            return true;
+        }
+
+        MappedByteBuffer header = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, DATA_HEADER_SIZE);
+        if (header.getInt(0) != DATA_MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE) {
+            throw new IOException("Unrecognised requirement record file " + DATA_PATH);
+        }
+        data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                DATA_HEADER_SIZE + (long) header.getInt(H_SLOT_COUNT) * RECORD_SIZE);
+        return false;
+    }
+
+    // Returns false if the index is missing or out of step with the data file and must be rebuilt
+    private boolean openIndex() throws IOException {
+        Path path = Paths.get(INDEX_PATH);
+        if (!Files.exists(path)) {
+            return false;
+        }
+        indexChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (indexChannel.size() < INDEX_HEADER_SIZE) {
+            return false;
+        }
+        MappedByteBuffer header = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, INDEX_HEADER_SIZE);
+        int capacity = header.getInt(4);
+        if (header.getInt(0) != INDEX_MAGIC || Integer.bitCount(capacity) != 1
+                || indexChannel.size() < INDEX_HEADER_SIZE + (long) capacity * ENTRY_SIZE
+                || header.getInt(8) != data.getInt(H_LIVE_COUNT)) {
+            return false;
+        }
+        indexCapacity = capacity;
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE + (long) capacity * ENTRY_SIZE);
+        return true;
+    }
+
+    // Import requirements from the file store the first time the record store is created
+    private void importLegacyRequirements() {
+        if (!new File(DIRECTORY_PATH + "/requirements.json").exists()
+                && !new File(DIRECTORY_PATH + "/requirements.snapshot").exists()) {
+            return;
+        }
+        for (TeachingRequirement requirement : new FileTeachingRequirementDAO().findAll()) {
+            save(requirement);
+        }
+    }
+
+    private void closeChannels() throws IOException {
+        if (dataChannel != null) {
+            dataChannel.close();
+        }
+        if (indexChannel != null) {
+            indexChannel.close();
+        }
+    }
+
+    private static UUID toKey(String id) {
+        if (id == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: Requirement ID is not a UUID: " + id);
+            return null;
+        }
+    }
+
+    private static byte[] encode(TeachingRequirement requirement) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            RecordCodec.writeRequirement(out, requirement);
+        } catch (IOException e) {
+            System.err.println("Error encoding requirement: " + e.getMessage());
+            return null;
+        }
+        if (bytes.size() > MAX_RECORD_PAYLOAD) {
+            System.err.println("Error: Requirement " + requirement.getId() + " exceeds the "
+                    + MAX_RECORD_PAYLOAD + " byte record size");
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int slotOffset(int slot) {
+        return DATA_HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    // Write a record into its slot, spilling what does not fit into new continuation slots
+    private void writeRecord(int slot, UUID key, byte[] payload) throws IOException {
+        int chain = writeContinuations(payload);
+        int offset = slotOffset(slot);
+        data.putLong(offset + R_MSB, key.getMostSignificantBits());
+        data.putLong(offset + R_LSB, key.getLeastSignificantBits());
+        data.putInt(offset + R_LENGTH, payload.length);
+        if (chain < 0) {
+            data.put(offset + R_PAYLOAD, payload);
+            data.put(offset, SLOT_LIVE);
+            data.force(offset, R_PAYLOAD + payload.length);
+        } else {
+            data.putInt(offset + R_PAYLOAD, chain);
+            data.put(offset + R_PAYLOAD + 4, payload, 0, HEAD_CHAINED_PAYLOAD);
+            data.put(offset, SLOT_LIVE);
+            data.force(offset, RECORD_SIZE);
+            data.force(0, DATA_HEADER_SIZE);
+        }
+    }
+
+    // Write the part of a payload beyond the first slot, last chunk first so each slot knows its successor;
+    // returns the first continuation slot, or -1 if the payload fits in one slot
+    private int writeContinuations(byte[] payload) throws IOException {
+        if (payload.length <= MAX_PAYLOAD) {
+            return -1;
+        }
+        int chunks = (payload.length - HEAD_CHAINED_PAYLOAD + CONTINUATION_PAYLOAD - 1) / CONTINUATION_PAYLOAD;
+        int next = -1;
+        try {
+            for (int chunk = chunks - 1; chunk >= 0; chunk--) {
+                int from = HEAD_CHAINED_PAYLOAD + chunk * CONTINUATION_PAYLOAD;
+                int length = Math.min(CONTINUATION_PAYLOAD, payload.length - from);
+                int slot = allocateSlot();
+                int offset = slotOffset(slot);
+                data.putInt(offset + C_NEXT, next);
+                data.put(offset + C_PAYLOAD, payload, from, length);
+                data.put(offset, SLOT_CONTINUATION);
+                data.force(offset, C_PAYLOAD + length);
+                next = slot;
+            }
+        } catch (IOException e) {
+            freeChain(next);
+            data.force(0, DATA_HEADER_SIZE);
+            throw e;
+        }
+        return next;
+    }
+
+    // First continuation slot of the record in a slot, -1 if the record fits in the slot
+    private int continuationOf(int slot) {
+        int offset = slotOffset(slot);
+        return data.getInt(offset + R_LENGTH) > MAX_PAYLOAD ? data.getInt(offset + R_PAYLOAD) : -1;
+    }
+
+    private void freeChain(int slot) {
+        int highWater = data.getInt(H_HIGH_WATER);
+        while (slot >= 0 && slot < highWater && data.get(slotOffset(slot)) == SLOT_CONTINUATION) {
+            int next = data.getInt(slotOffset(slot) + C_NEXT);
+            freeSlot(slot);
+            slot = next;
+        }
+    }
+
+    // Put a slot on the free list; the caller forces the header
+    private void freeSlot(int slot) {
+        int offset = slotOffset(slot);
+        data.put(offset, SLOT_FREE);
+        data.putInt(offset + 1, data.getInt(H_FREE_HEAD));
+        data.force(offset, R_PAYLOAD);
+        data.putInt(H_FREE_HEAD, slot);
+    }
+
+    private TeachingRequirement readSlot(int slot) {
+        int offset = slotOffset(slot);
+        int length = data.getInt(offset + R_LENGTH);
+        if (length < 0 || length > MAX_RECORD_PAYLOAD) {
+            System.err.println("Warning: Corrupt requirement record in slot " + slot);
+            return null;
+        }
+        byte[] payload = new byte[length];
+        if (length <= MAX_PAYLOAD) {
+            data.get(offset + R_PAYLOAD, payload);
+        } else if (!readContinuations(offset, payload)) {
+            System.err.println("Warning: Broken continuation chain for the requirement record in slot " + slot);
+            return null;
+        }
+        try {
+            TeachingRequirement requirement =
+                    RecordCodec.readRequirement(new DataInputStream(new ByteArrayInputStream(payload)));
+            UUID key = new UUID(data.getLong(offset + R_MSB), data.getLong(offset + R_LSB));
+            requirement.setVersion(versions.get(key));
+            return requirement;
+        } catch (IOException e) {
+            System.err.println("Warning: Corrupt requirement record in slot " + slot);
+            return null;
+        }
+    }
+
+    // Gather a chained payload; false if the chain ends early or leads to a slot that is not a continuation
+    private boolean readContinuations(int offset, byte[] payload) {
+        data.get(offset + R_PAYLOAD + 4, payload, 0, HEAD_CHAINED_PAYLOAD);
+        int next = data.getInt(offset + R_PAYLOAD);
+        int highWater = data.getInt(H_HIGH_WATER);
+        for (int from = HEAD_CHAINED_PAYLOAD; from < payload.length; from += CONTINUATION_PAYLOAD) {
+            if (next < 0 || next >= highWater || data.get(slotOffset(next)) != SLOT_CONTINUATION) {
+                return false;
+            }
+            int chunk = slotOffset(next);
+            data.get(chunk + C_PAYLOAD, payload, from, Math.min(CONTINUATION_PAYLOAD, payload.length - from));
+            next = data.getInt(chunk + C_NEXT);
+        }
+        return true;
+    }
+
+    private int allocateSlot() throws IOException {
+        int free = data.getInt(H_FREE_HEAD);
+        if (free >= 0) {
+            data.putInt(H_FREE_HEAD, data.getInt(slotOffset(free) + 1));
+            return free;
+        }
+
+        int highWater = data.getInt(H_HIGH_WATER);
+        int slotCount = data.getInt(H_SLOT_COUNT);
+        if (highWater == slotCount) {
+            // Double the file and remap it
+            if ((long) slotCount * 2 * RECORD_SIZE + DATA_HEADER_SIZE > Integer.MAX_VALUE) {
+                throw new IOException("Requirement record store is full");
+            }
+            slotCount *= 2;
+            data.putInt(H_SLOT_COUNT, slotCount);
+            data.force(0, DATA_HEADER_SIZE);
+            data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    DATA_HEADER_SIZE + (long) slotCount * RECORD_SIZE);
+        }
+        data.putInt(H_HIGH_WATER, highWater + 1);
+        return highWater;
+    }
+
+    // Spread the UUID bits over the table
+    private int home(UUID key) {
+        long h = key.getMostSignificantBits() ^ key.getLeastSignificantBits();
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        return (int) h & (indexCapacity - 1);
+    }
+
+    private static int entryOffset(int position) {
+        return INDEX_HEADER_SIZE + position * ENTRY_SIZE;
+    }
+
+    private boolean matches(int offset, UUID key) {
+        return index.getLong(offset) == key.getMostSignificantBits()
+                && index.getLong(offset + 8) == key.getLeastSignificantBits();
+    }
+
+    private int findSlot(UUID key) {
+        int position = home(key);
+        for (int probes = 0; probes < indexCapacity; probes++) {
+            int offset = entryOffset(position);
+            int ref = index.getInt(offset + 16);
+            if (ref == EMPTY) {
+                return -1;
+            }
+            if (ref != TOMBSTONE && matches(offset, key)) {
+                return ref - 1;
+            }
+            position = (position + 1) & (indexCapacity - 1);
+        }
+        return -1;
+    }
+
+    private void indexPut(UUID key, int slot) throws IOException {
+        int size = index.getInt(8);
+        int tombstones = index.getInt(12);
+        if ((size + tombstones + 1) * 2 > indexCapacity) {
+            rebuildIndex(size * 4 > indexCapacity ? indexCapacity * 2 : indexCapacity);
+            // The rebuild picked up the record from the data file already
+            return;
+        }
+
+        int position = home(key);
+        while (true) {
+            int offset = entryOffset(position);
+            int ref = index.getInt(offset + 16);
+            if (ref == EMPTY || ref == TOMBSTONE) {
+                index.putLong(offset, key.getMostSignificantBits());
+                index.putLong(offset + 8, key.getLeastSignificantBits());
+                index.putInt(offset + 16, slot + 1);
+                index.force(offset, ENTRY_SIZE);
+                if (ref == TOMBSTONE) {
+                    index.putInt(12, tombstones - 1);
+                }
+                index.putInt(8, size + 1);
+                index.force(0, INDEX_HEADER_SIZE);
+                return;
+            }
+            position = (position + 1) & (indexCapacity - 1);
+        }
+    }
+
+    private void indexRemove(UUID key) {
+        int position = home(key);
+        for (int probes = 0; probes < indexCapacity; probes++) {
+            int offset = entryOffset(position);
+            int ref = index.getInt(offset + 16);
+            if (ref == EMPTY) {
+                return;
+            }
+            if (ref != TOMBSTONE && matches(offset, key)) {
+                index.putInt(offset + 16, TOMBSTONE);
+                index.force(offset, ENTRY_SIZE);
+                index.putInt(8, index.getInt(8) - 1);
+                index.putInt(12, index.getInt(12) + 1);
+                index.force(0, INDEX_HEADER_SIZE);
+                return;
+            }
+            position = (position + 1) & (indexCapacity - 1);
+        }
+    }
+
+    // Rebuild the index from the UUIDs stored in the data file, then swap it in atomically
+    private void rebuildIndex(int capacity) throws IOException {
+        Path target = Paths.get(INDEX_PATH);
+        Path temp = Paths.get(INDEX_PATH + ".tmp");
+        int highWater = data.getInt(H_HIGH_WATER);
+        int live = 0;
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            index = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE + (long) capacity * ENTRY_SIZE);
+            indexCapacity = capacity;
+            for (int slot = 0; slot < highWater; slot++) {
+                int offset = slotOffset(slot);
+                if (data.get(offset) != SLOT_LIVE) {
+                    continue;
+                }
+                UUID key = new UUID(data.getLong(offset + R_MSB), data.getLong(offset + R_LSB));
+                int position = home(key);
+                while (index.getInt(entryOffset(position) + 16) != EMPTY) {
+                    position = (position + 1) & (capacity - 1);
+                }
+                index.putLong(entryOffset(position), key.getMostSignificantBits());
+                index.putLong(entryOffset(position) + 8, key.getLeastSignificantBits());
+                index.putInt(entryOffset(position) + 16, slot + 1);
+                live++;
+            }
+            index.putInt(0, INDEX_MAGIC);
+            index.putInt(4, capacity);
+            index.putInt(8, live);
+            index.putInt(12, 0);
+            index.force();
+        }
+
+        if (indexChannel != null) {
+            indexChannel.close();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexChannel = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (data.getInt(H_LIVE_COUNT) != live) {
+            data.putInt(H_LIVE_COUNT, live);
+            data.force(0, DATA_HEADER_SIZE);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package dao.impl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only operation journal
+ * Records put/delete operations since the last snapshot so that a single
+ * mutation costs one small append instead of rewriting the whole data file.
+ *
+ * Record layout: payload length (int), operation (byte), payload, CRC32 of operation and payload (int).
+ * A torn or corrupt record at the tail is treated as the end of the journal.
+ */
+final class OperationJournal implements Closeable {
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    // Upper bound used to reject a garbage length read from a torn record
+    private static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * Writes the payload of a single journal record
+     */
+    interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    /**
+     * Receives journal records during replay
+     */
+    interface Replayer {
+        void put(DataInput in) throws IOException;
+
+        void delete(DataInput in) throws IOException;
+    }
+
+    private final Path path;
+    // Journal detached by a compaction that has not yet finished writing its snapshot
+    private final Path rotatedPath;
+    private FileChannel channel;
+    private int recordCount;
+    // Records appended over the journal's lifetime, and how many of them are known to be on disk
+    private long appended;
+    private long synced;
+    // Held by the one caller of syncAppended() forcing the journal, without holding the journal itself
+    private final Object syncLock = new Object();
+
+    /**
+     * Constructor
+     *
+     * @param path Location of the journal file
+     * @throws IOException if the journal cannot be opened
+     */
+    OperationJournal(Path path) throws IOException {
+        this.path = path;
+        this.rotatedPath = path.resolveSibling(path.getFileName() + ".compacting");
+        this.channel = open(path);
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        FileChannel fc = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fc.position(fc.size());
+        return fc;
+    }
+
+    /**
+     * Append a record
+     * The record is encoded before the journal is taken, so concurrent appends wait only for the write.
+     *
+     * @param operation {@link #PUT} or {@link #DELETE}
+     * @param body Writer for the record payload
+     * @param force true to force the record to disk before returning, false to leave it to {@link #sync()}
+     *              or {@link #syncAppended()}
+     * @throws IOException if the record cannot be encoded or written
+     */
+    void append(byte operation, RecordWriter body, boolean force) throws IOException {
+        append(encode(operation, body), force);
+    }
+
+    /**
+     * Encode a record for {@link #append(byte[], boolean)}
+     *
+     * @param operation {@link #PUT} or {@link #DELETE}
+     * @param body Writer for the record payload
+     * @return The record as written to the journal
+     * @throws IOException if the payload cannot be encoded
+     */
+    static byte[] encode(byte operation, RecordWriter body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeByte(operation);
+        body.write(out);
+
+        CRC32 crc = new CRC32();
+        byte[] record = bytes.toByteArray();
+        crc.update(record, 4, record.length - 4);
+        out.writeInt((int) crc.getValue());
+
+        byte[] encoded = bytes.toByteArray();
+        ByteBuffer.wrap(encoded).putInt(0, record.length - 5);
+        return encoded;
+    }
+
+    /**
+     * Append a record encoded by {@link #encode(byte, RecordWriter)}
+     *
+     * @param record The encoded record
+     * @param force true to force the record to disk before returning, false to leave it to {@link #sync()}
+     *              or {@link #syncAppended()}
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void append(byte[] record, boolean force) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (force) {
+            channel.force(false);
+        }
+        recordCount++;
+        appended++;
+    }
+
+    /**
+     * Force every appended record to disk
+     *
+     * @throws IOException if the journal cannot be synced
+     */
+    synchronized void sync() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Force every record appended so far to disk, sharing the force with concurrent callers
+     * Unlike {@link #sync()}, the journal is not held while the force runs, so appends carry on
+     * meanwhile. Callers that arrive during a force wait for it, and the first of them then forces
+     * once for all the records appended in the meantime; the others find their records already on disk.
+     *
+     * @throws IOException if the journal cannot be synced
+     */
+    void syncAppended() throws IOException {
+        // What this caller needs is fixed on arrival; what a force covers is fixed when it starts
+        long needed;
+        synchronized (this) {
+            needed = appended;
+        }
+        synchronized (syncLock) {
+            if (synced >= needed) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                target = appended;
+                current = channel;
+            }
+            try {
+                current.force(false);
+            } catch (ClosedChannelException e) {
+                synchronized (this) {
+                    // A rotation forces the journal before closing it; anything else is a real failure
+                    if (channel == current) {
+                        throw e;
+                    }
+                }
+            }
+            synced = target;
+        }
+    }
+
+    /**
+     * Replay the journal, including any journal left over from an unfinished compaction
+     *
+     * @param replayer Receiver of the records, in the order they were written
+     * @throws IOException if the journal cannot be read
+     */
+    synchronized void replay(Replayer replayer) throws IOException {
+        recordCount = 0;
+        if (Files.exists(rotatedPath)) {
+            replayFile(rotatedPath, replayer);
+        }
+        long validLength = replayFile(path, replayer);
+        if (validLength < channel.size()) {
+            System.err.println("Warning: Discarding torn journal tail of " + path);
+            channel.truncate(validLength);
+        }
+        channel.position(channel.size());
+    }
+
+    // Returns the length of the valid prefix of the file
+    private long replayFile(Path file, Replayer replayer) throws IOException {
+        long offset = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length < 0 || length > MAX_RECORD_LENGTH) {
+                    break;
+                }
+                byte[] record = new byte[length + 1];
+                int stored;
+                try {
+                    in.readFully(record);
+                    stored = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(record);
+                if ((int) crc.getValue() != stored) {
+                    break;
+                }
+
+                DataInputStream payload = new DataInputStream(new ByteArrayInputStream(record, 1, length));
+                if (record[0] == PUT) {
+                    replayer.put(payload);
+                } else if (record[0] == DELETE) {
+                    replayer.delete(payload);
+                }
+                offset += length + 9;
+                recordCount++;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Detach the current journal so a snapshot can be written without blocking new appends
+     * Records appended afterwards go to a fresh journal.
+     *
+     * @throws IOException if the journal cannot be rotated
+     */
+    synchronized void rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        if (Files.exists(rotatedPath)) {
+            // A previous compaction failed; keep its records and add ours behind them
+            try (FileChannel rotated = FileChannel.open(rotatedPath, StandardOpenOption.APPEND)) {
+                Files.copy(path, Channels.newOutputStream(rotated));
+            }
+            Files.delete(path);
+        } else {
+            Files.move(path, rotatedPath);
+        }
+        channel = open(path);
+        recordCount = 0;
+    }
+
+    /**
+     * Delete the journal detached by {@link #rotate()} once its records are in a snapshot
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    synchronized void discardRotated() throws IOException {
+        Files.deleteIfExists(rotatedPath);
+    }
+
+    /**
+     * Check whether a detached journal is still waiting to be folded into a snapshot
+     *
+     * @return true if a detached journal exists
+     */
+    synchronized boolean hasRotated() {
+        return Files.exists(rotatedPath);
+    }
+
+    /**
+     * Drop every record, after a full snapshot has been written
+     *
+     * @throws IOException if the journal cannot be truncated
+     */
+    synchronized void reset() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        Files.deleteIfExists(rotatedPath);
+        recordCount = 0;
+    }
+
+    /**
+     * Check whether the journal files on disk hold nothing, before or after replay
+     *
+     * @return true if the journal is empty and no detached journal exists
+     * @throws IOException if the journal size cannot be read
+     */
+    synchronized boolean isEmpty() throws IOException {
+        return channel.size() == 0 && !Files.exists(rotatedPath);
+    }
+
+    /**
+     * Get the number of records appended since the last rotation or reset
+     *
+     * @return record count
+     */
+    synchronized int size() {
+        return recordCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
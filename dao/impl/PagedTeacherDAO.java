@@ -0,0 +1,614 @@
+package dao.impl;
+
+import dao.Page;
+import dao.TeacherDAO;
+import model.Teacher;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Lazily paged Teacher DAO Implementation
+ * Teachers stay on disk in an append-only page file and are located through a sorted,
+ * memory-mapped ID index. Only the index header is read at start-up; teachers are paged in
+ * on demand and kept in a bounded LRU cache, so start-up time and resident memory do not
+ * grow with the size of the roster.
+ *
+ * Page file: header (magic, generation), then records (id, payload length or -1 for a deletion, payload).
+ * Index file: header (magic, generation, entry count, covered page file length), then (id, offset)
+ * entries sorted by id. Records appended after the index was written are kept in a small overlay.
+ */
+public class PagedTeacherDAO implements TeacherDAO {
+    private static final String DIRECTORY_PATH = "data";
+    private static final String PAGES_PATH = DIRECTORY_PATH + "/teachers.pages";
+    private static final String INDEX_PATH = DIRECTORY_PATH + "/teachers.pages.idx";
+
+    private static final int PAGES_MAGIC = 0x50545450;
+    private static final int INDEX_MAGIC = 0x50545458;
+    private static final int PAGES_HEADER_SIZE = 12;
+    private static final int INDEX_HEADER_SIZE = 24;
+    private static final int ENTRY_SIZE = 12;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final long DELETED = -1;
+
+    // Overlay size at which the page file is compacted and the index rewritten
+    private static final int COMPACTION_THRESHOLD = 10000;
+
+    private final int cacheCapacity;
+    private final LinkedHashMap<Integer, Teacher> cache;
+    private long cacheHits;
+    private long cacheMisses;
+
+    private FileChannel pages;
+    private MappedByteBuffer index;
+    private int indexCount;
+    private long generation;
+    // Offsets of records appended since the index was written, DELETED for removed teachers
+    private final Map<Integer, Long> overlay = new HashMap<>();
+    // Versions of the teachers changed since the files were opened
+    private final VersionTable<Integer> versions = new VersionTable<>();
+
+    /**
+     * Constructor
+     * @param cacheCapacity maximum number of teachers kept in memory
+     */
+    public PagedTeacherDAO(int cacheCapacity) {
+        if (cacheCapacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.cacheCapacity = cacheCapacity;
+        this.cache = new LinkedHashMap<Integer, Teacher>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Teacher> eldest) {
+                return size() > PagedTeacherDAO.this.cacheCapacity;
+            }
+        };
+        createDataDirectory();
+        if (!loadAll()) {
+            throw new RuntimeException("The teacher page file could not be opened.");
+        }
+    }
+
+    // Automatically create data directory
+    private void createDataDirectory() {
+        File directory = new File(DIRECTORY_PATH);
+        if (!directory.exists()) {
+            boolean created = directory.mkdirs();
+            if (!created) {
+                throw new RuntimeException("The data directory could not be created.");
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean save(Teacher teacher) {
+        if (!append(teacher.getId(), teacher)) {
+            return false;
+        }
+        teacher.setVersion(versions.next(teacher.getId()));
+        cache.put(teacher.getId(), teacher);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean update(Teacher teacher) {
+        if (locate(teacher.getId()) == DELETED) {
+            return false;
+        }
+        return save(teacher);
+    }
+
+    @Override
+    public synchronized boolean update(Teacher teacher, long expectedVersion) {
+        if (locate(teacher.getId()) == DELETED || versions.get(teacher.getId()) != expectedVersion) {
+            return false;
+        }
+        return save(teacher);
+    }
+
+    @Override
+    public synchronized boolean deleteById(int id) {
+        if (locate(id) == DELETED || !append(id, null)) {
+            return false;
+        }
+        cache.remove(id);
+        versions.remove(id);
+        return true;
+    }
+
+    @Override
+    public boolean delete(int id) {
+        return deleteById(id);
+    }
+
+    @Override
+    public synchronized Teacher findById(int id) {
+        Teacher cached = cache.get(id);
+        if (cached != null) {
+            cacheHits++;
+            return cached;
+        }
+        cacheMisses++;
+
+        long offset = locate(id);
+        if (offset == DELETED) {
+            return null;
+        }
+        Teacher teacher = readRecord(offset);
+        if (teacher != null) {
+            cache.put(id, teacher);
+        }
+        return teacher;
+    }
+
+    /**
+     * Get all teachers, ordered by ID
+     * Teachers are paged in one by one and are not added to the cache.
+     */
+    @Override
+    public synchronized List<Teacher> getAll() {
+        List<Teacher> teachers = new ArrayList<>();
+        for (Map.Entry<Integer, Long> entry : liveOffsets().entrySet()) {
+            Teacher teacher = cache.get(entry.getKey());
+            if (teacher == null) {
+                teacher = readRecord(entry.getValue());
+            }
+            if (teacher != null) {
+                teachers.add(teacher);
+            }
+        }
+        return teachers;
+    }
+
+    @Override
+    public List<Teacher> findAll() {
+        return getAll();
+    }
+
+    /**
+     * Visit all teachers in ID order, paging them in one at a time
+     */
+    @Override
+    public synchronized void forEach(Consumer<? super Teacher> action) {
+        walk(Long.MIN_VALUE, (id, offset) -> {
+            Teacher teacher = pagedIn(id, offset);
+            if (teacher != null) {
+                action.accept(teacher);
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public synchronized Page<Teacher> page(int offset, int limit, Comparator<? super Teacher> order) {
+        if (order != null && order != ID_ORDER) {
+            return TeacherDAO.super.page(offset, limit, order);
+        }
+        if (offset < 0 || limit < 1) {
+            throw new IllegalArgumentException("The offset must not be negative and the limit must be positive");
+        }
+        return pageFrom(Long.MIN_VALUE, offset, limit, offset);
+    }
+
+    /**
+     * Get the page after a teacher
+     * In ID order the page starts with a binary search of the index, so only its own teachers are read.
+     */
+    @Override
+    public synchronized Page<Teacher> pageAfter(Teacher last, int limit, Comparator<? super Teacher> order) {
+        if (order != null && order != ID_ORDER) {
+            return TeacherDAO.super.pageAfter(last, limit, order);
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit must be positive");
+        }
+        return last == null ? pageFrom(Long.MIN_VALUE, 0, limit, 0) : pageFrom(last.getId(), 0, limit, -1);
+    }
+
+    private Page<Teacher> pageFrom(long after, int skip, int limit, int offset) {
+        List<Teacher> teachers = new ArrayList<>(Math.min(limit, 1024));
+        int[] skipped = {0};
+        boolean[] more = {false};
+        walk(after, (id, recordOffset) -> {
+            if (skipped[0] < skip) {
+                skipped[0]++;
+                return true;
+            }
+            if (teachers.size() == limit) {
+                more[0] = true;
+                return false;
+            }
+            Teacher teacher = pagedIn(id, recordOffset);
+            if (teacher != null) {
+                teachers.add(teacher);
+            }
+            return true;
+        });
+        return new Page<>(teachers, offset, more[0]);
+    }
+
+    // The cached teacher, or the record read without adding it to the cache
+    private Teacher pagedIn(int id, long offset) {
+        Teacher teacher = cache.get(id);
+        return teacher != null ? teacher : readRecord(offset);
+    }
+
+    /**
+     * Compact the page file down to the live teachers and rewrite the index
+     */
+    @Override
+    public synchronized boolean saveAll() {
+        try {
+            compact();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Reopen the page file and index; teachers are not read until they are requested
+     */
+    @Override
+    public synchronized boolean loadAll() {
+        try {
+            if (pages != null) {
+                pages.close();
+            }
+            cache.clear();
+            overlay.clear();
+            versions.clear();
+
+            boolean created = !Files.exists(Paths.get(PAGES_PATH));
+            openPages(created);
+            if (!openIndex()) {
+                // The index is missing or belongs to another generation of the page file
+                indexCount = 0;
+                index = null;
+                scanPages(PAGES_HEADER_SIZE);
+                compact();
+            }
+            if (created) {
+                importTeachers();
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error loading data: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public Teacher getTeacherById(String teacherId) {
+        try {
+            return findById(Integer.parseInt(teacherId));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the number of lookups answered from the cache
+     * @return cache hit count
+     */
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Get the number of lookups that had to read the page file
+     * @return cache miss count
+     */
+    public synchronized long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * Get the number of teachers currently cached
+     * @return cache size
+     */
+    public synchronized int getCacheSize() {
+        return cache.size();
+    }
+
+    private void openPages(boolean created) throws IOException {
+        pages = FileChannel.open(Paths.get(PAGES_PATH), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(PAGES_HEADER_SIZE);
+        if (created || pages.size() < PAGES_HEADER_SIZE) {
+            generation = System.currentTimeMillis();
+            header.putInt(PAGES_MAGIC).putLong(generation).flip();
+            pages.truncate(0);
+            pages.write(header, 0);
+            pages.force(true);
+            return;
+        }
+        pages.read(header, 0);
+        header.flip();
+        if (header.getInt() != PAGES_MAGIC) {
+            throw new IOException("Unrecognised teacher page file " + PAGES_PATH);
+        }
+        generation = header.getLong();
+    }
+
+    // Returns false if the index must be rebuilt from the page file
+    private boolean openIndex() throws IOException {
+        Path path = Paths.get(INDEX_PATH);
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < INDEX_HEADER_SIZE) {
+                return false;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int count = mapped.getInt(12);
+            long covered = mapped.getLong(16);
+            if (mapped.getInt(0) != INDEX_MAGIC || mapped.getLong(4) != generation
+                    || channel.size() < INDEX_HEADER_SIZE + (long) count * ENTRY_SIZE || covered > pages.size()) {
+                return false;
+            }
+            index = mapped;
+            indexCount = count;
+            // Pick up the records appended since the index was written
+            scanPages(covered);
+            return true;
+        }
+    }
+
+    // Read record headers from the given offset to the end of the page file into the overlay
+    private void scanPages(long from) throws IOException {
+        long offset = from;
+        long size = pages.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (offset + RECORD_HEADER_SIZE <= size) {
+            header.clear();
+            pages.read(header, offset);
+            header.flip();
+            int id = header.getInt();
+            int length = header.getInt();
+            long next = offset + RECORD_HEADER_SIZE + Math.max(length, 0);
+            if (length < -1 || next > size) {
+                break;
+            }
+            overlay.put(id, length < 0 ? DELETED : offset);
+            offset = next;
+        }
+        if (offset < size) {
+            System.err.println("Warning: Discarding torn tail of " + PAGES_PATH);
+            pages.truncate(offset);
+        }
+    }
+
+    // Import the teachers of the file store the first time the page file is created
+    private void importTeachers() throws IOException {
+        if (!new File(DIRECTORY_PATH + "/teachers.snapshot").exists()
+                && !new File(DIRECTORY_PATH + "/teachers.json").exists()) {
+            return;
+        }
+        for (Teacher teacher : new FileTeacherDAO().getAll()) {
+            append(teacher.getId(), teacher);
+        }
+        compact();
+    }
+
+    // Offset of the latest record of a live teacher, or DELETED
+    private long locate(int id) {
+        Long recent = overlay.get(id);
+        if (recent != null) {
+            return recent;
+        }
+        int low = 0;
+        int high = indexCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = index.getInt(INDEX_HEADER_SIZE + mid * ENTRY_SIZE);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return index.getLong(INDEX_HEADER_SIZE + mid * ENTRY_SIZE + 4);
+            }
+        }
+        return DELETED;
+    }
+
+    private interface EntryVisitor {
+        boolean visit(int id, long offset);
+    }
+
+    // Visit the live teachers with IDs above a bound in ID order, merging the index with the overlay,
+    // until the visitor returns false
+    private void walk(long after, EntryVisitor visitor) {
+        int[] recent = new int[overlay.size()];
+        int recentCount = 0;
+        for (int id : overlay.keySet()) {
+            if (id > after) {
+                recent[recentCount++] = id;
+            }
+        }
+        Arrays.sort(recent, 0, recentCount);
+
+        // First index entry above the bound
+        int low = 0;
+        int high = indexCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (index.getInt(INDEX_HEADER_SIZE + mid * ENTRY_SIZE) <= after) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int i = low;
+        int j = 0;
+        while (i < indexCount || j < recentCount) {
+            int indexedId = i < indexCount ? index.getInt(INDEX_HEADER_SIZE + i * ENTRY_SIZE) : 0;
+            int id;
+            long offset;
+            if (j < recentCount && (i >= indexCount || recent[j] <= indexedId)) {
+                id = recent[j++];
+                offset = overlay.get(id);
+                if (i < indexCount && indexedId == id) {
+                    i++;
+                }
+            } else {
+                id = indexedId;
+                offset = index.getLong(INDEX_HEADER_SIZE + i * ENTRY_SIZE + 4);
+                i++;
+            }
+            if (offset != DELETED && !visitor.visit(id, offset)) {
+                return;
+            }
+        }
+    }
+
+    // Current offsets of all live teachers, ordered by ID
+    private SortedMap<Integer, Long> liveOffsets() {
+        SortedMap<Integer, Long> offsets = new TreeMap<>();
+        for (int i = 0; i < indexCount; i++) {
+            int entry = INDEX_HEADER_SIZE + i * ENTRY_SIZE;
+            offsets.put(index.getInt(entry), index.getLong(entry + 4));
+        }
+        for (Map.Entry<Integer, Long> entry : overlay.entrySet()) {
+            if (entry.getValue() == DELETED) {
+                offsets.remove(entry.getKey());
+            } else {
+                offsets.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return offsets;
+    }
+
+    // Append a teacher record, or a deletion when teacher is null
+    private boolean append(int id, Teacher teacher) {
+        try {
+            byte[] payload = teacher == null ? new byte[0] : encode(teacher);
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+            record.putInt(id).putInt(teacher == null ? -1 : payload.length).put(payload).flip();
+
+            long offset = pages.size();
+            while (record.hasRemaining()) {
+                pages.write(record, offset + record.position());
+            }
+            pages.force(false);
+            overlay.put(id, teacher == null ? DELETED : offset);
+
+            if (overlay.size() >= COMPACTION_THRESHOLD) {
+                compact();
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static byte[] encode(Teacher teacher) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            RecordCodec.writeTeacher(out, teacher);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Teacher readRecord(long offset) {
+        try {
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            readFully(header, offset);
+            header.flip();
+            header.getInt();
+            int length = header.getInt();
+            if (length < 0) {
+                return null;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, offset + RECORD_HEADER_SIZE);
+            Teacher teacher = RecordCodec.readTeacher(new DataInputStream(new ByteArrayInputStream(payload.array())));
+            teacher.setVersion(versions.get(teacher.getId()));
+            return teacher;
+        } catch (IOException e) {
+            System.err.println("Error loading teacher record: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (pages.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of " + PAGES_PATH);
+            }
+        }
+    }
+
+    // Copy the live records into a new page file of the next generation and write its index
+    private void compact() throws IOException {
+        SortedMap<Integer, Long> live = liveOffsets();
+        long nextGeneration = Math.max(generation + 1, System.currentTimeMillis());
+        Path pagesTemp = Paths.get(PAGES_PATH + ".tmp");
+        Path indexTemp = Paths.get(INDEX_PATH + ".tmp");
+
+        ByteBuffer indexBuffer = ByteBuffer.allocate(INDEX_HEADER_SIZE + live.size() * ENTRY_SIZE);
+        indexBuffer.position(INDEX_HEADER_SIZE);
+        long covered;
+        try (FileChannel target = FileChannel.open(pagesTemp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(PAGES_HEADER_SIZE);
+            header.putInt(PAGES_MAGIC).putLong(nextGeneration).flip();
+            target.write(header);
+
+            for (Map.Entry<Integer, Long> entry : live.entrySet()) {
+                ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+                readFully(recordHeader, entry.getValue());
+                recordHeader.flip();
+                int length = recordHeader.getInt(4);
+                ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+                readFully(record, entry.getValue());
+                record.flip();
+
+                indexBuffer.putInt(entry.getKey()).putLong(target.position());
+                while (record.hasRemaining()) {
+                    target.write(record);
+                }
+            }
+            covered = target.position();
+            target.force(true);
+        }
+
+        indexBuffer.putInt(0, INDEX_MAGIC).putLong(4, nextGeneration).putInt(12, live.size()).putLong(16, covered);
+        indexBuffer.position(0);
+        try (FileChannel target = FileChannel.open(indexTemp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (indexBuffer.hasRemaining()) {
+                target.write(indexBuffer);
+            }
+            target.force(true);
+        }
+
+        // The index is installed first; a crash before the page file follows leaves a
+        // generation mismatch, which makes the next start rebuild the index
+        Files.move(indexTemp, Paths.get(INDEX_PATH), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        pages.close();
+        Files.move(pagesTemp, Paths.get(PAGES_PATH), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        pages = FileChannel.open(Paths.get(PAGES_PATH), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        generation = nextGeneration;
+        overlay.clear();
+        try (FileChannel channel = FileChannel.open(Paths.get(INDEX_PATH), StandardOpenOption.READ)) {
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        indexCount = live.size();
+    }
+}
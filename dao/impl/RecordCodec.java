@@ -0,0 +1,180 @@
+package dao.impl;
+
+import model.Teacher;
+import model.TeachingRequirement;
+import model.TrainingSession;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact binary encoding of model objects
+ * Used by the file-based DAOs for journal records and other binary files
+ */
+final class RecordCodec {
+
+    private RecordCodec() {
+    }
+
+    /**
+     * Write a teacher as a binary record
+     *
+     * @param out Destination
+     * @param teacher Teacher to encode
+     * @throws IOException if writing fails
+     */
+    static void writeTeacher(DataOutput out, Teacher teacher) throws IOException {
+        out.writeInt(teacher.getId());
+        writeString(out, teacher.getName());
+        writeString(out, teacher.getContact());
+        out.writeBoolean(teacher.isAvailable());
+        writeString(out, teacher.getQualifications());
+    }
+
+    /**
+     * Read a teacher written by {@link #writeTeacher(DataOutput, Teacher)}
+     *
+     * @param in Source
+     * @return Decoded teacher
+     * @throws IOException if reading fails
+     */
+    static Teacher readTeacher(DataInput in) throws IOException {
+        int id = in.readInt();
+        String name = readString(in);
+        String contact = readString(in);
+        boolean available = in.readBoolean();
+        String qualifications = readString(in);
+        return new Teacher(id, name, contact, available, qualifications);
+    }
+
+    /**
+     * Write a teaching requirement as a binary record
+     *
+     * @param out Destination
+     * @param requirement Requirement to encode
+     * @throws IOException if writing fails
+     */
+    static void writeRequirement(DataOutput out, TeachingRequirement requirement) throws IOException {
+        writeString(out, requirement.getId());
+        writeString(out, requirement.getCourseName());
+        writeString(out, requirement.getCourseCode());
+        writeString(out, requirement.getSchedule());
+        writeString(out, requirement.getLocation());
+        writeStringList(out, requirement.getRequiredQualifications());
+        writeString(out, requirement.getStatus().name());
+        writeStringList(out, requirement.getAssignedTeacherIds());
+        writeString(out, requirement.getNotes());
+        out.writeLong(requirement.getCreatedTimestamp());
+        out.writeLong(requirement.getLastModifiedTimestamp());
+    }
+
+    /**
+     * Read a teaching requirement written by {@link #writeRequirement(DataOutput, TeachingRequirement)}
+     *
+     * @param in Source
+     * @return Decoded requirement
+     * @throws IOException if reading fails
+     */
+    static TeachingRequirement readRequirement(DataInput in) throws IOException {
+        String id = readString(in);
+        String courseName = readString(in);
+        String courseCode = readString(in);
+        String schedule = readString(in);
+        String location = readString(in);
+        List<String> qualifications = readStringList(in);
+        TeachingRequirement.RequirementStatus status;
+        try {
+            status = TeachingRequirement.RequirementStatus.valueOf(readString(in));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IOException("Unknown requirement status", e);
+        }
+        List<String> assignedTeacherIds = readStringList(in);
+        String notes = readString(in);
+        long created = in.readLong();
+        long lastModified = in.readLong();
+        return new TeachingRequirement(id, courseName, courseCode, schedule, location, qualifications,
+                status, assignedTeacherIds, notes, created, lastModified);
+    }
+
+    /**
+     * Write a training session as a binary record
+     *
+     * @param out Destination
+     * @param session Session to encode
+     * @throws IOException if writing fails
+     */
+    static void writeTrainingSession(DataOutput out, TrainingSession session) throws IOException {
+        writeString(out, session.getId());
+        writeString(out, session.getName());
+        writeString(out, session.getDate());
+        writeString(out, session.getLocation());
+        writeString(out, session.getContent());
+        writeStringList(out, new ArrayList<>(session.getParticipatingTeacherIds()));
+    }
+
+    /**
+     * Read a training session written by {@link #writeTrainingSession(DataOutput, TrainingSession)}
+     *
+     * @param in Source
+     * @return Decoded session
+     * @throws IOException if reading fails
+     */
+    static TrainingSession readTrainingSession(DataInput in) throws IOException {
+        String id = readString(in);
+        String name = readString(in);
+        String date = readString(in);
+        String location = readString(in);
+        String content = readString(in);
+        List<String> participants = readStringList(in);
+        return new TrainingSession(id, name, date, location, content, participants);
+    }
+
+    static void writeStringList(DataOutput out, Collection<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    static List<String> readStringList(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return new ArrayList<>();
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    // Strings are stored as a UTF-8 byte count (-1 for null) followed by the bytes
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
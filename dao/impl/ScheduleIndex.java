@@ -0,0 +1,136 @@
+package dao.impl;
+
+import model.TeachingRequirement;
+import model.TimeSlot;
+import model.WeeklySchedule;
+import util.IntervalTree;
+
+import java.util.*;
+
+/**
+ * Interval-tree index of requirement schedules
+ * Keeps one interval tree per location and one per assigned teacher, on an axis of
+ * minutes since Monday 0:00, so the requirements that overlap a schedule at a location
+ * or for a teacher are found in O(log n + k) per time slot.
+ */
+final class ScheduleIndex {
+    private final Map<String, IntervalTree<String>> byLocation = new HashMap<>();
+    private final Map<String, IntervalTree<String>> byTeacher = new HashMap<>();
+    // What each requirement was indexed under, so that it can be unindexed after it has changed
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private static final class Entry {
+        final WeeklySchedule schedule;
+        final String location;
+        final List<String> teacherIds;
+
+        Entry(WeeklySchedule schedule, String location, List<String> teacherIds) {
+            this.schedule = schedule;
+            this.location = location;
+            this.teacherIds = teacherIds;
+        }
+    }
+
+    /**
+     * Index or re-index a requirement
+     *
+     * @param requirement Requirement to index
+     */
+    void put(TeachingRequirement requirement) {
+        remove(requirement.getId());
+        WeeklySchedule schedule = requirement.getWeeklySchedule();
+        if (schedule.isEmpty()) {
+            return;
+        }
+        String location = TeachingRequirement.locationKey(requirement.getLocation());
+        List<String> teacherIds = new ArrayList<>(requirement.getAssignedTeacherIds());
+        entries.put(requirement.getId(), new Entry(schedule, location, teacherIds));
+
+        if (location != null) {
+            add(byLocation, location, schedule, requirement.getId());
+        }
+        for (String teacherId : teacherIds) {
+            add(byTeacher, teacherId, schedule, requirement.getId());
+        }
+    }
+
+    /**
+     * Remove a requirement from the index
+     *
+     * @param id Requirement ID
+     */
+    void remove(String id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        if (entry.location != null) {
+            delete(byLocation, entry.location, entry.schedule, id);
+        }
+        for (String teacherId : entry.teacherIds) {
+            delete(byTeacher, teacherId, entry.schedule, id);
+        }
+    }
+
+    void clear() {
+        byLocation.clear();
+        byTeacher.clear();
+        entries.clear();
+    }
+
+    /**
+     * Find the requirements at a location whose schedules overlap a schedule
+     *
+     * @param location Location, compared after normalisation
+     * @param schedule Schedule to check
+     * @return IDs of the overlapping requirements
+     */
+    Set<String> findAtLocation(String location, WeeklySchedule schedule) {
+        String key = TeachingRequirement.locationKey(location);
+        return key == null ? Collections.emptySet() : find(byLocation.get(key), schedule);
+    }
+
+    /**
+     * Find the requirements assigned to a teacher whose schedules overlap a schedule
+     *
+     * @param teacherId Teacher ID
+     * @param schedule Schedule to check
+     * @return IDs of the overlapping requirements
+     */
+    Set<String> findForTeacher(String teacherId, WeeklySchedule schedule) {
+        return find(byTeacher.get(teacherId), schedule);
+    }
+
+    private static Set<String> find(IntervalTree<String> tree, WeeklySchedule schedule) {
+        if (tree == null) {
+            return Collections.emptySet();
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        for (TimeSlot slot : schedule.getSlots()) {
+            tree.query(slot.getWeekStart(), slot.getWeekEnd(), ids::add);
+        }
+        return ids;
+    }
+
+    private static void add(Map<String, IntervalTree<String>> trees, String resource,
+                            WeeklySchedule schedule, String id) {
+        IntervalTree<String> tree = trees.computeIfAbsent(resource, r -> new IntervalTree<>());
+        for (TimeSlot slot : schedule.getSlots()) {
+            tree.insert(slot.getWeekStart(), slot.getWeekEnd(), id);
+        }
+    }
+
+    private static void delete(Map<String, IntervalTree<String>> trees, String resource,
+                               WeeklySchedule schedule, String id) {
+        IntervalTree<String> tree = trees.get(resource);
+        if (tree == null) {
+            return;
+        }
+        for (TimeSlot slot : schedule.getSlots()) {
+            tree.remove(slot.getWeekStart(), slot.getWeekEnd(), id);
+        }
+        if (tree.isEmpty()) {
+            trees.remove(resource);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package dao.impl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented, checksummed snapshot file
+ * Records are split into independent segments, each with its own header, record count
+ * and CRC32, so segments can be decoded in parallel and a damaged segment is detected
+ * without losing the others. Snapshots are written to a temporary file, forced to disk
+ * and atomically renamed over the previous snapshot. Writes do not wait for each other;
+ * owners that write from more than one thread decide which snapshot is renamed last.
+ *
+ * File layout: magic, version, segment count, (offset, length) per segment, header CRC32,
+ * then the segments. Segment layout: magic, record count, payload length, CRC32, payload, where
+ * the CRC32 covers the three fields before it and the payload. Version 1 files, whose segment
+ * CRC32 covers only the payload, are still read.
+ *
+ * @param <T> Record type
+ */
+final class SegmentedSnapshot<T> {
+    private static final int FILE_MAGIC = 0x50545353;
+    private static final int SEGMENT_MAGIC = 0x53454731;
+    private static final int VERSION = 2;
+    private static final int VERSION_PAYLOAD_CRC = 1;
+    private static final int SEGMENT_HEADER_SIZE = 16;
+
+    // Records per segment before another segment is started, and the most segments a file holds
+    private static final int RECORDS_PER_SEGMENT = 8192;
+    private static final int MAX_SEGMENTS = 64;
+
+    /**
+     * Encodes one record
+     */
+    interface Encoder<T> {
+        void write(DataOutput out, T record) throws IOException;
+    }
+
+    /**
+     * Decodes one record
+     */
+    interface Decoder<T> {
+        T read(DataInput in) throws IOException;
+    }
+
+    private final Path path;
+    private final Encoder<T> encoder;
+    private final Decoder<T> decoder;
+
+    /**
+     * Constructor
+     *
+     * @param path Location of the snapshot file
+     * @param encoder Record encoder
+     * @param decoder Record decoder
+     */
+    SegmentedSnapshot(Path path, Encoder<T> encoder, Decoder<T> decoder) {
+        this.path = path;
+        this.encoder = encoder;
+        this.decoder = decoder;
+    }
+
+    /**
+     * Check whether a snapshot has been written
+     *
+     * @return true if the snapshot file exists
+     */
+    boolean exists() {
+        return Files.exists(path);
+    }
+
+    /**
+     * Write a new snapshot, replacing the previous one atomically
+     *
+     * @param records Records to write
+     * @throws IOException if the snapshot cannot be written; the previous snapshot is left intact
+     */
+    void write(Collection<T> records) throws IOException {
+        int segments = Math.max(1, Math.min(MAX_SEGMENTS, (records.size() + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT));
+        int perSegment = (records.size() + segments - 1) / segments;
+        // A temporary file of its own, so that concurrent writers never share one
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName() + ".", ".tmp");
+        int headerSize = 12 + segments * 12 + 4;
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(headerSize);
+            header.putInt(FILE_MAGIC).putInt(VERSION).putInt(segments);
+
+            long offset = headerSize;
+            Iterator<T> iterator = records.iterator();
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(64 * 1024);
+            for (int segment = 0; segment < segments; segment++) {
+                payload.reset();
+                DataOutputStream out = new DataOutputStream(payload);
+                int count = 0;
+                while (count < perSegment && iterator.hasNext()) {
+                    encoder.write(out, iterator.next());
+                    count++;
+                }
+                out.flush();
+
+                byte[] bytes = payload.toByteArray();
+                ByteBuffer segmentHeader = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+                segmentHeader.putInt(SEGMENT_MAGIC).putInt(count).putInt(bytes.length);
+                CRC32 crc = new CRC32();
+                crc.update(segmentHeader.array(), 0, SEGMENT_HEADER_SIZE - 4);
+                crc.update(bytes);
+                segmentHeader.putInt((int) crc.getValue());
+                segmentHeader.flip();
+                writeFully(channel, segmentHeader, offset);
+                writeFully(channel, ByteBuffer.wrap(bytes), offset + SEGMENT_HEADER_SIZE);
+
+                header.putLong(offset).putInt(SEGMENT_HEADER_SIZE + bytes.length);
+                offset += SEGMENT_HEADER_SIZE + bytes.length;
+            }
+
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(header.array(), 0, header.position());
+            header.putInt((int) headerCrc.getValue());
+            header.flip();
+            writeFully(channel, header, 0);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        syncDirectory();
+    }
+
+    /**
+     * Load the snapshot, decoding its segments in parallel on the common fork-join pool
+     * Segments that fail their checksum are skipped and reported; the intact ones are still delivered.
+     *
+     * @param sink Receives the records of each intact segment, called on the calling thread in segment order
+     * @return Number of damaged segments, 0 if the whole snapshot was intact
+     * @throws IOException if the file header is unreadable
+     */
+    int load(Consumer<List<T>> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer fixed = ByteBuffer.allocate(12);
+            readFully(channel, fixed, 0);
+            fixed.flip();
+            int magic = fixed.getInt();
+            int version = fixed.getInt();
+            if (magic != FILE_MAGIC || (version != VERSION && version != VERSION_PAYLOAD_CRC)) {
+                throw new IOException("Unrecognised snapshot file " + path);
+            }
+            int segments = fixed.getInt();
+            if (segments <= 0 || segments > MAX_SEGMENTS) {
+                throw new IOException("Corrupt snapshot header in " + path);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(12 + segments * 12 + 4);
+            readFully(channel, header, 0);
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(header.array(), 0, header.capacity() - 4);
+            if (header.getInt(header.capacity() - 4) != (int) headerCrc.getValue()) {
+                throw new IOException("Corrupt snapshot header in " + path);
+            }
+
+            List<Callable<List<T>>> tasks = new ArrayList<>(segments);
+            for (int segment = 0; segment < segments; segment++) {
+                long offset = header.getLong(12 + segment * 12);
+                int length = header.getInt(12 + segment * 12 + 8);
+                tasks.add(() -> decodeSegment(channel, offset, length, version));
+            }
+
+            int damaged = 0;
+            List<Future<List<T>>> results = ForkJoinPool.commonPool().invokeAll(tasks);
+            for (int segment = 0; segment < segments; segment++) {
+                try {
+                    sink.accept(results.get(segment).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    while (!(cause instanceof IOException) && cause.getCause() != null) {
+                        cause = cause.getCause();
+                    }
+                    System.err.println("Error: Snapshot " + path.getFileName() + " segment " + segment
+                            + " is damaged: " + cause.getMessage());
+                    damaged++;
+                }
+            }
+            return damaged;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + path, e);
+        }
+    }
+
+    /**
+     * Copy a damaged snapshot aside so that it is kept for recovery when the snapshot is next written
+     *
+     * @return Location of the copy
+     * @throws IOException if the file cannot be copied
+     */
+    Path quarantine() throws IOException {
+        Path target = path.resolveSibling(path.getFileName() + ".corrupt-" + System.currentTimeMillis());
+        Files.copy(path, target);
+        return target;
+    }
+
+    private List<T> decodeSegment(FileChannel channel, long offset, int length, int version) throws IOException {
+        if (length < SEGMENT_HEADER_SIZE) {
+            throw new IOException("truncated segment");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(channel, buffer, offset);
+        buffer.flip();
+        if (buffer.getInt() != SEGMENT_MAGIC) {
+            throw new IOException("bad segment header");
+        }
+        int count = buffer.getInt();
+        int payloadLength = buffer.getInt();
+        int storedCrc = buffer.getInt();
+        // Every record takes at least one byte, which also bounds the list allocated below
+        if (payloadLength != length - SEGMENT_HEADER_SIZE || count < 0 || count > payloadLength) {
+            throw new IOException("bad segment header");
+        }
+
+        CRC32 crc = new CRC32();
+        if (version != VERSION_PAYLOAD_CRC) {
+            crc.update(buffer.array(), 0, SEGMENT_HEADER_SIZE - 4);
+        }
+        crc.update(buffer.array(), SEGMENT_HEADER_SIZE, payloadLength);
+        if ((int) crc.getValue() != storedCrc) {
+            throw new IOException("checksum mismatch");
+        }
+
+        ByteArrayInputStream bytes = new ByteArrayInputStream(buffer.array(), SEGMENT_HEADER_SIZE, payloadLength);
+        DataInputStream in = new DataInputStream(bytes);
+        List<T> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(decoder.read(in));
+        }
+        if (bytes.available() != 0) {
+            throw new IOException(bytes.available() + " bytes left after " + count + " records");
+        }
+        return records;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of snapshot");
+            }
+            position += n;
+        }
+    }
+
+    // Make the rename itself durable; not every platform allows opening a directory
+    private void syncDirectory() {
+        Path directory = path.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort only
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package dao.impl;
+
+import dao.TeacherDAO;
+import model.Teacher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Stress test and throughput benchmark for the teacher stores
+ * Runs threads that mix lookups, blind updates and read-modify-write changes against the
+ * synchronized file store and the concurrent store, at each thread count in turn, then prints
+ * operations per second and checks that the final state is consistent:
+ * <ul>
+ *   <li>Changes go through {@link TeacherDAO#modify} and increment a counter kept in the name
+ *       of a few hot teachers; the counters must add up to the number of changes that succeeded.</li>
+ *   <li>Blind updates overwrite the contact of the other teachers through {@link TeacherDAO#update(Teacher)}.</li>
+ *   <li>Lookups must always find the teacher.</li>
+ *   <li>After closing, a store loaded again from disk must hold exactly the teachers it held in memory.</li>
+ * </ul>
+ * The stores keep their files under data/ in the working directory, so the benchmark must be run from
+ * an empty directory; it refuses to start where data/ exists, and deletes the files it wrote when done.
+ *
+ * Usage: java dao.impl.StoreStressBenchmark [teachers] [seconds] [flushWindowMillis] [threads...]
+ * e.g.   java dao.impl.StoreStressBenchmark 2000 5 0 1 8 32
+ */
+public final class StoreStressBenchmark {
+    private static final Path DATA = Paths.get("data");
+    private static final int[] DEFAULT_THREADS = {1, 8, 32};
+    // Teachers whose counter every change increments, so that changes to them contend
+    private static final int HOT_TEACHERS = 20;
+    // Share of operations that are lookups, blind updates and changes, in percent
+    private static final int LOOKUP_SHARE = 80;
+    private static final int UPDATE_SHARE = 10;
+
+    private StoreStressBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int teachers = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long flushWindowMillis = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        int[] threadCounts = args.length > 3
+                ? Arrays.stream(args, 3, args.length).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_THREADS;
+        if (Files.exists(DATA)) {
+            System.err.println("Run the benchmark from an empty directory; " + DATA.toAbsolutePath() + " exists");
+            System.exit(1);
+        }
+
+        System.out.printf("%d teachers, %d%% lookups, %d%% updates, %d%% changes to %d hot teachers, "
+                        + "%d s per run after a 1 s warm-up, %s, %d cores%n",
+                teachers, LOOKUP_SHARE, UPDATE_SHARE, 100 - LOOKUP_SHARE - UPDATE_SHARE, HOT_TEACHERS, seconds,
+                flushWindowMillis > 0 ? "write-behind " + flushWindowMillis + " ms" : "synced writes",
+                Runtime.getRuntime().availableProcessors());
+        boolean consistent = true;
+        for (int threads : threadCounts) {
+            Result file = run("file", () -> new FileTeacherDAO(flushWindowMillis, 256),
+                    teachers, threads, seconds);
+            Result concurrent = run("concurrent", () -> new ConcurrentTeacherDAO(flushWindowMillis, 256),
+                    teachers, threads, seconds);
+            System.out.println(file);
+            System.out.println(concurrent);
+            consistent &= file.isConsistent() && concurrent.isConsistent();
+        }
+        if (!consistent) {
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Outcome of one run against one store
+     */
+    public static final class Result {
+        private final String store;
+        private final int threads;
+        private final long operations;
+        private final long changes;
+        private final double seconds;
+        private final String inconsistency;
+
+        Result(String store, int threads, long operations, long changes, double seconds, String inconsistency) {
+            this.store = store;
+            this.threads = threads;
+            this.operations = operations;
+            this.changes = changes;
+            this.seconds = seconds;
+            this.inconsistency = inconsistency;
+        }
+
+        public double getOperationsPerSecond() {
+            return operations / seconds;
+        }
+
+        public boolean isConsistent() {
+            return inconsistency == null;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-10s %2d threads: %,10.0f ops/s, %,d changes, %s", store, threads,
+                    getOperationsPerSecond(), changes, isConsistent() ? "consistent" : "INCONSISTENT: " + inconsistency);
+        }
+    }
+
+    /**
+     * Fill a new store, run the mixed load against it and check the outcome
+     *
+     * @param name Name of the store for the report
+     * @param factory Opens the store on the data directory
+     * @param teachers Number of teachers
+     * @param threads Number of threads
+     * @param seconds Length of the timed run
+     * @return Throughput and the first inconsistency found, if any
+     */
+    public static Result run(String name, Supplier<TeacherDAO> factory, int teachers, int threads, int seconds)
+            throws IOException, InterruptedException {
+        int hot = Math.min(HOT_TEACHERS, teachers / 2);
+        try {
+            TeacherDAO dao = factory.get();
+            for (int id = 1; id <= teachers; id++) {
+                dao.save(new Teacher(id, id <= hot ? "Counter 0" : "Teacher " + id,
+                        "teacher" + id + "@example.com", true, "mathematics"));
+            }
+            dao.flushed().join();
+
+            LongAdder changes = new LongAdder();
+            LongAdder missing = new LongAdder();
+            runPhase(dao, teachers, hot, threads, 1, changes, missing);
+            LongAdder operations = new LongAdder();
+            long start = System.nanoTime();
+            operations.add(runPhase(dao, teachers, hot, threads, seconds, changes, missing));
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            String inconsistency = check(dao, teachers, hot, changes.sum(), missing.sum());
+            if (!Boolean.TRUE.equals(dao.close().join()) && inconsistency == null) {
+                inconsistency = "the store could not be saved";
+            }
+            if (inconsistency == null) {
+                TeacherDAO reloaded = factory.get();
+                inconsistency = compare(dao.findAll(), reloaded.findAll());
+            }
+            return new Result(name, threads, operations.sum(), changes.sum(), elapsed, inconsistency);
+        } finally {
+            deleteData();
+        }
+    }
+
+    // Run the mixed load for a while and return the number of operations done
+    private static long runPhase(TeacherDAO dao, int teachers, int hot, int threads, int seconds,
+                                 LongAdder changes, LongAdder missing) throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            String writer = "writer" + t + "@example.com";
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                try {
+                    while (!stop.get()) {
+                        int roll = random.nextInt(100);
+                        if (roll < LOOKUP_SHARE) {
+                            if (dao.findById(1 + random.nextInt(teachers)) == null) {
+                                missing.increment();
+                            }
+                        } else if (roll < LOOKUP_SHARE + UPDATE_SHARE) {
+                            Teacher teacher = new Teacher(dao.findById(hot + 1 + random.nextInt(teachers - hot)));
+                            teacher.setContact(writer);
+                            dao.update(teacher);
+                        } else if (dao.modify(1 + random.nextInt(hot), StoreStressBenchmark::increment)) {
+                            changes.increment();
+                        }
+                        count++;
+                    }
+                } finally {
+                    operations.add(count);
+                    done.countDown();
+                }
+            }, "stress-" + t);
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        done.await();
+        return operations.sum();
+    }
+
+    private static void increment(Teacher teacher) {
+        String name = teacher.getName();
+        long count = Long.parseLong(name.substring(name.lastIndexOf(' ') + 1));
+        teacher.setName("Counter " + (count + 1));
+    }
+
+    // First inconsistency between the store and the operations that succeeded, null if there is none
+    private static String check(TeacherDAO dao, int teachers, int hot, long changes, long missing) {
+        if (missing > 0) {
+            return missing + " lookups found no teacher";
+        }
+        if (dao.findAll().size() != teachers) {
+            return dao.findAll().size() + " teachers stored instead of " + teachers;
+        }
+        long counted = 0;
+        for (int id = 1; id <= hot; id++) {
+            String name = dao.findById(id).getName();
+            counted += Long.parseLong(name.substring(name.lastIndexOf(' ') + 1));
+        }
+        if (counted != changes) {
+            return "counters add up to " + counted + " after " + changes + " changes";
+        }
+        return null;
+    }
+
+    // First difference between the teachers held in memory and those loaded from disk, null if there is none
+    private static String compare(List<Teacher> expected, List<Teacher> loaded) {
+        expected.sort(Comparator.comparingInt(Teacher::getId));
+        loaded.sort(Comparator.comparingInt(Teacher::getId));
+        if (expected.size() != loaded.size()) {
+            return loaded.size() + " teachers loaded instead of " + expected.size();
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            Teacher a = expected.get(i);
+            Teacher b = loaded.get(i);
+            if (a.getId() != b.getId() || !Objects.equals(a.getName(), b.getName())
+                    || !Objects.equals(a.getContact(), b.getContact())) {
+                return "teacher " + a.getId() + " loaded as " + b;
+            }
+        }
+        return null;
+    }
+
+    // Remove the files the stores wrote, so that the next run starts empty
+    private static void deleteData() throws IOException {
+        if (!Files.exists(DATA)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(DATA)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
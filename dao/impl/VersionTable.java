@@ -0,0 +1,48 @@
+package dao.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Versions of the records of a store that does not keep record objects
+ * Only records changed since the store was loaded have an entry; every other record has
+ * version 0. Versions come from one counter for the whole store, so a record that is deleted
+ * and created again never gets back a version it had before. Not thread-safe; the owning DAO
+ * guards it with its own lock.
+ *
+ * @param <K> Key type
+ */
+final class VersionTable<K> {
+    private final Map<K, Long> versions = new HashMap<>();
+    // Version given to the last stored change; kept across clear() so that versions never repeat
+    private long lastVersion;
+
+    /**
+     * Get the version of a record
+     */
+    long get(K key) {
+        Long version = versions.get(key);
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Record a stored change
+     *
+     * @return The new version of the record
+     */
+    long next(K key) {
+        versions.put(key, ++lastVersion);
+        return lastVersion;
+    }
+
+    void remove(K key) {
+        versions.remove(key);
+    }
+
+    /**
+     * Forget every version, when the records are loaded again
+     */
+    void clear() {
+        versions.clear();
+    }
+}
@@ -0,0 +1,138 @@
+package dao.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Background group-commit flusher for the file-based DAOs
+ * Mutations register with {@link #submit()} and return immediately; the flusher thread
+ * coalesces every mutation within the flush window, or up to the batch size, into a
+ * single call of the flush action and completes the batch's acknowledgement future.
+ */
+final class WriteBehindFlusher {
+    private final long windowMillis;
+    private final int batchSize;
+    private final BooleanSupplier flushAction;
+    private final Object lock = new Object();
+
+    // Batch collecting new mutations
+    private CompletableFuture<Boolean> openBatch = new CompletableFuture<>();
+    private int pendingCount;
+    private long firstPendingAt;
+    // Batch currently being written by the flusher thread
+    private CompletableFuture<Boolean> inFlight;
+    private boolean closed;
+
+    /**
+     * Constructor
+     *
+     * @param name Name of the flusher thread
+     * @param windowMillis Longest time a mutation waits for others to join its batch
+     * @param batchSize Number of mutations that triggers a flush before the window ends
+     * @param flushAction Makes every mutation so far durable; returns true on success
+     */
+    WriteBehindFlusher(String name, long windowMillis, int batchSize, BooleanSupplier flushAction) {
+        if (windowMillis <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Flush window and batch size must be positive");
+        }
+        this.windowMillis = windowMillis;
+        this.batchSize = batchSize;
+        this.flushAction = flushAction;
+
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Register a mutation that has been applied but not yet made durable
+     *
+     * @return Future completed with true once the mutation's batch is durable, false if the flush failed
+     */
+    CompletableFuture<Boolean> submit() {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Write-behind flusher is closed");
+            }
+            if (pendingCount == 0) {
+                firstPendingAt = System.currentTimeMillis();
+            }
+            pendingCount++;
+            if (pendingCount == 1 || pendingCount >= batchSize) {
+                lock.notifyAll();
+            }
+            return openBatch;
+        }
+    }
+
+    /**
+     * Get an acknowledgement covering every mutation submitted so far
+     *
+     * @return Future of the latest batch, or a completed future if nothing is pending
+     */
+    CompletableFuture<Boolean> pending() {
+        synchronized (lock) {
+            if (pendingCount > 0) {
+                return openBatch;
+            }
+            return inFlight != null ? inFlight : CompletableFuture.completedFuture(true);
+        }
+    }
+
+    /**
+     * Flush the remaining mutations and stop the flusher thread
+     *
+     * @return Future completed once the final batch is durable
+     */
+    CompletableFuture<Boolean> close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        return pending();
+    }
+
+    private void run() {
+        while (true) {
+            CompletableFuture<Boolean> batch;
+            synchronized (lock) {
+                try {
+                    while (pendingCount == 0 && !closed) {
+                        lock.wait();
+                    }
+                    if (pendingCount == 0) {
+                        return;
+                    }
+                    // Let the batch fill up until the window closes or it reaches the batch size
+                    long remaining = firstPendingAt + windowMillis - System.currentTimeMillis();
+                    while (pendingCount < batchSize && !closed && remaining > 0) {
+                        lock.wait(remaining);
+                        remaining = firstPendingAt + windowMillis - System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    closed = true;
+                }
+                batch = openBatch;
+                openBatch = new CompletableFuture<>();
+                pendingCount = 0;
+                inFlight = batch;
+            }
+
+            boolean success;
+            try {
+                success = flushAction.getAsBoolean();
+            } catch (RuntimeException e) {
+                System.err.println("Error flushing data: " + e.getMessage());
+                success = false;
+            }
+
+            synchronized (lock) {
+                if (inFlight == batch) {
+                    inFlight = null;
+                }
+            }
+            batch.complete(success);
+        }
+    }
+}
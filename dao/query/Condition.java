@@ -0,0 +1,153 @@
+package dao.query;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Composable query condition
+ * Conditions are combined with {@link #and}, {@link #or} and {@link #negate}. Conditions made
+ * by {@link TeacherConditions} and {@link RequirementConditions} can be answered from a DAO's
+ * indexes by {@link QueryPlanner}; every condition can also be tested against a single entity,
+ * which is how the planner applies whatever no index covers.
+ *
+ * @param <T> Entity type
+ */
+public abstract class Condition<T> {
+
+    /**
+     * Test the condition against one entity
+     *
+     * @param entity Entity to test
+     * @return true if the entity satisfies the condition
+     */
+    public abstract boolean test(T entity);
+
+    /**
+     * Combine with another condition that must also hold
+     */
+    public Condition<T> and(Condition<T> other) {
+        return new All<>(Arrays.asList(this, other));
+    }
+
+    /**
+     * Combine with another condition either of which may hold
+     */
+    public Condition<T> or(Condition<T> other) {
+        return new Any<>(Arrays.asList(this, other));
+    }
+
+    /**
+     * Get the opposite of this condition
+     */
+    public Condition<T> negate() {
+        return new Not<>(this);
+    }
+
+    /**
+     * Make a condition that every entity satisfies, a neutral start for building conjunctions
+     */
+    public static <T> Condition<T> always() {
+        return new All<>(Collections.emptyList());
+    }
+
+    /**
+     * Make a condition from an arbitrary test; such conditions are never answered from an index
+     *
+     * @param description Text shown by {@link QueryResult#explain()}
+     * @param test The test
+     */
+    public static <T> Condition<T> where(String description, Predicate<? super T> test) {
+        return new Condition<T>() {
+            @Override
+            public boolean test(T entity) {
+                return test.test(entity);
+            }
+
+            @Override
+            public String toString() {
+                return description;
+            }
+        };
+    }
+
+    /**
+     * Conjunction of conditions
+     */
+    static final class All<T> extends Condition<T> {
+        final List<Condition<T>> parts;
+
+        All(List<Condition<T>> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public boolean test(T entity) {
+            for (Condition<T> part : parts) {
+                if (!part.test(entity)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return parts.isEmpty() ? "everything" : join(parts, " AND ");
+        }
+    }
+
+    /**
+     * Disjunction of conditions
+     */
+    static final class Any<T> extends Condition<T> {
+        final List<Condition<T>> parts;
+
+        Any(List<Condition<T>> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public boolean test(T entity) {
+            for (Condition<T> part : parts) {
+                if (part.test(entity)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + join(parts, " OR ") + ")";
+        }
+    }
+
+    /**
+     * Negation of a condition
+     */
+    static final class Not<T> extends Condition<T> {
+        final Condition<T> inner;
+
+        Not(Condition<T> inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        public boolean test(T entity) {
+            return !inner.test(entity);
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + (inner instanceof All ? "(" + inner + ")" : inner.toString());
+        }
+    }
+
+    private static <T> String join(List<Condition<T>> parts, String separator) {
+        StringJoiner joiner = new StringJoiner(separator);
+        for (Condition<T> part : parts) {
+            joiner.add(part.toString());
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package dao.query;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * One way of answering part of a query from an index
+ * An access fully answers the conditions it covers, so the planner need not test them again.
+ * Its estimate must be cheap when given; without one the lookup itself is run to count the rows,
+ * and its result is kept for when the access is used. Both are worked out at most once.
+ *
+ * @param <T> Entity type
+ */
+public final class IndexAccess<T> {
+    private final String description;
+    private final List<Condition<T>> covered;
+    private final IntSupplier estimate;
+    private final Supplier<List<T>> lookup;
+    private Integer estimated;
+    private List<T> rows;
+
+    /**
+     * Constructor
+     *
+     * @param description Text shown by {@link QueryResult#explain()}, e.g. "status bucket"
+     * @param covered Conditions the lookup answers exactly
+     * @param estimate Cheap row count, or null to count by running the lookup
+     * @param lookup The index lookup
+     */
+    public IndexAccess(String description, List<Condition<T>> covered, IntSupplier estimate,
+                       Supplier<List<T>> lookup) {
+        this.description = description;
+        this.covered = Collections.unmodifiableList(covered);
+        this.estimate = estimate;
+        this.lookup = lookup;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<Condition<T>> getCovered() {
+        return covered;
+    }
+
+    /**
+     * Get the expected number of rows
+     */
+    public int estimate() {
+        if (estimated == null) {
+            estimated = estimate != null ? estimate.getAsInt() : fetch().size();
+        }
+        return estimated;
+    }
+
+    /**
+     * Run the lookup, at most once
+     */
+    public List<T> fetch() {
+        if (rows == null) {
+            rows = lookup.get();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,196 @@
+package dao.query;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Index-aware query planner
+ * The condition is split into its top-level conjuncts, and the index provider offers the
+ * index lookups that answer some of them. Lookups run from the most selective up and their
+ * rows are intersected, until every indexed conjunct is covered or so few rows remain that
+ * testing them is cheaper than another lookup. A disjunction is answered by the union of its
+ * branches when every branch has a lookup. Conjuncts no lookup covers are tested row by row,
+ * and only a query with no usable lookup at all scans every row.
+ *
+ * @param <T> Entity type
+ */
+public final class QueryPlanner<T> {
+    // With this few candidates left, testing the remaining conditions beats another lookup
+    static final int INTERSECT_THRESHOLD = 32;
+
+    /**
+     * Offers the index lookups that can answer conjuncts of a query
+     *
+     * @param <T> Entity type
+     */
+    public interface IndexProvider<T> {
+        /**
+         * @param conjuncts Conditions that must all hold
+         * @return Lookups that each exactly answer one or more of the conjuncts
+         */
+        List<IndexAccess<T>> accesses(List<Condition<T>> conjuncts);
+    }
+
+    private final Supplier<List<T>> scan;
+    private final Function<T, ?> identity;
+    private final IndexProvider<T> provider;
+
+    /**
+     * Constructor
+     *
+     * @param scan Returns every row, used when no index applies
+     * @param identity Key identifying a row, used to intersect and merge lookups
+     * @param provider Index lookups available for a query
+     */
+    public QueryPlanner(Supplier<List<T>> scan, Function<T, ?> identity, IndexProvider<T> provider) {
+        this.scan = scan;
+        this.identity = identity;
+        this.provider = provider;
+    }
+
+    /**
+     * Plan and run a query
+     *
+     * @param condition The condition rows must satisfy
+     * @return Matching rows and the plan that found them
+     */
+    public QueryResult<T> execute(Condition<T> condition) {
+        long started = System.nanoTime();
+        List<String> steps = new ArrayList<>();
+        List<Condition<T>> conjuncts = new ArrayList<>();
+        flatten(condition, conjuncts);
+
+        List<IndexAccess<T>> accesses = new ArrayList<>(provider.accesses(conjuncts));
+        for (Condition<T> conjunct : conjuncts) {
+            if (conjunct instanceof Condition.Any) {
+                IndexAccess<T> union = union((Condition.Any<T>) conjunct);
+                if (union != null) {
+                    accesses.add(union);
+                }
+            }
+        }
+        accesses.sort(Comparator.comparingInt(IndexAccess::estimate));
+
+        Set<Condition<T>> covered = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<T> rows = null;
+        for (IndexAccess<T> access : accesses) {
+            if (covered.containsAll(access.getCovered())) {
+                continue;
+            }
+            if (rows != null && rows.size() <= INTERSECT_THRESHOLD) {
+                break;
+            }
+            long stepStarted = System.nanoTime();
+            int estimate = access.estimate();
+            List<T> found = access.fetch();
+            rows = rows == null ? new ArrayList<>(found) : intersect(rows, found);
+            covered.addAll(access.getCovered());
+            steps.add((steps.isEmpty() ? "Index " : "Intersect index ") + access.getDescription()
+                    + " [" + describe(access.getCovered()) + "]: est. " + estimate + ", "
+                    + rows.size() + " rows, " + millis(System.nanoTime() - stepStarted));
+        }
+
+        if (rows == null) {
+            long stepStarted = System.nanoTime();
+            rows = new ArrayList<>(scan.get());
+            steps.add("Full scan: " + rows.size() + " rows, " + millis(System.nanoTime() - stepStarted));
+        }
+
+        List<Condition<T>> residual = new ArrayList<>();
+        for (Condition<T> conjunct : conjuncts) {
+            if (!covered.contains(conjunct)) {
+                residual.add(conjunct);
+            }
+        }
+        if (!residual.isEmpty()) {
+            long stepStarted = System.nanoTime();
+            int before = rows.size();
+            rows.removeIf(row -> {
+                for (Condition<T> conjunct : residual) {
+                    if (!conjunct.test(row)) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+            steps.add("Filter [" + describe(residual) + "]: " + before + " rows tested, "
+                    + rows.size() + " kept, " + millis(System.nanoTime() - stepStarted));
+        }
+        return new QueryResult<>(condition, rows, steps, System.nanoTime() - started);
+    }
+
+    // Top-level conjuncts; nested conjunctions are flattened into their parts
+    private static <T> void flatten(Condition<T> condition, List<Condition<T>> conjuncts) {
+        if (condition instanceof Condition.All) {
+            for (Condition<T> part : ((Condition.All<T>) condition).parts) {
+                flatten(part, conjuncts);
+            }
+        } else {
+            conjuncts.add(condition);
+        }
+    }
+
+    // Union of one lookup per branch, or null if some branch has no lookup answering it entirely
+    private IndexAccess<T> union(Condition.Any<T> disjunction) {
+        List<IndexAccess<T>> branches = new ArrayList<>();
+        for (Condition<T> branch : disjunction.parts) {
+            List<Condition<T>> branchConjuncts = new ArrayList<>();
+            flatten(branch, branchConjuncts);
+            IndexAccess<T> best = null;
+            for (IndexAccess<T> access : provider.accesses(branchConjuncts)) {
+                if (access.getCovered().containsAll(branchConjuncts)
+                        && (best == null || access.estimate() < best.estimate())) {
+                    best = access;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            branches.add(best);
+        }
+
+        StringJoiner description = new StringJoiner(" + ", "union of (", ")");
+        for (IndexAccess<T> branch : branches) {
+            description.add(branch.getDescription());
+        }
+        return new IndexAccess<>(description.toString(), Collections.singletonList(disjunction),
+                () -> {
+                    int total = 0;
+                    for (IndexAccess<T> branch : branches) {
+                        total += branch.estimate();
+                    }
+                    return total;
+                },
+                () -> {
+                    Map<Object, T> merged = new LinkedHashMap<>();
+                    for (IndexAccess<T> branch : branches) {
+                        for (T row : branch.fetch()) {
+                            merged.putIfAbsent(identity.apply(row), row);
+                        }
+                    }
+                    return new ArrayList<>(merged.values());
+                });
+    }
+
+    private List<T> intersect(List<T> rows, List<T> found) {
+        Set<Object> keys = new HashSet<>();
+        for (T row : found) {
+            keys.add(identity.apply(row));
+        }
+        rows.removeIf(row -> !keys.contains(identity.apply(row)));
+        return rows;
+    }
+
+    private static <T> String describe(List<Condition<T>> conditions) {
+        StringJoiner joiner = new StringJoiner(" AND ");
+        for (Condition<T> condition : conditions) {
+            joiner.add(condition.toString());
+        }
+        return joiner.toString();
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,53 @@
+package dao.query;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rows found by a query, together with the plan that found them
+ *
+ * @param <T> Entity type
+ */
+public final class QueryResult<T> {
+    private final Condition<T> condition;
+    private final List<T> rows;
+    private final List<String> steps;
+    private final long elapsedNanos;
+
+    QueryResult(Condition<T> condition, List<T> rows, List<String> steps, long elapsedNanos) {
+        this.condition = condition;
+        this.rows = rows;
+        this.steps = Collections.unmodifiableList(steps);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<T> getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the steps of the plan in the order they ran, each with its row count and time
+     */
+    public List<String> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Describe how the query was answered
+     *
+     * @return The condition, every step of the plan, and the total rows and time
+     */
+    public String explain() {
+        StringBuilder out = new StringBuilder("Query: ").append(condition).append('\n');
+        for (int i = 0; i < steps.size(); i++) {
+            out.append("  ").append(i + 1).append(". ").append(steps.get(i)).append('\n');
+        }
+        out.append("  Total: ").append(rows.size()).append(" rows in ").append(QueryPlanner.millis(elapsedNanos));
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+}
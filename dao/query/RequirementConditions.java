@@ -0,0 +1,240 @@
+package dao.query;
+
+import dao.TeachingRequirementDAO;
+import model.TeachingRequirement;
+import model.WeeklySchedule;
+
+import java.util.*;
+
+/**
+ * Query conditions on teaching requirements, and the planner that answers them from a
+ * {@link TeachingRequirementDAO}
+ */
+public final class RequirementConditions {
+
+    /**
+     * Attribute answered by {@link TeachingRequirementDAO#findByStatus}
+     */
+    public static final String STATUS = "status";
+
+    /**
+     * Attribute answered by {@link TeachingRequirementDAO#findByTeacher}
+     */
+    public static final String TEACHER = "teacher";
+
+    /**
+     * Attribute answered by {@link TeachingRequirementDAO#findByLocation}
+     */
+    public static final String LOCATION = "location";
+
+    /**
+     * Attribute answered by {@link TeachingRequirementDAO#searchByCourseName}
+     */
+    public static final String COURSE_NAME = "courseName";
+
+    /**
+     * Attribute answered by {@link TeachingRequirementDAO#findLocationConflicts} and
+     * {@link TeachingRequirementDAO#findTeacherConflicts}
+     */
+    public static final String SCHEDULE = "schedule";
+
+    private RequirementConditions() {
+    }
+
+    /**
+     * Requirements with a status
+     */
+    public static Condition<TeachingRequirement> hasStatus(TeachingRequirement.RequirementStatus status) {
+        return new HasStatus(status);
+    }
+
+    /**
+     * Requirements at a location, compared after normalisation
+     */
+    public static Condition<TeachingRequirement> atLocation(String location) {
+        return new AtLocation(location);
+    }
+
+    /**
+     * Requirements with a course code, ignoring case
+     */
+    public static Condition<TeachingRequirement> hasCourseCode(String courseCode) {
+        String code = courseCode.trim();
+        return Condition.where("course code = \"" + code + "\"",
+                requirement -> requirement.getCourseCode() != null
+                        && requirement.getCourseCode().trim().equalsIgnoreCase(code));
+    }
+
+    /**
+     * Requirements whose course name contains a keyword, ignoring case
+     */
+    public static Condition<TeachingRequirement> courseNameContains(String keyword) {
+        return new CourseNameContains(keyword);
+    }
+
+    /**
+     * Requirements a teacher is assigned to
+     */
+    public static Condition<TeachingRequirement> assignedTo(String teacherId) {
+        return new AssignedTo(teacherId);
+    }
+
+    /**
+     * Requirements whose schedule overlaps a weekly schedule
+     */
+    public static Condition<TeachingRequirement> overlaps(WeeklySchedule schedule) {
+        return new Overlaps(schedule);
+    }
+
+    /**
+     * Make a planner over a requirement DAO, using the indexes the DAO reports
+     *
+     * @param dao The teaching requirement DAO
+     * @return The planner
+     */
+    public static QueryPlanner<TeachingRequirement> planner(TeachingRequirementDAO dao) {
+        return new QueryPlanner<>(dao::findAll, TeachingRequirement::getId, conjuncts -> {
+            List<IndexAccess<TeachingRequirement>> accesses = new ArrayList<>();
+            List<Overlaps> schedules = new ArrayList<>();
+            for (Condition<TeachingRequirement> conjunct : conjuncts) {
+                if (conjunct instanceof Overlaps) {
+                    schedules.add((Overlaps) conjunct);
+                }
+            }
+
+            for (Condition<TeachingRequirement> conjunct : conjuncts) {
+                if (conjunct instanceof HasStatus && dao.isIndexed(STATUS)) {
+                    TeachingRequirement.RequirementStatus status = ((HasStatus) conjunct).status;
+                    accesses.add(new IndexAccess<>("status bucket", Collections.singletonList(conjunct),
+                            () -> dao.countByStatus(status), () -> dao.findByStatus(status)));
+                } else if (conjunct instanceof CourseNameContains && dao.isIndexed(COURSE_NAME)) {
+                    String keyword = ((CourseNameContains) conjunct).keyword;
+                    accesses.add(new IndexAccess<>("course name trigrams", Collections.singletonList(conjunct),
+                            null, () -> dao.searchByCourseName(keyword)));
+                } else if (conjunct instanceof AssignedTo) {
+                    String teacherId = ((AssignedTo) conjunct).teacherId;
+                    if (dao.isIndexed(TEACHER)) {
+                        accesses.add(new IndexAccess<>("teacher index", Collections.singletonList(conjunct),
+                                null, () -> dao.findByTeacher(teacherId)));
+                    }
+                    // A teacher and a time range together are answered by the teacher's interval tree
+                    for (Overlaps overlaps : schedules) {
+                        if (dao.isIndexed(SCHEDULE)) {
+                            accesses.add(new IndexAccess<>("teacher schedule tree", Arrays.asList(conjunct, overlaps),
+                                    null, () -> dao.findTeacherConflicts(teacherId, overlaps.schedule)));
+                        }
+                    }
+                } else if (conjunct instanceof AtLocation) {
+                    String location = ((AtLocation) conjunct).location;
+                    if (dao.isIndexed(LOCATION)) {
+                        accesses.add(new IndexAccess<>("location index", Collections.singletonList(conjunct),
+                                null, () -> dao.findByLocation(location)));
+                    }
+                    // A location and a time range together are answered by the location's interval tree
+                    for (Overlaps overlaps : schedules) {
+                        if (dao.isIndexed(SCHEDULE)) {
+                            accesses.add(new IndexAccess<>("location schedule tree", Arrays.asList(conjunct, overlaps),
+                                    null, () -> dao.findLocationConflicts(location, overlaps.schedule)));
+                        }
+                    }
+                }
+            }
+            return accesses;
+        });
+    }
+
+    static final class HasStatus extends Condition<TeachingRequirement> {
+        final TeachingRequirement.RequirementStatus status;
+
+        HasStatus(TeachingRequirement.RequirementStatus status) {
+            this.status = status;
+        }
+
+        @Override
+        public boolean test(TeachingRequirement requirement) {
+            return requirement.getStatus() == status;
+        }
+
+        @Override
+        public String toString() {
+            return "status = " + status;
+        }
+    }
+
+    static final class AtLocation extends Condition<TeachingRequirement> {
+        final String location;
+        private final String key;
+
+        AtLocation(String location) {
+            this.location = location;
+            this.key = TeachingRequirement.locationKey(location);
+        }
+
+        @Override
+        public boolean test(TeachingRequirement requirement) {
+            return key != null && key.equals(TeachingRequirement.locationKey(requirement.getLocation()));
+        }
+
+        @Override
+        public String toString() {
+            return "location = \"" + location + "\"";
+        }
+    }
+
+    static final class CourseNameContains extends Condition<TeachingRequirement> {
+        final String keyword;
+        private final String needle;
+
+        CourseNameContains(String keyword) {
+            this.keyword = keyword;
+            this.needle = keyword.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public boolean test(TeachingRequirement requirement) {
+            String name = requirement.getCourseName();
+            return name != null && name.toLowerCase(Locale.ROOT).contains(needle);
+        }
+
+        @Override
+        public String toString() {
+            return "course name contains \"" + keyword + "\"";
+        }
+    }
+
+    static final class AssignedTo extends Condition<TeachingRequirement> {
+        final String teacherId;
+
+        AssignedTo(String teacherId) {
+            this.teacherId = teacherId;
+        }
+
+        @Override
+        public boolean test(TeachingRequirement requirement) {
+            return requirement.isAssigned(teacherId);
+        }
+
+        @Override
+        public String toString() {
+            return "assigned to " + teacherId;
+        }
+    }
+
+    static final class Overlaps extends Condition<TeachingRequirement> {
+        final WeeklySchedule schedule;
+
+        Overlaps(WeeklySchedule schedule) {
+            this.schedule = schedule;
+        }
+
+        @Override
+        public boolean test(TeachingRequirement requirement) {
+            return requirement.getWeeklySchedule().overlaps(schedule);
+        }
+
+        @Override
+        public String toString() {
+            return "schedule overlaps " + schedule;
+        }
+    }
+}
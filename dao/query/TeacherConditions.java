@@ -0,0 +1,124 @@
+package dao.query;
+
+import dao.TeacherDAO;
+import model.Teacher;
+import util.QualificationIndex;
+
+import java.util.*;
+
+/**
+ * Query conditions on teachers, and the planner that answers them from a {@link TeacherDAO}
+ */
+public final class TeacherConditions {
+
+    /**
+     * Attribute answered by {@link TeacherDAO#findAvailable()}
+     */
+    public static final String AVAILABLE = "available";
+
+    /**
+     * Attribute answered by {@link TeacherDAO#findByQualifications(Collection, boolean)}
+     */
+    public static final String QUALIFICATIONS = "qualifications";
+
+    private TeacherConditions() {
+    }
+
+    /**
+     * Teachers that are currently available
+     */
+    public static Condition<Teacher> available() {
+        return new Available();
+    }
+
+    /**
+     * Teachers whose qualifications match the given terms, with the rules of the qualification search
+     *
+     * @param terms Qualification terms, matched as word prefixes
+     * @param matchAll true if every term must match, false if any may
+     */
+    public static Condition<Teacher> qualifiedIn(Collection<String> terms, boolean matchAll) {
+        return new Qualified(new ArrayList<>(terms), matchAll);
+    }
+
+    /**
+     * Teachers whose qualifications contain a text anywhere, ignoring case and word boundaries
+     *
+     * @param text Text to look for
+     */
+    public static Condition<Teacher> qualificationsContain(String text) {
+        String needle = text.toLowerCase(Locale.ROOT);
+        return Condition.where("qualifications contain \"" + text + "\"",
+                teacher -> teacher.getQualifications() != null
+                        && teacher.getQualifications().toLowerCase(Locale.ROOT).contains(needle));
+    }
+
+    /**
+     * Teachers whose name contains a text, ignoring case
+     *
+     * @param text Text to look for
+     */
+    public static Condition<Teacher> nameContains(String text) {
+        String needle = text.toLowerCase(Locale.ROOT);
+        return Condition.where("name contains \"" + text + "\"",
+                teacher -> teacher.getName() != null && teacher.getName().toLowerCase(Locale.ROOT).contains(needle));
+    }
+
+    /**
+     * Make a planner over a teacher DAO, using the indexes the DAO reports
+     *
+     * @param dao The teacher DAO
+     * @return The planner
+     */
+    public static QueryPlanner<Teacher> planner(TeacherDAO dao) {
+        return new QueryPlanner<>(dao::getAll, Teacher::getId, conjuncts -> {
+            List<IndexAccess<Teacher>> accesses = new ArrayList<>();
+            for (Condition<Teacher> conjunct : conjuncts) {
+                if (conjunct instanceof Available && dao.isIndexed(AVAILABLE)) {
+                    accesses.add(new IndexAccess<>("availability", Collections.singletonList(conjunct),
+                            dao::countAvailable, dao::findAvailable));
+                } else if (conjunct instanceof Qualified && dao.isIndexed(QUALIFICATIONS)) {
+                    Qualified qualified = (Qualified) conjunct;
+                    accesses.add(new IndexAccess<>("qualification index", Collections.singletonList(conjunct),
+                            null, () -> dao.findByQualifications(qualified.terms, qualified.matchAll)));
+                }
+            }
+            return accesses;
+        });
+    }
+
+    static final class Available extends Condition<Teacher> {
+        @Override
+        public boolean test(Teacher teacher) {
+            return teacher.isAvailable();
+        }
+
+        @Override
+        public String toString() {
+            return "available";
+        }
+    }
+
+    static final class Qualified extends Condition<Teacher> {
+        final List<String> terms;
+        final boolean matchAll;
+
+        Qualified(List<String> terms, boolean matchAll) {
+            this.terms = terms;
+            this.matchAll = matchAll;
+        }
+
+        @Override
+        public boolean test(Teacher teacher) {
+            if (QualificationIndex.normalize(terms).isEmpty()) {
+                return true;
+            }
+            return QualificationIndex.matches(teacher.getQualifications(), terms, matchAll);
+        }
+
+        @Override
+        public String toString() {
+            return "qualifications " + (matchAll ? "ALL " : "ANY ") + terms;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package model;
+
+/**
+ * Room Utilization Class
+ * How one location is booked over the week: the slots any requirement occupies, and the
+ * slots booked by more than one requirement at once.
+ */
+public final class RoomUtilization {
+    private final String location;
+    private final int requirementCount;
+    private final WeekOccupancy occupied;
+    private final WeekOccupancy clashes;
+
+    /**
+     * Constructor
+     *
+     * @param location The location, as written on one of its requirements
+     * @param requirementCount Number of requirements at the location
+     * @param occupied Slots booked at least once
+     * @param clashes Slots booked more than once
+     */
+    public RoomUtilization(String location, int requirementCount, WeekOccupancy occupied, WeekOccupancy clashes) {
+        this.location = location;
+        this.requirementCount = requirementCount;
+        this.occupied = occupied;
+        this.clashes = clashes;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public int getRequirementCount() {
+        return requirementCount;
+    }
+
+    public WeekOccupancy getOccupied() {
+        return occupied;
+    }
+
+    public WeekOccupancy getClashes() {
+        return clashes;
+    }
+
+    /**
+     * Get the booked time in hours, counting each slot once
+     */
+    public double getBookedHours() {
+        return occupied.cardinality() * WeekOccupancy.SLOT_MINUTES / 60.0;
+    }
+
+    /**
+     * Get the share of the teaching week that is booked, from 0 to 1
+     */
+    public double getUtilization() {
+        return (double) occupied.and(WeekOccupancy.TEACHING_WEEK).cardinality()
+                / WeekOccupancy.TEACHING_WEEK.cardinality();
+    }
+
+    @Override
+    public String toString() {
+        String text = String.format("%s: %d requirements, %.1f hours booked, %.0f%% of the teaching week",
+                location, requirementCount, getBookedHours(), getUtilization() * 100);
+        return clashes.isEmpty() ? text : text + ", double-booked " + clashes;
+    }
+}
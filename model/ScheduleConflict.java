@@ -0,0 +1,61 @@
+package model;
+
+/**
+ * Schedule Conflict Class
+ * Two teaching requirements whose schedules overlap while they share a location
+ * or an assigned teacher.
+ */
+public final class ScheduleConflict {
+
+    /**
+     * What the two requirements compete for
+     */
+    public enum Kind {
+        LOCATION,
+        TEACHER
+    }
+
+    private final TeachingRequirement first;
+    private final TeachingRequirement second;
+    private final Kind kind;
+    // The shared location or the ID of the shared teacher
+    private final String resource;
+
+    /**
+     * Constructor
+     *
+     * @param first One of the requirements
+     * @param second The other requirement
+     * @param kind What the requirements compete for
+     * @param resource The shared location or teacher ID
+     */
+    public ScheduleConflict(TeachingRequirement first, TeachingRequirement second, Kind kind, String resource) {
+        this.first = first;
+        this.second = second;
+        this.kind = kind;
+        this.resource = resource;
+    }
+
+    public TeachingRequirement getFirst() {
+        return first;
+    }
+
+    public TeachingRequirement getSecond() {
+        return second;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    @Override
+    public String toString() {
+        String shared = kind == Kind.LOCATION ? "location " + resource : "teacher " + resource;
+        return first.getCourseName() + " (" + first.getSchedule() + ") and "
+                + second.getCourseName() + " (" + second.getSchedule() + ") both use " + shared;
+    }
+}
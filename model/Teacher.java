@@ -8,6 +8,9 @@ public class Teacher implements Serializable {
     private String contact;
     private boolean isAvailable;
     private String qualifications;
+    // Version of the stored record this object was read from, raised by the DAO on every stored change;
+    // teachers not changed since the store was loaded have version 0
+    private transient long version;
     private static final long serialVersionUID = 1L;
 
     // Constructor
@@ -19,6 +22,12 @@ public class Teacher implements Serializable {
         this.qualifications = qualifications;
     }
 
+    // Copy constructor, including the version
+    public Teacher(Teacher other) {
+        this(other.id, other.name, other.contact, other.isAvailable, other.qualifications);
+        this.version = other.version;
+    }
+
     // Getter and Setter
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
@@ -35,6 +44,10 @@ public class Teacher implements Serializable {
     public String getQualifications() { return qualifications; }
     public void setQualifications(String qualifications) { this.qualifications = qualifications; }
 
+    // Set by the DAO when the teacher is stored or read
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
     // toString
     @Override
     public String toString() {
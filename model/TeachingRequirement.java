@@ -1,9 +1,10 @@
 package model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 /**
  * Teaching Requirement Class
@@ -25,6 +26,9 @@ public class TeachingRequirement implements Serializable {
     // Time schedule (e.g. "Monday 9:00-11:00")
     private String schedule;
 
+    // Parsed form of the schedule, built on first use
+    private transient WeeklySchedule weeklySchedule;
+
     // Location
     private String location;
 
@@ -34,7 +38,11 @@ public class TeachingRequirement implements Serializable {
     // Status (unassigned, partially assigned, fully assigned)
     private RequirementStatus status;
 
-    // List of assigned teacher IDs
+    // Assigned teacher IDs in the order they were assigned; a set so that membership checks are constant time
+    private transient LinkedHashSet<String> assignedTeachers;
+
+    // Serialized form of the assigned teacher IDs, a list as in files written by earlier versions;
+    // only set while the requirement is being serialized
     private List<String> assignedTeacherIds;
 
     // Notes
@@ -46,6 +54,16 @@ public class TeachingRequirement implements Serializable {
     // Last modification date
     private long lastModifiedTimestamp;
 
+    // Version of the stored record this object was read from, raised by the DAO on every stored change;
+    // only meaningful while the store stays loaded, so not persisted
+    private transient long version;
+
+    // Notified of status changes, usually the DAO that owns this requirement; not persisted
+    private transient StatusListener statusListener;
+
+    // Notified of teachers being assigned or removed, usually the DAO that owns this requirement; not persisted
+    private transient AssignmentListener assignmentListener;
+
     /**
      * Teaching requirement status enumeration
      */
@@ -66,13 +84,40 @@ public class TeachingRequirement implements Serializable {
         }
     }
 
+    /**
+     * Receives status changes of a requirement, so that indexes can be kept up to date
+     */
+    public interface StatusListener {
+        /**
+         * Called after the status of a requirement has changed
+         *
+         * @param requirement The requirement whose status changed
+         * @param previous The status before the change
+         */
+        void statusChanged(TeachingRequirement requirement, RequirementStatus previous);
+    }
+
+    /**
+     * Receives teacher assignments and removals of a requirement, so that indexes can be kept up to date
+     */
+    public interface AssignmentListener {
+        /**
+         * Called after a teacher has been assigned to or removed from a requirement
+         *
+         * @param requirement The requirement that changed
+         * @param teacherId The teacher ID
+         * @param assigned true if the teacher was assigned, false if removed
+         */
+        void assignmentChanged(TeachingRequirement requirement, String teacherId, boolean assigned);
+    }
+
     /**
      * Default constructor
      */
     public TeachingRequirement() {
         this.id = UUID.randomUUID().toString();
         this.requiredQualifications = new ArrayList<>();
-        this.assignedTeacherIds = new ArrayList<>();
+        this.assignedTeachers = new LinkedHashSet<>();
         this.status = RequirementStatus.UNASSIGNED;
         this.createdTimestamp = System.currentTimeMillis();
         this.lastModifiedTimestamp = System.currentTimeMillis();
@@ -94,6 +139,39 @@ public class TeachingRequirement implements Serializable {
         }
     }
 
+    /**
+     * Restoring constructor
+     * Rebuilds a requirement read back from storage, keeping its identity, status and timestamps
+     */
+    public TeachingRequirement(String id, String courseName, String courseCode, String schedule,
+                               String location, List<String> requiredQualifications,
+                               RequirementStatus status, Collection<String> assignedTeacherIds,
+                               String notes, long createdTimestamp, long lastModifiedTimestamp) {
+        this.id = id;
+        this.courseName = courseName;
+        this.courseCode = courseCode;
+        this.schedule = schedule;
+        this.location = location;
+        this.requiredQualifications = requiredQualifications != null ? requiredQualifications : new ArrayList<>();
+        this.status = status != null ? status : RequirementStatus.UNASSIGNED;
+        this.assignedTeachers = assignedTeacherIds != null ? new LinkedHashSet<>(assignedTeacherIds) : new LinkedHashSet<>();
+        this.notes = notes;
+        this.createdTimestamp = createdTimestamp;
+        this.lastModifiedTimestamp = lastModifiedTimestamp;
+    }
+
+    /**
+     * Copy constructor
+     * Copies everything but the listeners, so that the copy can be changed without the owning DAO
+     * noticing, e.g. to be stored with {@code update(requirement, expectedVersion)}.
+     */
+    public TeachingRequirement(TeachingRequirement other) {
+        this(other.id, other.courseName, other.courseCode, other.schedule, other.location,
+                new ArrayList<>(other.requiredQualifications), other.status, other.assignedTeachers, other.notes,
+                other.createdTimestamp, other.lastModifiedTimestamp);
+        this.version = other.version;
+    }
+
     // Getters and Setters
 
     public String getId() {
@@ -124,9 +202,24 @@ public class TeachingRequirement implements Serializable {
 
     public void setSchedule(String schedule) {
         this.schedule = schedule;
+        this.weeklySchedule = null;
         updateModificationTime();
     }
 
+    /**
+     * Get the schedule as weekly time slots
+     *
+     * @return The parsed schedule, empty if the schedule text could not be understood
+     */
+    public WeeklySchedule getWeeklySchedule() {
+        WeeklySchedule parsed = weeklySchedule;
+        if (parsed == null) {
+            parsed = WeeklySchedule.parse(schedule);
+            weeklySchedule = parsed;
+        }
+        return parsed;
+    }
+
     public String getLocation() {
         return location;
     }
@@ -136,6 +229,19 @@ public class TeachingRequirement implements Serializable {
         updateModificationTime();
     }
 
+    /**
+     * Normalise a location so that "Room 101" and " room 101" compare equal
+     *
+     * @param location The location, may be null
+     * @return The normalised location, or null if the location is blank
+     */
+    public static String locationKey(String location) {
+        if (location == null || location.trim().isEmpty()) {
+            return null;
+        }
+        return location.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
     public List<String> getRequiredQualifications() {
         return requiredQualifications;
     }
@@ -157,36 +263,105 @@ public class TeachingRequirement implements Serializable {
 
     @SuppressWarnings("unused")
     public void setStatus(RequirementStatus status) {
-        this.status = status;
+        changeStatus(status);
         updateModificationTime();
     }
 
-    @SuppressWarnings("unused")
-    public List<String> getAssignedTeacherIds() {
-        return assignedTeacherIds;
+    /**
+     * Set the listener notified of status changes, replacing any previous one
+     *
+     * @param statusListener The listener, or null to stop notifications
+     */
+    public void setStatusListener(StatusListener statusListener) {
+        this.statusListener = statusListener;
+    }
+
+    public StatusListener getStatusListener() {
+        return statusListener;
+    }
+
+    /**
+     * Set the listener notified of teacher assignments and removals, replacing any previous one
+     *
+     * @param assignmentListener The listener, or null to stop notifications
+     */
+    public void setAssignmentListener(AssignmentListener assignmentListener) {
+        this.assignmentListener = assignmentListener;
+    }
+
+    public AssignmentListener getAssignmentListener() {
+        return assignmentListener;
+    }
+
+    /**
+     * Get the assigned teacher IDs in the order they were assigned
+     *
+     * @return Read-only view of the assigned teacher IDs
+     */
+    public Set<String> getAssignedTeacherIds() {
+        return Collections.unmodifiableSet(assignedTeachers);
     }
 
     @SuppressWarnings("unused")
-    public void setAssignedTeacherIds(List<String> assignedTeacherIds) {
-        this.assignedTeacherIds = assignedTeacherIds;
+    public void setAssignedTeacherIds(Collection<String> assignedTeacherIds) {
+        LinkedHashSet<String> previous = assignedTeachers;
+        assignedTeachers = assignedTeacherIds != null ? new LinkedHashSet<>(assignedTeacherIds) : new LinkedHashSet<>();
+        for (String teacherId : previous) {
+            if (!assignedTeachers.contains(teacherId)) {
+                notifyAssignment(teacherId, false);
+            }
+        }
+        for (String teacherId : assignedTeachers) {
+            if (!previous.contains(teacherId)) {
+                notifyAssignment(teacherId, true);
+            }
+        }
         updateStatus();
         updateModificationTime();
     }
 
-    @SuppressWarnings("unused")
-    public void assignTeacher(String teacherId) {
-        if (!assignedTeacherIds.contains(teacherId)) {
-            assignedTeacherIds.add(teacherId);
-            updateStatus();
-            updateModificationTime();
+    /**
+     * Check whether a teacher is assigned to this requirement
+     *
+     * @param teacherId Teacher ID
+     * @return true if the teacher is assigned
+     */
+    public boolean isAssigned(String teacherId) {
+        return assignedTeachers.contains(teacherId);
+    }
+
+    /**
+     * Assign a teacher
+     *
+     * @param teacherId Teacher ID
+     * @return true if the teacher was not assigned before
+     */
+    @SuppressWarnings("UnusedReturnValue")
+    public boolean assignTeacher(String teacherId) {
+        if (!assignedTeachers.add(teacherId)) {
+            return false;
         }
+        notifyAssignment(teacherId, true);
+        updateStatus();
+        updateModificationTime();
+        return true;
     }
 
+    /**
+     * Remove an assigned teacher
+     *
+     * @param teacherId Teacher ID
+     * @return true if the teacher was assigned
+     */
     @SuppressWarnings("unused")
-    public void removeTeacher(String teacherId) {
-        assignedTeacherIds.remove(teacherId);
+    public boolean removeTeacher(String teacherId) {
+        if (!assignedTeachers.remove(teacherId)) {
+            return false;
+        }
+        notifyAssignment(teacherId, false);
         updateStatus();
         updateModificationTime();
+        return true;
     }
 
     public String getNotes() {
@@ -208,17 +383,54 @@ public class TeachingRequirement implements Serializable {
         return lastModifiedTimestamp;
     }
 
+    /**
+     * Get the version of the stored record this requirement was read from
+     * Every stored change gives the record a higher version; records not changed since the store
+     * was loaded have version 0.
+     *
+     * @return The version, for {@code update(requirement, expectedVersion)}
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Set by the DAO when the requirement is stored or read
+     *
+     * @param version Version of the stored record
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     /**
      * Update requirement status
      */
     private void updateStatus() {
-        if (assignedTeacherIds.isEmpty()) {
-            status = RequirementStatus.UNASSIGNED;
+        if (assignedTeachers.isEmpty()) {
+            changeStatus(RequirementStatus.UNASSIGNED);
         } else {
             // Business logic can be defined here to determine when a requirement is
             // partially or fully assigned
             // For example, based on how many teachers are needed, or other criteria
-            status = RequirementStatus.PARTIALLY_ASSIGNED;
+            changeStatus(RequirementStatus.PARTIALLY_ASSIGNED);
+        }
+    }
+
+    /**
+     * Change the status and notify the listener if it actually changed
+     */
+    private void changeStatus(RequirementStatus next) {
+        RequirementStatus previous = status;
+        status = next;
+        if (previous != next && statusListener != null) {
+            statusListener.statusChanged(this, previous);
+        }
+    }
+
+    private void notifyAssignment(String teacherId, boolean assigned) {
+        if (assignmentListener != null) {
+            assignmentListener.assignmentChanged(this, teacherId, assigned);
         }
     }
 
@@ -237,7 +449,23 @@ public class TeachingRequirement implements Serializable {
                 ", Schedule=" + schedule +
                 ", Location=" + location +
                 ", Status=" + status.name() +
-                ", Assigned Teachers=" + assignedTeacherIds.size() +
+                ", Assigned Teachers=" + assignedTeachers.size() +
                 "]";
     }
+
+    // Serialize the assigned teachers as a list, the form earlier versions wrote
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        assignedTeacherIds = new ArrayList<>(assignedTeachers);
+        try {
+            out.defaultWriteObject();
+        } finally {
+            assignedTeacherIds = null;
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        assignedTeachers = assignedTeacherIds != null ? new LinkedHashSet<>(assignedTeacherIds) : new LinkedHashSet<>();
+        assignedTeacherIds = null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package model;
+
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.util.Locale;
+
+/**
+ * Time Slot Class
+ * One weekly time interval, e.g. Monday 9:00-11:00. The end time is exclusive,
+ * so back-to-back slots such as 9:00-11:00 and 11:00-13:00 do not overlap.
+ */
+public final class TimeSlot implements Comparable<TimeSlot>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final DayOfWeek day;
+    private final int startMinute;
+    private final int endMinute;
+
+    /**
+     * Constructor
+     *
+     * @param day Day of the week
+     * @param startMinute Start, in minutes after midnight
+     * @param endMinute End, in minutes after midnight, after the start and at most 24:00
+     */
+    public TimeSlot(DayOfWeek day, int startMinute, int endMinute) {
+        if (day == null || startMinute < 0 || endMinute > MINUTES_PER_DAY || startMinute >= endMinute) {
+            throw new IllegalArgumentException("Invalid time slot");
+        }
+        this.day = day;
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+    }
+
+    public DayOfWeek getDay() {
+        return day;
+    }
+
+    public int getStartMinute() {
+        return startMinute;
+    }
+
+    public int getEndMinute() {
+        return endMinute;
+    }
+
+    /**
+     * Get the start as minutes since Monday 0:00
+     */
+    public int getWeekStart() {
+        return (day.getValue() - 1) * MINUTES_PER_DAY + startMinute;
+    }
+
+    /**
+     * Get the exclusive end as minutes since Monday 0:00
+     */
+    public int getWeekEnd() {
+        return (day.getValue() - 1) * MINUTES_PER_DAY + endMinute;
+    }
+
+    /**
+     * Check whether two slots share any time
+     *
+     * @param other The other slot
+     * @return true if the slots overlap
+     */
+    public boolean overlaps(TimeSlot other) {
+        return getWeekStart() < other.getWeekEnd() && other.getWeekStart() < getWeekEnd();
+    }
+
+    @Override
+    public int compareTo(TimeSlot other) {
+        int byStart = Integer.compare(getWeekStart(), other.getWeekStart());
+        return byStart != 0 ? byStart : Integer.compare(getWeekEnd(), other.getWeekEnd());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TimeSlot)) {
+            return false;
+        }
+        TimeSlot other = (TimeSlot) o;
+        return day == other.day && startMinute == other.startMinute && endMinute == other.endMinute;
+    }
+
+    @Override
+    public int hashCode() {
+        return (day.hashCode() * 31 + startMinute) * 31 + endMinute;
+    }
+
+    @Override
+    public String toString() {
+        String dayName = day.name().charAt(0) + day.name().substring(1).toLowerCase(Locale.ROOT);
+        return dayName + " " + formatTime(startMinute) + "-" + formatTime(endMinute);
+    }
+
+    private static String formatTime(int minute) {
+        return String.format("%d:%02d", minute / 60, minute % 60);
+    }
+}
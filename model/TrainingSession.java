@@ -1,16 +1,22 @@
 package model;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.UUID;
 
-public class TrainingSession {
+public class TrainingSession implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private String id;
     private String name;
     private String date;
     private String location;
     private String content;
-    private List<String> participatingTeacherIds;
+    // Set keeps membership checks constant time; insertion order is preserved for display
+    private Set<String> participatingTeacherIds;
 
     // Constructor
     public TrainingSession(String name, String date, String location, String content) {
@@ -19,7 +25,18 @@ public class TrainingSession {
         this.date = date;
         this.location = location;
         this.content = content;
-        this.participatingTeacherIds = new ArrayList<>();
+        this.participatingTeacherIds = new LinkedHashSet<>();
+    }
+
+    // Restoring constructor for sessions read back from storage
+    public TrainingSession(String id, String name, String date, String location, String content,
+                           Collection<String> participatingTeacherIds) {
+        this.id = id;
+        this.name = name;
+        this.date = date;
+        this.location = location;
+        this.content = content;
+        this.participatingTeacherIds = new LinkedHashSet<>(participatingTeacherIds);
     }
 
     // Getters and Setters
@@ -59,20 +76,18 @@ public class TrainingSession {
         this.content = content;
     }
 
-    public List<String> getParticipatingTeacherIds() {
-        return participatingTeacherIds;
+    public Set<String> getParticipatingTeacherIds() {
+        return Collections.unmodifiableSet(participatingTeacherIds);
     }
 
-    // Add a teacher to the session
-    public void addTeacher(String teacherId) {
-        if (!participatingTeacherIds.contains(teacherId)) {
-            participatingTeacherIds.add(teacherId);
-        }
+    // Add a teacher to the session, returns false if the teacher was already participating
+    public boolean addTeacher(String teacherId) {
+        return participatingTeacherIds.add(teacherId);
     }
 
-    // Remove a teacher from the session
-    public void removeTeacher(String teacherId) {
-        participatingTeacherIds.remove(teacherId);
+    // Remove a teacher from the session, returns false if the teacher was not participating
+    public boolean removeTeacher(String teacherId) {
+        return participatingTeacherIds.remove(teacherId);
     }
 
     @Override
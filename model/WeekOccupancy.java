@@ -0,0 +1,188 @@
+package model;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Week Occupancy Class
+ * A week of half-hour slots as a bitmap, slot 0 being Monday 0:00-0:30 and slot 335 Sunday
+ * 23:30-24:00. A schedule occupies every slot it touches, so 9:15-10:00 occupies 9:00-9:30 too;
+ * comparing occupancies is therefore exact to the half hour and may report back-to-back bookings
+ * that are not on half-hour boundaries as touching. Instances are immutable.
+ */
+public final class WeekOccupancy {
+    public static final int SLOT_MINUTES = 30;
+    public static final int SLOTS_PER_DAY = TimeSlot.MINUTES_PER_DAY / SLOT_MINUTES;
+    public static final int SLOTS = 7 * SLOTS_PER_DAY;
+
+    private static final int WORDS = (SLOTS + 63) / 64;
+
+    public static final WeekOccupancy EMPTY = new WeekOccupancy(new long[WORDS]);
+
+    /**
+     * Monday to Friday, 8:00-18:00, the slots utilization is measured against
+     */
+    public static final WeekOccupancy TEACHING_WEEK = of(WeeklySchedule.parse("Mon, Tue, Wed, Thu, Fri 8:00-18:00"));
+
+    private final long[] words;
+
+    private WeekOccupancy(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Get the slots a schedule occupies
+     *
+     * @param schedule The schedule
+     * @return The occupancy
+     */
+    public static WeekOccupancy of(WeeklySchedule schedule) {
+        long[] words = new long[WORDS];
+        for (TimeSlot slot : schedule.getSlots()) {
+            int first = slot.getWeekStart() / SLOT_MINUTES;
+            int end = (slot.getWeekEnd() + SLOT_MINUTES - 1) / SLOT_MINUTES;
+            for (int i = first; i < end; i++) {
+                words[i >>> 6] |= 1L << i;
+            }
+        }
+        return new WeekOccupancy(words);
+    }
+
+    /**
+     * Get the occupancy with the given slots set
+     *
+     * @param slots Slot numbers, from 0 to {@link #SLOTS} - 1; later bits are ignored
+     * @return The occupancy
+     */
+    public static WeekOccupancy of(BitSet slots) {
+        long[] words = Arrays.copyOf(slots.toLongArray(), WORDS);
+        words[WORDS - 1] &= -1L >>> (WORDS * 64 - SLOTS);
+        return new WeekOccupancy(words);
+    }
+
+    /**
+     * Copy the occupied slots into a bit set
+     */
+    public BitSet toBitSet() {
+        return BitSet.valueOf(words);
+    }
+
+    public boolean isOccupied(int slot) {
+        return (words[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Get the slots occupied in both
+     */
+    public WeekOccupancy and(WeekOccupancy other) {
+        long[] result = new long[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            result[i] = words[i] & other.words[i];
+        }
+        return new WeekOccupancy(result);
+    }
+
+    /**
+     * Get the slots occupied in either
+     */
+    public WeekOccupancy or(WeekOccupancy other) {
+        long[] result = new long[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            result[i] = words[i] | other.words[i];
+        }
+        return new WeekOccupancy(result);
+    }
+
+    /**
+     * Get the slots occupied here but not in the other
+     */
+    public WeekOccupancy andNot(WeekOccupancy other) {
+        long[] result = new long[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            result[i] = words[i] & ~other.words[i];
+        }
+        return new WeekOccupancy(result);
+    }
+
+    /**
+     * Check whether any slot is occupied in both
+     */
+    public boolean intersects(WeekOccupancy other) {
+        for (int i = 0; i < WORDS; i++) {
+            if ((words[i] & other.words[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of occupied slots
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Get the occupied slots as a schedule, adjacent slots merged and split at midnight
+     */
+    public WeeklySchedule toSchedule() {
+        List<TimeSlot> slots = new ArrayList<>();
+        int slot = nextOccupied(0);
+        while (slot >= 0) {
+            int dayEnd = (slot / SLOTS_PER_DAY + 1) * SLOTS_PER_DAY;
+            int end = slot + 1;
+            while (end < dayEnd && isOccupied(end)) {
+                end++;
+            }
+            DayOfWeek day = DayOfWeek.of(slot / SLOTS_PER_DAY + 1);
+            slots.add(new TimeSlot(day, (slot % SLOTS_PER_DAY) * SLOT_MINUTES,
+                    (end - 1) % SLOTS_PER_DAY * SLOT_MINUTES + SLOT_MINUTES));
+            slot = end < SLOTS ? nextOccupied(end) : -1;
+        }
+        return WeeklySchedule.of(slots);
+    }
+
+    // First occupied slot at or after a slot, or -1
+    private int nextOccupied(int from) {
+        for (int i = from; i < SLOTS; i++) {
+            long word = words[i >>> 6] >>> i;
+            if (word != 0) {
+                return i + Long.numberOfTrailingZeros(word);
+            }
+            i |= 63;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof WeekOccupancy && Arrays.equals(words, ((WeekOccupancy) o).words));
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return toSchedule().toString();
+    }
+}
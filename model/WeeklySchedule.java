@@ -0,0 +1,197 @@
+package model;
+
+import java.time.DayOfWeek;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Weekly Schedule Class
+ * The structured form of a free-text schedule such as "Monday 9:00-11:00",
+ * "Mon, Wed 14:00-15:30", "Mon-Fri 9-5pm" or "Tue 9-11am; Thu 2pm-4pm". Day ranges
+ * ("Mon-Fri", "Monday to Wednesday") include every day between their ends. Text that
+ * cannot be understood yields an empty schedule, which never conflicts with anything.
+ */
+public final class WeeklySchedule {
+    public static final WeeklySchedule EMPTY = new WeeklySchedule(Collections.emptyList());
+
+    // Either a time range or a word; words naming a day apply to the time ranges that follow them
+    private static final Pattern TOKEN = Pattern.compile(
+            "(\\d{1,2})(?:[:.](\\d{2}))?\\s*(am|pm)?\\s*(?:-|–|to)\\s*(\\d{1,2})(?:[:.](\\d{2}))?\\s*(am|pm)?"
+                    + "|([a-z]+)",
+            Pattern.CASE_INSENSITIVE);
+    // What may stand between the two ends of a day range
+    private static final Pattern DAY_RANGE = Pattern.compile("\\s*(?:-|–|to|through)\\s*", Pattern.CASE_INSENSITIVE);
+
+    private final List<TimeSlot> slots;
+
+    private WeeklySchedule(List<TimeSlot> slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Parse a free-text schedule
+     *
+     * @param text Schedule text, may be null
+     * @return The parsed schedule, empty if nothing could be understood
+     */
+    public static WeeklySchedule parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return EMPTY;
+        }
+        Set<TimeSlot> slots = new TreeSet<>();
+        List<DayOfWeek> days = new ArrayList<>();
+        boolean daysUsed = false;
+        // The day named last and where its name ends, while no time range has followed it
+        DayOfWeek lastDay = null;
+        int lastDayEnd = 0;
+
+        Matcher matcher = TOKEN.matcher(text);
+        while (matcher.find()) {
+            if (matcher.group(7) != null) {
+                DayOfWeek day = parseDay(matcher.group(7));
+                if (day != null) {
+                    // A day after a time range starts a new group of days
+                    if (daysUsed) {
+                        days.clear();
+                        daysUsed = false;
+                    }
+                    // "Mon-Fri": the days after the first end up to the second are included too
+                    if (lastDay != null && lastDay != day
+                            && DAY_RANGE.matcher(text.substring(lastDayEnd, matcher.start())).matches()) {
+                        for (DayOfWeek between = lastDay.plus(1); between != day; between = between.plus(1)) {
+                            days.add(between);
+                        }
+                    }
+                    days.add(day);
+                    lastDay = day;
+                    lastDayEnd = matcher.end();
+                }
+                continue;
+            }
+            lastDay = null;
+
+            int[] range = parseRange(matcher);
+            if (range != null) {
+                for (DayOfWeek day : days) {
+                    slots.add(new TimeSlot(day, range[0], range[1]));
+                }
+            }
+            daysUsed = true;
+        }
+        return slots.isEmpty() ? EMPTY : new WeeklySchedule(Collections.unmodifiableList(new ArrayList<>(slots)));
+    }
+
+    // Schedule made of slots that are already valid; they are sorted here
+    static WeeklySchedule of(Collection<TimeSlot> slots) {
+        if (slots.isEmpty()) {
+            return EMPTY;
+        }
+        List<TimeSlot> sorted = new ArrayList<>(new TreeSet<>(slots));
+        return new WeeklySchedule(Collections.unmodifiableList(sorted));
+    }
+
+    /**
+     * Get the time slots, ordered by their position in the week
+     */
+    public List<TimeSlot> getSlots() {
+        return slots;
+    }
+
+    public boolean isEmpty() {
+        return slots.isEmpty();
+    }
+
+    /**
+     * Check whether any slot of this schedule overlaps a slot of another
+     *
+     * @param other The other schedule
+     * @return true if the schedules overlap
+     */
+    public boolean overlaps(WeeklySchedule other) {
+        // Both slot lists are sorted, so a single merge pass finds any overlap
+        int i = 0;
+        int j = 0;
+        while (i < slots.size() && j < other.slots.size()) {
+            TimeSlot a = slots.get(i);
+            TimeSlot b = other.slots.get(j);
+            if (a.overlaps(b)) {
+                return true;
+            }
+            if (a.getWeekEnd() <= b.getWeekEnd()) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof WeeklySchedule && slots.equals(((WeeklySchedule) o).slots));
+    }
+
+    @Override
+    public int hashCode() {
+        return slots.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner("; ");
+        for (TimeSlot slot : slots) {
+            joiner.add(slot.toString());
+        }
+        return joiner.toString();
+    }
+
+    // Full day names and abbreviations of at least three letters, e.g. "Mon", "Tues", "Thursday"
+    private static DayOfWeek parseDay(String word) {
+        String lower = word.toLowerCase(Locale.ROOT);
+        if (lower.length() < 3) {
+            return null;
+        }
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day.name().toLowerCase(Locale.ROOT).startsWith(lower)) {
+                return day;
+            }
+        }
+        return null;
+    }
+
+    // Start and end in minutes after midnight, or null if the range is not a valid time of day
+    private static int[] parseRange(Matcher matcher) {
+        int startHour = Integer.parseInt(matcher.group(1));
+        int startMinute = matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) : 0;
+        int endHour = Integer.parseInt(matcher.group(4));
+        int endMinute = matcher.group(5) != null ? Integer.parseInt(matcher.group(5)) : 0;
+        String startSuffix = matcher.group(3);
+        String endSuffix = matcher.group(6);
+
+        // "9-11am" and "1-3pm": the start takes the end's suffix unless that would put it after the end
+        if (startSuffix == null && endSuffix != null && startHour <= 12) {
+            startSuffix = startHour % 12 <= endHour % 12 ? endSuffix : "am";
+        }
+        int start = toMinutes(startHour, startMinute, startSuffix);
+        int end = toMinutes(endHour, endMinute, endSuffix);
+        if (start < 0 || end < 0 || start >= end) {
+            return null;
+        }
+        return new int[]{start, end};
+    }
+
+    private static int toMinutes(int hour, int minute, String suffix) {
+        if (minute >= 60) {
+            return -1;
+        }
+        if (suffix != null) {
+            if (hour < 1 || hour > 12) {
+                return -1;
+            }
+            hour = hour % 12 + (suffix.equalsIgnoreCase("pm") ? 12 : 0);
+        }
+        int minutes = hour * 60 + minute;
+        return minutes <= TimeSlot.MINUTES_PER_DAY ? minutes : -1;
+    }
+}
@@ -0,0 +1,137 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Maximum bipartite matching (Hopcroft-Karp)
+ * The graph is given in compressed form: the neighbours of left vertex u are
+ * targets[offsets[u]] to targets[offsets[u + 1] - 1]. Each phase finds a maximal set of
+ * shortest augmenting paths, so the matching takes O(E * sqrt(V)) time. The searches are
+ * iterative, so long augmenting paths cannot overflow the stack.
+ * The matching runs on the calling thread. Within a phase each augmenting path depends on the
+ * paths flipped before it, so the phases are not split across cores; callers parallelise
+ * building the graph instead, which is where most of the time goes.
+ */
+public final class BipartiteMatcher {
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private BipartiteMatcher() {
+    }
+
+    /**
+     * Compute a maximum matching
+     *
+     * @param leftCount Number of left vertices
+     * @param rightCount Number of right vertices
+     * @param offsets Start of each left vertex's neighbours in targets, with leftCount + 1 entries
+     * @param targets Right vertices adjacent to each left vertex
+     * @return For each left vertex the matched right vertex, or -1 if it is unmatched
+     */
+    public static int[] match(int leftCount, int rightCount, int[] offsets, int[] targets) {
+        int[] matchLeft = new int[leftCount];
+        int[] matchRight = new int[rightCount];
+        Arrays.fill(matchLeft, -1);
+        Arrays.fill(matchRight, -1);
+
+        int[] dist = new int[leftCount];
+        int[] queue = new int[leftCount];
+        int[] next = new int[leftCount];
+        int[] stack = new int[leftCount];
+
+        // Greedy start: most vertices are matched before the first phase
+        for (int u = 0; u < leftCount; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                if (matchRight[targets[e]] < 0) {
+                    matchLeft[u] = targets[e];
+                    matchRight[targets[e]] = u;
+                    break;
+                }
+            }
+        }
+
+        while (true) {
+            int freeDistance = layer(leftCount, offsets, targets, matchLeft, matchRight, dist, queue);
+            if (freeDistance == INFINITY) {
+                break;
+            }
+            System.arraycopy(offsets, 0, next, 0, leftCount);
+            for (int u = 0; u < leftCount; u++) {
+                if (matchLeft[u] < 0) {
+                    augment(u, freeDistance, offsets, targets, matchLeft, matchRight, dist, next, stack);
+                }
+            }
+        }
+        return matchLeft;
+    }
+
+    // Breadth-first layering from the free left vertices; returns the length of the shortest augmenting path
+    private static int layer(int leftCount, int[] offsets, int[] targets, int[] matchLeft, int[] matchRight,
+                             int[] dist, int[] queue) {
+        int head = 0;
+        int tail = 0;
+        for (int u = 0; u < leftCount; u++) {
+            if (matchLeft[u] < 0) {
+                dist[u] = 0;
+                queue[tail++] = u;
+            } else {
+                dist[u] = INFINITY;
+            }
+        }
+        int freeDistance = INFINITY;
+        while (head < tail) {
+            int u = queue[head++];
+            if (dist[u] >= freeDistance) {
+                continue;
+            }
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int partner = matchRight[targets[e]];
+                if (partner < 0) {
+                    if (freeDistance == INFINITY) {
+                        freeDistance = dist[u] + 1;
+                    }
+                } else if (dist[partner] == INFINITY) {
+                    dist[partner] = dist[u] + 1;
+                    queue[tail++] = partner;
+                }
+            }
+        }
+        return freeDistance;
+    }
+
+    // Depth-first search for one augmenting path along the layers, flipping it if found
+    private static boolean augment(int root, int freeDistance, int[] offsets, int[] targets,
+                                   int[] matchLeft, int[] matchRight, int[] dist, int[] next, int[] stack) {
+        int depth = 0;
+        stack[depth++] = root;
+        while (depth > 0) {
+            int u = stack[depth - 1];
+            if (next[u] == offsets[u + 1]) {
+                // Dead end: never try this vertex again in this phase
+                dist[u] = INFINITY;
+                depth--;
+                if (depth > 0) {
+                    next[stack[depth - 1]]++;
+                }
+                continue;
+            }
+            int partner = matchRight[targets[next[u]]];
+            if (partner < 0) {
+                if (dist[u] + 1 == freeDistance) {
+                    for (int i = depth - 1; i >= 0; i--) {
+                        int left = stack[i];
+                        int right = targets[next[left]];
+                        matchLeft[left] = right;
+                        matchRight[right] = left;
+                    }
+                    return true;
+                }
+                next[u]++;
+            } else if (dist[partner] == dist[u] + 1) {
+                stack[depth++] = partner;
+            } else {
+                next[u]++;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,246 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash map from primitive int keys to objects
+ * Uses open addressing with linear probing over parallel key and value arrays, so keys
+ * are never boxed and entries carry no node objects. Removal shifts later entries back
+ * instead of leaving tombstones. Null values are not allowed; a null slot marks an empty one.
+ * Iteration goes through {@link #forEach(EntryVisitor)} and allocates nothing.
+ * Not thread-safe.
+ *
+ * @param <V> Value type
+ */
+public final class IntObjectMap<V> {
+    private static final int MIN_CAPACITY = 16;
+    // Largest table, a power of two that still fits in an array
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    /**
+     * Receives the entries of the map during iteration
+     */
+    public interface EntryVisitor<V> {
+        void visit(int key, V value);
+    }
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    /**
+     * Constructor for an empty map
+     */
+    public IntObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructor for a map that holds the expected number of entries without resizing
+     *
+     * @param expectedSize Expected number of entries
+     */
+    public IntObjectMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Get the value mapped to a key
+     *
+     * @param key Key to look up
+     * @return the value, or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+            Object value = values[slot];
+            if (value == null) {
+                return null;
+            }
+            if (keys[slot] == key) {
+                return (V) value;
+            }
+        }
+    }
+
+    /**
+     * Check whether a key is present
+     *
+     * @param key Key to look up
+     * @return true if the key is mapped
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Map a key to a value, replacing any previous value
+     *
+     * @param key Key
+     * @param value Value, not null
+     * @return the previous value, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        int slot = slotOf(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Remove the mapping for a key
+     *
+     * @param key Key to remove
+     * @return the removed value, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = slotOf(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of entries
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check whether the map has no entries
+     *
+     * @return true if the map is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove every entry, keeping the current table
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Visit every entry, in table order
+     * The map must not be modified during the visit.
+     *
+     * @param visitor Receives each key and value
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryVisitor<? super V> visitor) {
+        Object[] table = values;
+        for (int slot = 0; slot < table.length; slot++) {
+            if (table[slot] != null) {
+                visitor.visit(keys[slot], (V) table[slot]);
+            }
+        }
+    }
+
+    /**
+     * Copy the values into a new list
+     *
+     * @return list of all values, in table order
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> list = new ArrayList<>(size);
+        for (Object value : values) {
+            if (value != null) {
+                list.add((V) value);
+            }
+        }
+        return list;
+    }
+
+    // Close the gap left at a removed slot by moving back entries that probed past it
+    private void shiftBack(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) {
+                break;
+            }
+            int home = slotOf(keys[slot]);
+            // Move the entry if its home slot does not lie cyclically in (gap, slot]
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void rehash(int capacity) {
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("IntObjectMap is full");
+        }
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        // Load factor of 3/4
+        resizeAt = capacity - (capacity >>> 2);
+    }
+
+    // Same spreading as HashMap, so dense keys such as sequential IDs iterate in ascending order
+    private int slotOf(int key) {
+        return (key ^ (key >>> 16)) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 4 / 3 + 1);
+        if (needed > MAX_CAPACITY) {
+            return MAX_CAPACITY;
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+}
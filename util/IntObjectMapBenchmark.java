@@ -0,0 +1,185 @@
+package util;
+
+import model.Teacher;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark for the teacher table of FileTeacherDAO
+ * For each roster size, fills an {@link IntObjectMap} and a {@code HashMap<Integer, Teacher>}
+ * with the same teachers, the way FileTeacherDAO fills its table on load, then prints the
+ * heap each map retains beyond the teachers themselves and the cost of looking up teachers
+ * by id in random order, best and median per lookup. Nothing is read from or written to
+ * the data directory. Give the JVM a heap of a gigabyte or so for the largest roster, and
+ * prefer the serial collector: G1 rounds large arrays up to whole heap regions.
+ *
+ * Usage: java util.IntObjectMapBenchmark [runs] [seed] [sizes...]
+ * e.g.   java -Xmx1g -XX:+UseSerialGC util.IntObjectMapBenchmark 7 42 10000 100000 1000000
+ */
+public final class IntObjectMapBenchmark {
+    private static final int[] DEFAULT_SIZES = {10_000, 100_000, 1_000_000};
+    // Lookups per timed run, regardless of the roster size
+    private static final int LOOKUPS = 2_000_000;
+
+    private IntObjectMapBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        int[] sizes = args.length > 2
+                ? Arrays.stream(args, 2, args.length).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_SIZES;
+
+        System.out.printf("%d lookups per run, %d runs after one warm-up, max heap %d MB%n",
+                LOOKUPS, runs, Runtime.getRuntime().maxMemory() >> 20);
+        for (int size : sizes) {
+            measure(size, runs, seed);
+        }
+    }
+
+    /**
+     * Fill both maps with the same roster and print their retained heap and lookup times
+     * Each size is measured in a call of its own, so the maps of the previous size are unreachable.
+     *
+     * @param size Number of teachers
+     * @param runs Number of timed runs, after one untimed warm-up run
+     * @param seed Seed of the random lookup order
+     */
+    public static void measure(int size, int runs, long seed) {
+        Teacher[] teachers = new Teacher[size];
+        for (int i = 0; i < size; i++) {
+            teachers[i] = new Teacher(i + 1, "Teacher " + (i + 1), "teacher" + (i + 1) + "@example.com",
+                    true, "mathematics");
+        }
+        int[] lookups = new Random(seed).ints(LOOKUPS, 1, size + 1).toArray();
+
+        long primitiveBytes = retainedBytes(() -> primitiveMap(teachers));
+        long boxedBytes = retainedBytes(() -> boxedMap(teachers));
+        IntObjectMap<Teacher> primitive = primitiveMap(teachers);
+        Map<Integer, Teacher> boxed = boxedMap(teachers);
+
+        Result primitiveResult = run(primitiveBytes, runs, () -> {
+            long sum = 0;
+            for (int id : lookups) {
+                sum += primitive.get(id).getId();
+            }
+            return sum;
+        });
+        Result boxedResult = run(boxedBytes, runs, () -> {
+            long sum = 0;
+            for (int id : lookups) {
+                sum += boxed.get(id).getId();
+            }
+            return sum;
+        });
+        if (primitiveResult.checksum != boxedResult.checksum) {
+            throw new IllegalStateException("Maps disagree at " + size + " teachers");
+        }
+
+        System.out.printf("%,d teachers%n  IntObjectMap: %s%n  HashMap:      %s%n",
+                size, primitiveResult, boxedResult);
+    }
+
+    /**
+     * One pass of lookups over a map, returning a checksum of the teachers found
+     */
+    private interface LookupPass {
+        long run();
+    }
+
+    /**
+     * Outcome of measuring one map at one size
+     */
+    public static final class Result {
+        private final long retainedBytes;
+        private final long[] sortedNanos;
+        private final long checksum;
+
+        Result(long retainedBytes, long[] sortedNanos, long checksum) {
+            this.retainedBytes = retainedBytes;
+            this.sortedNanos = sortedNanos;
+            this.checksum = checksum;
+        }
+
+        public double getRetainedMegabytes() {
+            return retainedBytes / (1024.0 * 1024.0);
+        }
+
+        public double getBestNanosPerLookup() {
+            return (double) sortedNanos[0] / LOOKUPS;
+        }
+
+        public double getMedianNanosPerLookup() {
+            return (double) sortedNanos[sortedNanos.length / 2] / LOOKUPS;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f MB retained, lookup best %.1f ns, median %.1f ns",
+                    getRetainedMegabytes(), getBestNanosPerLookup(), getMedianNanosPerLookup());
+        }
+    }
+
+    private static Result run(long retainedBytes, int runs, LookupPass pass) {
+        long checksum = pass.run();
+        long[] nanos = new long[Math.max(1, runs)];
+        for (int i = 0; i < nanos.length; i++) {
+            long start = System.nanoTime();
+            checksum = pass.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return new Result(retainedBytes, nanos, checksum);
+    }
+
+    // Filled the way FileTeacherDAO fills its table, without presizing
+    private static IntObjectMap<Teacher> primitiveMap(Teacher[] teachers) {
+        IntObjectMap<Teacher> map = new IntObjectMap<>();
+        for (Teacher teacher : teachers) {
+            map.put(teacher.getId(), teacher);
+        }
+        return map;
+    }
+
+    private static Map<Integer, Teacher> boxedMap(Teacher[] teachers) {
+        Map<Integer, Teacher> map = new HashMap<>();
+        for (Teacher teacher : teachers) {
+            map.put(teacher.getId(), teacher);
+        }
+        return map;
+    }
+
+    // Heap freed by dropping a newly built map; the teachers stay reachable from the roster
+    private static long retainedBytes(Supplier<Object> build) {
+        Object[] holder = {build.get()};
+        long with = usedHeap();
+        holder[0] = null;
+        return with - usedHeap();
+    }
+
+    // Heap in use once the collector has nothing more to free; a collection can free objects
+    // that only became unreachable after the previous one, so wait for several that free nothing
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        int unchanged = 0;
+        for (int i = 0; i < 20 && unchanged < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            unchanged = now >= used ? unchanged + 1 : 0;
+            used = Math.min(used, now);
+        }
+        return used;
+    }
+}
@@ -0,0 +1,205 @@
+package util;
+
+import java.util.function.Consumer;
+
+/**
+ * Interval tree over half-open int intervals [start, end)
+ * A treap ordered by (start, end, key) in which every node also records the largest end
+ * in its subtree. An overlap query therefore skips every subtree that ends before the
+ * query starts, and runs in O(log n + k) for k results. The same key may be stored with
+ * several intervals. Queries do not modify the tree, so concurrent queries are safe as
+ * long as no thread is inserting or removing.
+ *
+ * @param <K> Key type identifying the owner of an interval
+ */
+public final class IntervalTree<K extends Comparable<K>> {
+
+    private static final class Node<K> {
+        final int start;
+        final int end;
+        final K key;
+        final int priority;
+        int maxEnd;
+        Node<K> left;
+        Node<K> right;
+
+        Node(int start, int end, K key, int priority) {
+            this.start = start;
+            this.end = end;
+            this.key = key;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node<K> root;
+    private int size;
+    private int seed = 0x2545F491;
+
+    /**
+     * Add an interval
+     *
+     * @param start Inclusive start
+     * @param end Exclusive end, greater than the start
+     * @param key Owner of the interval
+     */
+    public void insert(int start, int end, K key) {
+        if (start >= end) {
+            throw new IllegalArgumentException("Empty interval");
+        }
+        root = insert(root, new Node<>(start, end, key, nextPriority()));
+    }
+
+    /**
+     * Remove an interval added earlier
+     *
+     * @param start Start it was added with
+     * @param end End it was added with
+     * @param key Key it was added with
+     * @return true if the interval was present
+     */
+    public boolean remove(int start, int end, K key) {
+        int before = size;
+        root = remove(root, start, end, key);
+        return size < before;
+    }
+
+    /**
+     * Report the keys of every interval overlapping [start, end)
+     *
+     * @param start Inclusive start of the query
+     * @param end Exclusive end of the query
+     * @param sink Receives the key of each overlapping interval, in interval order
+     */
+    public void query(int start, int end, Consumer<? super K> sink) {
+        query(root, start, end, sink);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private Node<K> insert(Node<K> node, Node<K> added) {
+        if (node == null) {
+            size++;
+            return added;
+        }
+        int order = compare(added.start, added.end, added.key, node);
+        if (order == 0) {
+            return node;
+        }
+        if (order < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<K> remove(Node<K> node, int start, int end, K key) {
+        if (node == null) {
+            return null;
+        }
+        int order = compare(start, end, key, node);
+        if (order < 0) {
+            node.left = remove(node.left, start, end, key);
+        } else if (order > 0) {
+            node.right = remove(node.right, start, end, key);
+        } else {
+            size--;
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+
+    // Join two treaps where every interval of the left one orders before the right one
+    private Node<K> merge(Node<K> left, Node<K> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private void query(Node<K> node, int start, int end, Consumer<? super K> sink) {
+        while (node != null && node.maxEnd > start) {
+            query(node.left, start, end, sink);
+            if (node.start >= end) {
+                // Everything to the right starts even later
+                return;
+            }
+            if (node.end > start) {
+                sink.accept(node.key);
+            }
+            node = node.right;
+        }
+    }
+
+    private int compare(int start, int end, K key, Node<K> node) {
+        if (start != node.start) {
+            return Integer.compare(start, node.start);
+        }
+        if (end != node.end) {
+            return Integer.compare(end, node.end);
+        }
+        return key.compareTo(node.key);
+    }
+
+    private Node<K> rotateRight(Node<K> node) {
+        Node<K> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node<K> rotateLeft(Node<K> node) {
+        Node<K> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private void update(Node<K> node) {
+        int maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd > maxEnd) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd > maxEnd) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    // Xorshift; priorities only need to look random for the tree to stay balanced in expectation
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
@@ -0,0 +1,393 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming JSON reader
+ * Pulls values one at a time from a character stream through a fixed-size buffer,
+ * so a document of any size is read with constant extra memory.
+ *
+ * Containers are walked with beginObject()/hasNext()/nextName()/endObject()
+ * and beginArray()/hasNext()/endArray(); separators are handled internally.
+ */
+public final class JsonReader implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+
+    // Reused for strings and numbers to avoid per-value buffers
+    private final StringBuilder scratch = new StringBuilder(64);
+
+    // needsSeparator[depth] is true once the current container has had an element
+    private boolean[] needsSeparator = new boolean[32];
+    private int depth;
+
+    /**
+     * Constructor
+     *
+     * @param reader Source of the JSON text
+     */
+    public JsonReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Consume the start of an object
+     *
+     * @throws IOException if the next value is not an object
+     */
+    public void beginObject() throws IOException {
+        expect('{');
+        push();
+    }
+
+    /**
+     * Consume the end of the current object
+     *
+     * @throws IOException if the object has more members
+     */
+    public void endObject() throws IOException {
+        expect('}');
+        depth--;
+        afterValue();
+    }
+
+    /**
+     * Consume the start of an array
+     *
+     * @throws IOException if the next value is not an array
+     */
+    public void beginArray() throws IOException {
+        expect('[');
+        push();
+    }
+
+    /**
+     * Consume the end of the current array
+     *
+     * @throws IOException if the array has more elements
+     */
+    public void endArray() throws IOException {
+        expect(']');
+        depth--;
+        afterValue();
+    }
+
+    /**
+     * Check whether the current object or array has another member
+     *
+     * @return true if another member follows
+     * @throws IOException if the input is malformed
+     */
+    public boolean hasNext() throws IOException {
+        int c = peekNonWhitespace();
+        if (c == '}' || c == ']') {
+            return false;
+        }
+        if (needsSeparator[depth]) {
+            if (c != ',') {
+                throw syntaxError("Expected ','");
+            }
+            pos++;
+            needsSeparator[depth] = false;
+            c = peekNonWhitespace();
+            if (c == '}' || c == ']') {
+                throw syntaxError("Unexpected trailing ','");
+            }
+        }
+        return c != -1;
+    }
+
+    /**
+     * Check whether the next value is a JSON null, without consuming it
+     *
+     * @return true if the next value is null
+     * @throws IOException if the input cannot be read
+     */
+    public boolean peekNull() throws IOException {
+        return peekNonWhitespace() == 'n';
+    }
+
+    /**
+     * Check whether the next value is an array, without consuming it
+     *
+     * @return true if the next value is an array
+     * @throws IOException if the input cannot be read
+     */
+    public boolean peekBeginArray() throws IOException {
+        return peekNonWhitespace() == '[';
+    }
+
+    /**
+     * Read the name of the next object member, including the ':' that follows it
+     *
+     * @return Member name
+     * @throws IOException if the next token is not a name
+     */
+    public String nextName() throws IOException {
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Read a string value
+     *
+     * @return String value, or null for a JSON null
+     * @throws IOException if the next value is not a string
+     */
+    public String nextString() throws IOException {
+        if (peekNull()) {
+            nextNull();
+            return null;
+        }
+        String value = readString();
+        afterValue();
+        return value;
+    }
+
+    /**
+     * Read an integer value
+     *
+     * @return Integer value
+     * @throws IOException if the next value is not an integer
+     */
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if (value != (int) value) {
+            throw syntaxError("Integer out of range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Read a long value
+     *
+     * @return Long value
+     * @throws IOException if the next value is not an integer
+     */
+    public long nextLong() throws IOException {
+        readNumber();
+        try {
+            long value = Long.parseLong(scratch, 0, scratch.length(), 10);
+            afterValue();
+            return value;
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected an integer but was " + scratch);
+        }
+    }
+
+    /**
+     * Read a boolean value
+     *
+     * @return Boolean value
+     * @throws IOException if the next value is not a boolean
+     */
+    public boolean nextBoolean() throws IOException {
+        int c = peekNonWhitespace();
+        boolean value;
+        if (c == 't') {
+            expectLiteral("true");
+            value = true;
+        } else if (c == 'f') {
+            expectLiteral("false");
+            value = false;
+        } else {
+            throw syntaxError("Expected a boolean");
+        }
+        afterValue();
+        return value;
+    }
+
+    /**
+     * Consume a JSON null
+     *
+     * @throws IOException if the next value is not null
+     */
+    public void nextNull() throws IOException {
+        peekNonWhitespace();
+        expectLiteral("null");
+        afterValue();
+    }
+
+    /**
+     * Skip the next value, including everything nested in it
+     *
+     * @throws IOException if the input is malformed
+     */
+    public void skipValue() throws IOException {
+        int c = peekNonWhitespace();
+        switch (c) {
+            case '{':
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+                break;
+            case '[':
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+                break;
+            case '"':
+                readString();
+                afterValue();
+                break;
+            case 't':
+            case 'f':
+                nextBoolean();
+                break;
+            case 'n':
+                nextNull();
+                break;
+            default:
+                readNumber();
+                afterValue();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void push() {
+        depth++;
+        if (depth == needsSeparator.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(needsSeparator, 0, grown, 0, depth);
+            needsSeparator = grown;
+        }
+        needsSeparator[depth] = false;
+    }
+
+    private void afterValue() {
+        needsSeparator[depth] = true;
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        scratch.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+            if (c == '"') {
+                return scratch.toString();
+            }
+            if (c == '\\') {
+                int escaped = read();
+                switch (escaped) {
+                    case 'n': scratch.append('\n'); break;
+                    case 't': scratch.append('\t'); break;
+                    case 'r': scratch.append('\r'); break;
+                    case 'b': scratch.append('\b'); break;
+                    case 'f': scratch.append('\f'); break;
+                    case 'u': scratch.append(readUnicodeEscape()); break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        scratch.append((char) escaped);
+                        break;
+                    default:
+                        throw syntaxError("Invalid escape sequence");
+                }
+            } else {
+                scratch.append((char) c);
+            }
+        }
+    }
+
+    private char readUnicodeEscape() throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(read(), 16);
+            if (digit < 0) {
+                throw syntaxError("Invalid unicode escape");
+            }
+            value = (value << 4) | digit;
+        }
+        return (char) value;
+    }
+
+    private void readNumber() throws IOException {
+        peekNonWhitespace();
+        scratch.setLength(0);
+        while (true) {
+            if (pos == limit && !fill()) {
+                break;
+            }
+            char c = buffer[pos];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                scratch.append(c);
+                pos++;
+            } else {
+                break;
+            }
+        }
+        if (scratch.length() == 0) {
+            throw syntaxError("Expected a value");
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = peekNonWhitespace();
+        if (c != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        pos++;
+    }
+
+    private void expectLiteral(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (read() != literal.charAt(i)) {
+                throw syntaxError("Expected " + literal);
+            }
+        }
+    }
+
+    private int peekNonWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[pos];
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\uFEFF') {
+                pos++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        int n = reader.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed JSON: " + message);
+    }
+}
@@ -0,0 +1,251 @@
+package util;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streaming JSON writer
+ * Writes values straight to the underlying writer as they are produced,
+ * compact or indented with two spaces, without building the document in memory.
+ */
+public final class JsonWriter implements Closeable, Flushable {
+    private final Writer out;
+    private final boolean pretty;
+
+    // hasElements[depth] is true once the current container has had an element
+    private boolean[] hasElements = new boolean[32];
+    private int depth;
+    // True between name() and the member's value
+    private boolean afterName;
+
+    /**
+     * Constructor
+     *
+     * @param out Destination of the JSON text
+     * @param pretty true to indent the output, false for compact output
+     */
+    public JsonWriter(Writer out, boolean pretty) {
+        this.out = out;
+        this.pretty = pretty;
+    }
+
+    /**
+     * Start an object
+     *
+     * @return this writer
+     * @throws IOException if writing fails
+     */
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        out.write('{');
+        push();
+        return this;
+    }
+
+    /**
+     * End the current object
+     *
+     * @return this writer
+     * @throws IOException if writing fails
+     */
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    /**
+     * Start an array
+     *
+     * @return this writer
+     * @throws IOException if writing fails
+     */
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        out.write('[');
+        push();
+        return this;
+    }
+
+    /**
+     * End the current array
+     *
+     * @return this writer
+     * @throws IOException if writing fails
+     */
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * Write the name of the next object member
+     *
+     * @param name Member name
+     * @return this writer
+     * @throws IOException if writing fails
+     */
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        writeString(name);
+        out.write(pretty ? ": " : ":");
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Write a string value
+     *
+     * @param value String value, may be null
+     * @return this writer
+     * @throws IOException if writing fails
+     */
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    /**
+     * Write a numeric value
+     *
+     * @param value Numeric value
+     * @return this writer
+     * @throws IOException if writing fails
+     */
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Write a fractional numeric value
+     *
+     * @param value Numeric value, which must be finite
+     * @return this writer
+     * @throws IOException if writing fails
+     */
+    public JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON numbers must be finite: " + value);
+        }
+        beforeValue();
+        out.write(Double.toString(value));
+        return this;
+    }
+
+    /**
+     * Write a boolean value
+     *
+     * @param value Boolean value
+     * @return this writer
+     * @throws IOException if writing fails
+     */
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Write a JSON null
+     *
+     * @return this writer
+     * @throws IOException if writing fails
+     */
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void push() {
+        depth++;
+        if (depth == hasElements.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(hasElements, 0, grown, 0, depth);
+            hasElements = grown;
+        }
+        hasElements[depth] = false;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        boolean empty = !hasElements[depth];
+        depth--;
+        if (!empty) {
+            newline();
+        }
+        out.write(bracket);
+        return this;
+    }
+
+    // Values directly inside an array need a separator; member values follow their name
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+        } else if (depth > 0) {
+            separate();
+        }
+    }
+
+    private void separate() throws IOException {
+        if (hasElements[depth]) {
+            out.write(',');
+        }
+        hasElements[depth] = true;
+        newline();
+    }
+
+    private void newline() throws IOException {
+        if (!pretty) {
+            return;
+        }
+        out.write('\n');
+        for (int i = 0; i < depth; i++) {
+            out.write("  ");
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c == '"') {
+                replacement = "\\\"";
+            } else if (c == '\\') {
+                replacement = "\\\\";
+            } else if (c == '\n') {
+                replacement = "\\n";
+            } else if (c == '\r') {
+                replacement = "\\r";
+            } else if (c == '\t') {
+                replacement = "\\t";
+            } else if (c < 0x20) {
+                replacement = String.format("\\u%04x", (int) c);
+            } else {
+                continue;
+            }
+            out.write(value, start, i - start);
+            out.write(replacement);
+            start = i + 1;
+        }
+        out.write(value, start, length - start);
+        out.write('"');
+    }
+}
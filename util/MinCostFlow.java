@@ -0,0 +1,268 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Minimum-cost maximum flow with non-negative integer edge costs
+ * Primal-dual method: Dijkstra with vertex potentials finds the cost of the cheapest
+ * augmenting path, then a blocking flow is pushed along every path of that cost at once
+ * (Dinic on the edges of zero reduced cost). The number of phases is bounded by the number
+ * of distinct path costs, which stays small when costs are small integers, so even large
+ * assignment graphs are solved in a handful of phases.
+ */
+public final class MinCostFlow {
+    private static final long INFINITY = Long.MAX_VALUE / 4;
+
+    private final int nodeCount;
+    private final int[] head;
+    private int[] next = new int[16];
+    private int[] to = new int[16];
+    private int[] capacity = new int[16];
+    private int[] cost = new int[16];
+    private int edgeCount;
+
+    /**
+     * Constructor
+     *
+     * @param nodeCount Number of nodes, numbered from 0
+     */
+    public MinCostFlow(int nodeCount) {
+        this.nodeCount = nodeCount;
+        this.head = new int[nodeCount];
+        Arrays.fill(head, -1);
+    }
+
+    /**
+     * Add a directed edge
+     *
+     * @param from Tail node
+     * @param target Head node
+     * @param edgeCapacity Capacity, at least zero
+     * @param edgeCost Cost per unit of flow, at least zero
+     * @return Handle of the edge, for {@link #flow(int)}
+     */
+    public int addEdge(int from, int target, int edgeCapacity, int edgeCost) {
+        if (edgeCapacity < 0 || edgeCost < 0) {
+            throw new IllegalArgumentException("Capacity and cost must not be negative");
+        }
+        if (edgeCount + 2 > to.length) {
+            int grown = to.length * 2;
+            next = Arrays.copyOf(next, grown);
+            to = Arrays.copyOf(to, grown);
+            capacity = Arrays.copyOf(capacity, grown);
+            cost = Arrays.copyOf(cost, grown);
+        }
+        int edge = edgeCount;
+        link(edge, from, target, edgeCapacity, edgeCost);
+        link(edge + 1, target, from, 0, -edgeCost);
+        edgeCount += 2;
+        return edge;
+    }
+
+    /**
+     * Get the flow on an edge after {@link #solve}
+     *
+     * @param edge Handle returned by {@link #addEdge}
+     * @return Units of flow on the edge
+     */
+    public int flow(int edge) {
+        // The residual capacity of the reverse edge is exactly the flow pushed forward
+        return capacity[edge ^ 1];
+    }
+
+    /**
+     * Send as much flow as possible from source to sink at the least total cost
+     *
+     * @param source Source node
+     * @param sink Sink node
+     * @return The flow value and its total cost
+     */
+    public long[] solve(int source, int sink) {
+        long[] potential = new long[nodeCount];
+        long[] dist = new long[nodeCount];
+        int[] level = new int[nodeCount];
+        int[] iterator = new int[nodeCount];
+        int[] queue = new int[nodeCount];
+        int[] path = new int[nodeCount];
+        long totalFlow = 0;
+        long totalCost = 0;
+
+        while (true) {
+            shortestPaths(source, potential, dist);
+            if (dist[sink] >= INFINITY) {
+                break;
+            }
+            long cutoff = dist[sink];
+            for (int v = 0; v < nodeCount; v++) {
+                potential[v] += Math.min(dist[v], cutoff);
+            }
+            long unitCost = potential[sink] - potential[source];
+            while (levels(source, sink, potential, level, queue)) {
+                System.arraycopy(head, 0, iterator, 0, nodeCount);
+                int pushed;
+                while ((pushed = augment(source, sink, potential, level, iterator, path)) > 0) {
+                    totalFlow += pushed;
+                    totalCost += pushed * unitCost;
+                }
+            }
+        }
+        return new long[]{totalFlow, totalCost};
+    }
+
+    private void link(int edge, int from, int target, int edgeCapacity, int edgeCost) {
+        to[edge] = target;
+        capacity[edge] = edgeCapacity;
+        cost[edge] = edgeCost;
+        next[edge] = head[from];
+        head[from] = edge;
+    }
+
+    private long reducedCost(int edge, int from, long[] potential) {
+        return cost[edge] + potential[from] - potential[to[edge]];
+    }
+
+    // Dijkstra over the residual graph with reduced costs, which the potentials keep non-negative
+    private void shortestPaths(int source, long[] potential, long[] dist) {
+        Arrays.fill(dist, INFINITY);
+        dist[source] = 0;
+        LongHeap heap = new LongHeap();
+        heap.push(0, source);
+        while (!heap.isEmpty()) {
+            long d = heap.peekKey();
+            int u = heap.pop();
+            if (d > dist[u]) {
+                continue;
+            }
+            for (int e = head[u]; e >= 0; e = next[e]) {
+                if (capacity[e] > 0) {
+                    long candidate = d + reducedCost(e, u, potential);
+                    if (candidate < dist[to[e]]) {
+                        dist[to[e]] = candidate;
+                        heap.push(candidate, to[e]);
+                    }
+                }
+            }
+        }
+    }
+
+    // Breadth-first levels over the admissible edges (residual capacity and zero reduced cost)
+    private boolean levels(int source, int sink, long[] potential, int[] level, int[] queue) {
+        Arrays.fill(level, -1);
+        level[source] = 0;
+        int headIndex = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        while (headIndex < tail) {
+            int u = queue[headIndex++];
+            for (int e = head[u]; e >= 0; e = next[e]) {
+                int v = to[e];
+                if (capacity[e] > 0 && level[v] < 0 && reducedCost(e, u, potential) == 0) {
+                    level[v] = level[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return level[sink] >= 0;
+    }
+
+    // Find one path along the levels and push its bottleneck; iterative so that long paths are safe
+    private int augment(int source, int sink, long[] potential, int[] level, int[] iterator, int[] path) {
+        int depth = 0;
+        int u = source;
+        while (true) {
+            if (u == sink) {
+                int bottleneck = Integer.MAX_VALUE;
+                for (int i = 0; i < depth; i++) {
+                    bottleneck = Math.min(bottleneck, capacity[path[i]]);
+                }
+                for (int i = 0; i < depth; i++) {
+                    capacity[path[i]] -= bottleneck;
+                    capacity[path[i] ^ 1] += bottleneck;
+                }
+                return bottleneck;
+            }
+            boolean advanced = false;
+            for (; iterator[u] >= 0; iterator[u] = next[iterator[u]]) {
+                int e = iterator[u];
+                int v = to[e];
+                if (capacity[e] > 0 && level[v] == level[u] + 1 && reducedCost(e, u, potential) == 0) {
+                    path[depth++] = e;
+                    u = v;
+                    advanced = true;
+                    break;
+                }
+            }
+            if (!advanced) {
+                if (depth == 0) {
+                    return 0;
+                }
+                // Dead end: retire the node for this round and step back
+                level[u] = -1;
+                int e = path[--depth];
+                u = to[e ^ 1];
+                iterator[u] = next[iterator[u]];
+            }
+        }
+    }
+
+    /**
+     * Binary min-heap of (key, node) pairs in parallel primitive arrays
+     */
+    private static final class LongHeap {
+        private long[] keys = new long[64];
+        private int[] values = new int[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peekKey() {
+            return keys[0];
+        }
+
+        void push(long key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int pop() {
+            int top = values[0];
+            long key = keys[--size];
+            int value = values[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= key) {
+                    break;
+                }
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+            return top;
+        }
+    }
+}
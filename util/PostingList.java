@@ -0,0 +1,168 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Sorted list of int document IDs, as kept per term by the search indexes
+ * Also provides the merge operations used to combine posting lists in queries, and
+ * positional access so that a list of all keys can serve ordered, paged listings.
+ */
+public final class PostingList {
+    static final int[] EMPTY = new int[0];
+
+    private int[] ids;
+    private int size;
+
+    public PostingList() {
+        ids = new int[4];
+    }
+
+    private PostingList(int[] ids, int size) {
+        this.ids = ids;
+        this.size = size;
+    }
+
+    /**
+     * Build a list from IDs in any order
+     *
+     * @param ids IDs, possibly unsorted and with duplicates; the array is sorted in place and kept
+     * @return The list
+     */
+    public static PostingList of(int[] ids) {
+        Arrays.sort(ids);
+        int size = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (size == 0 || ids[size - 1] != ids[i]) {
+                ids[size++] = ids[i];
+            }
+        }
+        return new PostingList(ids.length == 0 ? new int[4] : ids, size);
+    }
+
+    /**
+     * Add an ID, keeping the list sorted
+     *
+     * @param id ID to add; adding an ID already present has no effect
+     */
+    public void add(int id) {
+        int at = Arrays.binarySearch(ids, 0, size, id);
+        if (at >= 0) {
+            return;
+        }
+        at = -at - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+        }
+        System.arraycopy(ids, at, ids, at + 1, size - at);
+        ids[at] = id;
+        size++;
+    }
+
+    /**
+     * Remove an ID
+     *
+     * @param id ID to remove
+     * @return true if the ID was present
+     */
+    public boolean remove(int id) {
+        int at = Arrays.binarySearch(ids, 0, size, id);
+        if (at < 0) {
+            return false;
+        }
+        System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the ID at a position
+     *
+     * @param index Position, from 0 to size() - 1
+     * @return The ID, the index-th smallest
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return ids[index];
+    }
+
+    /**
+     * Find the position of the first ID greater than a given ID
+     *
+     * @param id The ID to start after
+     * @return Position of the first larger ID, or size() if there is none
+     */
+    public int indexAfter(int id) {
+        int at = Arrays.binarySearch(ids, 0, size, id);
+        return at >= 0 ? at + 1 : -at - 1;
+    }
+
+    /**
+     * Copy the IDs
+     *
+     * @return IDs in ascending order
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Intersect two sorted ID arrays
+     *
+     * @return IDs present in both, in ascending order
+     */
+    static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Merge two sorted ID arrays
+     *
+     * @return IDs present in either, in ascending order
+     */
+    static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                out[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                out[n++] = b[j++];
+            } else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            out[n++] = a[i++];
+        }
+        while (j < b.length) {
+            out[n++] = b[j++];
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+}
@@ -0,0 +1,175 @@
+package util;
+
+import java.util.*;
+
+/**
+ * Inverted index from qualification terms to teacher IDs
+ * Free-text qualifications are split into lower-case terms ("Mathematics, Physics." becomes
+ * "mathematics" and "physics"), and each term keeps a sorted posting list of the IDs of the
+ * teachers that have it. A query term matches every indexed term it is a prefix of, so "math"
+ * finds "mathematics". Queries touch only the matching posting lists, never the whole roster.
+ * Not thread-safe for updates; searches do not modify the index, so concurrent searches are
+ * safe as long as no thread is putting or removing.
+ */
+public final class QualificationIndex {
+    // Terms in sorted order so that prefix queries are range scans
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    // Terms each ID was indexed under, so that updates and removals need not know the old text
+    private final IntObjectMap<String[]> termsById = new IntObjectMap<>();
+
+    /**
+     * Index or re-index the qualifications of a teacher
+     *
+     * @param id Teacher ID
+     * @param qualifications Free-text qualifications, may be null
+     */
+    public void put(int id, String qualifications) {
+        String[] terms = tokenize(qualifications).toArray(new String[0]);
+        String[] previous = termsById.put(id, terms);
+        if (previous != null) {
+            for (String term : previous) {
+                if (!contains(terms, term)) {
+                    removePosting(term, id);
+                }
+            }
+        }
+        for (String term : terms) {
+            if (previous == null || !contains(previous, term)) {
+                postings.computeIfAbsent(term, t -> new PostingList()).add(id);
+            }
+        }
+    }
+
+    /**
+     * Remove a teacher from the index
+     *
+     * @param id Teacher ID
+     */
+    public void remove(int id) {
+        String[] previous = termsById.remove(id);
+        if (previous != null) {
+            for (String term : previous) {
+                removePosting(term, id);
+            }
+        }
+    }
+
+    /**
+     * Remove every teacher from the index
+     */
+    public void clear() {
+        postings.clear();
+        termsById.clear();
+    }
+
+    /**
+     * Find the teachers whose qualifications match the query terms
+     *
+     * @param terms Query terms; each is normalised and treated as a prefix
+     * @param matchAll true if every term must match (AND), false if any may match (OR)
+     * @return matching teacher IDs in ascending order
+     */
+    public int[] search(Collection<String> terms, boolean matchAll) {
+        int[] result = null;
+        for (String term : normalize(terms)) {
+            int[] matches = lookupPrefix(term);
+            if (result == null) {
+                result = matches;
+            } else {
+                result = matchAll ? PostingList.intersect(result, matches) : PostingList.union(result, matches);
+            }
+            if (matchAll && result.length == 0) {
+                break;
+            }
+        }
+        return result == null ? PostingList.EMPTY : result;
+    }
+
+    /**
+     * Split free text into normalised qualification terms
+     *
+     * @param text Text to split, may be null
+     * @return distinct lower-case terms in order of first appearance
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean partOfTerm = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (partOfTerm && start < 0) {
+                start = i;
+            } else if (!partOfTerm && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * Check qualifications against query terms without an index, with the same rules as {@link #search}
+     *
+     * @param qualifications Free-text qualifications, may be null
+     * @param terms Query terms
+     * @param matchAll true if every term must match, false if any may match
+     * @return true if the qualifications match
+     */
+    public static boolean matches(String qualifications, Collection<String> terms, boolean matchAll) {
+        List<String> own = tokenize(qualifications);
+        for (String term : normalize(terms)) {
+            boolean found = false;
+            for (String candidate : own) {
+                if (candidate.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (found != matchAll) {
+                return found;
+            }
+        }
+        return matchAll;
+    }
+
+    /**
+     * Normalise query terms
+     *
+     * @param terms Query terms, possibly containing several words each
+     * @return distinct lower-case single-word terms
+     */
+    public static List<String> normalize(Collection<String> terms) {
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String term : terms) {
+            normalized.addAll(tokenize(term));
+        }
+        return new ArrayList<>(normalized);
+    }
+
+    // Union of the posting lists of every indexed term starting with the prefix
+    private int[] lookupPrefix(String prefix) {
+        int[] result = PostingList.EMPTY;
+        for (PostingList list : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            result = PostingList.union(result, list.toArray());
+        }
+        return result;
+    }
+
+    private void removePosting(String term, int id) {
+        PostingList list = postings.get(term);
+        if (list != null && list.remove(id) && list.size() == 0) {
+            postings.remove(term);
+        }
+    }
+
+    private static boolean contains(String[] terms, String term) {
+        for (String candidate : terms) {
+            if (candidate.equals(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,173 @@
+package util;
+
+import java.util.*;
+
+/**
+ * Cache of normalised qualification vectors, keyed by teacher ID
+ * A teacher's qualifications become a sparse binary vector over the terms seen so far, stored as
+ * sorted term numbers with the reciprocal of its length, so that scoring a teacher against a
+ * requirement touches a few ints instead of tokenising text. Each vector remembers the text it
+ * was built from and is rebuilt when asked for with different text, so a missed invalidation
+ * costs a rebuild, never a stale score. The term dictionary only grows.
+ * Thread-safe; {@link Query#score} reads only immutable data and may run on many threads.
+ */
+public final class QualificationVectorCache {
+    // At most this many required terms are told apart when scoring; the rest are ignored
+    private static final int MAX_QUERY_TERMS = 64;
+
+    /**
+     * Normalised qualification vector of one teacher
+     */
+    public static final class TermVector {
+        private final String source;
+        private final int[] terms;
+        private final double norm;
+
+        TermVector(String source, int[] terms) {
+            this.source = source;
+            this.terms = terms;
+            this.norm = terms.length == 0 ? 0 : 1 / Math.sqrt(terms.length);
+        }
+
+        /**
+         * Get the number of distinct qualification terms
+         */
+        public int length() {
+            return terms.length;
+        }
+    }
+
+    /**
+     * Required qualifications prepared for scoring many vectors
+     */
+    public static final class Query {
+        // Bit i of masks[term] is set when the term matches the i-th required term
+        private final long[] masks;
+        private final int termCount;
+        private final double norm;
+
+        Query(long[] masks, int termCount) {
+            this.masks = masks;
+            this.termCount = termCount;
+            this.norm = termCount == 0 ? 0 : 1 / Math.sqrt(termCount);
+        }
+
+        /**
+         * Check whether the query asks for any qualification
+         */
+        public boolean isEmpty() {
+            return termCount == 0;
+        }
+
+        /**
+         * Score a vector by cosine similarity, a required term counting as present when a
+         * qualification term starts with it
+         *
+         * @param vector The teacher's vector
+         * @return 1 for an empty query, otherwise from 0 (nothing matches) to 1
+         */
+        public double score(TermVector vector) {
+            if (termCount == 0) {
+                return 1;
+            }
+            long matched = 0;
+            for (int term : vector.terms) {
+                if (term < masks.length) {
+                    matched |= masks[term];
+                }
+            }
+            // Two required terms may match the same qualification; count it once so the score stays at most 1
+            return Math.min(Long.bitCount(matched), vector.terms.length) * norm * vector.norm;
+        }
+    }
+
+    private final IntObjectMap<TermVector> vectors = new IntObjectMap<>();
+    // Terms in sorted order so that required terms can be matched as prefixes by range
+    private final TreeMap<String, Integer> termNumbers = new TreeMap<>();
+
+    /**
+     * Get the vector of a teacher, building it if it is missing or was built from other text
+     *
+     * @param id Teacher ID
+     * @param qualifications The teacher's current free-text qualifications, may be null
+     * @return The vector
+     */
+    public synchronized TermVector get(int id, String qualifications) {
+        String source = qualifications == null ? "" : qualifications;
+        TermVector vector = vectors.get(id);
+        if (vector == null || !vector.source.equals(source)) {
+            vector = build(source);
+            vectors.put(id, vector);
+        }
+        return vector;
+    }
+
+    /**
+     * Get the vectors of many teachers under a single lock
+     *
+     * @param ids Teacher IDs
+     * @param qualifications Their current qualifications, in the same order
+     * @return The vectors, in the same order
+     */
+    public synchronized TermVector[] getAll(int[] ids, String[] qualifications) {
+        TermVector[] result = new TermVector[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = get(ids[i], qualifications[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Drop the vector of a teacher whose qualifications changed or who was removed
+     *
+     * @param id Teacher ID
+     */
+    public synchronized void invalidate(int id) {
+        vectors.remove(id);
+    }
+
+    /**
+     * Drop every vector
+     */
+    public synchronized void clear() {
+        vectors.clear();
+    }
+
+    public synchronized int size() {
+        return vectors.size();
+    }
+
+    /**
+     * Prepare required qualifications for scoring
+     *
+     * @param required Required qualifications; normalised as by {@link QualificationIndex#normalize}
+     * @return The query
+     */
+    public synchronized Query prepare(Collection<String> required) {
+        List<String> terms = QualificationIndex.normalize(required);
+        int termCount = Math.min(terms.size(), MAX_QUERY_TERMS);
+        long[] masks = new long[termNumbers.size()];
+        for (int i = 0; i < termCount; i++) {
+            String prefix = terms.get(i);
+            for (int term : termNumbers.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+                masks[term] |= 1L << i;
+            }
+        }
+        return new Query(masks, termCount);
+    }
+
+    private TermVector build(String source) {
+        List<String> words = QualificationIndex.tokenize(source);
+        int[] terms = new int[words.size()];
+        for (int i = 0; i < terms.length; i++) {
+            Integer number = termNumbers.get(words.get(i));
+            if (number == null) {
+                number = termNumbers.size();
+                termNumbers.put(words.get(i), number);
+            }
+            terms[i] = number;
+        }
+        Arrays.sort(terms);
+        return new TermVector(source, terms);
+    }
+}
@@ -0,0 +1,55 @@
+package util;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks shared out by key
+ * Each key maps to one of a power-of-two number of stripes, so operations on different keys
+ * rarely wait for each other while memory stays bounded however many keys there are. Two keys
+ * may share a stripe; a thread must not hold one stripe while taking another, or it may deadlock.
+ */
+public final class StripedLock {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * Constructor
+     *
+     * @param minimumStripes Lower bound on the number of stripes; rounded up to a power of two
+     */
+    public StripedLock(int minimumStripes) {
+        if (minimumStripes < 1 || minimumStripes > 1 << 16) {
+            throw new IllegalArgumentException("Between 1 and 65536 stripes are supported");
+        }
+        int count = 1;
+        while (count < minimumStripes) {
+            count <<= 1;
+        }
+        stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        mask = count - 1;
+    }
+
+    /**
+     * Get the lock guarding a key
+     *
+     * @param key The key, hashed with {@link Object#hashCode()}
+     * @return The stripe's lock
+     */
+    public ReentrantLock get(Object key) {
+        return stripes[spread(key.hashCode()) & mask];
+    }
+
+    public int size() {
+        return stripes.length;
+    }
+
+    // Mix the high bits into the low ones, which select the stripe
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        return hash ^ hash >>> 13;
+    }
+}
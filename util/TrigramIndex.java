@@ -0,0 +1,158 @@
+package util;
+
+import java.util.*;
+
+/**
+ * Trigram index for case-insensitive substring search
+ * Each document's text is lower-cased and broken into overlapping three-character
+ * sequences, and each trigram keeps a sorted posting list of the documents containing it.
+ * A query intersects the posting lists of its own trigrams, starting with the shortest,
+ * and only the surviving candidates are checked with a real substring test. Queries
+ * shorter than three characters have no trigrams and fall back to checking every document.
+ * Not thread-safe.
+ */
+public final class TrigramIndex {
+    private final Map<Long, PostingList> postings = new HashMap<>();
+
+    // Documents are numbered internally so that posting lists can hold primitive ints
+    private final Map<String, Integer> ordinalByKey = new HashMap<>();
+    private final List<String> keyByOrdinal = new ArrayList<>();
+    // Lower-cased text of each document, used to verify candidates and to unindex on change
+    private final List<String> textByOrdinal = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+    /**
+     * Index or re-index a document
+     *
+     * @param key Document key
+     * @param text Text to index, may be null
+     */
+    public void put(String key, String text) {
+        String normalized = normalize(text);
+        Integer ordinal = ordinalByKey.get(key);
+        if (ordinal == null) {
+            ordinal = freeOrdinals.isEmpty() ? keyByOrdinal.size() : freeOrdinals.pop();
+            ordinalByKey.put(key, ordinal);
+            if (ordinal == keyByOrdinal.size()) {
+                keyByOrdinal.add(key);
+                textByOrdinal.add(normalized);
+            } else {
+                keyByOrdinal.set(ordinal, key);
+                textByOrdinal.set(ordinal, normalized);
+            }
+            addPostings(ordinal, trigrams(normalized));
+            return;
+        }
+
+        String previous = textByOrdinal.get(ordinal);
+        if (previous.equals(normalized)) {
+            return;
+        }
+        Set<Long> before = trigrams(previous);
+        Set<Long> after = trigrams(normalized);
+        for (Long trigram : before) {
+            if (!after.contains(trigram)) {
+                removePosting(trigram, ordinal);
+            }
+        }
+        after.removeAll(before);
+        addPostings(ordinal, after);
+        textByOrdinal.set(ordinal, normalized);
+    }
+
+    /**
+     * Remove a document from the index
+     *
+     * @param key Document key
+     */
+    public void remove(String key) {
+        Integer ordinal = ordinalByKey.remove(key);
+        if (ordinal == null) {
+            return;
+        }
+        for (Long trigram : trigrams(textByOrdinal.get(ordinal))) {
+            removePosting(trigram, ordinal);
+        }
+        keyByOrdinal.set(ordinal, null);
+        textByOrdinal.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+    }
+
+    /**
+     * Remove every document from the index
+     */
+    public void clear() {
+        postings.clear();
+        ordinalByKey.clear();
+        keyByOrdinal.clear();
+        textByOrdinal.clear();
+        freeOrdinals.clear();
+    }
+
+    /**
+     * Find the documents whose text contains the query, ignoring case
+     *
+     * @param query Substring to look for
+     * @return keys of the matching documents
+     */
+    public List<String> search(String query) {
+        String needle = normalize(query);
+        List<String> keys = new ArrayList<>();
+        if (needle.length() < 3) {
+            for (int ordinal = 0; ordinal < keyByOrdinal.size(); ordinal++) {
+                String text = textByOrdinal.get(ordinal);
+                if (text != null && text.contains(needle)) {
+                    keys.add(keyByOrdinal.get(ordinal));
+                }
+            }
+            return keys;
+        }
+
+        List<PostingList> lists = new ArrayList<>();
+        for (Long trigram : trigrams(needle)) {
+            PostingList list = postings.get(trigram);
+            if (list == null) {
+                return keys;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        int[] candidates = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = PostingList.intersect(candidates, lists.get(i).toArray());
+        }
+        for (int ordinal : candidates) {
+            if (textByOrdinal.get(ordinal).contains(needle)) {
+                keys.add(keyByOrdinal.get(ordinal));
+            }
+        }
+        return keys;
+    }
+
+    private void addPostings(int ordinal, Set<Long> trigrams) {
+        for (Long trigram : trigrams) {
+            postings.computeIfAbsent(trigram, t -> new PostingList()).add(ordinal);
+        }
+    }
+
+    private void removePosting(Long trigram, int ordinal) {
+        PostingList list = postings.get(trigram);
+        if (list != null && list.remove(ordinal) && list.size() == 0) {
+            postings.remove(trigram);
+        }
+    }
+
+    // Three UTF-16 characters packed into one long
+    private static Set<Long> trigrams(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
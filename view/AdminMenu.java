@@ -1,8 +1,13 @@
 package view;
 
 import controller.AdminController;
+import dao.Page;
+import dao.query.Condition;
+import dao.query.QueryResult;
+import dao.query.TeacherConditions;
 import model.Teacher;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Scanner;
 
@@ -12,6 +17,9 @@ import java.util.Scanner;
  * @version 1.0.0
  */
 public class AdminMenu {
+    // Number of teachers shown at a time when listing all teachers
+    private static final int PAGE_SIZE = 20;
+
     private final AdminController adminController;
     private final Scanner scanner;
 
@@ -37,6 +45,8 @@ public class AdminMenu {
             System.out.println("4. List All Teachers");
             System.out.println("5. Find Teacher by ID");
             System.out.println("6. Search Teachers by Qualification");
+            System.out.println("7. List Available Teachers");
+            System.out.println("8. Advanced Teacher Search");
             System.out.println("0. Return to Main Menu");
             System.out.print("Enter choice: ");
 
@@ -67,6 +77,12 @@ public class AdminMenu {
                 case 6:
                     searchTeachersByQualification();
                     break;
+                case 7:
+                    listAvailableTeachers();
+                    break;
+                case 8:
+                    advancedSearch();
+                    break;
                 case 0:
                     return;
                 default:
@@ -155,7 +171,29 @@ public class AdminMenu {
      * List all teachers
      */
     private void listAllTeachers() {
-        List<Teacher> teachers = adminController.listAllTeachers();
+        Page<Teacher> page = adminController.listTeachersPage(null, PAGE_SIZE);
+        if (page.isEmpty()) {
+            System.out.println("No teachers available.");
+            return;
+        }
+        while (true) {
+            page.getItems().forEach(System.out::println);
+            if (!page.hasMore()) {
+                return;
+            }
+            System.out.print("Press Enter for more, or q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                return;
+            }
+            page = adminController.listTeachersPage(page.getLast(), PAGE_SIZE);
+        }
+    }
+
+    /**
+     * List all available teachers
+     */
+    private void listAvailableTeachers() {
+        List<Teacher> teachers = adminController.listAvailableTeachers();
         if (teachers.isEmpty()) {
             System.out.println("No teachers available.");
         } else {
@@ -188,7 +226,7 @@ public class AdminMenu {
      * Search teachers by qualification
      */
     private void searchTeachersByQualification() {
-        System.out.print("Enter Qualification Keyword: ");
+        System.out.print("Enter Qualification Keyword(s) (separate with OR to match any): ");
         String keyword = scanner.nextLine();
 
         List<Teacher> teachers = adminController.searchTeachersByQualification(keyword);
@@ -198,4 +236,36 @@ public class AdminMenu {
             teachers.forEach(System.out::println);
         }
     }
+
+    /**
+     * Search teachers by several criteria at once and show how the search was answered
+     */
+    private void advancedSearch() {
+        Condition<Teacher> condition = Condition.always();
+
+        System.out.print("Qualification Keyword(s) (leave blank for any): ");
+        String qualifications = scanner.nextLine().trim();
+        if (!qualifications.isEmpty()) {
+            condition = condition.and(TeacherConditions.qualifiedIn(Collections.singletonList(qualifications), true));
+        }
+
+        System.out.print("Available teachers only? (y/n): ");
+        if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+            condition = condition.and(TeacherConditions.available());
+        }
+
+        System.out.print("Name contains (leave blank for any): ");
+        String name = scanner.nextLine().trim();
+        if (!name.isEmpty()) {
+            condition = condition.and(TeacherConditions.nameContains(name));
+        }
+
+        QueryResult<Teacher> result = adminController.queryTeachers(condition);
+        if (result.getRows().isEmpty()) {
+            System.out.println("No teachers match the search.");
+        } else {
+            result.getRows().forEach(System.out::println);
+        }
+        System.out.println(result.explain());
+    }
 }
@@ -1,11 +1,20 @@
 package view;
 
+import controller.AssignmentController;
 import controller.ClassDirectorController;
+import dao.Page;
+import dao.query.Condition;
+import dao.query.QueryResult;
+import dao.query.RequirementConditions;
+import model.RoomUtilization;
+import model.ScheduleConflict;
 import model.TeachingRequirement;
+import model.WeeklySchedule;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -13,7 +22,13 @@ import java.util.Scanner;
  * Provide course director user interface to handle user input and display outputs
  */
 public class ClassDirectorMenu {
+    // Number of requirements shown at a time when viewing all requirements
+    private static final int PAGE_SIZE = 20;
+    // Number of teachers recommended when a requirement is opened for assignment
+    private static final int RECOMMENDATIONS = 5;
+
     private final ClassDirectorController controller;
+    private final AssignmentController assignmentController;
     private final Scanner scanner;
 
     /**
@@ -23,7 +38,20 @@ public class ClassDirectorMenu {
      * @param scanner Input Scanner
      */
     public ClassDirectorMenu(ClassDirectorController controller, Scanner scanner) {
+        this(controller, null, scanner);
+    }
+
+    /**
+     * constructor
+     *
+     * @param controller Course Director Controller
+     * @param assignmentController Bulk assignment controller, or null to hide automatic assignment
+     * @param scanner Input Scanner
+     */
+    public ClassDirectorMenu(ClassDirectorController controller, AssignmentController assignmentController,
+                             Scanner scanner) {
         this.controller = controller;
+        this.assignmentController = assignmentController;
         this.scanner = scanner;
     }
     /**
@@ -38,6 +66,15 @@ public class ClassDirectorMenu {
             System.out.println("4. Delete Requirement");
             System.out.println("5. View Requirements by Status");
             System.out.println("6. Search Requirements");
+            System.out.println("7. Assign Teacher to Requirement");
+            System.out.println("8. Schedule Conflict Report");
+            if (assignmentController != null) {
+                System.out.println("9. Assign Teachers Automatically");
+            }
+            System.out.println("10. View Requirements by Teacher");
+            System.out.println("11. Advanced Requirement Search");
+            System.out.println("12. Room Utilization Report");
+            System.out.println("13. Find Free Rooms and Times");
             System.out.println("0. Return to Main Menu");
             System.out.print("Please select: ");
 
@@ -70,6 +107,31 @@ public class ClassDirectorMenu {
                 case 6:
                     searchRequirements();
                     break;
+                case 7:
+                    assignTeacher();
+                    break;
+                case 8:
+                    viewConflictReport();
+                    break;
+                case 9:
+                    if (assignmentController == null) {
+                        System.out.println("Invalid choice, please try again");
+                        break;
+                    }
+                    assignAutomatically();
+                    break;
+                case 10:
+                    viewRequirementsByTeacher();
+                    break;
+                case 11:
+                    advancedSearch();
+                    break;
+                case 12:
+                    viewRoomUtilization();
+                    break;
+                case 13:
+                    findFreeRooms();
+                    break;
                 default:
                     System.out.println("Invalid choice, please try again");
             }
@@ -104,8 +166,18 @@ public class ClassDirectorMenu {
         System.out.print("Notes: ");
         String notes = scanner.nextLine().trim();
 
-        TeachingRequirement requirement = controller.createRequirement(
-                courseName, courseCode, schedule, location, qualifications, notes);
+        if (WeeklySchedule.parse(schedule).isEmpty()) {
+            System.out.println("Note: the schedule was not recognised and will not be checked for conflicts");
+        }
+
+        TeachingRequirement requirement;
+        try {
+            requirement = controller.createRequirement(
+                    courseName, courseCode, schedule, location, qualifications, notes);
+        } catch (IllegalStateException e) {
+            System.out.println("Creation failed, " + e.getMessage());
+            return;
+        }
 
         if (requirement != null) {
             System.out.println("Requirement created successfully");
@@ -118,8 +190,27 @@ public class ClassDirectorMenu {
      * View all teaching needs
      */
     private void viewAllRequirements() {
-        List<TeachingRequirement> requirements = controller.getAllRequirements();
-        displayRequirements(requirements, "All Teaching Requirements");
+        System.out.println("\n===== All Teaching Requirements =====");
+        Page<TeachingRequirement> page = controller.getRequirementsPage(null, PAGE_SIZE);
+        if (page.isEmpty()) {
+            System.out.println("No requirements found");
+            return;
+        }
+
+        int index = 1;
+        while (true) {
+            for (TeachingRequirement requirement : page.getItems()) {
+                displayRequirement(index++, requirement);
+            }
+            if (!page.hasMore()) {
+                return;
+            }
+            System.out.print("Press Enter for more, or q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                return;
+            }
+            page = controller.getRequirementsPage(page.getLast(), PAGE_SIZE);
+        }
     }
 
     /**
@@ -233,10 +324,12 @@ public class ClassDirectorMenu {
      * View Requirements by Status
      */
     private void viewRequirementsByStatus() {
+        Map<TeachingRequirement.RequirementStatus, Integer> counts = controller.countRequirementsByStatus();
         System.out.println("\n===== View Requirements by Status =====");
-        System.out.println("1. Unassigned");
-        System.out.println("2. Partially Assigned");
-        System.out.println("3. Fully Assigned");
+        System.out.println("1. Unassigned (" + counts.get(TeachingRequirement.RequirementStatus.UNASSIGNED) + ")");
+        System.out.println("2. Partially Assigned ("
+                + counts.get(TeachingRequirement.RequirementStatus.PARTIALLY_ASSIGNED) + ")");
+        System.out.println("3. Fully Assigned (" + counts.get(TeachingRequirement.RequirementStatus.FULLY_ASSIGNED) + ")");
         System.out.print("Please select status: ");
 
         int choice;
@@ -272,6 +365,223 @@ public class ClassDirectorMenu {
         displayRequirements(requirements, statusName + " Requirements with status: " + statusName + ")");
     }
 
+    /**
+     * Assign a teacher to a teaching requirement
+     */
+    private void assignTeacher() {
+        List<TeachingRequirement> requirements = controller.getAllRequirements();
+
+        if (requirements.isEmpty()) {
+            System.out.println("\nNo requirements to assign");
+            return;
+        }
+
+        displayRequirements(requirements, "All Teaching Requirements");
+
+        System.out.print("\nEnter the ID of the requirement: ");
+        String id = scanner.nextLine().trim();
+
+        TeachingRequirement requirement = controller.getRequirementById(id);
+        if (requirement == null) {
+            System.out.println("Requirement with this ID not found");
+            return;
+        }
+
+        if (assignmentController != null) {
+            List<AssignmentController.Recommendation> recommendations =
+                    assignmentController.recommendTeachers(requirement, RECOMMENDATIONS);
+            if (!recommendations.isEmpty()) {
+                System.out.println("\nRecommended teachers:");
+                for (AssignmentController.Recommendation recommendation : recommendations) {
+                    System.out.println("   " + recommendation);
+                }
+            }
+        }
+
+        System.out.print("Enter the Teacher ID: ");
+        String teacherId = scanner.nextLine().trim();
+
+        List<TeachingRequirement> conflicts = controller.getTeacherConflicts(id, teacherId);
+        if (!conflicts.isEmpty()) {
+            System.out.println("Assignment failed, the teacher is already teaching at that time:");
+            for (TeachingRequirement conflict : conflicts) {
+                System.out.println("   " + conflict.getCourseName() + " (" + conflict.getSchedule() + ")");
+            }
+            return;
+        }
+
+        if (controller.assignTeacher(id, teacherId)) {
+            System.out.println("Teacher assigned successfully");
+        } else {
+            System.out.println("Assignment failed, please check your input");
+        }
+    }
+
+    /**
+     * Report every schedule conflict between requirements
+     */
+    private void viewConflictReport() {
+        List<ScheduleConflict> conflicts = controller.findAllConflicts();
+        System.out.println("\n===== Schedule Conflict Report =====");
+
+        if (conflicts.isEmpty()) {
+            System.out.println("No conflicts found");
+            return;
+        }
+
+        int index = 1;
+        for (ScheduleConflict conflict : conflicts) {
+            System.out.println(index + ". " + conflict);
+            index++;
+        }
+    }
+
+    /**
+     * Report how every room is booked over the week
+     */
+    private void viewRoomUtilization() {
+        List<RoomUtilization> rooms = controller.getRoomUtilization();
+        System.out.println("\n===== Room Utilization Report =====");
+
+        if (rooms.isEmpty()) {
+            System.out.println("No rooms in use");
+            return;
+        }
+
+        int index = 1;
+        for (RoomUtilization room : rooms) {
+            System.out.println(index + ". " + room);
+            index++;
+        }
+    }
+
+    /**
+     * Find the free times of a room, or the rooms free at given times
+     */
+    private void findFreeRooms() {
+        System.out.print("Location (leave blank to search all rooms): ");
+        String location = scanner.nextLine().trim();
+        System.out.print("Times （e.g. Mon 9:00-11:00, leave blank for Mon-Fri 8:00-18:00）: ");
+        String window = scanner.nextLine().trim();
+
+        if (!location.isEmpty()) {
+            WeeklySchedule free = controller.getFreeTimes(location, window);
+            System.out.println(free.isEmpty() ? "No free times" : "Free times: " + free);
+            return;
+        }
+
+        List<String> rooms = controller.getFreeLocations(window);
+        if (rooms.isEmpty()) {
+            System.out.println("No room is free for the whole time");
+        } else {
+            System.out.println("Free rooms: " + String.join(", ", rooms));
+        }
+    }
+
+    /**
+     * Propose teachers for every unassigned requirement and apply the proposal on confirmation
+     */
+    private void assignAutomatically() {
+        System.out.print("\nPrefer the most closely qualified and least busy teachers? (Y/N): ");
+        boolean weighted = scanner.nextLine().trim().equalsIgnoreCase("Y");
+
+        List<AssignmentController.Assignment> plan = assignmentController.planAssignments(weighted);
+        System.out.println("\n===== Proposed Assignments =====");
+        if (plan.isEmpty()) {
+            System.out.println("No unassigned requirement has an eligible available teacher");
+            return;
+        }
+        int index = 1;
+        for (AssignmentController.Assignment assignment : plan) {
+            System.out.println(index + ". " + assignment);
+            index++;
+        }
+
+        System.out.print("Apply these assignments? (Y/N): ");
+        if (!scanner.nextLine().trim().equalsIgnoreCase("Y")) {
+            System.out.println("Assignments cancelled");
+            return;
+        }
+        List<AssignmentController.Assignment> applied = assignmentController.applyAssignments(plan);
+        System.out.println(applied.size() + " of " + plan.size() + " assignments applied");
+    }
+
+    /**
+     * View the requirements a teacher is assigned to
+     */
+    private void viewRequirementsByTeacher() {
+        System.out.print("\nEnter the Teacher ID: ");
+        String teacherId = scanner.nextLine().trim();
+
+        List<TeachingRequirement> requirements = controller.getRequirementsByTeacher(teacherId);
+        displayRequirements(requirements, "Requirements Assigned to Teacher " + teacherId);
+    }
+
+    /**
+     * Search requirements by several criteria at once and show how the search was answered
+     */
+    private void advancedSearch() {
+        System.out.println("\n===== Advanced Requirement Search =====");
+        System.out.println("Leave any criterion blank to ignore it");
+        Condition<TeachingRequirement> condition = Condition.always();
+
+        System.out.print("Status (1. Unassigned, 2. Partially Assigned, 3. Fully Assigned): ");
+        String statusInput = scanner.nextLine().trim();
+        if (!statusInput.isEmpty()) {
+            TeachingRequirement.RequirementStatus[] statuses = TeachingRequirement.RequirementStatus.values();
+            int choice;
+            try {
+                choice = Integer.parseInt(statusInput);
+            } catch (NumberFormatException e) {
+                choice = 0;
+            }
+            if (choice < 1 || choice > statuses.length) {
+                System.out.println("Invalid choice");
+                return;
+            }
+            condition = condition.and(RequirementConditions.hasStatus(statuses[choice - 1]));
+        }
+
+        System.out.print("Course name contains: ");
+        String courseName = scanner.nextLine().trim();
+        if (!courseName.isEmpty()) {
+            condition = condition.and(RequirementConditions.courseNameContains(courseName));
+        }
+
+        System.out.print("Course code: ");
+        String courseCode = scanner.nextLine().trim();
+        if (!courseCode.isEmpty()) {
+            condition = condition.and(RequirementConditions.hasCourseCode(courseCode));
+        }
+
+        System.out.print("Location: ");
+        String location = scanner.nextLine().trim();
+        if (!location.isEmpty()) {
+            condition = condition.and(RequirementConditions.atLocation(location));
+        }
+
+        System.out.print("Assigned Teacher ID: ");
+        String teacherId = scanner.nextLine().trim();
+        if (!teacherId.isEmpty()) {
+            condition = condition.and(RequirementConditions.assignedTo(teacherId));
+        }
+
+        System.out.print("Overlapping time （e.g. Mon 9:00-11:00）: ");
+        String schedule = scanner.nextLine().trim();
+        if (!schedule.isEmpty()) {
+            WeeklySchedule weeklySchedule = WeeklySchedule.parse(schedule);
+            if (weeklySchedule.isEmpty()) {
+                System.out.println("The time was not recognised");
+                return;
+            }
+            condition = condition.and(RequirementConditions.overlaps(weeklySchedule));
+        }
+
+        QueryResult<TeachingRequirement> result = controller.queryRequirements(condition);
+        displayRequirements(result.getRows(), "Search Results");
+        System.out.println(result.explain());
+    }
+
     /**
      * Search for Teaching Requirements
      */
@@ -299,16 +609,20 @@ public class ClassDirectorMenu {
 
         int index = 1;
         for (TeachingRequirement requirement : requirements) {
-            System.out.println(index + ". " + requirement.getCourseName() + " (" + requirement.getCourseCode() + ")");
-            System.out.println("   ID: " + requirement.getId());
-            System.out.println("   Course: " + requirement.getCourseName() + " (" + requirement.getCourseCode() + ")");
-            System.out.println("   Schedule: " + requirement.getSchedule());
-            System.out.println("   Location: " + requirement.getLocation());
-            System.out.println("   Required Qualifications: " + String.join(", ", requirement.getRequiredQualifications()));
-            System.out.println("   Status: " + requirement.getStatus().name());
-            System.out.println("   Notes: " + requirement.getNotes());
-            System.out.println();
+            displayRequirement(index, requirement);
             index++;
         }
     }
+
+    private void displayRequirement(int index, TeachingRequirement requirement) {
+        System.out.println(index + ". " + requirement.getCourseName() + " (" + requirement.getCourseCode() + ")");
+        System.out.println("   ID: " + requirement.getId());
+        System.out.println("   Course: " + requirement.getCourseName() + " (" + requirement.getCourseCode() + ")");
+        System.out.println("   Schedule: " + requirement.getSchedule());
+        System.out.println("   Location: " + requirement.getLocation());
+        System.out.println("   Required Qualifications: " + String.join(", ", requirement.getRequiredQualifications()));
+        System.out.println("   Status: " + requirement.getStatus().name());
+        System.out.println("   Notes: " + requirement.getNotes());
+        System.out.println();
+    }
 }
\ No newline at end of file